@@ -0,0 +1,370 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.app;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jdo.PersistenceManager;
+import javax.jdo.Transaction;
+import javax.transaction.Synchronization;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.joda.time.LocalDate;
+
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.Hidden;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.bookmark.Bookmark;
+import org.apache.isis.applib.services.jdosupport.IsisJdoSupport;
+
+import org.estatio.dom.EstatioService;
+import org.estatio.dom.PortfolioChangeListener;
+import org.estatio.dom.event.Event;
+import org.estatio.dom.event.Events;
+import org.estatio.dom.invoice.viewmodel.InvoiceSummariesForInvoiceRun;
+import org.estatio.dom.invoice.viewmodel.InvoiceSummaryForInvoiceRun;
+import org.estatio.dom.lease.Lease;
+import org.estatio.dom.lease.Leases;
+
+/**
+ * Application-scoped snapshot of what the {@link EstatioAppDashboard} shows (the leases about to expire and
+ * counters of the pending invoice runs), so that rendering the dashboard (every user's home page) does not query
+ * the whole portfolio. The upcoming events are served by the {@link org.estatio.dom.event.EventCache}'s window
+ * of upcoming events, which is kept up to date incrementally, rather than by a snapshot of it.
+ * 
+ * <p>
+ * Each part of the snapshot is recomputed when it is next needed after a relevant write (notified, as the
+ * {@link PortfolioChangeListener}, by {@link #leasesChanged()} and {@link #invoicesChanged()}: at once, and again
+ * once the transaction has completed, so that a part recomputed meanwhile from the rows as they were before the
+ * write was committed is not served afterwards), when the date changes,
+ * and in any case once it is older than <tt>estatio.dashboardSnapshot.maxAgeMinutes</tt> (default
+ * {@value #DEFAULT_MAX_AGE_MINUTES}, to pick up writes made by other webapp nodes); the
+ * <tt>DashboardSnapshotJob</tt> {@link #refresh() refreshes} it on a schedule, so that users rarely wait for
+ * it. As for the other caches, it is the {@link Bookmark}s of the leases that are held.
+ */
+@DomainService
+@Hidden
+public class DashboardSnapshotService extends EstatioService<DashboardSnapshotService> implements PortfolioChangeListener {
+
+    static final String KEY_MAX_AGE_MINUTES = "estatio.dashboardSnapshot.maxAgeMinutes";
+    static final long DEFAULT_MAX_AGE_MINUTES = 30;
+
+    /**
+     * How far ahead the dashboard looks for expiring leases and upcoming events.
+     */
+    public static final int MONTHS = 3;
+
+    private long maxAgeNanos = TimeUnit.MINUTES.toNanos(DEFAULT_MAX_AGE_MINUTES);
+
+    private final Part<List<Bookmark>> leasesAboutToExpire = new Part<List<Bookmark>>() {
+        @Override
+        List<Bookmark> compute(final LocalDate date) {
+            return bookmarksFor(leases.findExpireInDateRange(date, date.plusMonths(MONTHS)));
+        }
+    };
+
+    private final Part<InvoiceRunCounters> invoiceRunCounters = new Part<InvoiceRunCounters>() {
+        @Override
+        InvoiceRunCounters compute(final LocalDate date) {
+            int invoices = 0;
+            final List<InvoiceSummaryForInvoiceRun> runs = invoiceSummaries.allInvoiceRuns();
+            for (final InvoiceSummaryForInvoiceRun run : runs) {
+                invoices += run.getTotal();
+            }
+            return new InvoiceRunCounters(runs.size(), invoices);
+        }
+    };
+
+    public DashboardSnapshotService() {
+        super(DashboardSnapshotService.class);
+    }
+
+    @Override
+    @Programmatic
+    public void init(final Map<String, String> properties) {
+        super.init(properties);
+        final String maxAgeMinutes = properties.get(KEY_MAX_AGE_MINUTES);
+        if (maxAgeMinutes != null) {
+            try {
+                maxAgeNanos = TimeUnit.MINUTES.toNanos(Long.parseLong(maxAgeMinutes.trim()));
+            } catch (final NumberFormatException e) {
+                // ignore, keep default
+            }
+        }
+    }
+
+    // //////////////////////////////////////
+
+    @Programmatic
+    public List<Lease> getLeasesAboutToExpire() {
+        return resolveAll(Lease.class, leasesAboutToExpire);
+    }
+
+    @Programmatic
+    public List<Event> getUpcomingEvents() {
+        final LocalDate today = today();
+        return Collections.unmodifiableList(events.findUpcomingEvents(today, today.plusMonths(MONTHS)));
+    }
+
+    @Programmatic
+    public InvoiceRunCounters getInvoiceRunCounters() {
+        return invoiceRunCounters.get(today());
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Recomputes the whole snapshot, eg on a schedule.
+     */
+    @Programmatic
+    public void refresh() {
+        final LocalDate today = today();
+        leasesAboutToExpire.refresh(today);
+        invoiceRunCounters.refresh(today);
+    }
+
+    /**
+     * A lease has been created, changed or removed.
+     */
+    @Override
+    @Programmatic
+    public void leasesChanged() {
+        changed(leasesAboutToExpire);
+    }
+
+    /**
+     * An invoice has been created, changed or removed (eg added to, or approved and so removed from, an invoice
+     * run).
+     */
+    @Override
+    @Programmatic
+    public void invoicesChanged() {
+        changed(invoiceRunCounters);
+    }
+
+    private void changed(final Part<?> part) {
+        part.invalidate();
+        final Transaction transaction = currentTransaction();
+        if (transaction == null || !transaction.isActive()) {
+            return;
+        }
+        final Synchronization synchronization = transaction.getSynchronization();
+        if (synchronization instanceof PendingInvalidations && ((PendingInvalidations) synchronization).isFor(this)) {
+            ((PendingInvalidations) synchronization).add(part);
+        } else {
+            final PendingInvalidations pendingInvalidations = new PendingInvalidations(this, synchronization);
+            pendingInvalidations.add(part);
+            transaction.setSynchronization(pendingInvalidations);
+        }
+    }
+
+    private Transaction currentTransaction() {
+        if (isisJdoSupport == null) {
+            return null;
+        }
+        final PersistenceManager pm = isisJdoSupport.getJdoPersistenceManager();
+        return pm != null ? pm.currentTransaction() : null;
+    }
+
+    // //////////////////////////////////////
+
+    LocalDate today() {
+        return getClockService().now();
+    }
+
+    private List<Bookmark> bookmarksFor(final List<?> domainObjects) {
+        final ImmutableList.Builder<Bookmark> bookmarks = ImmutableList.builder();
+        for (final Object domainObject : domainObjects) {
+            if (getContainer().isPersistent(domainObject)) {
+                bookmarks.add(getBookmarkService().bookmarkFor(domainObject));
+            }
+        }
+        return bookmarks.build();
+    }
+
+    private <T> List<T> resolveAll(final Class<T> type, final Part<List<Bookmark>> part) {
+        final List<Bookmark> bookmarks = part.get(today());
+        final List<T> domainObjects = Lists.newArrayListWithCapacity(bookmarks.size());
+        for (final Bookmark bookmark : bookmarks) {
+            try {
+                final Object domainObject = getBookmarkService().lookup(bookmark);
+                if (domainObject != null) {
+                    domainObjects.add(type.cast(domainObject));
+                }
+            } catch (final RuntimeException e) {
+                // deleted meanwhile (perhaps by another node); ignore until the next refresh
+                part.invalidate();
+            }
+        }
+        return Collections.unmodifiableList(domainObjects);
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The parts invalidated within a transaction, invalidated again once it has completed; chains to any
+     * {@link Synchronization} already registered with the transaction.
+     */
+    static class PendingInvalidations implements Synchronization {
+        private final DashboardSnapshotService service;
+        private final Synchronization previous;
+        private final Set<Part<?>> parts = Sets.newLinkedHashSet();
+
+        PendingInvalidations(final DashboardSnapshotService service, final Synchronization previous) {
+            this.service = service;
+            this.previous = previous;
+        }
+
+        boolean isFor(final DashboardSnapshotService service) {
+            return this.service == service;
+        }
+
+        void add(final Part<?> part) {
+            parts.add(part);
+        }
+
+        @Override
+        public void beforeCompletion() {
+            if (previous != null) {
+                previous.beforeCompletion();
+            }
+        }
+
+        @Override
+        public void afterCompletion(final int status) {
+            try {
+                for (final Part<?> part : parts) {
+                    part.invalidate();
+                }
+            } finally {
+                // the (JDO) transaction, and so this synchronization, is reused for the next transaction
+                parts.clear();
+                if (previous != null) {
+                    previous.afterCompletion(status);
+                }
+            }
+        }
+    }
+
+    /**
+     * A part of the snapshot, computed for a date.
+     * 
+     * <p>
+     * The value is computed without holding any lock, so that a slow query neither blocks the readers of the
+     * current value nor the notifications of writes, and is then swapped in, unless a value computed later (from
+     * more recent data) has been swapped in meanwhile.  Concurrent refreshes may therefore compute the same value
+     * more than once.
+     */
+    private abstract class Part<V> {
+
+        private final AtomicLong version = new AtomicLong();
+        private volatile Computed<V> current;
+
+        abstract V compute(LocalDate date);
+
+        V get(final LocalDate today) {
+            final Computed<V> computed = current;
+            if (computed == null
+                    || computed.version != version.get()
+                    || !today.equals(computed.date)
+                    || System.nanoTime() - computed.computedAt > maxAgeNanos) {
+                return refresh(today);
+            }
+            return computed.value;
+        }
+
+        V refresh(final LocalDate today) {
+            final long expectedVersion = version.get();
+            // if invalidated meanwhile, its version no longer matches, and it is computed again when next needed
+            final Computed<V> computed = new Computed<V>(compute(today), today, expectedVersion);
+            synchronized (this) {
+                if (current == null || current.version <= computed.version) {
+                    current = computed;
+                }
+            }
+            return computed.value;
+        }
+
+        void invalidate() {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * A value of a {@link Part}, along with when (and from which version of the data) it was computed.
+     */
+    private static class Computed<V> {
+
+        private final V value;
+        private final LocalDate date;
+        private final long version;
+        private final long computedAt = System.nanoTime();
+
+        Computed(final V value, final LocalDate date, final long version) {
+            this.value = value;
+            this.date = date;
+            this.version = version;
+        }
+    }
+
+    /**
+     * The number of invoice runs not yet approved, and of the invoices in them.
+     */
+    public static class InvoiceRunCounters {
+
+        private final int runs;
+        private final int invoices;
+
+        InvoiceRunCounters(final int runs, final int invoices) {
+            this.runs = runs;
+            this.invoices = invoices;
+        }
+
+        public int getRuns() {
+            return runs;
+        }
+
+        public int getInvoices() {
+            return invoices;
+        }
+    }
+
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    Leases leases;
+
+    @javax.inject.Inject
+    Events events;
+
+    @javax.inject.Inject
+    InvoiceSummariesForInvoiceRun invoiceSummaries;
+
+    @javax.inject.Inject
+    IsisJdoSupport isisJdoSupport;
+
+}
@@ -22,22 +22,19 @@ import java.util.List;
 
 import javax.inject.Inject;
 
+import org.apache.isis.applib.annotation.MemberOrder;
 import org.apache.isis.applib.annotation.Named;
 import org.apache.isis.applib.annotation.Render;
 import org.apache.isis.applib.annotation.Render.Type;
 import org.apache.isis.applib.annotation.ViewModel;
 
 import org.estatio.dom.event.Event;
-import org.estatio.dom.event.Events;
 import org.estatio.dom.lease.Lease;
-import org.estatio.dom.lease.Leases;
 
 @Named("Dashboard")
 @ViewModel
 public class EstatioAppDashboard extends EstatioViewModel {
 
-    private static final int MONTHS = 3;
-
     public String title() {
         return "Dashboard";
     }
@@ -48,24 +45,35 @@ public class EstatioAppDashboard extends EstatioViewModel {
 
     // //////////////////////////////////////
 
+    @Named("Pending invoice runs")
+    @MemberOrder(name = "Invoice runs", sequence = "1")
+    public int getPendingInvoiceRuns() {
+        return dashboardSnapshotService.getInvoiceRunCounters().getRuns();
+    }
+
+    @Named("Invoices in pending runs")
+    @MemberOrder(name = "Invoice runs", sequence = "2")
+    public int getInvoicesInPendingRuns() {
+        return dashboardSnapshotService.getInvoiceRunCounters().getInvoices();
+    }
+
+    // //////////////////////////////////////
+
     @Named("Leases about to expire")
     @Render(Type.EAGERLY)
     public List<Lease> getLeasesAboutToExpire() {
-        return leases.findExpireInDateRange(getClockService().now(), getClockService().now().plusMonths(MONTHS));
+        return dashboardSnapshotService.getLeasesAboutToExpire();
     }
 
     @Named("Upcoming events")
     @Render(Type.EAGERLY)
     public List<Event> getUpcomingEvents() {
-        return events.findEventsInDateRange(getClockService().now(), getClockService().now().plusMonths(MONTHS));
+        return dashboardSnapshotService.getUpcomingEvents();
     }
 
     // //////////////////////////////////////
 
     @Inject
-    private Leases leases;
-
-    @Inject
-    private Events events;
+    private DashboardSnapshotService dashboardSnapshotService;
 
 }
@@ -0,0 +1,81 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.app.lease;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+
+import org.estatio.dom.lease.Lease;
+import org.estatio.dom.lease.LeaseTerm;
+
+/**
+ * The leases affected by a bulk update of their terms, each verified once all the changes have been applied
+ * (rather than each term being verified as it is changed, re-verifying its item and re-aligning related items
+ * over and over again).
+ */
+public class LeasesToVerify {
+
+    private final Set<Lease> leases = Sets.newLinkedHashSet();
+    private int termsChanged;
+
+    /**
+     * Records that the term has been changed, so its lease needs verifying.
+     */
+    public void changed(final LeaseTerm leaseTerm) {
+        termsChanged++;
+        leases.add(leaseTerm.getLeaseItem().getLease());
+    }
+
+    public int getTermsChanged() {
+        return termsChanged;
+    }
+
+    public int getLeaseCount() {
+        return leases.size();
+    }
+
+    /**
+     * Verifies each of the leases, in the order their terms were changed.
+     */
+    public void verify() {
+        for (final Lease lease : leases) {
+            lease.verify();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d terms changed, %d leases verified", termsChanged, leases.size());
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Whether an uploaded value differs from the current one, disregarding scale (as spreadsheets do).
+     */
+    public static boolean isChange(final BigDecimal current, final BigDecimal uploaded) {
+        if (current == null || uploaded == null) {
+            return current != uploaded;
+        }
+        return current.compareTo(uploaded) != 0;
+    }
+
+}
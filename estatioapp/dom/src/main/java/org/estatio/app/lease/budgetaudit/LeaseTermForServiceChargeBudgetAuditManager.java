@@ -38,9 +38,14 @@ import org.apache.isis.applib.value.Blob;
 import org.isisaddons.module.excel.dom.ExcelService;
 
 import org.estatio.app.EstatioViewModel;
+import org.estatio.app.lease.LeasesToVerify;
 import org.estatio.dom.asset.Property;
+import org.estatio.dom.lease.LeaseItemType;
+import org.estatio.dom.lease.LeaseTerm;
 import org.estatio.dom.lease.LeaseTermForServiceCharge;
 import org.estatio.dom.lease.LeaseTerms;
+import org.estatio.services.excel.StreamingExcelService;
+import org.estatio.services.excel.StreamingExcelWorkbook;
 
 @Immutable
 @Bookmarkable
@@ -127,30 +132,68 @@ public class LeaseTermForServiceChargeBudgetAuditManager extends EstatioViewMode
 
     // //////////////////////////////////////
 
+    /**
+     * The number of terms fetched at a time by {@link #download()}.
+     */
+    static final int DOWNLOAD_PAGE_SIZE = 200;
+
+    /**
+     * Streams the terms straight into the spreadsheet a page at a time, in the same layout as the
+     * {@link LeaseTermForServiceChargeBudgetAuditLineItem line items}.
+     */
     @MemberOrder(name = "serviceCharges", sequence = "1")
     public Blob download() {
         final String fileName = "ServiceChargeBulkUpdate-" + getProperty().getReference() + "@" + getStartDate() + ".xlsx";
-        final List<LeaseTermForServiceChargeBudgetAuditLineItem> lineItems = getServiceCharges();
-        return excelService.toExcel(lineItems, LeaseTermForServiceChargeBudgetAuditLineItem.class, fileName);
+        final StreamingExcelWorkbook workbook = streamingExcelService.newWorkbook(
+                LeaseTermForServiceChargeBudgetAuditLineItem.class,
+                "leaseTerm", "budgetedValue", "auditedValue", "nextLeaseTerm", "nextBudgetedValue");
+        try {
+            for (final LeaseTerm term : leaseTerms.findByPropertyAndTypeAndStartDateInPages(
+                    getProperty(), LeaseItemType.SERVICE_CHARGE, getStartDate(), DOWNLOAD_PAGE_SIZE)) {
+                final LeaseTermForServiceCharge leaseTerm = (LeaseTermForServiceCharge) term;
+                final LeaseTermForServiceCharge nextLeaseTerm = (LeaseTermForServiceCharge) leaseTerm.getNext();
+                workbook.addRow(
+                        leaseTerm,
+                        leaseTerm.getBudgetedValue(),
+                        leaseTerm.getAuditedValue(),
+                        nextLeaseTerm,
+                        nextLeaseTerm != null ? nextLeaseTerm.getBudgetedValue() : null);
+            }
+            return workbook.toBlob(fileName);
+        } finally {
+            workbook.close();
+        }
     }
 
     // //////////////////////////////////////
 
+    /**
+     * Applies all the changed values first, and then verifies each affected lease once.
+     */
     @MemberOrder(name = "serviceCharges", sequence = "2")
     public LeaseTermForServiceChargeBudgetAuditManager upload(final @Named("Excel spreadsheet") Blob spreadsheet) {
         List<LeaseTermForServiceChargeBudgetAuditLineItem> lineItems =
                 excelService.fromExcel(spreadsheet, LeaseTermForServiceChargeBudgetAuditLineItem.class);
+        final LeasesToVerify leasesToVerify = new LeasesToVerify();
         for (LeaseTermForServiceChargeBudgetAuditLineItem lineItem : lineItems) {
             final LeaseTermForServiceCharge leaseTerm = lineItem.getLeaseTerm();
-            leaseTerm.setAuditedValue(lineItem.getAuditedValue());
-            leaseTerm.setBudgetedValue(lineItem.getBudgetedValue());
+            if (LeasesToVerify.isChange(leaseTerm.getAuditedValue(), lineItem.getAuditedValue())
+                    || LeasesToVerify.isChange(leaseTerm.getBudgetedValue(), lineItem.getBudgetedValue())) {
+                leaseTerm.setAuditedValue(lineItem.getAuditedValue());
+                leaseTerm.setBudgetedValue(lineItem.getBudgetedValue());
+                leasesToVerify.changed(leaseTerm);
+            }
 
             final LeaseTermForServiceCharge nextLeaseTerm = (LeaseTermForServiceCharge) leaseTerm.getNext();
             final LeaseTermForServiceCharge nextLeaseTermUploaded = lineItem.getNextLeaseTerm();
-            if (nextLeaseTerm != null && nextLeaseTerm == nextLeaseTermUploaded) {
+            if (nextLeaseTerm != null && nextLeaseTerm == nextLeaseTermUploaded
+                    && LeasesToVerify.isChange(nextLeaseTerm.getBudgetedValue(), lineItem.getNextBudgetedValue())) {
                 nextLeaseTerm.setBudgetedValue(lineItem.getNextBudgetedValue());
+                leasesToVerify.changed(nextLeaseTerm);
             }
         }
+        leasesToVerify.verify();
+        informUser(leasesToVerify.toString());
         return this;
     }
 
@@ -162,4 +205,7 @@ public class LeaseTermForServiceChargeBudgetAuditManager extends EstatioViewMode
     @javax.inject.Inject
     private ExcelService excelService;
 
+    @javax.inject.Inject
+    private StreamingExcelService streamingExcelService;
+
 }
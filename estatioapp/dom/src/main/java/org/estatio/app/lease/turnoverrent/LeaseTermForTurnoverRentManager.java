@@ -38,11 +38,14 @@ import org.apache.isis.applib.value.Blob;
 import org.isisaddons.module.excel.dom.ExcelService;
 
 import org.estatio.app.EstatioViewModel;
+import org.estatio.app.lease.LeasesToVerify;
 import org.estatio.dom.asset.Property;
 import org.estatio.dom.lease.LeaseItemType;
 import org.estatio.dom.lease.LeaseTerm;
 import org.estatio.dom.lease.LeaseTermForTurnoverRent;
 import org.estatio.dom.lease.LeaseTerms;
+import org.estatio.services.excel.StreamingExcelService;
+import org.estatio.services.excel.StreamingExcelWorkbook;
 
 @Immutable
 @Bookmarkable
@@ -133,26 +136,54 @@ public class LeaseTermForTurnoverRentManager extends EstatioViewModel {
     // download (action)
     // //////////////////////////////////////
 
+    /**
+     * The number of terms fetched at a time by {@link #download()}.
+     */
+    static final int DOWNLOAD_PAGE_SIZE = 200;
+
+    /**
+     * Streams the terms straight into the spreadsheet a page at a time, rather than building the line items
+     * (and the workbook) for the whole property in memory; the spreadsheet has the same layout as the
+     * {@link LeaseTermForTurnoverRentLineItem line items}, so can be {@link #upload(Blob) uploaded} as usual.
+     */
     @MemberOrder(name = "turnover", sequence = "1")
     public Blob download() {
         final String fileName = "TurnoverRentBulkUpdate-" + getProperty().getReference() + "@" + getStartDate() + ".xlsx";
-        final List<LeaseTermForTurnoverRentLineItem> lineItems = getTurnoverRents();
-        return excelService.toExcel(lineItems, LeaseTermForTurnoverRentLineItem.class, fileName);
+        final StreamingExcelWorkbook workbook = streamingExcelService.newWorkbook(
+                LeaseTermForTurnoverRentLineItem.class, "leaseTerm", "auditedTurnover");
+        try {
+            for (final LeaseTerm term : leaseTerms.findByPropertyAndTypeAndStartDateInPages(
+                    getProperty(), LeaseItemType.TURNOVER_RENT, getStartDate(), DOWNLOAD_PAGE_SIZE)) {
+                final LeaseTermForTurnoverRent leaseTerm = (LeaseTermForTurnoverRent) term;
+                workbook.addRow(leaseTerm, leaseTerm.getAuditedTurnover());
+            }
+            return workbook.toBlob(fileName);
+        } finally {
+            workbook.close();
+        }
     }
 
     // //////////////////////////////////////
     // upload (action)
     // //////////////////////////////////////
 
+    /**
+     * Applies all the changed values first, and then verifies each affected lease once.
+     */
     @MemberOrder(name = "turnover", sequence = "2")
     public LeaseTermForTurnoverRentManager upload(final @Named("Excel spreadsheet") Blob spreadsheet) {
         List<LeaseTermForTurnoverRentLineItem> lineItems =
                 excelService.fromExcel(spreadsheet, LeaseTermForTurnoverRentLineItem.class);
+        final LeasesToVerify leasesToVerify = new LeasesToVerify();
         for (LeaseTermForTurnoverRentLineItem lineItem : lineItems) {
             final LeaseTermForTurnoverRent leaseTerm = lineItem.getLeaseTerm();
-            leaseTerm.setAuditedTurnover(lineItem.getAuditedTurnover());
-            leaseTerm.verify();
+            if (LeasesToVerify.isChange(leaseTerm.getAuditedTurnover(), lineItem.getAuditedTurnover())) {
+                leaseTerm.setAuditedTurnover(lineItem.getAuditedTurnover());
+                leasesToVerify.changed(leaseTerm);
+            }
         }
+        leasesToVerify.verify();
+        informUser(leasesToVerify.toString());
         return this;
     }
 
@@ -166,6 +197,9 @@ public class LeaseTermForTurnoverRentManager extends EstatioViewModel {
     @javax.inject.Inject
     private ExcelService excelService;
 
+    @javax.inject.Inject
+    private StreamingExcelService streamingExcelService;
+
     @javax.inject.Inject
     private LeaseTermForTurnoverRentService budgetAuditService;
 
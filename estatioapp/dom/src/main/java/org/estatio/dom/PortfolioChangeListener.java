@@ -0,0 +1,38 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom;
+
+/**
+ * Notified (synchronously, by the domain objects and services concerned) of writes that change what is derived
+ * from the portfolio as a whole, eg to invalidate a snapshot of it; implemented by a domain service in the
+ * application layer, so that the domain does not depend on it.
+ */
+public interface PortfolioChangeListener {
+
+    /**
+     * A lease has been created, changed or removed.
+     */
+    void leasesChanged();
+
+    /**
+     * An invoice has been created, changed or removed.
+     */
+    void invoicesChanged();
+
+}
@@ -18,7 +18,9 @@
  */
 package org.estatio.dom.agreement;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -30,6 +32,7 @@ import javax.jdo.annotations.VersionStrategy;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 
@@ -65,6 +68,7 @@ import org.estatio.dom.party.Party;
 import org.estatio.dom.utils.StringUtils;
 import org.estatio.dom.utils.ValueUtils;
 import org.estatio.dom.valuetypes.LocalDateInterval;
+import org.estatio.services.search.SearchIndexService;
 
 @javax.jdo.annotations.PersistenceCapable(identityType = IdentityType.DATASTORE)
 @javax.jdo.annotations.Inheritance(strategy = InheritanceStrategy.NEW_TABLE)
@@ -109,6 +113,11 @@ import org.estatio.dom.valuetypes.LocalDateInterval;
                         + " && role.party == :party"
                         + " VARIABLES org.estatio.dom.agreement.AgreementRole role")
 })
+@javax.jdo.annotations.FetchGroups({
+        @javax.jdo.annotations.FetchGroup(
+                name = Agreement.FETCH_GROUP_WITH_ROLES,
+                members = { @javax.jdo.annotations.Persistent(name = "roles") })
+})
 @Bookmarkable
 @Immutable
 public abstract class Agreement
@@ -118,6 +127,11 @@ public abstract class Agreement
         WithIntervalMutable<Agreement>, Chained<Agreement>,
         WithNameGetter {
 
+    /**
+     * JDO fetch group that loads an agreement's roles (and, through them, the parties).
+     */
+    public static final String FETCH_GROUP_WITH_ROLES = "agreement-with-roles";
+
     public Agreement() {
         super("reference");
     }
@@ -179,8 +193,7 @@ public abstract class Agreement
 
     protected AgreementRole findCurrentOrMostRecentAgreementRole(final AgreementRoleType agreementRoleType) {
         // all available roles
-        final Iterable<AgreementRole> rolesOfType =
-                Iterables.filter(getRoles(), AgreementRole.Predicates.whetherTypeIs(agreementRoleType));
+        final List<AgreementRole> rolesOfType = rolesOfType(agreementRoleType);
 
         // try to find the one that is current...
         Iterable<AgreementRole> roles =
@@ -188,8 +201,7 @@ public abstract class Agreement
 
         // ... else the most recently ended one
         if (Iterables.isEmpty(roles)) {
-            final List<AgreementRole> rolesInList = Lists.newArrayList(rolesOfType);
-            roles = orderRolesByEffectiveEndDateReverseNullsFirst().leastOf(rolesInList, 1);
+            roles = orderRolesByEffectiveEndDateReverseNullsFirst().leastOf(rolesOfType, 1);
         }
 
         // and return the party
@@ -197,6 +209,54 @@ public abstract class Agreement
         return currentOrMostRecentRole;
     }
 
+    // //////////////////////////////////////
+
+    /**
+     * Index of the {@link #getRoles() roles} by {@link AgreementRole#getType() type}, so that finding
+     * the current or most recent party of a given type does not filter all roles on every call.
+     * 
+     * <p>
+     * Not persisted; rebuilt when next needed after being {@link #invalidateRolesByType() invalidated}
+     * by an {@link AgreementRole} that is added to or removed from this agreement, or whose type changes.
+     * As a guard for the roles that JDO adds to the collection itself (when managing the relationship),
+     * it is also rebuilt whenever the number of roles differs from that indexed.  Ordering by effective end
+     * date is left to the caller, because that also depends upon this agreement's own (mutable) dates.
+     */
+    @javax.jdo.annotations.NotPersistent
+    private Map<AgreementRoleType, List<AgreementRole>> rolesByType;
+
+    @javax.jdo.annotations.NotPersistent
+    private int rolesByTypeSize;
+
+    @Programmatic
+    public List<AgreementRole> rolesOfType(final AgreementRoleType agreementRoleType) {
+        final SortedSet<AgreementRole> roles = getRoles();
+        if (rolesByType == null || rolesByTypeSize != roles.size()) {
+            final Map<AgreementRoleType, List<AgreementRole>> index = Maps.newHashMap();
+            for (final AgreementRole role : roles) {
+                List<AgreementRole> rolesOfType = index.get(role.getType());
+                if (rolesOfType == null) {
+                    rolesOfType = Lists.newArrayList();
+                    index.put(role.getType(), rolesOfType);
+                }
+                rolesOfType.add(role);
+            }
+            rolesByType = index;
+            rolesByTypeSize = roles.size();
+        }
+        final List<AgreementRole> rolesOfType = rolesByType.get(agreementRoleType);
+        return rolesOfType != null ? rolesOfType : Collections.<AgreementRole> emptyList();
+    }
+
+    /**
+     * Discards the {@link #rolesOfType(AgreementRoleType) index of roles by type}; called by
+     * {@link AgreementRole} whenever a role is added to or removed from this agreement, or its type changes.
+     */
+    @Programmatic
+    public void invalidateRolesByType() {
+        rolesByType = null;
+    }
+
     protected Party partyOf(final AgreementRole agreementRole) {
         return AgreementRole.Functions.partyOf().apply(agreementRole);
     }
@@ -432,6 +492,7 @@ public abstract class Agreement
         role.setAgreement(this);
 
         persistIfNotAlready(role);
+        invalidateRolesByType();
 
         return role;
     }
@@ -450,6 +511,20 @@ public abstract class Agreement
 
     // //////////////////////////////////////
 
+    public void persisted() {
+        searchIndexService.reindex(this, getReference(), getName());
+    }
+
+    public void updated() {
+        searchIndexService.reindex(this, getReference(), getName());
+    }
+
+    public void removing() {
+        searchIndexService.unindex(this);
+    }
+
+    // //////////////////////////////////////
+
     protected Agreements agreements;
 
     public final void injectAgreements(final Agreements agreements) {
@@ -474,4 +549,10 @@ public abstract class Agreement
         this.agreementTypes = agreementTypes;
     }
 
+    protected SearchIndexService searchIndexService;
+
+    public final void injectSearchIndexService(final SearchIndexService searchIndexService) {
+        this.searchIndexService = searchIndexService;
+    }
+
 }
@@ -127,7 +127,15 @@ public class AgreementRole extends EstatioDomainObject<AgreementRole>
     }
 
     public void setAgreement(final Agreement agreement) {
+        invalidateRolesByType();
         this.agreement = agreement;
+        invalidateRolesByType();
+    }
+
+    private void invalidateRolesByType() {
+        if (agreement != null) {
+            agreement.invalidateRolesByType();
+        }
     }
 
     // //////////////////////////////////////
@@ -158,6 +166,7 @@ public class AgreementRole extends EstatioDomainObject<AgreementRole>
 
     public void setType(final AgreementRoleType type) {
         this.type = type;
+        invalidateRolesByType();
     }
 
     // //////////////////////////////////////
@@ -371,6 +380,12 @@ public class AgreementRole extends EstatioDomainObject<AgreementRole>
 
     // //////////////////////////////////////
 
+    public void removing() {
+        invalidateRolesByType();
+    }
+
+    // //////////////////////////////////////
+
     @javax.jdo.annotations.Persistent(mappedBy = "role")
     private SortedSet<AgreementRoleCommunicationChannel> communicationChannels =
             new TreeSet<AgreementRoleCommunicationChannel>();
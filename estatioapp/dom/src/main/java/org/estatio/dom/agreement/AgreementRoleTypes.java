@@ -37,7 +37,7 @@ public class AgreementRoleTypes extends EstatioDomainService<AgreementRoleType>
 
     @NotContributed
     public AgreementRoleType findByTitle(final String title) {
-        return firstMatch("findByTitle", "title", title);
+        return firstMatchCached(title, "findByTitle", "title", title);
     }
 
     @NotContributed
@@ -58,6 +58,7 @@ public class AgreementRoleTypes extends EstatioDomainService<AgreementRoleType>
             agreementRoleType.setTitle(title);
             agreementRoleType.setAppliesTo(appliesTo);
             getContainer().persist(agreementRoleType);
+            invalidateCached();
         }
         return agreementRoleType;
     }
@@ -37,7 +37,7 @@ public class AgreementTypes extends EstatioDomainService<AgreementType> {
 
     @ActionSemantics(Of.SAFE)
     public AgreementType find(final String title) {
-        return firstMatch("findByTitle", "title", title);
+        return firstMatchCached(title, "findByTitle", "title", title);
     }
 
     @Programmatic
@@ -47,6 +47,7 @@ public class AgreementTypes extends EstatioDomainService<AgreementType> {
             agreementType = getContainer().newTransientInstance(AgreementType.class);
             agreementType.setTitle(title);
             getContainer().persist(agreementType);
+            invalidateCached();
         }
         return agreementType;
     }
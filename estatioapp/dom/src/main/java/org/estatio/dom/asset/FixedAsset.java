@@ -49,6 +49,7 @@ import org.estatio.dom.WithNameComparable;
 import org.estatio.dom.WithReferenceUnique;
 import org.estatio.dom.communicationchannel.CommunicationChannelOwner;
 import org.estatio.dom.party.Party;
+import org.estatio.services.search.SearchIndexService;
 
 @javax.jdo.annotations.PersistenceCapable(identityType = IdentityType.DATASTORE)
 @javax.jdo.annotations.DatastoreIdentity(
@@ -208,4 +209,26 @@ public abstract class FixedAsset
         return role;
     }
 
+    // //////////////////////////////////////
+
+    public void persisted() {
+        searchIndexService.reindex(this, getReference(), getName());
+    }
+
+    public void updated() {
+        searchIndexService.reindex(this, getReference(), getName());
+    }
+
+    public void removing() {
+        searchIndexService.unindex(this);
+    }
+
+    // //////////////////////////////////////
+
+    protected SearchIndexService searchIndexService;
+
+    public final void injectSearchIndexService(final SearchIndexService searchIndexService) {
+        this.searchIndexService = searchIndexService;
+    }
+
 }
@@ -25,6 +25,7 @@ import org.apache.isis.applib.annotation.DomainService;
 import org.apache.isis.applib.annotation.Hidden;
 import org.estatio.dom.EstatioDomainService;
 import org.estatio.dom.utils.StringUtils;
+import org.estatio.services.search.SearchIndexService;
 
 @DomainService(menuOrder = "10", repositoryFor = FixedAsset.class)
 @Hidden
@@ -39,6 +40,9 @@ public class FixedAssets extends EstatioDomainService<FixedAsset> {
     @ActionSemantics(Of.SAFE)
     @Hidden
     public List<FixedAsset> matchAssetsByReferenceOrName(final String searchPhrase) {
+        if (searchIndexService != null) {
+            return searchIndexService.search(FixedAsset.class, searchPhrase, "reference", "name");
+        }
         return allMatches("matchByReferenceOrName", 
                 "regex", StringUtils.wildcardToCaseInsensitiveRegex(searchPhrase));
     }
@@ -50,4 +54,9 @@ public class FixedAssets extends EstatioDomainService<FixedAsset> {
         return matchAssetsByReferenceOrName("*".concat(searchPhrase).concat("*"));
     }
 
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    private SearchIndexService searchIndexService;
+
 }
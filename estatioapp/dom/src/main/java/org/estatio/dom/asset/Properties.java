@@ -29,6 +29,7 @@ import org.estatio.dom.EstatioDomainService;
 import org.estatio.dom.RegexValidation;
 import org.estatio.dom.geography.Country;
 import org.estatio.dom.utils.StringUtils;
+import org.estatio.services.search.SearchIndexService;
 
 @DomainService(repositoryFor = Property.class)
 @DomainServiceLayout(
@@ -81,6 +82,9 @@ public class Properties extends EstatioDomainService<Property> {
     @MemberOrder(sequence = "2")
     public List<Property> findProperties(
             @Named("Reference or Name") final String referenceOrName) {
+        if (searchIndexService != null) {
+            return searchIndexService.search(Property.class, referenceOrName, "reference", "name");
+        }
         return allMatches("findByReferenceOrName",
                 "referenceOrName", StringUtils.wildcardToCaseInsensitiveRegex(referenceOrName));
     }
@@ -111,4 +115,10 @@ public class Properties extends EstatioDomainService<Property> {
     public List<Property> autoComplete(final String searchPhrase) {
         return findProperties("*".concat(searchPhrase).concat("*"));
     }
+
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    private SearchIndexService searchIndexService;
+
 }
@@ -32,6 +32,7 @@ import org.apache.isis.applib.annotation.RegEx;
 import org.estatio.dom.EstatioDomainService;
 import org.estatio.dom.RegexValidation;
 import org.estatio.dom.utils.StringUtils;
+import org.estatio.services.search.SearchIndexService;
 
 @DomainService(repositoryFor = Unit.class)
 @DomainServiceLayout(
@@ -73,6 +74,9 @@ public class Units extends EstatioDomainService<Unit> {
     @MemberOrder(sequence = "2")
     public List<Unit> findUnits(
             final @Named("Reference or Name") @DescribedAs("May include wildcards '*' and '?'") String referenceOrName) {
+        if (searchIndexService != null) {
+            return searchIndexService.search(Unit.class, referenceOrName, "reference", "name");
+        }
         return allMatches("findByReferenceOrName",
                 "referenceOrName", StringUtils.wildcardToCaseInsensitiveRegex(referenceOrName));
     }
@@ -101,4 +105,9 @@ public class Units extends EstatioDomainService<Unit> {
         return allInstances();
     }
 
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    private SearchIndexService searchIndexService;
+
 }
@@ -55,7 +55,7 @@ public class ChargeGroups extends EstatioDomainService<ChargeGroup> {
     @ActionSemantics(Of.SAFE)
     @MemberOrder(sequence = "2")
     public List<ChargeGroup> allChargeGroups() {
-        return allInstances();
+        return allInstancesCached();
     }
 
     // //////////////////////////////////////
@@ -66,13 +66,14 @@ public class ChargeGroups extends EstatioDomainService<ChargeGroup> {
         chargeGroup.setReference(reference);
         chargeGroup.setName(ValueUtils.coalesce(description, reference));
         persist(chargeGroup);
+        invalidateCached();
         return chargeGroup;
     }
     
     @Programmatic
     public ChargeGroup findChargeGroup(
             final String reference) {
-        return firstMatch("findByReference", "reference", reference);
+        return firstMatchCached(reference, "findByReference", "reference", reference);
     }
 
 
@@ -65,6 +65,7 @@ public class Charges extends EstatioDomainService<Charge> {
         charge.setDescription(description);
         charge.setTax(tax);
         charge.setGroup(chargeGroup);
+        invalidateCached();
         return charge;
     }
 
@@ -73,14 +74,14 @@ public class Charges extends EstatioDomainService<Charge> {
     @ActionSemantics(Of.SAFE)
     @MemberOrder(sequence = "2")
     public List<Charge> allCharges() {
-        return allInstances();
+        return allInstancesCached();
     }
 
     // //////////////////////////////////////
     
     @Programmatic
     public Charge findCharge(final String reference) {
-        return firstMatch("findByReference", "reference", reference);
+        return firstMatchCached(reference, "findByReference", "reference", reference);
     }
 
 }
@@ -112,6 +112,16 @@ public class CommunicationChannels extends EstatioDomainService<CommunicationCha
         return allInstances(CommunicationChannel.class);
     }
 
+    /**
+     * As {@link #allCommunicationChannels()}, but fetched a page at a time, for batch processing.
+     * 
+     * @see #allInstancesInPages(Runnable)
+     */
+    @Programmatic
+    public Iterable<CommunicationChannel> allCommunicationChannelsInPages(final Runnable afterEachPage) {
+        return allInstancesInPages(afterEachPage);
+    }
+
     // //////////////////////////////////////
 
     @NotInServiceMenu
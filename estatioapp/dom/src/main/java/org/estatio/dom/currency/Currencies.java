@@ -54,7 +54,7 @@ public class Currencies extends EstatioDomainService<Currency> {
     @ActionSemantics(Of.SAFE)
     @MemberOrder(sequence = "2")
     public List<Currency> allCurrencies() {
-        return allInstances();
+        return allInstancesCached();
     }
 
     // //////////////////////////////////////
@@ -67,13 +67,14 @@ public class Currencies extends EstatioDomainService<Currency> {
             currency.setReference(reference);
             currency.setName(name);
             persist(currency);
+            invalidateCached();
         }
         return currency;
     }
 
     @Programmatic
     public Currency findCurrency(final String reference) {
-        return uniqueMatch("findByReference", "reference", reference);
+        return uniqueMatchCached(reference, "findByReference", "reference", reference);
     }
 
     @Programmatic
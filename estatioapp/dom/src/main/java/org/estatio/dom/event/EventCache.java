@@ -0,0 +1,491 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom.event;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jdo.PersistenceManager;
+import javax.jdo.Transaction;
+import javax.transaction.Synchronization;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.joda.time.LocalDate;
+
+import org.apache.isis.applib.RepositoryException;
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.Hidden;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.bookmark.Bookmark;
+import org.apache.isis.applib.services.jdosupport.IsisJdoSupport;
+
+import org.estatio.dom.EstatioService;
+
+/**
+ * Application-scoped cache of {@link Event}s, used by {@link Events}: the events of each subject (eg a break
+ * option, whose events are rendered with it and again in its calendar), and a window of upcoming events (for
+ * the dashboard).
+ * 
+ * <p>
+ * As for the {@link org.estatio.services.refdata.ReferenceDataCache}, it is {@link Bookmark}s that are cached,
+ * not the events themselves. Changes are notified by {@link Events}: a subject's cached events are discarded
+ * whenever one of its events is created, changed or removed. The upcoming window is maintained incrementally:
+ * as the date advances, past events are dropped and only the days newly in range are queried; dates on which
+ * an event was created or changed are queried again; and removed events are dropped. Changes made within a
+ * transaction are invalidated at once (for the transaction itself) and again once it has completed, so that
+ * what was cached meanwhile, by any request, before the changes were committed (or what this transaction
+ * cached before it was rolled back) is not served afterwards. Both expire after
+ * <tt>estatio.eventCache.ttlMinutes</tt> (default {@value #DEFAULT_TTL_MINUTES}), to pick up changes made by
+ * other webapp nodes.
+ */
+@DomainService
+@Hidden
+public class EventCache extends EstatioService<EventCache> {
+
+    static final String KEY_TTL_MINUTES = "estatio.eventCache.ttlMinutes";
+    static final long DEFAULT_TTL_MINUTES = 10;
+
+    static final int MAX_SUBJECTS = 10000;
+
+    /**
+     * Queries the events in a date range (inclusive), on a cache miss.
+     */
+    public interface RangeFinder {
+        List<Event> findEventsInDateRange(LocalDate rangeStartDate, LocalDate rangeEndDate);
+    }
+
+    private long ttlMinutes = DEFAULT_TTL_MINUTES;
+
+    private Cache<String, List<Bookmark>> eventsBySubject = newEventsBySubject(DEFAULT_TTL_MINUTES);
+
+    /**
+     * Incremented whenever any subject's events are discarded, so that a lookup that was in progress meanwhile
+     * does not populate the cache.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    private final Window upcoming = new Window();
+
+    public EventCache() {
+        super(EventCache.class);
+    }
+
+    @Override
+    @Programmatic
+    public void init(final Map<String, String> properties) {
+        super.init(properties);
+        final String ttl = properties.get(KEY_TTL_MINUTES);
+        if (ttl != null) {
+            try {
+                ttlMinutes = Long.parseLong(ttl.trim());
+                eventsBySubject = newEventsBySubject(ttlMinutes);
+            } catch (final NumberFormatException e) {
+                // ignore, keep default
+            }
+        }
+    }
+
+    private static Cache<String, List<Bookmark>> newEventsBySubject(final long ttlMinutes) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(MAX_SUBJECTS)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The events of the subject, as obtained from the finder on a cache miss.
+     */
+    @Programmatic
+    public List<Event> eventsOf(final EventSubject subject, final Callable<List<Event>> finder) {
+        final String key = keyFor(subject);
+        if (key == null) {
+            return call(finder);
+        }
+        final List<Bookmark> cached = eventsBySubject.getIfPresent(key);
+        if (cached != null) {
+            final List<Event> events = resolveAll(cached);
+            if (events != null) {
+                return events;
+            }
+        }
+        final long expectedVersion = version.get();
+        final List<Event> events = call(finder);
+        final List<Bookmark> bookmarks = bookmarksFor(events);
+        if (bookmarks != null) {
+            synchronized (this) {
+                if (version.get() == expectedVersion) {
+                    eventsBySubject.put(key, bookmarks);
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * The events in the date range (inclusive), from the upcoming window, which is first brought up to date
+     * (using the finder) if need be.
+     */
+    @Programmatic
+    public List<Event> upcoming(final LocalDate startDate, final LocalDate endDate, final RangeFinder finder) {
+        final List<Bookmark> bookmarks = upcoming.refreshAndGet(startDate, endDate, finder);
+        final List<Event> events = Lists.newArrayListWithCapacity(bookmarks.size());
+        for (final Bookmark bookmark : bookmarks) {
+            final Event event = resolve(bookmark);
+            if (event != null) {
+                events.add(event);
+            } else {
+                // removed meanwhile, eg by another node
+                upcoming.remove(bookmark);
+            }
+        }
+        return events;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The event has been created (it may not yet have been flushed, so is not referred to by bookmark).
+     */
+    @Programmatic
+    public void added(final Event event) {
+        invalidate(new Invalidation(keyFor(event.getSubject()), false, null, event.getDate()));
+    }
+
+    /**
+     * The (existing) event has been changed, eg its date.
+     */
+    @Programmatic
+    public void changed(final Event event) {
+        invalidate(new Invalidation(keyFor(event.getSubject()), false, bookmarkFor(event), event.getDate()));
+    }
+
+    /**
+     * All the events of the subject have been (or are about to be) removed.
+     */
+    @Programmatic
+    public void removedAllOf(final EventSubject subject) {
+        invalidate(new Invalidation(keyFor(subject), true, null, null));
+    }
+
+    @Programmatic
+    public void invalidateAll() {
+        synchronized (this) {
+            version.incrementAndGet();
+            eventsBySubject.invalidateAll();
+        }
+        upcoming.invalidate();
+    }
+
+    private void invalidate(final Invalidation invalidation) {
+        invalidation.apply();
+        final Transaction transaction = currentTransaction();
+        if (transaction == null || !transaction.isActive()) {
+            return;
+        }
+        final Synchronization synchronization = transaction.getSynchronization();
+        if (synchronization instanceof PendingInvalidations && ((PendingInvalidations) synchronization).isFor(this)) {
+            ((PendingInvalidations) synchronization).add(invalidation);
+        } else {
+            final PendingInvalidations pendingInvalidations = new PendingInvalidations(this, synchronization);
+            pendingInvalidations.add(invalidation);
+            transaction.setSynchronization(pendingInvalidations);
+        }
+    }
+
+    private Transaction currentTransaction() {
+        if (isisJdoSupport == null) {
+            return null;
+        }
+        final PersistenceManager pm = isisJdoSupport.getJdoPersistenceManager();
+        return pm != null ? pm.currentTransaction() : null;
+    }
+
+    /**
+     * What to discard from the cache for a change to the events of a subject.
+     */
+    class Invalidation {
+        private final String subject;
+        private final boolean allOfSubject;
+        private final Bookmark event;
+        private final LocalDate date;
+
+        Invalidation(final String subject, final boolean allOfSubject, final Bookmark event, final LocalDate date) {
+            this.subject = subject;
+            this.allOfSubject = allOfSubject;
+            this.event = event;
+            this.date = date;
+        }
+
+        void apply() {
+            if (subject != null) {
+                synchronized (EventCache.this) {
+                    version.incrementAndGet();
+                    eventsBySubject.invalidate(subject);
+                }
+                if (allOfSubject) {
+                    upcoming.removeSubject(subject);
+                }
+            }
+            if (event != null) {
+                upcoming.remove(event);
+            }
+            upcoming.dateChanged(date);
+        }
+    }
+
+    /**
+     * The invalidations made within a transaction, applied again once it has completed, whether committed or
+     * rolled back; chains to any {@link Synchronization} already registered with the transaction.
+     */
+    static class PendingInvalidations implements Synchronization {
+        private final EventCache cache;
+        private final Synchronization previous;
+        private final List<Invalidation> invalidations = Lists.newArrayList();
+
+        PendingInvalidations(final EventCache cache, final Synchronization previous) {
+            this.cache = cache;
+            this.previous = previous;
+        }
+
+        boolean isFor(final EventCache cache) {
+            return this.cache == cache;
+        }
+
+        void add(final Invalidation invalidation) {
+            invalidations.add(invalidation);
+        }
+
+        @Override
+        public void beforeCompletion() {
+            if (previous != null) {
+                previous.beforeCompletion();
+            }
+        }
+
+        @Override
+        public void afterCompletion(final int status) {
+            try {
+                for (final Invalidation invalidation : invalidations) {
+                    invalidation.apply();
+                }
+            } finally {
+                // the (JDO) transaction, and so this synchronization, is reused for the next transaction
+                invalidations.clear();
+                if (previous != null) {
+                    previous.afterCompletion(status);
+                }
+            }
+        }
+    }
+
+    // //////////////////////////////////////
+
+    private String keyFor(final EventSubject subject) {
+        final Bookmark bookmark = bookmarkFor(subject);
+        return bookmark != null ? bookmark.toString() : null;
+    }
+
+    private Bookmark bookmarkFor(final Object domainObject) {
+        if (domainObject == null || getBookmarkService() == null || !getContainer().isPersistent(domainObject)) {
+            return null;
+        }
+        try {
+            return getBookmarkService().bookmarkFor(domainObject);
+        } catch (final RuntimeException e) {
+            // eg not yet flushed
+            return null;
+        }
+    }
+
+    /**
+     * The bookmarks of the events, or <tt>null</tt> if any is not (yet) persistent.
+     */
+    private List<Bookmark> bookmarksFor(final List<Event> events) {
+        final ImmutableList.Builder<Bookmark> bookmarks = ImmutableList.builder();
+        for (final Event event : events) {
+            final Bookmark bookmark = bookmarkFor(event);
+            if (bookmark == null) {
+                return null;
+            }
+            bookmarks.add(bookmark);
+        }
+        return bookmarks.build();
+    }
+
+    private Event resolve(final Bookmark bookmark) {
+        try {
+            return (Event) getBookmarkService().lookup(bookmark);
+        } catch (final RuntimeException e) {
+            // eg deleted meanwhile (perhaps by another node)
+            return null;
+        }
+    }
+
+    private List<Event> resolveAll(final List<Bookmark> bookmarks) {
+        final List<Event> events = Lists.newArrayListWithCapacity(bookmarks.size());
+        for (final Bookmark bookmark : bookmarks) {
+            final Event event = resolve(bookmark);
+            if (event == null) {
+                return null;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static <R> R call(final Callable<R> callable) {
+        try {
+            return callable.call();
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RepositoryException(e);
+        }
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The events of a range of dates, by date.
+     */
+    private class Window {
+
+        private final NavigableMap<LocalDate, List<Entry>> entriesByDate = Maps.newTreeMap();
+        private final Set<LocalDate> changedDates = Sets.newHashSet();
+        private LocalDate startDate;
+        private LocalDate endDate;
+        private long loadedAt;
+
+        synchronized List<Bookmark> refreshAndGet(final LocalDate startDate, final LocalDate endDate, final RangeFinder finder) {
+            if (this.startDate == null
+                    || System.nanoTime() - loadedAt > TimeUnit.MINUTES.toNanos(ttlMinutes)
+                    || startDate.isBefore(this.startDate)
+                    || startDate.isAfter(this.endDate)) {
+                entriesByDate.clear();
+                changedDates.clear();
+                load(startDate, endDate, finder);
+                this.startDate = startDate;
+                this.endDate = endDate;
+                loadedAt = System.nanoTime();
+            } else {
+                entriesByDate.headMap(startDate, false).clear();
+                this.startDate = startDate;
+                if (endDate.isAfter(this.endDate)) {
+                    load(this.endDate.plusDays(1), endDate, finder);
+                    this.endDate = endDate;
+                }
+                for (final LocalDate date : Lists.newArrayList(changedDates)) {
+                    changedDates.remove(date);
+                    if (!date.isBefore(this.startDate) && !date.isAfter(this.endDate)) {
+                        entriesByDate.remove(date);
+                        load(date, date, finder);
+                    }
+                }
+            }
+            final List<Bookmark> bookmarks = Lists.newArrayList();
+            for (final List<Entry> entries : entriesByDate.subMap(startDate, true, endDate, true).values()) {
+                for (final Entry entry : entries) {
+                    bookmarks.add(entry.event);
+                }
+            }
+            return bookmarks;
+        }
+
+        private void load(final LocalDate startDate, final LocalDate endDate, final RangeFinder finder) {
+            for (final Event event : finder.findEventsInDateRange(startDate, endDate)) {
+                final Bookmark bookmark = bookmarkFor(event);
+                final String subjectKey = keyFor(event.getSubject());
+                if (bookmark == null) {
+                    // not yet flushed; query again next time
+                    changedDates.add(event.getDate());
+                    continue;
+                }
+                List<Entry> entries = entriesByDate.get(event.getDate());
+                if (entries == null) {
+                    entries = Lists.newArrayList();
+                    entriesByDate.put(event.getDate(), entries);
+                }
+                entries.add(new Entry(bookmark, subjectKey));
+            }
+        }
+
+        synchronized void dateChanged(final LocalDate date) {
+            if (date != null) {
+                changedDates.add(date);
+            }
+        }
+
+        synchronized void remove(final Bookmark event) {
+            for (final List<Entry> entries : entriesByDate.values()) {
+                for (final Iterator<Entry> iterator = entries.iterator(); iterator.hasNext();) {
+                    if (iterator.next().event.equals(event)) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+
+        synchronized void removeSubject(final String subjectKey) {
+            for (final List<Entry> entries : entriesByDate.values()) {
+                for (final Iterator<Entry> iterator = entries.iterator(); iterator.hasNext();) {
+                    if (subjectKey.equals(iterator.next().subject)) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+
+        synchronized void invalidate() {
+            startDate = null;
+            endDate = null;
+            entriesByDate.clear();
+            changedDates.clear();
+        }
+    }
+
+    private static class Entry {
+        private final Bookmark event;
+        private final String subject;
+
+        Entry(final Bookmark event, final String subject) {
+            this.event = event;
+            this.subject = subject;
+        }
+    }
+
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    private IsisJdoSupport isisJdoSupport;
+
+}
@@ -19,12 +19,14 @@
 package org.estatio.dom.event;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 import org.joda.time.LocalDate;
 import org.apache.isis.applib.annotation.ActionSemantics;
 import org.apache.isis.applib.annotation.ActionSemantics.Of;
 import org.apache.isis.applib.annotation.DomainService;
 import org.apache.isis.applib.annotation.Hidden;
 import org.apache.isis.applib.annotation.NotContributed;
+import org.apache.isis.applib.annotation.Programmatic;
 import org.estatio.dom.EstatioDomainService;
 
 @DomainService(menuOrder = "85", repositoryFor = Event.class)
@@ -40,6 +42,18 @@ public class Events extends EstatioDomainService<Event> {
     @ActionSemantics(Of.SAFE)
     @NotContributed
     public List<Event> findEventsBySubject(final EventSubject eventSubject) {
+        if (eventCache == null) {
+            return doFindEventsBySubject(eventSubject);
+        }
+        return eventCache.eventsOf(eventSubject, new Callable<List<Event>>() {
+            @Override
+            public List<Event> call() {
+                return doFindEventsBySubject(eventSubject);
+            }
+        });
+    }
+
+    private List<Event> doFindEventsBySubject(final EventSubject eventSubject) {
         return allMatches("findBySubject", "subject", eventSubject);
     }
 
@@ -62,13 +76,60 @@ public class Events extends EstatioDomainService<Event> {
         event.setSubject(subject);
         event.setCalendarName(calendarName);
         persistIfNotAlready(event);
+        if (eventCache != null) {
+            eventCache.added(event);
+        }
         return event;
     }
 
+    /**
+     * To be called whenever an existing event is changed (eg its date), to keep the {@link EventCache} up to
+     * date.
+     */
+    @Programmatic
+    public void eventChanged(final Event event) {
+        if (eventCache != null) {
+            eventCache.changed(event);
+        }
+    }
+
+    /**
+     * To be called whenever all the events of a subject are removed (eg to be re-created), to keep the
+     * {@link EventCache} up to date.
+     */
+    @Programmatic
+    public void eventsRemoved(final EventSubject subject) {
+        if (eventCache != null) {
+            eventCache.removedAllOf(subject);
+        }
+    }
+
     @ActionSemantics(Of.SAFE)
     @NotContributed
     public List<Event> findEventsInDateRange(final LocalDate rangeStartDate, final LocalDate rangeEndDate) {
         return allMatches("findInDateRange", "rangeStartDate", rangeStartDate, "rangeEndDate", rangeEndDate);
     }
 
+    /**
+     * As {@link #findEventsInDateRange(LocalDate, LocalDate)}, but served from the {@link EventCache}'s window
+     * of upcoming events, which is refreshed incrementally rather than queried afresh each time.
+     */
+    @Programmatic
+    public List<Event> findUpcomingEvents(final LocalDate rangeStartDate, final LocalDate rangeEndDate) {
+        if (eventCache == null) {
+            return findEventsInDateRange(rangeStartDate, rangeEndDate);
+        }
+        return eventCache.upcoming(rangeStartDate, rangeEndDate, new EventCache.RangeFinder() {
+            @Override
+            public List<Event> findEventsInDateRange(final LocalDate rangeStartDate, final LocalDate rangeEndDate) {
+                return Events.this.findEventsInDateRange(rangeStartDate, rangeEndDate);
+            }
+        });
+    }
+
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    private EventCache eventCache;
+
 }
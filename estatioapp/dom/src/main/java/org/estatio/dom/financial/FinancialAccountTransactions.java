@@ -79,6 +79,16 @@ public class FinancialAccountTransactions extends EstatioDomainService<Financial
         return allInstances();
     }
 
+    /**
+     * As {@link #allTransactions()}, but fetched a page at a time, for batch processing.
+     * 
+     * @see #allInstancesInPages(Runnable)
+     */
+    @Programmatic
+    public Iterable<FinancialAccountTransaction> allTransactionsInPages(final Runnable afterEachPage) {
+        return allInstancesInPages(afterEachPage);
+    }
+
     // //////////////////////////////////////
 
     private BigInteger nextSequenceFor(final FinancialAccount financialAccount, final LocalDate transactionDate) {
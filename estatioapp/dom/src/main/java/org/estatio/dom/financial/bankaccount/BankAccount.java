@@ -34,6 +34,8 @@ import org.estatio.dom.financial.FinancialAccount;
 import org.estatio.dom.financial.utils.IBANHelper;
 import org.estatio.dom.financial.utils.IBANValidator;
 import org.estatio.dom.geography.Country;
+import org.estatio.dom.outbox.OutboxEventType;
+import org.estatio.dom.outbox.OutboxEvents;
 import org.estatio.dom.party.Party;
 
 @javax.jdo.annotations.PersistenceCapable(identityType = IdentityType.DATASTORE)
@@ -174,6 +176,9 @@ public class BankAccount extends FinancialAccount {
         //TODO: Changing references is not really a good thing. in this case there's no harm but we should come up with a pattern where we archvice 
         setReference(iban);
 
+        if (outboxEvents != null) {
+            outboxEvents.enqueue(OutboxEventType.BANK_ACCOUNT, this, "change", iban, name, externalReference);
+        }
         return this;
     }
 
@@ -206,4 +211,9 @@ public class BankAccount extends FinancialAccount {
         return this;
     }
 
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    OutboxEvents outboxEvents;
+
 }
@@ -27,11 +27,19 @@ import org.apache.isis.applib.services.publish.EventPayloadForActionInvocation;
 
 import org.estatio.dom.bankmandate.BankMandate;
 import org.estatio.dom.financial.bankaccount.BankAccount;
+import org.estatio.services.publishing.CompactPayload;
+import org.estatio.services.publishing.CompactPayloadSchema;
+import org.estatio.services.publishing.CompactPayloadWriter;
 
 /**
  * Describes the payload for publishing an {@link BankAccount} using Isis'.
+ * 
+ * <p>
+ * Can also be written {@link CompactPayload compactly}, as a {@link CompactPayloadSchema#BANK_ACCOUNT bank
+ * account} record followed by a record for each of the {@link CompactPayloadSchema#BANK_MANDATE impacted
+ * mandates}.
  */
-public class BankAccountPayload extends EventPayloadForActionInvocation<BankAccount> {
+public class BankAccountPayload extends EventPayloadForActionInvocation<BankAccount> implements CompactPayload {
 
     private List<BankMandate> bankMandates;
 
@@ -55,4 +63,36 @@ public class BankAccountPayload extends EventPayloadForActionInvocation<BankAcco
         return this.bankMandates;
     }
 
+    @Override
+    public void writeTo(final CompactPayloadWriter writer) {
+        for (final Object argument : getArguments()) {
+            writer.record(CompactPayloadSchema.ARGUMENT, argument);
+        }
+        final BankAccount bankAccount = getTarget();
+        writer.record(CompactPayloadSchema.BANK_ACCOUNT,
+                bankAccount.getReference(),
+                bankAccount.getName(),
+                bankAccount.getIban(),
+                bankAccount.getOwner(),
+                bankAccount.getBank(),
+                bankAccount.getCountry(),
+                bankAccount.getNationalCheckCode(),
+                bankAccount.getNationalBankCode(),
+                bankAccount.getBranchCode(),
+                bankAccount.getAccountNumber(),
+                bankAccount.getExternalReference());
+        if (bankMandates != null) {
+            for (final BankMandate mandate : bankMandates) {
+                writer.record(CompactPayloadSchema.BANK_MANDATE,
+                        mandate.getReference(),
+                        mandate.getName(),
+                        mandate.getSepaMandateIdentifier(),
+                        mandate.getStartDate(),
+                        mandate.getEndDate(),
+                        mandate.getPrimaryParty(),
+                        mandate.getSecondaryParty());
+            }
+        }
+    }
+
 }
@@ -55,7 +55,7 @@ public class Countries extends EstatioDomainService<Country> {
     @ActionSemantics(Of.SAFE)
     @MemberOrder(sequence = "2")
     public List<Country> allCountries() {
-        return allInstances();
+        return allInstancesCached();
     }
 
     // //////////////////////////////////////
@@ -70,13 +70,14 @@ public class Countries extends EstatioDomainService<Country> {
         country.setAlpha2Code(alpha2Code);
         country.setName(name);
         persist(country);
+        invalidateCached();
         return country;
     }
 
     @Programmatic
     public Country findCountry(
             final String reference) {
-        return firstMatch("findByReference", "reference", reference);
+        return firstMatchCached(reference, "findByReference", "reference", reference);
     }
 
 }
@@ -57,7 +57,7 @@ public class States
     @ActionSemantics(Of.SAFE)
     @MemberOrder(name="Other", sequence = "2")
     public List<State> allStates() {
-        return allInstances();
+        return allInstancesCached();
     }
 
     // //////////////////////////////////////
@@ -68,12 +68,13 @@ public class States
         state.setName(name);
         state.setCountry(country);
         persist(state);
+        invalidateCached();
         return state;
     }
 
     @Programmatic
     public State findState(final @Named("Reference") String reference) {
-        return firstMatch("findByReference", "reference", reference);
+        return firstMatchCached(reference, "findByReference", "reference", reference);
     }
 
     @Programmatic
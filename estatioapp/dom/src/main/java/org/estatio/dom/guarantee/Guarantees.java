@@ -56,6 +56,7 @@ import org.estatio.dom.financial.FinancialAccounts;
 import org.estatio.dom.lease.Lease;
 import org.estatio.dom.party.Party;
 import org.estatio.dom.utils.StringUtils;
+import org.estatio.services.search.SearchIndexService;
 
 @DomainService(repositoryFor = Guarantee.class)
 @DomainServiceLayout(
@@ -138,6 +139,9 @@ public class Guarantees extends EstatioDomainService<Guarantee> {
     @MemberOrder(sequence = "2")
     public List<Guarantee> findGuarantees(
             final @Named("Reference or Name") @DescribedAs("May include wildcards '*' and '?'") String refOrName) {
+        if (searchIndexService != null) {
+            return searchIndexService.search(Guarantee.class, refOrName, "reference", "name");
+        }
         String pattern = StringUtils.wildcardToCaseInsensitiveRegex(refOrName);
         return allMatches("matchByReferenceOrName", "referenceOrName", pattern);
     }
@@ -238,4 +242,7 @@ public class Guarantees extends EstatioDomainService<Guarantee> {
     @Inject
     private FinancialAccountTransactions financialAccountTransactions;
 
+    @Inject
+    private SearchIndexService searchIndexService;
+
 }
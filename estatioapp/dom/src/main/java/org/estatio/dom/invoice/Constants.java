@@ -23,4 +23,9 @@ public final class Constants {
     public static final String INVOICE_NUMBER_NUMERATOR_NAME = "Invoice number";
     public static final String COLLECTION_NUMBER_NUMERATOR_NAME = "Collection number";
 
+    /**
+     * JDO fetch group, declared on {@link Invoice}, that loads an invoice's items.
+     */
+    public static final String FETCH_GROUP_WITH_ITEMS = "invoice-with-items";
+
 }
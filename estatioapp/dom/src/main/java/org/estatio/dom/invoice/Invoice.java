@@ -51,6 +51,7 @@ import org.apache.isis.applib.annotation.Where;
 
 import org.estatio.dom.EstatioDomainObject;
 import org.estatio.dom.JdoColumnLength;
+import org.estatio.dom.PortfolioChangeListener;
 import org.estatio.dom.asset.FixedAsset;
 import org.estatio.dom.bankmandate.BankMandate;
 import org.estatio.dom.charge.Charge;
@@ -59,7 +60,10 @@ import org.estatio.dom.financial.bankaccount.BankAccount;
 import org.estatio.dom.lease.Lease;
 import org.estatio.dom.lease.invoicing.InvoiceItemForLease;
 import org.estatio.dom.numerator.Numerator;
+import org.estatio.dom.outbox.OutboxEventType;
+import org.estatio.dom.outbox.OutboxEvents;
 import org.estatio.dom.party.Party;
+import org.estatio.services.search.SearchIndexService;
 
 @javax.jdo.annotations.PersistenceCapable(
         identityType = IdentityType.DATASTORE)
@@ -147,6 +151,11 @@ import org.estatio.dom.party.Party;
         @Index(name = "Invoice_invoiceNumber_IDX",
                 members = { "invoiceNumber" })
 })
+@javax.jdo.annotations.FetchGroups({
+        @javax.jdo.annotations.FetchGroup(
+                name = Constants.FETCH_GROUP_WITH_ITEMS,
+                members = { @javax.jdo.annotations.Persistent(name = "items") })
+})
 @Bookmarkable
 @Immutable
 public class Invoice extends EstatioDomainObject<Invoice> {
@@ -596,7 +605,8 @@ public class Invoice extends EstatioDomainObject<Invoice> {
         if (numerator != null) {
             final String invoiceNumber = numerator.lastIncrementStr();
             if (invoiceNumber != null) {
-                List<Invoice> result = invoices.findInvoicesByInvoiceNumber(invoiceNumber);
+                // not the search index, which only sees invoices numbered in transactions already committed
+                List<Invoice> result = invoices.findInvoicesByInvoiceNumberInDatabase(invoiceNumber);
                 if (result.size() > 0) {
                     return result.get(0).getInvoiceDate().compareTo(invoiceDate) <= 0;
                 }
@@ -712,6 +722,9 @@ public class Invoice extends EstatioDomainObject<Invoice> {
     @ActionSemantics(Of.IDEMPOTENT)
     public Invoice submitToCoda() {
         doCollect();
+        if (outboxEvents != null) {
+            outboxEvents.enqueue(OutboxEventType.INVOICE, this, "submitToCoda");
+        }
         return this;
     }
 
@@ -745,6 +758,29 @@ public class Invoice extends EstatioDomainObject<Invoice> {
 
     // //////////////////////////////////////
 
+    public void persisted() {
+        searchIndexService.reindex(this, getInvoiceNumber());
+        portfolioChanged();
+    }
+
+    public void updated() {
+        searchIndexService.reindex(this, getInvoiceNumber());
+        portfolioChanged();
+    }
+
+    public void removing() {
+        searchIndexService.unindex(this);
+        portfolioChanged();
+    }
+
+    private void portfolioChanged() {
+        if (portfolioChangeListener != null) {
+            portfolioChangeListener.invoicesChanged();
+        }
+    }
+
+    // //////////////////////////////////////
+
     @javax.inject.Inject
     CollectionNumerators collectionNumerators;
 
@@ -754,4 +790,13 @@ public class Invoice extends EstatioDomainObject<Invoice> {
     @javax.inject.Inject
     InvoiceItems invoiceItems;
 
+    @javax.inject.Inject
+    SearchIndexService searchIndexService;
+
+    @javax.inject.Inject
+    PortfolioChangeListener portfolioChangeListener;
+
+    @javax.inject.Inject
+    OutboxEvents outboxEvents;
+
 }
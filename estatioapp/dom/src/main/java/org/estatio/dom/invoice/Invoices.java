@@ -19,6 +19,8 @@
 package org.estatio.dom.invoice;
 
 import java.util.List;
+import com.google.common.base.Function;
+import com.google.common.collect.Ordering;
 import org.joda.time.LocalDate;
 import org.apache.isis.applib.annotation.ActionLayout;
 import org.apache.isis.applib.annotation.ActionSemantics;
@@ -39,6 +41,7 @@ import org.estatio.dom.lease.invoicing.InvoiceCalculationParameters;
 import org.estatio.dom.party.Party;
 import org.estatio.dom.utils.StringUtils;
 import org.estatio.services.settings.EstatioSettingsService;
+import org.estatio.services.search.SearchIndexService;
 
 @DomainService(repositoryFor = Invoice.class)
 @DomainServiceLayout(
@@ -48,6 +51,14 @@ import org.estatio.services.settings.EstatioSettingsService;
 )
 public class Invoices extends EstatioDomainService<Invoice> {
 
+    private static final Ordering<Invoice> ORDER_BY_INVOICE_DATE_DESC =
+            Ordering.natural().reverse().nullsLast().onResultOf(new Function<Invoice, LocalDate>() {
+                @Override
+                public LocalDate apply(final Invoice invoice) {
+                    return invoice.getInvoiceDate();
+                }
+            });
+
     public Invoices() {
         super(Invoices.class, Invoice.class);
     }
@@ -74,6 +85,20 @@ public class Invoices extends EstatioDomainService<Invoice> {
     @MemberOrder(sequence = "3")
     public List<Invoice> findInvoicesByInvoiceNumber(
             final @Named("Invoice number") String invoiceNumber) {
+        if (searchIndexService != null) {
+            // same order as the findByInvoiceNumber query
+            return ORDER_BY_INVOICE_DATE_DESC.sortedCopy(
+                    searchIndexService.search(Invoice.class, invoiceNumber, "invoiceNumber"));
+        }
+        return findInvoicesByInvoiceNumberInDatabase(invoiceNumber);
+    }
+
+    /**
+     * As {@link #findInvoicesByInvoiceNumber(String)}, but always querying the database rather than the search
+     * index, so that invoices numbered earlier in the current transaction are found too.
+     */
+    @Programmatic
+    public List<Invoice> findInvoicesByInvoiceNumberInDatabase(final String invoiceNumber) {
         return allMatches("findByInvoiceNumber",
                 "invoiceNumber", StringUtils.wildcardToCaseInsensitiveRegex(invoiceNumber));
     }
@@ -97,7 +122,7 @@ public class Invoices extends EstatioDomainService<Invoice> {
     public List<Invoice> findInvoices(
             final FixedAsset fixedAsset,
             final InvoiceStatus status) {
-        return allMatches("findByFixedAssetAndStatus",
+        return allMatchesWithFetchGroup(Constants.FETCH_GROUP_WITH_ITEMS, "findByFixedAssetAndStatus",
                 "fixedAsset", fixedAsset,
                 "status", status);
     }
@@ -106,7 +131,7 @@ public class Invoices extends EstatioDomainService<Invoice> {
     public List<Invoice> findInvoices(
             final FixedAsset fixedAsset,
             final LocalDate dueDate) {
-        return allMatches("findByFixedAssetAndDueDate",
+        return allMatchesWithFetchGroup(Constants.FETCH_GROUP_WITH_ITEMS, "findByFixedAssetAndDueDate",
                 "fixedAsset", fixedAsset,
                 "dueDate", dueDate);
     }
@@ -122,7 +147,7 @@ public class Invoices extends EstatioDomainService<Invoice> {
         } else if (dueDate == null) {
             return findInvoices(fixedAsset, status);
         } else {
-            return allMatches("findByFixedAssetAndDueDateAndStatus",
+            return allMatchesWithFetchGroup(Constants.FETCH_GROUP_WITH_ITEMS, "findByFixedAssetAndDueDateAndStatus",
                     "fixedAsset", fixedAsset,
                     "dueDate", dueDate,
                     "status", status);
@@ -257,6 +282,16 @@ public class Invoices extends EstatioDomainService<Invoice> {
         return allInstances();
     }
 
+    /**
+     * As {@link #allInvoices()}, but fetched a page at a time, for batch processing.
+     * 
+     * @see #allInstancesInPages(Runnable)
+     */
+    @Programmatic
+    public Iterable<Invoice> allInvoicesInPages(final Runnable afterEachPage) {
+        return allInstancesInPages(afterEachPage);
+    }
+
     // //////////////////////////////////////
 
 
@@ -274,4 +309,7 @@ public class Invoices extends EstatioDomainService<Invoice> {
     @javax.inject.Inject
     private EstatioSettingsService settings;
 
+    @javax.inject.Inject
+    private SearchIndexService searchIndexService;
+
 }
@@ -26,11 +26,19 @@ import org.apache.isis.applib.annotation.Render.Type;
 import org.apache.isis.applib.services.publish.EventPayloadForActionInvocation;
 
 import org.estatio.dom.invoice.Invoice;
+import org.estatio.dom.invoice.InvoiceItem;
+import org.estatio.services.publishing.CompactPayload;
+import org.estatio.services.publishing.CompactPayloadSchema;
+import org.estatio.services.publishing.CompactPayloadWriter;
 
 /**
  * Describes the payload for publishing an {@link Invoice} using Isis'. 
+ * 
+ * <p>
+ * Can also be written {@link CompactPayload compactly}, as an {@link CompactPayloadSchema#INVOICE invoice}
+ * record followed by a record for each of its {@link CompactPayloadSchema#INVOICE_ITEM items}.
  */
-public class InvoiceEagerlyRenderedPayload extends EventPayloadForActionInvocation<Invoice> {
+public class InvoiceEagerlyRenderedPayload extends EventPayloadForActionInvocation<Invoice> implements CompactPayload {
 
     public InvoiceEagerlyRenderedPayload(
             final Identifier actionIdentifier, 
@@ -45,5 +53,44 @@ public class InvoiceEagerlyRenderedPayload extends EventPayloadForActionInvocati
     public Invoice getTarget() {
         return super.getTarget();
     }
-    
+
+    @Override
+    public void writeTo(final CompactPayloadWriter writer) {
+        for (final Object argument : getArguments()) {
+            writer.record(CompactPayloadSchema.ARGUMENT, argument);
+        }
+        final Invoice invoice = getTarget();
+        writer.record(CompactPayloadSchema.INVOICE,
+                invoice.getInvoiceNumber(),
+                invoice.getCollectionNumber(),
+                invoice.getStatus(),
+                invoice.getInvoiceDate(),
+                invoice.getDueDate(),
+                invoice.getCurrency(),
+                invoice.getPaymentMethod(),
+                invoice.getSeller(),
+                invoice.getBuyer(),
+                invoice.getLease(),
+                invoice.getFixedAsset(),
+                invoice.getPaidBy(),
+                invoice.getNetAmount(),
+                invoice.getVatAmount(),
+                invoice.getGrossAmount(),
+                invoice.getRunId());
+        for (final InvoiceItem item : invoice.getItems()) {
+            writer.record(CompactPayloadSchema.INVOICE_ITEM,
+                    item.getSequence(),
+                    item.getCharge(),
+                    item.getDescription(),
+                    item.getQuantity(),
+                    item.getNetAmount(),
+                    item.getVatAmount(),
+                    item.getGrossAmount(),
+                    item.getTax(),
+                    item.getDueDate(),
+                    item.getStartDate(),
+                    item.getEndDate());
+        }
+    }
+
 }
@@ -52,6 +52,7 @@ import org.apache.isis.applib.annotation.Where;
 import org.apache.isis.applib.services.eventbus.ActionInteractionEvent;
 import org.estatio.dom.EstatioUserRoles;
 import org.estatio.dom.JdoColumnLength;
+import org.estatio.dom.PortfolioChangeListener;
 import org.estatio.dom.RegexValidation;
 import org.estatio.dom.agreement.Agreement;
 import org.estatio.dom.agreement.AgreementRole;
@@ -107,6 +108,11 @@ import com.google.common.collect.Lists;
                         + "   && (lu.unit.property == :property) "
                         + "VARIABLES "
                         + "org.estatio.dom.lease.Occupancy lu"),
+        @javax.jdo.annotations.Query(
+                name = "findWithoutOccupancies", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.estatio.dom.lease.Lease "
+                        + "WHERE occupancies.isEmpty()"),
         @javax.jdo.annotations.Query(
                 name = "findByAssetAndActiveOnDate", language = "JDOQL",
                 value = "SELECT "
@@ -124,6 +130,12 @@ import com.google.common.collect.Lists;
                         "endDate != null && (endDate >= :rangeStartDate && endDate < :rangeEndDate) " +
                         "ORDER BY endDate")
 })
+@javax.jdo.annotations.FetchGroups({
+        @javax.jdo.annotations.FetchGroup(
+                name = LeaseConstants.FETCH_GROUP_WITH_ITEMS_AND_TERMS,
+                members = { @javax.jdo.annotations.Persistent(name = "items") },
+                fetchGroups = { Agreement.FETCH_GROUP_WITH_ROLES })
+})
 @AutoComplete(repository = Leases.class, action = "autoComplete")
 @Bookmarkable
 public class Lease
@@ -925,6 +937,32 @@ public class Lease
 
     // //////////////////////////////////////
 
+    @Override
+    public void persisted() {
+        super.persisted();
+        portfolioChanged();
+    }
+
+    @Override
+    public void updated() {
+        super.updated();
+        portfolioChanged();
+    }
+
+    @Override
+    public void removing() {
+        super.removing();
+        portfolioChanged();
+    }
+
+    private void portfolioChanged() {
+        if (portfolioChangeListener != null) {
+            portfolioChangeListener.leasesChanged();
+        }
+    }
+
+    // //////////////////////////////////////
+
     public static class TerminateEvent extends ActionInteractionEvent<Lease> {
         private static final long serialVersionUID = 1L;
 
@@ -992,4 +1030,7 @@ public class Lease
     @Inject
     CommunicationChannels communicationChannels;
 
+    @Inject
+    PortfolioChangeListener portfolioChangeListener;
+
 }
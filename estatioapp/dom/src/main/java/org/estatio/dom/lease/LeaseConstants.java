@@ -36,4 +36,11 @@ public final class LeaseConstants {
 
     public static final BigDecimal PERCENTAGE_DIVISOR = BigDecimal.valueOf(100);
 
+    /**
+     * JDO fetch group, declared on {@link Lease}, {@link LeaseItem} and {@link LeaseTerm}, that loads a lease's
+     * items, their terms and the terms' invoice items, as well as the lease's
+     * {@link org.estatio.dom.agreement.Agreement#FETCH_GROUP_WITH_ROLES roles}.
+     */
+    public static final String FETCH_GROUP_WITH_ITEMS_AND_TERMS = "lease-with-items-and-terms";
+
 }
@@ -122,6 +122,11 @@ import org.estatio.dom.valuetypes.LocalDateInterval;
                         + "ORDER BY sequence ")
 })
 @Unique(name = "LeaseItem_lease_type_startDate_sequence_IDX", members = { "lease", "type", "startDate", "sequence" })
+@javax.jdo.annotations.FetchGroups({
+        @javax.jdo.annotations.FetchGroup(
+                name = LeaseConstants.FETCH_GROUP_WITH_ITEMS_AND_TERMS,
+                members = { @javax.jdo.annotations.Persistent(name = "terms") })
+})
 @Bookmarkable(BookmarkPolicy.AS_CHILD)
 @Immutable
 public class LeaseItem
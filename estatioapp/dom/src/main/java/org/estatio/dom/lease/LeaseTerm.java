@@ -136,6 +136,11 @@ import org.estatio.dom.valuetypes.LocalDateInterval;
                         + "FROM org.estatio.dom.lease.LeaseTerm "
                         + "WHERE startDate > endDate")
 })
+@javax.jdo.annotations.FetchGroups({
+        @javax.jdo.annotations.FetchGroup(
+                name = LeaseConstants.FETCH_GROUP_WITH_ITEMS_AND_TERMS,
+                members = { @javax.jdo.annotations.Persistent(name = "invoiceItems") })
+})
 @Bookmarkable(BookmarkPolicy.AS_CHILD)
 @Immutable
 public abstract class LeaseTerm
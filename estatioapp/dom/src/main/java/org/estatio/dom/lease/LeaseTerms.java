@@ -102,6 +102,24 @@ public class LeaseTerms extends EstatioDomainService<LeaseTerm> {
                 "startDate", startDate);
     }
 
+    /**
+     * As {@link #findByPropertyAndTypeAndStartDate(Property, LeaseItemType, LocalDate)}, but fetched a page at a
+     * time, each page being evicted once consumed; for exports over all the terms of a large property.
+     */
+    @Programmatic
+    public Iterable<LeaseTerm> findByPropertyAndTypeAndStartDateInPages(
+            final Property property,
+            final LeaseItemType leaseItemType,
+            final LocalDate startDate,
+            final int pageSize) {
+        return allMatchesInPages("findByPropertyAndTypeAndStartDate",
+                pageSize,
+                null,
+                "property", property,
+                "leaseItemType", leaseItemType,
+                "startDate", startDate);
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @ActionSemantics(Of.SAFE)
     @Hidden
@@ -54,6 +54,7 @@ public class LeaseTypes extends EstatioDomainService<LeaseType> {
         leaseType.setReference(reference);
         leaseType.setName(name);
         persistIfNotAlready(leaseType);
+        invalidateCached();
         return leaseType;
     }
 
@@ -62,14 +63,14 @@ public class LeaseTypes extends EstatioDomainService<LeaseType> {
     @ActionSemantics(Of.SAFE)
     @MemberOrder(sequence = "2")
     public List<LeaseType> allLeaseTypes() {
-        return allInstances();
+        return allInstancesCached();
     }
 
     // //////////////////////////////////////
 
     @Programmatic
     public LeaseType findByReference(final String reference) {
-        return firstMatch("findByReference", "reference", reference);
+        return firstMatchCached(reference, "findByReference", "reference", reference);
     }
 
     // //////////////////////////////////////
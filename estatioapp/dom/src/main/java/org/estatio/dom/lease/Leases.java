@@ -20,8 +20,11 @@ package org.estatio.dom.lease;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import javax.jdo.JDOHelper;
+import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
@@ -41,6 +44,7 @@ import org.apache.isis.applib.annotation.Programmatic;
 import org.apache.isis.applib.annotation.RegEx;
 import org.estatio.dom.EstatioDomainService;
 import org.estatio.dom.RegexValidation;
+import org.estatio.dom.agreement.Agreement;
 import org.estatio.dom.agreement.AgreementRoleCommunicationChannelTypes;
 import org.estatio.dom.agreement.AgreementRoleType;
 import org.estatio.dom.agreement.AgreementRoleTypes;
@@ -53,6 +57,8 @@ import org.estatio.dom.party.Party;
 import org.estatio.dom.utils.JodaPeriodUtils;
 import org.estatio.dom.utils.StringUtils;
 import org.estatio.dom.valuetypes.LocalDateInterval;
+import org.estatio.services.scheduler.SessionRunner;
+import org.estatio.services.search.SearchIndexService;
 
 @DomainService(repositoryFor = Lease.class)
 @DomainServiceLayout(
@@ -168,6 +174,9 @@ public class Leases extends EstatioDomainService<Lease> {
     @MemberOrder(sequence = "3")
     public List<Lease> findLeases(
             final @Named("Reference or Name") @DescribedAs("May include wildcards '*' and '?'") String refOrName) {
+        if (searchIndexService != null) {
+            return searchIndexService.search(Lease.class, refOrName, "reference", "name");
+        }
         String pattern = StringUtils.wildcardToCaseInsensitiveRegex(refOrName);
         return allMatches("matchByReferenceOrName", "referenceOrName", pattern);
     }
@@ -196,16 +205,19 @@ public class Leases extends EstatioDomainService<Lease> {
             final LeaseItemType leaseItemType,
             final @Named("Until date") LocalDate untilDate) {
         DateTime start = DateTime.now();
-        List<Lease> leases = allLeases();
-        for (Lease lease : leases) {
-            for (LeaseItem leaseItem : lease.getItems()) {
-                if (leaseItem.getType().equals(leaseItemType)) {
-                    leaseItem.verifyUntil(untilDate);
+        final int count = forEachLeaseInPages(new Function<Lease, Void>() {
+            @Override
+            public Void apply(final Lease lease) {
+                for (LeaseItem leaseItem : lease.getItems()) {
+                    if (leaseItem.getType().equals(leaseItemType)) {
+                        leaseItem.verifyUntil(untilDate);
+                    }
                 }
+                return null;
             }
-        }
+        });
         Period p = new Period(start, DateTime.now());
-        return String.format("Verified %d leases in %s", leases.size(), JodaPeriodUtils.asString(p));
+        return String.format("Verified %d leases in %s", count, JodaPeriodUtils.asString(p));
     }
 
     // //////////////////////////////////////
@@ -225,6 +237,34 @@ public class Leases extends EstatioDomainService<Lease> {
         return allMatches("findByProperty", "property", property);
     }
 
+    /**
+     * The leases not (yet) associated with any {@link Property}, that is, without any {@link Occupancy}.
+     */
+    @Programmatic
+    public List<Lease> findLeasesWithoutProperty() {
+        return allMatches("findWithoutOccupancies");
+    }
+
+    /**
+     * As {@link #findLeasesByProperty(Property)}, but also loading the leases' items, terms and invoice items
+     * up-front, for bulk processing such as an invoice run.
+     */
+    @Programmatic
+    public List<Lease> findLeasesByPropertyWithItemsAndTerms(final Property property) {
+        return allMatchesWithFetchGroup(LeaseConstants.FETCH_GROUP_WITH_ITEMS_AND_TERMS,
+                "findByProperty", "property", property);
+    }
+
+    /**
+     * As {@link #findLeasesByProperty(Property)}, but also loading the leases' roles (and so their parties)
+     * up-front, for listings such as a rent roll.
+     */
+    @Programmatic
+    public List<Lease> findLeasesByPropertyWithRoles(final Property property) {
+        return allMatchesWithFetchGroup(Agreement.FETCH_GROUP_WITH_ROLES,
+                "findByProperty", "property", property);
+    }
+
     @Programmatic
     public List<Lease> findExpireInDateRange(final LocalDate rangeStartDate, final LocalDate rangeEndDate) {
         return allMatches(
@@ -267,6 +307,67 @@ public class Leases extends EstatioDomainService<Lease> {
         return allInstances();
     }
 
+    /**
+     * As {@link #allLeases()}, but fetched a page at a time, for batch processing.
+     * 
+     * @see #allInstancesInPages(Runnable)
+     */
+    @Programmatic
+    public Iterable<Lease> allLeasesInPages(final Runnable afterEachPage) {
+        return allInstancesInPages(afterEachPage);
+    }
+
+    /**
+     * As {@link #allLeasesInPages(Runnable)}, with an explicit page size.
+     */
+    @Programmatic
+    public Iterable<Lease> allLeasesInPages(final int pageSize, final Runnable afterEachPage) {
+        return allInstancesInPages(pageSize, afterEachPage);
+    }
+
+    /**
+     * Applies the function to every lease, a page at a time, each page in an Isis session (and transaction) of
+     * its own, so that neither the leases nor their changes accumulate in the persistence manager of the
+     * current request; each page is committed once processed.
+     * 
+     * @return the number of leases processed
+     */
+    private int forEachLeaseInPages(final Function<Lease, Void> function) {
+        final SessionRunner sessionRunner = SessionRunner.forCurrentUser();
+        try {
+            return forEachLeaseInPages(function, sessionRunner, DEFAULT_PAGE_SIZE);
+        } finally {
+            sessionRunner.close();
+        }
+    }
+
+    int forEachLeaseInPages(final Function<Lease, Void> function, final SessionRunner sessionRunner, final int pageSize) {
+        int count = 0;
+        Object lastId = null;
+        while (true) {
+            final Object previousLastId = lastId;
+            final List<Object> lastIdOfPage = Lists.newArrayList();
+            final int leasesInPage = sessionRunner.call(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    final List<Lease> page = allInstancesAfter(previousLastId, pageSize);
+                    for (final Lease lease : page) {
+                        function.apply(lease);
+                    }
+                    if (!page.isEmpty()) {
+                        lastIdOfPage.add(JDOHelper.getObjectId(page.get(page.size() - 1)));
+                    }
+                    return page.size();
+                }
+            });
+            count += leasesInPage;
+            if (leasesInPage < pageSize) {
+                return count;
+            }
+            lastId = lastIdOfPage.get(0);
+        }
+    }
+
     // //////////////////////////////////////
 
     @ActionLayout(
@@ -276,12 +377,16 @@ public class Leases extends EstatioDomainService<Lease> {
     @MemberOrder(sequence = "98")
     public String verifyAllLeases() {
         DateTime dt = DateTime.now();
-        List<Lease> leases = allLeases();
-        for (Lease lease : leases) {
-            lease.verifyUntil(getClockService().now());
-        }
+        final LocalDate untilDate = getClockService().now();
+        final int count = forEachLeaseInPages(new Function<Lease, Void>() {
+            @Override
+            public Void apply(final Lease lease) {
+                lease.verifyUntil(untilDate);
+                return null;
+            }
+        });
         Period p = new Period(dt, DateTime.now());
-        return String.format("Verified %d leases in %s", leases.size(), JodaPeriodUtils.asString(p));
+        return String.format("Verified %d leases in %s", count, JodaPeriodUtils.asString(p));
     }
 
     // //////////////////////////////////////
@@ -298,4 +403,7 @@ public class Leases extends EstatioDomainService<Lease> {
     @Inject
     private AgreementRoleCommunicationChannelTypes agreementRoleCommunicationChannelTypes;
 
+    @Inject
+    private SearchIndexService searchIndexService;
+
 }
@@ -0,0 +1,204 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom.lease;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * A turnover rent rule, eg <tt>500000;5;750000;6;7</tt> (5% up to 500,000, 6% up to 750,000 and 7% above that),
+ * parsed once into its caps and (fractional) percentages.
+ * 
+ * <p>
+ * Rules are immutable, and {@link #of(String) interned} by rule string, in a bounded cache, so that the rule
+ * of a term is not parsed again each time the term is aligned or validated.
+ */
+public final class TurnoverRentRule {
+
+    /**
+     * The maximum number of distinct rule strings held; in practice there are only a handful.
+     */
+    static final int MAX_CACHED_RULES = 1000;
+
+    private static final Pattern NUMERIC = Pattern.compile("-?\\d+(\\.\\d+)?");
+
+    private static final TurnoverRentRule INVALID = new TurnoverRentRule(null, null);
+
+    private static final LoadingCache<String, TurnoverRentRule> RULES = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_RULES)
+            .build(new CacheLoader<String, TurnoverRentRule>() {
+                @Override
+                public TurnoverRentRule load(final String rule) {
+                    return compile(rule);
+                }
+            });
+
+    /**
+     * The (interned) rule for the rule string; an invalid rule if the string is <tt>null</tt>, empty or
+     * malformed.
+     */
+    public static TurnoverRentRule of(final String rule) {
+        if (rule == null || rule.trim().length() == 0) {
+            return INVALID;
+        }
+        return RULES.getUnchecked(rule);
+    }
+
+    static TurnoverRentRule compile(final String rule) {
+        final String[] tokens = rule.split(";");
+        if (tokens.length % 2 == 0) {
+            return INVALID;
+        }
+        for (final String token : tokens) {
+            if (!isNumeric(token)) {
+                return INVALID;
+            }
+        }
+        final int tiers = tokens.length / 2 + 1;
+        final BigDecimal[] caps = new BigDecimal[tiers - 1];
+        final BigDecimal[] percentages = new BigDecimal[tiers];
+        for (int i = 0; i < tiers - 1; i++) {
+            caps[i] = new BigDecimal(tokens[2 * i]);
+            percentages[i] = new BigDecimal(tokens[2 * i + 1]).divide(LeaseConstants.PERCENTAGE_DIVISOR);
+        }
+        percentages[tiers - 1] = new BigDecimal(tokens[tokens.length - 1]).divide(LeaseConstants.PERCENTAGE_DIVISOR);
+        return new TurnoverRentRule(caps, percentages);
+    }
+
+    public static boolean isNumeric(final String str) {
+        // match a number with optional '-' and decimal.
+        return NUMERIC.matcher(str).matches();
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The upper bound of each tier but the last.
+     */
+    private final BigDecimal[] caps;
+
+    /**
+     * The percentage (as a fraction) of each tier.
+     */
+    private final BigDecimal[] percentages;
+
+    /**
+     * The rent of all tiers up to and including each capped tier, were the turnover to exceed its cap; only
+     * if the caps are ascending (from zero), otherwise <tt>null</tt>.
+     */
+    private final BigDecimal[] cumulativeRents;
+
+    private TurnoverRentRule(final BigDecimal[] caps, final BigDecimal[] percentages) {
+        this.caps = caps;
+        this.percentages = percentages;
+        this.cumulativeRents = caps != null && isAscending(caps) ? cumulativeRents(caps, percentages) : null;
+    }
+
+    private static boolean isAscending(final BigDecimal[] caps) {
+        BigDecimal prevCap = BigDecimal.ZERO;
+        for (final BigDecimal cap : caps) {
+            if (cap.compareTo(prevCap) < 0) {
+                return false;
+            }
+            prevCap = cap;
+        }
+        return true;
+    }
+
+    private static BigDecimal[] cumulativeRents(final BigDecimal[] caps, final BigDecimal[] percentages) {
+        final BigDecimal[] cumulativeRents = new BigDecimal[caps.length];
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal prevCap = BigDecimal.ZERO;
+        for (int i = 0; i < caps.length; i++) {
+            total = total.add(tierRent(caps[i].subtract(prevCap), percentages[i]));
+            cumulativeRents[i] = total;
+            prevCap = caps[i];
+        }
+        return cumulativeRents;
+    }
+
+    public boolean isValid() {
+        return percentages != null;
+    }
+
+    /**
+     * The rent for the turnover, rounded to 2 decimals (each tier being rounded separately); zero if the rule
+     * is invalid or there is no turnover.
+     */
+    public BigDecimal calculateRent(final BigDecimal turnover) {
+        BigDecimal total = BigDecimal.ZERO;
+        if (isValid() && turnover != null) {
+            total = cumulativeRents != null ? calculateRentAscending(turnover) : calculateRentByTier(turnover);
+        }
+        return total.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * With ascending caps, the tiers below that of the turnover are all full and those above it all empty, so
+     * the rent is that (precalculated) of the full tiers plus that of the turnover's own tier.
+     */
+    private BigDecimal calculateRentAscending(final BigDecimal turnover) {
+        final int searched = Arrays.binarySearch(caps, turnover);
+        final int tier = searched >= 0 ? searched : -searched - 1;
+        final BigDecimal prevCap = tier == 0 ? BigDecimal.ZERO : caps[tier - 1];
+        final BigDecimal fullTiers = tier == 0 ? BigDecimal.ZERO : cumulativeRents[tier - 1];
+        if (turnover.compareTo(prevCap) <= 0) {
+            return fullTiers;
+        }
+        return fullTiers.add(tierRent(turnover.subtract(prevCap), percentages[tier]));
+    }
+
+    /**
+     * Evaluates each tier in turn, for rules whose caps are not ascending.
+     */
+    private BigDecimal calculateRentByTier(final BigDecimal turnover) {
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal prevCap = BigDecimal.ZERO;
+        for (int i = 0; i < percentages.length; i++) {
+            BigDecimal base = BigDecimal.ZERO;
+            if (i == caps.length) {
+                // the last or single tier
+                if (turnover.compareTo(prevCap) > 0) {
+                    base = turnover.subtract(prevCap);
+                }
+            } else {
+                final BigDecimal cap = caps[i];
+                if (turnover.compareTo(cap) > 0) {
+                    base = cap.subtract(prevCap);
+                } else if (turnover.compareTo(prevCap) > 0) {
+                    base = turnover.subtract(prevCap);
+                }
+                prevCap = cap;
+            }
+            total = total.add(tierRent(base, percentages[i]));
+        }
+        return total;
+    }
+
+    private static BigDecimal tierRent(final BigDecimal base, final BigDecimal percentage) {
+        return base.multiply(percentage).setScale(2, RoundingMode.HALF_UP);
+    }
+
+}
@@ -19,76 +19,27 @@
 package org.estatio.dom.lease;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 
+/**
+ * @see TurnoverRentRule
+ */
 public class TurnoverRentRuleHelper {
 
-    private String rules[];
+    private final TurnoverRentRule rule;
 
     public TurnoverRentRuleHelper(final String rule) {
-        if (rule != null && rule.trim().length() != 0) {
-            rules = rule.split(";");
-        }
+        this.rule = TurnoverRentRule.of(rule);
     }
 
     public boolean isValid() {
-        return (rules != null && isValidRule());
-    }
-
-    private boolean isValidRule() {
-        // check for uneven rules
-        if (rules == null || rules.length % 2 == 0) {
-            return false;
-        }
-        // check for numeric values
-        for (String rule : rules) {
-            if (!isNumeric(rule)) {
-                return false;
-            }
-        }
-        return true;
+        return rule.isValid();
     }
 
     public BigDecimal calculateRent(final BigDecimal turnover) {
-        BigDecimal total = BigDecimal.ZERO;
-        if (isValid() && turnover != null) {
-            total = doCalculateRent(turnover);
-        }
-        return total.setScale(2, RoundingMode.HALF_UP);
-    }
-
-    private BigDecimal doCalculateRent(final BigDecimal turnover) {
-        BigDecimal total = BigDecimal.ZERO;
-        BigDecimal prevCap = BigDecimal.ZERO;
-        BigDecimal cap = BigDecimal.ZERO;
-        BigDecimal percentage;
-        for (int i = 0; i < rules.length; i = i + 2) {
-            BigDecimal base = BigDecimal.ZERO;
-            if (i == rules.length - 1) {
-                // the last or single item
-                percentage = new BigDecimal(rules[i]).divide(LeaseConstants.PERCENTAGE_DIVISOR);
-                if (turnover.compareTo(prevCap) > 0) {
-                    base = turnover.subtract(prevCap);
-                }
-            } else {
-                percentage = new BigDecimal(rules[i + 1]).divide(LeaseConstants.PERCENTAGE_DIVISOR);
-                cap = new BigDecimal(rules[i]);
-                if (turnover.compareTo(cap) > 0) {
-                    base = cap.subtract(prevCap);
-                } else {
-                    if (turnover.compareTo(prevCap) > 0) {
-                        base = turnover.subtract(prevCap);
-                    }
-                }
-            }
-            total = total.add(base.multiply(percentage).setScale(2, RoundingMode.HALF_UP));
-            prevCap = cap;
-        }
-        return total;
+        return rule.calculateRent(turnover);
     }
 
     public static boolean isNumeric(final String str) {
-        // match a number with optional '-' and decimal.
-        return str.matches("-?\\d+(\\.\\d+)?");
+        return TurnoverRentRule.isNumeric(str);
     }
 }
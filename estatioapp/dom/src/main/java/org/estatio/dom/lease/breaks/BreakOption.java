@@ -223,6 +223,7 @@ public abstract class BreakOption
         for (Event event : getEvents()) {
             getContainer().remove(event);
         }
+        events.eventsRemoved(this);
         // re-create events
         persisting();
         return this;
@@ -245,6 +246,7 @@ public abstract class BreakOption
         for (Event event : getEvents()) {
             getContainer().remove(event);
         }
+        events.eventsRemoved(this);
         // re-create events
         persisting();
         return this;
@@ -271,6 +273,7 @@ public abstract class BreakOption
         for (Event event : getEvents()) {
             getContainer().remove(event);
         }
+        events.eventsRemoved(this);
         getContainer().remove(this);
     }
 
@@ -121,10 +121,12 @@ public class FixedBreakOption
             } else {
                 // update...
                 reminderEvent.setDate(reminderDate);
+                events.eventChanged(reminderEvent);
             }
         } else {
             if (reminderEvent != null) {
                 // delete...
+                events.eventChanged(reminderEvent);
                 removeIfNotAlready(reminderEvent);
             }
         }
@@ -149,7 +149,7 @@ public class InvoiceCalculationService extends EstatioService<InvoiceCalculation
         invoices.removeRuns(parameters);
         try {
             startInteraction(parameters.toString());
-            for (Lease lease : parameters.leases() == null ? leases.findLeasesByProperty(parameters.property()) : parameters.leases()) {
+            for (Lease lease : parameters.leases() == null ? leases.findLeasesByPropertyWithItemsAndTerms(parameters.property()) : parameters.leases()) {
                 lease.verifyUntil(parameters.dueDateRange().endDateExcluding());
                 if (lease.getStatus() != LeaseStatus.SUSPENDED) {
                     SortedSet<LeaseItem> leaseItems =
@@ -36,6 +36,7 @@ import org.estatio.dom.WithNameComparable;
 import org.estatio.dom.WithNameUnique;
 import org.estatio.dom.tax.Tax;
 import org.estatio.dom.tax.TaxRate;
+import org.estatio.services.search.SearchIndexService;
 
 @javax.jdo.annotations.PersistenceCapable(identityType = IdentityType.DATASTORE)
 @javax.jdo.annotations.DatastoreIdentity(
@@ -96,4 +97,26 @@ public class Brand
         return getName();
     }
 
+    // //////////////////////////////////////
+
+    public void persisted() {
+        searchIndexService.reindex(this, getName());
+    }
+
+    public void updated() {
+        searchIndexService.reindex(this, getName());
+    }
+
+    public void removing() {
+        searchIndexService.unindex(this);
+    }
+
+    // //////////////////////////////////////
+
+    protected SearchIndexService searchIndexService;
+
+    public final void injectSearchIndexService(final SearchIndexService searchIndexService) {
+        this.searchIndexService = searchIndexService;
+    }
+
 }
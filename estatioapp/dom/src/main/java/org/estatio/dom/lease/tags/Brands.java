@@ -25,6 +25,7 @@ import org.apache.isis.applib.annotation.*;
 import org.apache.isis.applib.annotation.ActionSemantics.Of;
 import org.estatio.dom.EstatioDomainService;
 import org.estatio.dom.utils.StringUtils;
+import org.estatio.services.search.SearchIndexService;
 
 @DomainService(repositoryFor = Brand.class)
 @DomainServiceLayout(
@@ -72,6 +73,9 @@ public class Brands extends EstatioDomainService<Brand> {
 
     @Hidden
     public List<Brand> matchByName(final String name) {
+        if (searchIndexService != null) {
+            return searchIndexService.search(Brand.class, name, "name");
+        }
         return allMatches("matchByName", "name", StringUtils.wildcardToCaseInsensitiveRegex(name));
     }
 
@@ -94,4 +98,9 @@ public class Brands extends EstatioDomainService<Brand> {
                 : Lists.<Brand> newArrayList();
     }
 
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    private SearchIndexService searchIndexService;
+
 }
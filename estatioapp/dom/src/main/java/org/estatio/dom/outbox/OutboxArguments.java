@@ -0,0 +1,97 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom.outbox;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The compact form in which the arguments of an action are held by an {@link OutboxEvent}: one line per
+ * argument, being a one-character kind, a colon and the value. Persistent objects are held as their bookmark
+ * ({@value #BOOKMARK}), everything else as its string value ({@value #VALUE}); <tt>null</tt>s are written as
+ * {@value #NULL}. Backslashes and newlines within values are escaped.
+ */
+final class OutboxArguments {
+
+    static final char BOOKMARK = 'b';
+    static final char VALUE = 'v';
+    static final char NULL = 'n';
+
+    private OutboxArguments() {
+    }
+
+    static String token(final char kind, final String value) {
+        return kind + ":" + (value != null ? value : "");
+    }
+
+    static char kindOf(final String token) {
+        return token.charAt(0);
+    }
+
+    static String valueOf(final String token) {
+        return token.substring(2);
+    }
+
+    static String encode(final List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        final StringBuilder buf = new StringBuilder();
+        for (final String token : tokens) {
+            if (buf.length() > 0) {
+                buf.append('\n');
+            }
+            for (int i = 0; i < token.length(); i++) {
+                final char ch = token.charAt(i);
+                if (ch == '\\') {
+                    buf.append("\\\\");
+                } else if (ch == '\n') {
+                    buf.append("\\n");
+                } else {
+                    buf.append(ch);
+                }
+            }
+        }
+        return buf.toString();
+    }
+
+    static List<String> decode(final String encoded) {
+        final List<String> tokens = Lists.newArrayList();
+        if (encoded == null) {
+            return tokens;
+        }
+        final StringBuilder token = new StringBuilder();
+        for (int i = 0; i < encoded.length(); i++) {
+            final char ch = encoded.charAt(i);
+            if (ch == '\\' && i + 1 < encoded.length()) {
+                final char escaped = encoded.charAt(++i);
+                token.append(escaped == 'n' ? '\n' : escaped);
+            } else if (ch == '\n') {
+                tokens.add(token.toString());
+                token.setLength(0);
+            } else {
+                token.append(ch);
+            }
+        }
+        tokens.add(token.toString());
+        return tokens;
+    }
+
+}
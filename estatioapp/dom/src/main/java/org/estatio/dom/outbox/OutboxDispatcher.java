@@ -0,0 +1,318 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom.outbox;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import com.google.common.collect.Lists;
+
+import org.apache.isis.applib.Identifier;
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.Hidden;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.annotation.PublishedAction.PayloadFactory;
+import org.apache.isis.applib.services.bookmark.Bookmark;
+import org.apache.isis.applib.services.publish.EventMetadata;
+import org.apache.isis.applib.services.publish.EventPayload;
+import org.apache.isis.applib.services.publish.EventType;
+import org.apache.isis.applib.services.publish.ObjectStringifier;
+import org.apache.isis.applib.services.publish.PublishingService;
+
+import org.estatio.dom.EstatioService;
+import org.estatio.services.scheduler.SessionRunner;
+
+/**
+ * Publishes the events recorded in the outbox by {@link OutboxEvents#enqueue(OutboxEventType, Object, String, Object...)}:
+ * each is rendered through the {@link OutboxEventType#newPayloadFactory() payload factory} of its type and
+ * handed to the configured {@link PublishingService}, then removed from the outbox.
+ * 
+ * <p>
+ * Events are dispatched a batch (of <tt>estatio.outbox.batchSize</tt>, default {@value #DEFAULT_BATCH_SIZE})
+ * at a time, each batch in its own transaction. An event that cannot be published is retried later with an
+ * increasing delay, and is given up on (moved to the {@link OutboxEventStatus#FAILED dead-letter} status) after
+ * <tt>estatio.outbox.maxAttempts</tt> (default {@value #DEFAULT_MAX_ATTEMPTS}) attempts, the attempts being
+ * recorded independently of the batch's transaction. Does nothing if no {@link PublishingService} is configured, the
+ * events being kept until one is.
+ */
+@DomainService
+@Hidden
+public class OutboxDispatcher extends EstatioService<OutboxDispatcher> {
+
+    static final String KEY_BATCH_SIZE = "estatio.outbox.batchSize";
+    static final int DEFAULT_BATCH_SIZE = 50;
+
+    static final String KEY_MAX_ATTEMPTS = "estatio.outbox.maxAttempts";
+    static final int DEFAULT_MAX_ATTEMPTS = 10;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    public OutboxDispatcher() {
+        super(OutboxDispatcher.class);
+    }
+
+    @Override
+    @Programmatic
+    public void init(final Map<String, String> properties) {
+        super.init(properties);
+        batchSize = intProperty(properties, KEY_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+        maxAttempts = intProperty(properties, KEY_MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    private static int intProperty(final Map<String, String> properties, final String key, final int defaultValue) {
+        final String value = properties.get(key);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (final NumberFormatException e) {
+                // ignore, keep default
+            }
+        }
+        return defaultValue;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The outcome of {@link OutboxDispatcher#dispatch(int, Runnable) dispatching}.
+     */
+    public static class Result {
+        private int published;
+        private final List<String> failures = Lists.newArrayList();
+
+        public int getPublished() {
+            return published;
+        }
+
+        /**
+         * A description of each failed attempt.
+         */
+        public List<String> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d published, %d failed", published, failures.size());
+        }
+    }
+
+    /**
+     * Dispatches batches of due events until there are none left, or <tt>maxBatches</tt> have been dispatched.
+     * 
+     * <p>
+     * The failed attempts to publish the events of a batch are recorded once the batch's transaction has been
+     * committed, in a transaction of their own, so that they are kept even if the batch's transaction is rolled
+     * back.  If the batch's transaction cannot be committed, its events will be published again, so this too is
+     * recorded as a failed attempt of each of them; an event that prevents its batch from being committed is thus
+     * eventually given up on, rather than retried forever.
+     * 
+     * @param afterEachBatch - called once each batch has been dispatched, to commit it and start a new
+     *            transaction.
+     */
+    @Programmatic
+    public Result dispatch(final int maxBatches, final Runnable afterEachBatch) {
+        final Result result = new Result();
+        if (publishingService == null) {
+            return result;
+        }
+        for (int batch = 0; batch < maxBatches; batch++) {
+            final Timestamp now = now();
+            final List<OutboxEvent> due = findDue(now);
+            final List<Failure> failures = Lists.newArrayList();
+            final List<Bookmark> published = Lists.newArrayList();
+            for (final OutboxEvent event : due) {
+                final Bookmark bookmark = bookmarkFor(event);
+                final Failure failure = dispatch(event, bookmark, now);
+                if (failure == null) {
+                    published.add(bookmark);
+                    result.published++;
+                } else {
+                    failures.add(failure);
+                    result.failures.add(event.getTargetStr() + ": " + failure.error);
+                }
+            }
+            if (afterEachBatch != null) {
+                try {
+                    afterEachBatch.run();
+                } catch (final RuntimeException ex) {
+                    for (final Bookmark bookmark : published) {
+                        failures.add(new Failure(bookmark, now, "Commit failed: " + ex, maxAttempts));
+                        result.failures.add(bookmark + ": commit failed: " + ex);
+                    }
+                    result.published -= published.size();
+                    recordFailures(failures);
+                    throw ex;
+                }
+            }
+            recordFailures(failures);
+            if (due.size() < batchSize) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Publishes the event and removes it from the outbox, returning the failure if it could not be published.
+     */
+    Failure dispatch(final OutboxEvent event, final Bookmark bookmark, final Timestamp now) {
+        try {
+            if (!publish(event)) {
+                // nothing to render; retrying won't help
+                return new Failure(bookmark, now, "Target " + event.getTargetStr() + " no longer exists", 0);
+            }
+            published(event);
+            return null;
+        } catch (final RuntimeException ex) {
+            return new Failure(bookmark, now, ex.toString(), maxAttempts);
+        }
+    }
+
+    /**
+     * A failed attempt to publish an event, to be {@link OutboxDispatcher#recordFailures(List) recorded}.
+     */
+    static class Failure {
+        final Bookmark event;
+        final Timestamp now;
+        final String error;
+        final int maxAttempts;
+
+        Failure(final Bookmark event, final Timestamp now, final String error, final int maxAttempts) {
+            this.event = event;
+            this.now = now;
+            this.error = error;
+            this.maxAttempts = maxAttempts;
+        }
+    }
+
+    Bookmark bookmarkFor(final OutboxEvent event) {
+        return getBookmarkService().bookmarkFor(event);
+    }
+
+    List<OutboxEvent> findDue(final Timestamp now) {
+        return outboxEvents.findDue(now, batchSize);
+    }
+
+    /**
+     * Whether the event was published, or rather its target no longer exists.
+     */
+    boolean publish(final OutboxEvent event) {
+        final Bookmark bookmark = new Bookmark(event.getTargetStr());
+        final Object target = getBookmarkService().lookup(bookmark);
+        if (target == null) {
+            return false;
+        }
+        final Identifier identifier = Identifier.actionIdentifier(target.getClass().getName(), event.getActionName());
+        final PayloadFactory payloadFactory = event.getType().newPayloadFactory();
+        getContainer().injectServicesInto(payloadFactory);
+        final EventPayload payload = payloadFactory.payloadFor(identifier, target, outboxEvents.argumentsOf(event), target);
+        payload.withStringifier(stringifier);
+
+        final EventMetadata metadata = new EventMetadata(
+                UUID.fromString(event.getTransactionId()), 0, EventType.ACTION_INVOCATION,
+                event.getUser(), event.getTimestamp(), event.getTargetTitle(),
+                target.getClass().getName(), event.getActionName(), bookmark,
+                identifier.toClassAndNameIdentityString());
+        publishingService.publish(metadata, payload);
+        return true;
+    }
+
+    void published(final OutboxEvent event) {
+        outboxEvents.remove(event);
+    }
+
+    /**
+     * Records the failed attempts in a session (and so a transaction) of their own, independent of the batch's.
+     * 
+     * @see OutboxEvent#failed(Timestamp, String, int)
+     */
+    void recordFailures(final List<Failure> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        final SessionRunner runner = SessionRunner.forCurrentUser();
+        try {
+            runner.call(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (final Failure failure : failures) {
+                        final OutboxEvent event = (OutboxEvent) getBookmarkService().lookup(failure.event);
+                        if (event != null) {
+                            event.failed(failure.now, failure.error, failure.maxAttempts);
+                        }
+                    }
+                    return null;
+                }
+            });
+        } finally {
+            runner.close();
+        }
+    }
+
+    Timestamp now() {
+        return getClockService().nowAsJavaSqlTimestamp();
+    }
+
+    private final ObjectStringifier stringifier = new ObjectStringifier() {
+        @Override
+        public String toString(final Object object) {
+            if (object == null) {
+                return null;
+            }
+            return getContainer().isPersistent(object)
+                    ? getBookmarkService().bookmarkFor(object).toString()
+                    : object.toString();
+        }
+
+        @Override
+        public String classNameOf(final Object object) {
+            return object.getClass().getName();
+        }
+    };
+
+    // //////////////////////////////////////
+
+    /**
+     * Makes all {@link OutboxEventStatus#FAILED failed} events due for dispatch again.
+     */
+    @Programmatic
+    public int retryFailed() {
+        final Timestamp now = getClockService().nowAsJavaSqlTimestamp();
+        final List<OutboxEvent> failed = outboxEvents.findByStatus(OutboxEventStatus.FAILED);
+        for (final OutboxEvent event : failed) {
+            event.retry(now);
+        }
+        return failed.size();
+    }
+
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    OutboxEvents outboxEvents;
+
+    @javax.inject.Inject
+    PublishingService publishingService;
+
+}
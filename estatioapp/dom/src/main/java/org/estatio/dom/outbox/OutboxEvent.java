@@ -0,0 +1,298 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom.outbox;
+
+import java.sql.Timestamp;
+
+import javax.jdo.annotations.IdGeneratorStrategy;
+import javax.jdo.annotations.IdentityType;
+import javax.jdo.annotations.VersionStrategy;
+
+import org.apache.isis.applib.annotation.Hidden;
+import org.apache.isis.applib.annotation.Immutable;
+import org.apache.isis.applib.annotation.MemberOrder;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.annotation.Title;
+import org.apache.isis.applib.annotation.Where;
+
+import org.estatio.dom.EstatioDomainObject;
+import org.estatio.dom.JdoColumnLength;
+
+/**
+ * An event waiting to be published, recorded in the same transaction as the change it describes.
+ * 
+ * <p>
+ * Only what is needed to render the event later is held: the {@link #getTargetStr() bookmark} of the target,
+ * the action and its {@link OutboxArguments compactly encoded} arguments. The payload itself is rendered by
+ * the {@link OutboxDispatcher}, which removes the event once published; if that fails the event is retried
+ * with an increasing delay, until it is {@link OutboxEventStatus#FAILED given up on}.
+ */
+@javax.jdo.annotations.PersistenceCapable(identityType = IdentityType.DATASTORE)
+@javax.jdo.annotations.DatastoreIdentity(
+        strategy = IdGeneratorStrategy.NATIVE,
+        column = "id")
+@javax.jdo.annotations.Version(
+        strategy = VersionStrategy.VERSION_NUMBER,
+        column = "version")
+@javax.jdo.annotations.Queries({
+        @javax.jdo.annotations.Query(
+                name = "findDue", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.estatio.dom.outbox.OutboxEvent "
+                        + "WHERE status == :status "
+                        + "   && nextAttemptAt <= :now "
+                        + "ORDER BY timestamp ASC"),
+        @javax.jdo.annotations.Query(
+                name = "findByStatus", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.estatio.dom.outbox.OutboxEvent "
+                        + "WHERE status == :status "
+                        + "ORDER BY timestamp ASC")
+})
+@javax.jdo.annotations.Index(
+        name = "OutboxEvent_status_nextAttemptAt_IDX",
+        members = { "status", "nextAttemptAt" })
+@Immutable
+public class OutboxEvent extends EstatioDomainObject<OutboxEvent> {
+
+    /**
+     * The delay before the first retry; doubled after each further failure, up to {@link #MAX_BACKOFF_MINUTES}.
+     */
+    static final int MIN_BACKOFF_MINUTES = 1;
+    static final int MAX_BACKOFF_MINUTES = 60;
+
+    public OutboxEvent() {
+        super("timestamp, targetStr, actionName");
+    }
+
+    // //////////////////////////////////////
+
+    private OutboxEventType type;
+
+    @javax.jdo.annotations.Column(allowsNull = "false", length = JdoColumnLength.TYPE_ENUM)
+    @Title(sequence = "1")
+    @MemberOrder(sequence = "1")
+    public OutboxEventType getType() {
+        return type;
+    }
+
+    public void setType(final OutboxEventType type) {
+        this.type = type;
+    }
+
+    // //////////////////////////////////////
+
+    private String targetTitle;
+
+    @javax.jdo.annotations.Column(allowsNull = "true", length = JdoColumnLength.DESCRIPTION)
+    @Title(sequence = "2", prepend = ": ")
+    @MemberOrder(sequence = "2")
+    public String getTargetTitle() {
+        return targetTitle;
+    }
+
+    public void setTargetTitle(final String targetTitle) {
+        this.targetTitle = targetTitle;
+    }
+
+    // //////////////////////////////////////
+
+    private String targetStr;
+
+    @javax.jdo.annotations.Column(allowsNull = "false", length = JdoColumnLength.BOOKMARK)
+    @Hidden(where = Where.ALL_TABLES)
+    @MemberOrder(sequence = "3")
+    public String getTargetStr() {
+        return targetStr;
+    }
+
+    public void setTargetStr(final String targetStr) {
+        this.targetStr = targetStr;
+    }
+
+    // //////////////////////////////////////
+
+    private String actionName;
+
+    @javax.jdo.annotations.Column(allowsNull = "false", length = JdoColumnLength.NAME)
+    @MemberOrder(sequence = "4")
+    public String getActionName() {
+        return actionName;
+    }
+
+    public void setActionName(final String actionName) {
+        this.actionName = actionName;
+    }
+
+    // //////////////////////////////////////
+
+    private String arguments;
+
+    /**
+     * As encoded by {@link OutboxArguments}.
+     */
+    @javax.jdo.annotations.Column(allowsNull = "true", length = JdoColumnLength.NOTES)
+    @Hidden(where = Where.ALL_TABLES)
+    @MemberOrder(sequence = "5")
+    public String getArguments() {
+        return arguments;
+    }
+
+    public void setArguments(final String arguments) {
+        this.arguments = arguments;
+    }
+
+    // //////////////////////////////////////
+
+    private String user;
+
+    @javax.jdo.annotations.Column(allowsNull = "false", length = JdoColumnLength.USER_NAME)
+    @MemberOrder(sequence = "6")
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(final String user) {
+        this.user = user;
+    }
+
+    // //////////////////////////////////////
+
+    private Timestamp timestamp;
+
+    @javax.jdo.annotations.Column(allowsNull = "false")
+    @MemberOrder(sequence = "7")
+    public Timestamp getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(final Timestamp timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    // //////////////////////////////////////
+
+    private String transactionId;
+
+    @javax.jdo.annotations.Column(allowsNull = "false", length = JdoColumnLength.TRANSACTION_ID)
+    @Hidden
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(final String transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    // //////////////////////////////////////
+
+    private OutboxEventStatus status;
+
+    @javax.jdo.annotations.Column(allowsNull = "false", length = JdoColumnLength.STATUS_ENUM)
+    @MemberOrder(sequence = "8")
+    public OutboxEventStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(final OutboxEventStatus status) {
+        this.status = status;
+    }
+
+    // //////////////////////////////////////
+
+    private int attempts;
+
+    @MemberOrder(sequence = "9")
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(final int attempts) {
+        this.attempts = attempts;
+    }
+
+    // //////////////////////////////////////
+
+    private Timestamp nextAttemptAt;
+
+    @javax.jdo.annotations.Column(allowsNull = "false")
+    @MemberOrder(sequence = "10")
+    public Timestamp getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(final Timestamp nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    // //////////////////////////////////////
+
+    private String lastError;
+
+    @javax.jdo.annotations.Column(allowsNull = "true", length = JdoColumnLength.NOTES)
+    @Hidden(where = Where.ALL_TABLES)
+    @MemberOrder(sequence = "11")
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(final String lastError) {
+        this.lastError = lastError;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Records a failed attempt to dispatch this event, scheduling the next attempt or, after
+     * <tt>maxAttempts</tt>, giving up.
+     */
+    @Programmatic
+    public void failed(final Timestamp now, final String error, final int maxAttempts) {
+        setAttempts(getAttempts() + 1);
+        setLastError(error != null && error.length() > JdoColumnLength.NOTES
+                ? error.substring(0, JdoColumnLength.NOTES)
+                : error);
+        if (getAttempts() >= maxAttempts) {
+            setStatus(OutboxEventStatus.FAILED);
+            setNextAttemptAt(now);
+        } else {
+            setNextAttemptAt(new Timestamp(now.getTime() + backoffMinutes(getAttempts()) * 60000L));
+        }
+    }
+
+    /**
+     * Makes a {@link OutboxEventStatus#FAILED failed} event due for dispatch again.
+     */
+    @Programmatic
+    public void retry(final Timestamp now) {
+        setStatus(OutboxEventStatus.PENDING);
+        setAttempts(0);
+        setNextAttemptAt(now);
+    }
+
+    static long backoffMinutes(final int attempts) {
+        if (attempts <= 1) {
+            return MIN_BACKOFF_MINUTES;
+        }
+        // avoid overflow on large attempt counts
+        final int shift = Math.min(attempts - 1, 30);
+        return Math.min((long) MIN_BACKOFF_MINUTES << shift, MAX_BACKOFF_MINUTES);
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom.outbox;
+
+import org.apache.isis.applib.annotation.PublishedAction.PayloadFactory;
+
+import org.estatio.dom.financial.bankaccount.BankAccount;
+import org.estatio.dom.financial.publishing.BankAccountPayloadFactory;
+import org.estatio.dom.invoice.Invoice;
+import org.estatio.dom.invoice.publishing.InvoiceEagerlyRenderedPayloadFactory;
+import org.estatio.dom.utils.StringUtils;
+
+/**
+ * The kinds of event that can be recorded in the outbox, each with the {@link PayloadFactory} that renders it
+ * when dispatched.
+ */
+public enum OutboxEventType {
+
+    INVOICE(Invoice.class, InvoiceEagerlyRenderedPayloadFactory.class),
+    BANK_ACCOUNT(BankAccount.class, BankAccountPayloadFactory.class);
+
+    private final Class<?> targetType;
+    private final Class<? extends PayloadFactory> payloadFactoryType;
+
+    private OutboxEventType(final Class<?> targetType, final Class<? extends PayloadFactory> payloadFactoryType) {
+        this.targetType = targetType;
+        this.payloadFactoryType = payloadFactoryType;
+    }
+
+    public Class<?> getTargetType() {
+        return targetType;
+    }
+
+    /**
+     * A new instance of the {@link PayloadFactory}; services must still be injected into it.
+     */
+    public PayloadFactory newPayloadFactory() {
+        try {
+            return payloadFactoryType.newInstance();
+        } catch (final InstantiationException e) {
+            throw new IllegalStateException(e);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String title() {
+        return StringUtils.enumTitle(this.name());
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom.outbox;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import javax.jdo.Query;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.Hidden;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.bookmark.Bookmark;
+
+import org.estatio.dom.EstatioDomainService;
+import org.estatio.dom.JdoColumnLength;
+
+@DomainService(menuOrder = "99", repositoryFor = OutboxEvent.class)
+@Hidden
+public class OutboxEvents extends EstatioDomainService<OutboxEvent> {
+
+    public OutboxEvents() {
+        super(OutboxEvents.class, OutboxEvent.class);
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Records that the action has been invoked on the (persistent) target, to be published once this
+     * transaction has committed.
+     */
+    @Programmatic
+    public OutboxEvent enqueue(
+            final OutboxEventType type,
+            final Object target,
+            final String actionName,
+            final Object... arguments) {
+        final Timestamp now = getClockService().nowAsJavaSqlTimestamp();
+        final String targetTitle = getContainer().titleOf(target);
+
+        final OutboxEvent event = newTransientInstance();
+        event.setType(type);
+        event.setTargetStr(getBookmarkService().bookmarkFor(target).toString());
+        event.setTargetTitle(targetTitle != null && targetTitle.length() > JdoColumnLength.DESCRIPTION
+                ? targetTitle.substring(0, JdoColumnLength.DESCRIPTION)
+                : targetTitle);
+        event.setActionName(actionName);
+        event.setArguments(encodeArguments(arguments));
+        event.setUser(getContainer().getUser().getName());
+        event.setTimestamp(now);
+        event.setTransactionId(UUID.randomUUID().toString());
+        event.setStatus(OutboxEventStatus.PENDING);
+        event.setNextAttemptAt(now);
+        persistIfNotAlready(event);
+        return event;
+    }
+
+    private String encodeArguments(final Object... arguments) {
+        final List<String> tokens = Lists.newArrayList();
+        for (final Object argument : arguments) {
+            if (argument == null) {
+                tokens.add(OutboxArguments.token(OutboxArguments.NULL, null));
+            } else if (getContainer().isPersistent(argument)) {
+                tokens.add(OutboxArguments.token(OutboxArguments.BOOKMARK, getBookmarkService().bookmarkFor(argument).toString()));
+            } else {
+                tokens.add(OutboxArguments.token(OutboxArguments.VALUE, argument.toString()));
+            }
+        }
+        return OutboxArguments.encode(tokens);
+    }
+
+    /**
+     * The arguments of the event, persistent objects being looked up by their bookmark and all other values
+     * being returned as strings.
+     */
+    @Programmatic
+    public List<Object> argumentsOf(final OutboxEvent event) {
+        final List<Object> arguments = Lists.newArrayList();
+        for (final String token : OutboxArguments.decode(event.getArguments())) {
+            switch (OutboxArguments.kindOf(token)) {
+            case OutboxArguments.BOOKMARK:
+                arguments.add(getBookmarkService().lookup(new Bookmark(OutboxArguments.valueOf(token))));
+                break;
+            case OutboxArguments.VALUE:
+                arguments.add(OutboxArguments.valueOf(token));
+                break;
+            default:
+                arguments.add(null);
+            }
+        }
+        return arguments;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The oldest events that are {@link OutboxEventStatus#PENDING pending} and due for (another) attempt, at
+     * most <tt>max</tt> of them.
+     */
+    @Programmatic
+    public List<OutboxEvent> findDue(final Timestamp now, final int max) {
+        if (isisJdoSupport == null) {
+            final List<OutboxEvent> due = allMatches("findDue", "status", OutboxEventStatus.PENDING, "now", now);
+            return due.size() > max ? due.subList(0, max) : due;
+        }
+        final Query query = isisJdoSupport.getJdoPersistenceManager().newNamedQuery(OutboxEvent.class, "findDue");
+        query.setRange(0, max);
+        return asList(query.executeWithMap(ImmutableMap.of("status", OutboxEventStatus.PENDING, "now", now)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<OutboxEvent> asList(final Object result) {
+        return result != null ? Lists.newArrayList((List<OutboxEvent>) result) : Collections.<OutboxEvent> emptyList();
+    }
+
+    @Programmatic
+    public List<OutboxEvent> findByStatus(final OutboxEventStatus status) {
+        return allMatches("findByStatus", "status", status);
+    }
+
+    @Programmatic
+    public void remove(final OutboxEvent event) {
+        getContainer().remove(event);
+    }
+
+}
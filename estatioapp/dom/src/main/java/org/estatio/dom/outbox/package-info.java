@@ -0,0 +1,6 @@
+/**
+ * Transactional outbox for published events: events are recorded compactly in the same transaction as the
+ * change they describe, and are rendered and handed to the publishing service later, in batches, by the
+ * {@link org.estatio.dom.outbox.OutboxDispatcher}.
+ */
+package org.estatio.dom.outbox;
@@ -24,6 +24,7 @@ import org.apache.isis.applib.annotation.*;
 import org.apache.isis.applib.annotation.ActionSemantics.Of;
 import org.estatio.dom.EstatioDomainService;
 import org.estatio.dom.utils.StringUtils;
+import org.estatio.services.search.SearchIndexService;
 
 @DomainService(repositoryFor = Party.class)
 @DomainServiceLayout(
@@ -44,6 +45,9 @@ public class Parties extends EstatioDomainService<Party> {
     public List<Party> findParties(
             final @Named("Reference or Name") @DescribedAs("May include wildcards '*' and '?'") 
             String referenceOrName) {
+        if (searchIndexService != null) {
+            return searchIndexService.search(Party.class, referenceOrName, "reference", "name");
+        }
         return allMatches("matchByReferenceOrName", 
                 "referenceOrName", StringUtils.wildcardToCaseInsensitiveRegex(referenceOrName));
     }
@@ -51,6 +55,7 @@ public class Parties extends EstatioDomainService<Party> {
     @Hidden
     @ActionSemantics(Of.SAFE)
     public Party matchPartyByReferenceOrName(final String referenceOrName) {
+        // not the search index, which only sees parties created in transactions already committed
         return firstMatch("matchByReferenceOrName", 
                 "referenceOrName", StringUtils.wildcardToCaseInsensitiveRegex(referenceOrName));
     }
@@ -87,4 +92,9 @@ public class Parties extends EstatioDomainService<Party> {
         return allInstances();
     }
 
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    private SearchIndexService searchIndexService;
+
 }
@@ -48,6 +48,7 @@ import org.estatio.dom.WithReferenceUnique;
 import org.estatio.dom.agreement.AgreementRole;
 import org.estatio.dom.agreement.AgreementRoleHolder;
 import org.estatio.dom.communicationchannel.CommunicationChannelOwner;
+import org.estatio.services.search.SearchIndexService;
 
 @javax.jdo.annotations.PersistenceCapable(identityType = IdentityType.DATASTORE)
 @javax.jdo.annotations.DatastoreIdentity(
@@ -192,4 +193,26 @@ public abstract class Party
         return party != this ? null : "Cannot replace a party with itself";
    }
 
+    // //////////////////////////////////////
+
+    public void persisted() {
+        searchIndexService.reindex(this, getReference(), getName());
+    }
+
+    public void updated() {
+        searchIndexService.reindex(this, getReference(), getName());
+    }
+
+    public void removing() {
+        searchIndexService.unindex(this);
+    }
+
+    // //////////////////////////////////////
+
+    protected SearchIndexService searchIndexService;
+
+    public final void injectSearchIndexService(final SearchIndexService searchIndexService) {
+        this.searchIndexService = searchIndexService;
+    }
+
 }
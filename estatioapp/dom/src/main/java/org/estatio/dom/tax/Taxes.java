@@ -49,6 +49,7 @@ public class Taxes extends EstatioDomainService<Tax> {
         tax.setReference(reference);
         tax.setName(name);
         persist(tax);
+        invalidateCached();
         return tax;
     }
 
@@ -57,7 +58,7 @@ public class Taxes extends EstatioDomainService<Tax> {
     @ActionSemantics(Of.SAFE)
     @MemberOrder(sequence = "2")
     public List<Tax> allTaxes() {
-        return allInstances();
+        return allInstancesCached();
     }
 
 
@@ -65,12 +66,12 @@ public class Taxes extends EstatioDomainService<Tax> {
 
     @Programmatic
     public Tax findTaxByReference(final String reference) {
-        return firstMatch("findByReference", "reference", reference);
+        return firstMatchCached(reference, "findByReference", "reference", reference);
     }
 
     @Programmatic
     public Tax findOrCreate(final String reference, String name) {
-        Tax tax =  firstMatch("findByReference", "reference", reference);
+        Tax tax = findTaxByReference(reference);
         if(tax == null) {
             tax = newTax(reference, name);
         }
@@ -16,13 +16,25 @@
  */
 package org.estatio.services.documents;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
 
 import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.Folder;
 import org.apache.chemistry.opencmis.client.api.ItemIterable;
 import org.apache.chemistry.opencmis.client.api.QueryResult;
@@ -30,64 +42,284 @@ import org.apache.chemistry.opencmis.client.api.Repository;
 import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.client.api.SessionFactory;
 import org.apache.chemistry.opencmis.client.runtime.SessionFactoryImpl;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
 import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.joda.time.DateTime;
 
+import org.apache.isis.applib.ApplicationException;
 import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.value.Blob;
+
+/**
+ * {@link DocumentRepository} backed by a CMIS repository (eg Nuxeo), accessed through the AtomPub binding.
+ * 
+ * <p>
+ * Creating a {@link Session} involves a handshake with the server, so sessions (which are thread-safe) are kept
+ * in a pool of at most <tt>estatio.cmis.poolSize</tt> (default {@value #DEFAULT_POOL_SIZE}) idle sessions, and
+ * are discarded after <tt>estatio.cmis.sessionMaxAgeMinutes</tt> (default
+ * {@value #DEFAULT_SESSION_MAX_AGE_MINUTES}) or after any failure. The server is configured using
+ * <tt>estatio.cmis.atomPubUrl</tt>, <tt>estatio.cmis.user</tt>, <tt>estatio.cmis.password</tt> and
+ * (optionally, otherwise the first one is used) <tt>estatio.cmis.repositoryId</tt>; documents are viewed at
+ * <tt>cmisServerDefaultRepoBaseUrl</tt>.
+ */
+public class CmisRepository implements DocumentRepository {
+
+    static final String KEY_ATOMPUB_URL = "estatio.cmis.atomPubUrl";
+    static final String DEFAULT_ATOMPUB_URL = "http://cmis.demo.nuxeo.org/nuxeo/atom/cmis";
+
+    static final String KEY_USER = "estatio.cmis.user";
+    static final String KEY_PASSWORD = "estatio.cmis.password";
+    static final String DEFAULT_USER = "Administrator";
+
+    static final String KEY_REPOSITORY_ID = "estatio.cmis.repositoryId";
+
+    static final String KEY_POOL_SIZE = "estatio.cmis.poolSize";
+    static final int DEFAULT_POOL_SIZE = 4;
 
-public class CmisRepository {
+    static final String KEY_SESSION_MAX_AGE_MINUTES = "estatio.cmis.sessionMaxAgeMinutes";
+    static final long DEFAULT_SESSION_MAX_AGE_MINUTES = 30;
 
-    private Map<String, String> properties;
+    static final String KEY_VIEW_BASE_URL = "cmisServerDefaultRepoBaseUrl";
+    static final String DEFAULT_VIEW_BASE_URL = "http://cmis.demo.nuxeo.org/nuxeo/nxdoc/default";
+
+    private final Map<String, String> sessionParameters = Maps.newHashMap();
     private SessionFactory sessionFactory;
-    private Repository repository;
-    
+    private String viewBaseUrl;
+
+    private BlockingQueue<PooledSession> idleSessions;
+    private long sessionMaxAgeNanos;
+
     @Programmatic
     @PostConstruct
     public void init(final Map<String,String> properties) {
-        this.properties = properties;
+        sessionParameters.put(SessionParameter.ATOMPUB_URL, valueOf(properties, KEY_ATOMPUB_URL, DEFAULT_ATOMPUB_URL));
+        sessionParameters.put(SessionParameter.BINDING_TYPE, BindingType.ATOMPUB.value());
+        sessionParameters.put(SessionParameter.USER, valueOf(properties, KEY_USER, DEFAULT_USER));
+        sessionParameters.put(SessionParameter.PASSWORD, valueOf(properties, KEY_PASSWORD, DEFAULT_USER));
+        viewBaseUrl = valueOf(properties, KEY_VIEW_BASE_URL, DEFAULT_VIEW_BASE_URL);
 
-        // TODO: set up in isis.properties
-        properties.put(SessionParameter.ATOMPUB_URL, "http://cmis.demo.nuxeo.org/nuxeo/atom/cmis");
-        properties.put(SessionParameter.BINDING_TYPE, BindingType.ATOMPUB.value());
-        properties.put(SessionParameter.USER, "Administrator");
-        properties.put(SessionParameter.PASSWORD, "Administrator");
+        int poolSize = DEFAULT_POOL_SIZE;
+        long sessionMaxAgeMinutes = DEFAULT_SESSION_MAX_AGE_MINUTES;
+        try {
+            poolSize = Integer.parseInt(valueOf(properties, KEY_POOL_SIZE, String.valueOf(DEFAULT_POOL_SIZE)));
+            sessionMaxAgeMinutes = Long.parseLong(valueOf(
+                    properties, KEY_SESSION_MAX_AGE_MINUTES, String.valueOf(DEFAULT_SESSION_MAX_AGE_MINUTES)));
+        } catch (final NumberFormatException e) {
+            // ignore, keep default
+        }
+        idleSessions = new LinkedBlockingQueue<PooledSession>(Math.max(poolSize, 1));
+        sessionMaxAgeNanos = TimeUnit.MINUTES.toNanos(sessionMaxAgeMinutes);
 
         sessionFactory = SessionFactoryImpl.newInstance();
 
-        // find all the repositories at this URL - there should only be one.
-        List<Repository> repositories = new ArrayList<Repository>();
-        repositories = sessionFactory.getRepositories(properties);
+        final String repositoryId = properties.get(KEY_REPOSITORY_ID);
+        if (repositoryId != null) {
+            sessionParameters.put(SessionParameter.REPOSITORY_ID, repositoryId);
+        } else {
+            // find all the repositories at this URL - there should only be one.
+            final List<Repository> repositories = sessionFactory.getRepositories(sessionParameters);
+            final Repository repository = repositories.get(0);
+            sessionParameters.put(SessionParameter.REPOSITORY_ID, repository.getId());
+        }
 
-        repository = repositories.get(0);
-        properties.put(SessionParameter.REPOSITORY_ID, repository.getId());
-        
         ping();
     }
 
+    private static String valueOf(final Map<String, String> properties, final String key, final String defaultValue) {
+        final String value = properties.get(key);
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    @Programmatic
+    @PreDestroy
+    public void shutdown() {
+        if (idleSessions != null) {
+            idleSessions.clear();
+        }
+    }
+
     // fail-fast if the properties are wrong etc etc
     private void ping() {
-        Session session = sessionFactory.createSession(properties);
+        withSession(new SessionCallback<Folder>() {
+            @Override
+            public Folder doWith(final Session session) {
+                return session.getRootFolder();
+            }
+        });
+    }
+
+    // //////////////////////////////////////
+
+    private static class PooledSession {
+        private final Session session;
+        private final long createdAt = System.nanoTime();
+
+        PooledSession(final Session session) {
+            this.session = session;
+        }
+    }
+
+    private interface SessionCallback<T> {
+        T doWith(Session session);
+    }
+
+    /**
+     * Calls back with an idle session from the pool (or a new one if there is none), which is then returned to the
+     * pool, unless the callback failed.
+     */
+    private <T> T withSession(final SessionCallback<T> callback) {
+        PooledSession pooled = idleSessions.poll();
+        while (pooled != null && System.nanoTime() - pooled.createdAt > sessionMaxAgeNanos) {
+            pooled = idleSessions.poll();
+        }
+        if (pooled == null) {
+            pooled = new PooledSession(sessionFactory.createSession(sessionParameters));
+        }
+        final T result = callback.doWith(pooled.session);
+        // if the pool is full, the session is simply discarded
+        idleSessions.offer(pooled);
+        return result;
+    }
 
-        @SuppressWarnings("unused")
-        Folder root = session.getRootFolder();
+    @Programmatic
+    public int getIdleSessionCount() {
+        return idleSessions.size();
     }
 
-    
+    // //////////////////////////////////////
+
     /**
+     * All the results of the query, read while the session is held (the {@link ItemIterable} returned by the
+     * session fetches the results lazily, through the session, as it is iterated).
+     * 
      * @param queryString eg: "SELECT * FROM cmis:document where cmis:name like '%Adventure%'"
      */
     @Programmatic
-    public ItemIterable<QueryResult> query(String queryString) {
+    public List<QueryResult> query(final String queryString) {
+        return withSession(new SessionCallback<List<QueryResult>>() {
+            @Override
+            public List<QueryResult> doWith(final Session session) {
+                return Lists.newArrayList(session.query(queryString, true));
+            }
+        });
+    }
 
-        final Session session = sessionFactory.createSession(properties);
-        return session.query(queryString, true);
+    /**
+     * As {@link #query(String)}, but at most <tt>max</tt> of the results.
+     */
+    @Programmatic
+    public List<QueryResult> query(final String queryString, final int max) {
+        return withSession(new SessionCallback<List<QueryResult>>() {
+            @Override
+            public List<QueryResult> doWith(final Session session) {
+                return Lists.newArrayList(session.query(queryString, true).getPage(max));
+            }
+        });
     }
 
     @Programmatic
-    public CmisObject findById(String cmisId) {
-        Session session = sessionFactory.createSession(properties);
-        return session.getObject(cmisId);
+    public CmisObject findById(final String cmisId) {
+        return withSession(new SessionCallback<CmisObject>() {
+            @Override
+            public CmisObject doWith(final Session session) {
+                try {
+                    return session.getObject(cmisId);
+                } catch (final CmisObjectNotFoundException e) {
+                    return null;
+                }
+            }
+        });
+    }
+
+    // //////////////////////////////////////
+
+    @Programmatic
+    @Override
+    public List<DocumentMetadata> findDocuments(final String text, final int max) {
+        final List<DocumentMetadata> documents = Lists.newArrayList();
+        for (final QueryResult result : query(queryFor(text), max)) {
+            final DocumentMetadata document = metadataOf(result);
+            if (document.getName() != null) {
+                documents.add(document);
+            }
+        }
+        return documents;
     }
-}
 
+    static String queryFor(final String text) {
+        return String.format(
+                "SELECT %s, %s, %s, %s, %s, %s "
+                        + "FROM cmis:document "
+                        + "WHERE CONTAINS('%s')",
+                PropertyIds.OBJECT_ID, PropertyIds.NAME, PropertyIds.VERSION_LABEL,
+                PropertyIds.CONTENT_STREAM_MIME_TYPE, PropertyIds.CONTENT_STREAM_LENGTH,
+                PropertyIds.LAST_MODIFICATION_DATE,
+                text.replace("\\", "\\\\").replace("'", "\\'"));
+    }
 
+    private static DocumentMetadata metadataOf(final QueryResult result) {
+        final BigInteger length = result.getPropertyValueById(PropertyIds.CONTENT_STREAM_LENGTH);
+        final GregorianCalendar lastModified = result.getPropertyValueById(PropertyIds.LAST_MODIFICATION_DATE);
+        return new DocumentMetadata(
+                result.<String> getPropertyValueById(PropertyIds.OBJECT_ID),
+                result.<String> getPropertyValueById(PropertyIds.NAME),
+                result.<String> getPropertyValueById(PropertyIds.VERSION_LABEL),
+                result.<String> getPropertyValueById(PropertyIds.CONTENT_STREAM_MIME_TYPE),
+                length != null ? length.longValue() : -1,
+                lastModified != null ? new DateTime(lastModified) : null);
+    }
+
+    @Programmatic
+    @Override
+    public DocumentMetadata findDocument(final String id) {
+        final CmisObject obj = findById(id);
+        if (obj == null) {
+            return null;
+        }
+        final GregorianCalendar lastModified = obj.getLastModificationDate();
+        final Document document = obj instanceof Document ? (Document) obj : null;
+        return new DocumentMetadata(
+                id,
+                obj.getName(),
+                obj.<String> getPropertyValue(PropertyIds.VERSION_LABEL),
+                document != null ? document.getContentStreamMimeType() : null,
+                document != null ? document.getContentStreamLength() : -1,
+                lastModified != null ? new DateTime(lastModified) : null);
+    }
+
+    @Programmatic
+    @Override
+    public Blob contentOf(final String id) {
+        final CmisObject obj = findById(id);
+        if (!(obj instanceof Document)) {
+            return null;
+        }
+        final ContentStream contentStream = ((Document) obj).getContentStream();
+        if (contentStream == null) {
+            return null;
+        }
+        final InputStream in = contentStream.getStream();
+        try {
+            final String fileName = contentStream.getFileName() != null ? contentStream.getFileName() : obj.getName();
+            return new Blob(fileName, contentStream.getMimeType(), ByteStreams.toByteArray(in));
+        } catch (final IOException e) {
+            throw new ApplicationException("Unable to read content of " + id, e);
+        } finally {
+            try {
+                in.close();
+            } catch (final IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    @Programmatic
+    @Override
+    public String viewUrlFor(final String id) {
+        return viewBaseUrl + "/" + id + "/view_documents";
+    }
+
+}
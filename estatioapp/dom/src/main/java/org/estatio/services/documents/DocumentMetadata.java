@@ -0,0 +1,93 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.documents;
+
+import java.io.Serializable;
+
+import com.google.common.base.Objects;
+
+import org.joda.time.DateTime;
+
+/**
+ * Immutable metadata of a document in a {@link DocumentRepository}; being independent of any session, it can be
+ * cached by the {@link DocumentViewModelFactory}.
+ */
+public final class DocumentMetadata implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final String name;
+    private final String versionLabel;
+    private final String mimeType;
+    private final long length;
+    private final DateTime lastModified;
+
+    public DocumentMetadata(
+            final String id,
+            final String name,
+            final String versionLabel,
+            final String mimeType,
+            final long length,
+            final DateTime lastModified) {
+        this.id = id;
+        this.name = name;
+        this.versionLabel = versionLabel;
+        this.mimeType = mimeType;
+        this.length = length;
+        this.lastModified = lastModified;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVersionLabel() {
+        return versionLabel;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * In bytes, or -1 if not known.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    public DateTime getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("id", id)
+                .add("name", name)
+                .add("versionLabel", versionLabel)
+                .toString();
+    }
+
+}
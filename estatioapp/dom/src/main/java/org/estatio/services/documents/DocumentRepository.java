@@ -0,0 +1,61 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.documents;
+
+import java.util.List;
+
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.value.Blob;
+
+/**
+ * A store of documents, searched by {@link DocumentContributions} and (through the caches of the
+ * {@link DocumentViewModelFactory}) rendered as {@link DocumentViewModel}s.
+ * 
+ * <p>
+ * Which implementation is used depends on which is registered in <tt>isis.properties</tt>: the
+ * {@link CmisRepository} (eg Nuxeo), or the {@link LocalDocumentRepository}, which serves the files in a local
+ * directory so that document features can be developed and load-tested offline.
+ */
+public interface DocumentRepository {
+
+    /**
+     * The documents matching the text (a full-text search), at most <tt>max</tt> of them.
+     */
+    @Programmatic
+    List<DocumentMetadata> findDocuments(String text, int max);
+
+    /**
+     * The document with the given id, or <tt>null</tt> if there is none.
+     */
+    @Programmatic
+    DocumentMetadata findDocument(String id);
+
+    /**
+     * The content of the document with the given id, or <tt>null</tt> if there is none.
+     */
+    @Programmatic
+    Blob contentOf(String id);
+
+    /**
+     * The URL at which the document can be viewed in a browser.
+     */
+    @Programmatic
+    String viewUrlFor(String id);
+
+}
@@ -3,15 +3,13 @@ package org.estatio.services.documents;
 import java.net.MalformedURLException;
 import java.net.URL;
 
-import org.isisaddons.module.stringinterpolator.dom.StringInterpolatorService;
-
-import org.apache.chemistry.opencmis.client.api.CmisObject;
-import org.apache.chemistry.opencmis.commons.PropertyIds;
-
 import org.apache.isis.applib.ViewModel;
+import org.apache.isis.applib.annotation.ActionSemantics;
+import org.apache.isis.applib.annotation.ActionSemantics.Of;
 import org.apache.isis.applib.annotation.MemberOrder;
 import org.apache.isis.applib.annotation.Programmatic;
 import org.apache.isis.applib.annotation.Title;
+import org.apache.isis.applib.value.Blob;
 
 public class DocumentViewModel implements ViewModel {
 
@@ -26,18 +24,19 @@ public class DocumentViewModel implements ViewModel {
     @Override
     public void viewModelInit(String memento) {
         this.cmisId = memento;
-        init(getCmisObject());
+        final DocumentMetadata document = documentViewModelFactory.metadataFor(cmisId);
+        if (document != null) {
+            init(document);
+        }
     }
 
 
     //// //////////////////////////////////////
     
     @Programmatic
-    public DocumentViewModel init(CmisObject obj) {
-        this.cmisObject = obj;
-        setName(obj.getName());
-        final String propertyValue = obj.getPropertyValue(PropertyIds.VERSION_LABEL);
-        setVersionLabel(propertyValue);
+    public DocumentViewModel init(DocumentMetadata document) {
+        setName(document.getName());
+        setVersionLabel(document.getVersionLabel());
         return this;
     }
 
@@ -51,24 +50,6 @@ public class DocumentViewModel implements ViewModel {
     }
 
     
-    //// //////////////////////////////////////
-    
-    private CmisObject cmisObject;
-    
-    /**
-     * Lazily loaded
-     * 
-     * @return
-     */
-    @Programmatic
-    public CmisObject getCmisObject() {
-        if (cmisObject == null) {
-            cmisObject = cmisRepository.findById(cmisId);
-        }
-        return cmisObject;
-    }
-
-    
     // //////////////////////////////////////
     
     private String name;
@@ -101,19 +82,17 @@ public class DocumentViewModel implements ViewModel {
     //// //////////////////////////////////////
     
     public URL showMe() throws MalformedURLException {
-        return new URL(
-                stringInterpolatorService.interpolate(
-                        this, "${properties['cmisServerDefaultRepoBaseUrl']}/${this.cmisId}/view_documents"));
+        return new URL(documentViewModelFactory.viewUrlFor(cmisId));
+    }
+
+    @ActionSemantics(Of.SAFE)
+    public Blob download() {
+        return documentViewModelFactory.contentFor(cmisId);
     }
 
-    // cmisServerDefaultRepoBaseUrl=http://cmis.demo.nuxeo.org/nuxeo/nxdoc/default
-    
     //// //////////////////////////////////////
     
     @javax.inject.Inject
-    private CmisRepository cmisRepository;
-
-    @javax.inject.Inject
-    private StringInterpolatorService stringInterpolatorService;
+    private DocumentViewModelFactory documentViewModelFactory;
     
 }
\ No newline at end of file
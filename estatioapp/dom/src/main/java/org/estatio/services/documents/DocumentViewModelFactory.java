@@ -1,34 +1,228 @@
 package org.estatio.services.documents;
 
-import com.google.common.base.Strings;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
 
-import org.apache.chemistry.opencmis.client.api.CmisObject;
-import org.apache.chemistry.opencmis.client.api.QueryResult;
-import org.apache.chemistry.opencmis.commons.PropertyIds;
+import com.google.common.base.Optional;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
+import org.apache.isis.applib.ApplicationException;
 import org.apache.isis.applib.DomainObjectContainer;
 import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.value.Blob;
 
-
+/**
+ * Creates {@link DocumentViewModel}s for the documents in the {@link DocumentRepository}.
+ * 
+ * <p>
+ * Searches, the metadata of each document and (up to <tt>estatio.documents.cache.maxContentBytes</tt>, default
+ * 32MB, in all) the content of each document are cached, for <tt>estatio.documents.cache.ttlMinutes</tt>
+ * (default {@value #DEFAULT_TTL_MINUTES}); at most <tt>estatio.documents.cache.maxEntries</tt> (default
+ * {@value #DEFAULT_MAX_ENTRIES}) searches and documents are held.
+ */
 public class DocumentViewModelFactory {
 
+    static final String KEY_TTL_MINUTES = "estatio.documents.cache.ttlMinutes";
+    static final long DEFAULT_TTL_MINUTES = 5;
+
+    static final String KEY_MAX_ENTRIES = "estatio.documents.cache.maxEntries";
+    static final long DEFAULT_MAX_ENTRIES = 1000;
+
+    static final String KEY_MAX_CONTENT_BYTES = "estatio.documents.cache.maxContentBytes";
+    static final long DEFAULT_MAX_CONTENT_BYTES = 32 * 1024 * 1024;
+
+    /**
+     * The maximum number of documents returned by a search; the user is warned if there were more.
+     */
+    static final int MAX_DOCUMENTS = 100;
+
+    private Cache<String, List<DocumentMetadata>> searches;
+    private Cache<String, Optional<DocumentMetadata>> documents;
+    private Cache<String, Blob> contents;
+
+    public DocumentViewModelFactory() {
+        buildCaches(DEFAULT_TTL_MINUTES, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_CONTENT_BYTES);
+    }
+
     @Programmatic
-    public DocumentViewModel newViewModelFor(QueryResult result) {
-        String cmisId = result.getPropertyValueById(PropertyIds.OBJECT_ID);
+    @PostConstruct
+    public void init(final Map<String, String> properties) {
+        long ttlMinutes = DEFAULT_TTL_MINUTES;
+        long maxEntries = DEFAULT_MAX_ENTRIES;
+        long maxContentBytes = DEFAULT_MAX_CONTENT_BYTES;
+        try {
+            if (properties.containsKey(KEY_TTL_MINUTES)) {
+                ttlMinutes = Long.parseLong(properties.get(KEY_TTL_MINUTES).trim());
+            }
+            if (properties.containsKey(KEY_MAX_ENTRIES)) {
+                maxEntries = Long.parseLong(properties.get(KEY_MAX_ENTRIES).trim());
+            }
+            if (properties.containsKey(KEY_MAX_CONTENT_BYTES)) {
+                maxContentBytes = Long.parseLong(properties.get(KEY_MAX_CONTENT_BYTES).trim());
+            }
+        } catch (final NumberFormatException e) {
+            // ignore, keep default
+        }
+        buildCaches(ttlMinutes, maxEntries, maxContentBytes);
+    }
+
+    private void buildCaches(final long ttlMinutes, final long maxEntries, final long maxContentBytes) {
+        searches = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        documents = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        contents = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .maximumWeight(maxContentBytes)
+                .weigher(new Weigher<String, Blob>() {
+                    @Override
+                    public int weigh(final String id, final Blob blob) {
+                        return blob.getBytes().length;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
 
-        final CmisObject obj = cmisRepository.findById(cmisId);
-        if(obj == null || Strings.isNullOrEmpty(obj.getName())) {
-            // TODO: why on earth could the obj.getName() be null even though result.get.... is non-null? 
+    // //////////////////////////////////////
+
+    /**
+     * The documents matching the text (a full-text search), at most {@value #MAX_DOCUMENTS} of them.
+     */
+    @Programmatic
+    public List<DocumentViewModel> newViewModelsFor(final String text) {
+        // one more than shown, to tell whether there were more
+        final List<DocumentMetadata> found = get(searches, text, new Callable<List<DocumentMetadata>>() {
+            @Override
+            public List<DocumentMetadata> call() {
+                return ImmutableList.copyOf(documentRepository.findDocuments(text, MAX_DOCUMENTS + 1));
+            }
+        });
+        if (found.size() > MAX_DOCUMENTS) {
+            container.warnUser(String.format(
+                    "Only the first %d documents matching '%s' are shown; refine the search to see others",
+                    MAX_DOCUMENTS, text));
+        }
+        final List<DocumentViewModel> viewModels = Lists.newArrayList();
+        for (final DocumentMetadata document : Iterables.limit(found, MAX_DOCUMENTS)) {
+            documents.put(document.getId(), Optional.of(document));
+            final DocumentViewModel viewModel = newViewModelFor(document);
+            if (viewModel != null) {
+                viewModels.add(viewModel);
+            }
+        }
+        return viewModels;
+    }
+
+    @Programmatic
+    public DocumentViewModel newViewModelFor(final DocumentMetadata document) {
+        if (document == null || Strings.isNullOrEmpty(document.getName())) {
             return null;
         }
+        final DocumentViewModel dvm = container.newViewModelInstance(DocumentViewModel.class, document.getId());
+        return dvm.init(document);
+    }
 
-        final DocumentViewModel dvm = container.newViewModelInstance(DocumentViewModel.class, cmisId);
-        return dvm.init(obj);
+    /**
+     * The metadata of the document with the given id, or <tt>null</tt> if there is none.
+     */
+    @Programmatic
+    public DocumentMetadata metadataFor(final String id) {
+        return get(documents, id, new Callable<Optional<DocumentMetadata>>() {
+            @Override
+            public Optional<DocumentMetadata> call() {
+                return Optional.fromNullable(documentRepository.findDocument(id));
+            }
+        }).orNull();
+    }
+
+    /**
+     * The content of the document with the given id, or <tt>null</tt> if there is none.
+     */
+    @Programmatic
+    public Blob contentFor(final String id) {
+        final Blob cached = contents.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        final Blob content = documentRepository.contentOf(id);
+        if (content != null) {
+            contents.put(id, content);
+        }
+        return content;
+    }
+
+    @Programmatic
+    public String viewUrlFor(final String id) {
+        return documentRepository.viewUrlFor(id);
+    }
+
+    private static <V> V get(final Cache<String, V> cache, final String key, final Callable<V> loader) {
+        try {
+            return cache.get(key, loader);
+        } catch (final ExecutionException e) {
+            throw new ApplicationException(e.getCause());
+        } catch (final UncheckedExecutionException e) {
+            throw new ApplicationException(e.getCause());
+        }
+    }
+
+    // //////////////////////////////////////
+
+    @Programmatic
+    public void invalidate() {
+        searches.invalidateAll();
+        documents.invalidateAll();
+        contents.invalidateAll();
     }
 
+    /**
+     * Hits, misses, load time and evictions per cache.
+     */
+    @Programmatic
+    public String getStatisticsAsCsv() {
+        final StringBuilder buf = new StringBuilder("cache,hits,misses,averageLoadMillis,evictions,entries\n");
+        appendStatistics(buf, "searches", searches.stats(), searches.size());
+        appendStatistics(buf, "documents", documents.stats(), documents.size());
+        appendStatistics(buf, "contents", contents.stats(), contents.size());
+        return buf.toString();
+    }
+
+    private static void appendStatistics(
+            final StringBuilder buf, final String name, final CacheStats stats, final long size) {
+        buf.append(name)
+                .append(',').append(stats.hitCount())
+                .append(',').append(stats.missCount())
+                .append(',').append(TimeUnit.NANOSECONDS.toMillis((long) stats.averageLoadPenalty()))
+                .append(',').append(stats.evictionCount())
+                .append(',').append(size)
+                .append('\n');
+    }
+
+    // //////////////////////////////////////
+
     @javax.inject.Inject
-    CmisRepository cmisRepository;
+    DocumentRepository documentRepository;
 
     @javax.inject.Inject
-    private DomainObjectContainer container;
+    DomainObjectContainer container;
 }
@@ -0,0 +1,203 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.documents;
+
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import com.google.common.collect.Lists;
+
+import org.joda.time.DateTime;
+
+import org.apache.isis.applib.ApplicationException;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.value.Blob;
+
+/**
+ * {@link DocumentRepository} serving the files in (the subdirectories of) a local directory, so that document
+ * features can be developed and load-tested without a CMIS server; register it in <tt>isis.properties</tt> instead
+ * of the {@link CmisRepository}.
+ * 
+ * <p>
+ * The directory is <tt>estatio.documents.local.root</tt> (by default <tt>estatio-documents</tt> in the temporary
+ * directory). The id of each document is its path relative to that directory; a document matches a search if
+ * its path contains the text or, for a text file of at most {@value #MAX_SEARCHED_LENGTH} bytes, if its content
+ * does (ignoring case in both cases).
+ */
+public class LocalDocumentRepository implements DocumentRepository {
+
+    static final String KEY_ROOT = "estatio.documents.local.root";
+
+    static final int MAX_SEARCHED_LENGTH = 1024 * 1024;
+
+    private static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+
+    private Path root;
+
+    @Programmatic
+    @PostConstruct
+    public void init(final Map<String, String> properties) {
+        final String root = properties.get(KEY_ROOT);
+        setRoot(root != null
+                ? Paths.get(root.trim())
+                : Paths.get(System.getProperty("java.io.tmpdir"), "estatio-documents"));
+    }
+
+    @Programmatic
+    public void setRoot(final Path root) {
+        try {
+            this.root = Files.createDirectories(root).toRealPath();
+        } catch (final IOException e) {
+            throw new ApplicationException("Unable to use " + root + " for documents", e);
+        }
+    }
+
+    @Programmatic
+    public Path getRoot() {
+        return root;
+    }
+
+    // //////////////////////////////////////
+
+    @Programmatic
+    @Override
+    public List<DocumentMetadata> findDocuments(final String text, final int max) {
+        final String searchText = text.toLowerCase(Locale.ROOT);
+        final List<DocumentMetadata> documents = Lists.newArrayList();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile() && matches(file, attrs, searchText)) {
+                        documents.add(metadataOf(file, attrs));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (final IOException e) {
+            throw new ApplicationException("Unable to search documents in " + root, e);
+        }
+        Collections.sort(documents, new Comparator<DocumentMetadata>() {
+            @Override
+            public int compare(final DocumentMetadata o1, final DocumentMetadata o2) {
+                return o1.getId().compareTo(o2.getId());
+            }
+        });
+        return documents.size() > max ? Lists.newArrayList(documents.subList(0, max)) : documents;
+    }
+
+    private boolean matches(final Path file, final BasicFileAttributes attrs, final String searchText)
+            throws IOException {
+        if (idOf(file).toLowerCase(Locale.ROOT).contains(searchText)) {
+            return true;
+        }
+        if (attrs.size() > MAX_SEARCHED_LENGTH || !mimeTypeOf(file).startsWith("text/")) {
+            return false;
+        }
+        final String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        return content.toLowerCase(Locale.ROOT).contains(searchText);
+    }
+
+    @Programmatic
+    @Override
+    public DocumentMetadata findDocument(final String id) {
+        final Path file = fileFor(id);
+        if (file == null) {
+            return null;
+        }
+        try {
+            return metadataOf(file, Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (final IOException e) {
+            // eg deleted meanwhile
+            return null;
+        }
+    }
+
+    @Programmatic
+    @Override
+    public Blob contentOf(final String id) {
+        final Path file = fileFor(id);
+        if (file == null) {
+            return null;
+        }
+        try {
+            return new Blob(file.getFileName().toString(), mimeTypeOf(file), Files.readAllBytes(file));
+        } catch (final IOException e) {
+            // eg deleted meanwhile
+            return null;
+        }
+    }
+
+    @Programmatic
+    @Override
+    public String viewUrlFor(final String id) {
+        final Path file = fileFor(id);
+        return file != null ? file.toUri().toString() : null;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The file with the given id, provided it exists and is within the root directory.
+     */
+    private Path fileFor(final String id) {
+        if (id == null) {
+            return null;
+        }
+        final Path file = root.resolve(id).normalize();
+        return file.startsWith(root) && Files.isRegularFile(file) ? file : null;
+    }
+
+    private String idOf(final Path file) {
+        return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    private DocumentMetadata metadataOf(final Path file, final BasicFileAttributes attrs) throws IOException {
+        return new DocumentMetadata(
+                idOf(file),
+                file.getFileName().toString(),
+                null,
+                mimeTypeOf(file),
+                attrs.size(),
+                new DateTime(attrs.lastModifiedTime().toMillis()));
+    }
+
+    private static String mimeTypeOf(final Path file) throws IOException {
+        String mimeType = Files.probeContentType(file);
+        if (mimeType == null) {
+            mimeType = URLConnection.guessContentTypeFromName(file.getFileName().toString());
+        }
+        return mimeType != null ? mimeType : DEFAULT_MIME_TYPE;
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.excel;
+
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.Hidden;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.bookmark.Bookmark;
+
+import org.estatio.dom.EstatioService;
+
+/**
+ * Writes spreadsheets a row at a time, in the layout that <tt>ExcelService#fromExcel</tt> reads back, for
+ * exports too large to build as a list of view models and then as a workbook in memory.
+ * 
+ * @see StreamingExcelWorkbook
+ */
+@DomainService
+@Hidden
+public class StreamingExcelService extends EstatioService<StreamingExcelService> {
+
+    public StreamingExcelService() {
+        super(StreamingExcelService.class);
+    }
+
+    /**
+     * A new workbook with a single sheet, for (view model) objects of the given class, with a column for each of
+     * the given properties.
+     * 
+     * <p>
+     * The caller must {@link StreamingExcelWorkbook#close() close} the workbook, to delete its temporary files.
+     */
+    @Programmatic
+    public StreamingExcelWorkbook newWorkbook(final Class<?> cls, final String... propertyIds) {
+        return new StreamingExcelWorkbook(this, cls.getSimpleName(), propertyIds, StreamingExcelWorkbook.DEFAULT_WINDOW_SIZE);
+    }
+
+    // //////////////////////////////////////
+
+    String titleOf(final Object domainObject) {
+        return getContainer().titleOf(domainObject);
+    }
+
+    String bookmarkOf(final Object domainObject) {
+        final Bookmark bookmark = getBookmarkService().bookmarkFor(domainObject);
+        return bookmark != null ? bookmark.toString() : null;
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.excel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Drawing;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.joda.time.LocalDate;
+
+import org.apache.isis.applib.ApplicationException;
+import org.apache.isis.applib.value.Blob;
+
+/**
+ * A spreadsheet written a row at a time, only the most recent rows (the window) being held in memory, the rest
+ * having been flushed to a temporary file.
+ * 
+ * <p>
+ * Values are written as for <tt>ExcelService#toExcel</tt>: the header row holds the property ids, and a
+ * reference to a domain object is written as its title, with its bookmark in the cell's comment.
+ */
+public class StreamingExcelWorkbook implements Closeable {
+
+    public static final String XLSX_MIME_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    static final int DEFAULT_WINDOW_SIZE = 100;
+
+    private static final int MAX_SHEET_NAME_LENGTH = 30;
+
+    private final StreamingExcelService excelService;
+    private final SXSSFWorkbook workbook;
+    private final Sheet sheet;
+    private final int columns;
+    private final CellStyle dateStyle;
+    private Drawing drawing;
+    private int rowNumber;
+
+    StreamingExcelWorkbook(
+            final StreamingExcelService excelService,
+            final String sheetName,
+            final String[] propertyIds,
+            final int windowSize) {
+        this.excelService = excelService;
+        this.workbook = new SXSSFWorkbook(windowSize);
+        this.workbook.setCompressTempFiles(true);
+        this.sheet = workbook.createSheet(
+                sheetName.length() > MAX_SHEET_NAME_LENGTH ? sheetName.substring(0, MAX_SHEET_NAME_LENGTH) : sheetName);
+        this.columns = propertyIds.length;
+
+        final CreationHelper creationHelper = workbook.getCreationHelper();
+        this.dateStyle = workbook.createCellStyle();
+        this.dateStyle.setDataFormat(creationHelper.createDataFormat().getFormat("yyyy-mm-dd"));
+
+        addRow((Object[]) propertyIds);
+    }
+
+    /**
+     * Appends a row, with a value for each of the columns, in order; <tt>null</tt>s are left blank.
+     */
+    public StreamingExcelWorkbook addRow(final Object... values) {
+        if (values.length != columns) {
+            throw new IllegalArgumentException(String.format("Expected %d values, got %d", columns, values.length));
+        }
+        final Row row = sheet.createRow(rowNumber++);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                setCellValue(row.createCell(i), values[i]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * The number of rows written so far, excluding the header row.
+     */
+    public int getRowCount() {
+        return rowNumber - 1;
+    }
+
+    private void setCellValue(final Cell cell, final Object value) {
+        if (value instanceof String) {
+            cell.setCellValue((String) value);
+        } else if (value instanceof Number) {
+            cell.setCellValue(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof LocalDate) {
+            cell.setCellValue(((LocalDate) value).toDate());
+            cell.setCellStyle(dateStyle);
+        } else if (value instanceof Enum) {
+            cell.setCellValue(((Enum<?>) value).name());
+        } else {
+            cell.setCellValue(excelService.titleOf(value));
+            final String bookmark = excelService.bookmarkOf(value);
+            if (bookmark != null) {
+                cell.setCellComment(newComment(cell, bookmark));
+            }
+        }
+    }
+
+    private Comment newComment(final Cell cell, final String text) {
+        if (drawing == null) {
+            drawing = sheet.createDrawingPatriarch();
+        }
+        final CreationHelper creationHelper = workbook.getCreationHelper();
+        final ClientAnchor anchor = creationHelper.createClientAnchor();
+        anchor.setCol1(cell.getColumnIndex());
+        anchor.setCol2(cell.getColumnIndex() + 1);
+        anchor.setRow1(cell.getRowIndex());
+        anchor.setRow2(cell.getRowIndex() + 3);
+        final Comment comment = drawing.createCellComment(anchor);
+        comment.setString(creationHelper.createRichTextString(text));
+        return comment;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The (completed) workbook, as a blob with the given name.
+     */
+    public Blob toBlob(final String fileName) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            workbook.write(bytes);
+            return new Blob(fileName, XLSX_MIME_TYPE, bytes.toByteArray());
+        } catch (final IOException e) {
+            throw new ApplicationException(e);
+        }
+    }
+
+    /**
+     * Deletes the temporary files backing the workbook.
+     */
+    @Override
+    public void close() {
+        workbook.dispose();
+    }
+
+}
@@ -89,5 +89,29 @@ public class Link extends EstatioDomainObject<Link>{
         this.urlTemplate = urlTemplate;
     }
 
-    
+    // //////////////////////////////////////
+
+    public void persisted() {
+        linksChanged();
+    }
+
+    public void updated() {
+        linksChanged();
+    }
+
+    public void removing() {
+        linksChanged();
+    }
+
+    private void linksChanged() {
+        if (links != null) {
+            links.linksChanged();
+        }
+    }
+
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    Links links;
+
 }
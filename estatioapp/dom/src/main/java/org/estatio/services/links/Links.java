@@ -20,8 +20,8 @@ package org.estatio.services.links;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.isis.applib.annotation.DomainService;
@@ -34,20 +34,12 @@ import org.estatio.dom.EstatioDomainService;
 @DomainService(menuOrder = "99", repositoryFor = Link.class)
 @Hidden
 public class Links extends EstatioDomainService<Link> {
-    
+
     /**
-     * Cache link count (across sessions), so can quickly know whether any given class has any links for it.
-     * 
-     * <p>
-     * The count held here is for the class plus all its superclasses in the hierarchy.
-     * 
-     * <p>
-     * Note that we cannot (safely) cache the reports themselves between sessions, however
-     * (would require detaching and reattaching from underlying JDO session, and issues of threadsafety).
-     * So we make do with caching of reports themselves only within a sesssion, using {@link QueryResultsCache}.
+     * The names of each concrete class and its superclasses, most general first; resolved once per class.
      */
-    private Map<Class<?>, Integer> linksByClass = Maps.newHashMap();
-    
+    private final ConcurrentMap<Class<?>, List<String>> classHierarchies = Maps.newConcurrentMap();
+
     public Links() {
         super(Links.class, Link.class);
     }
@@ -60,43 +52,50 @@ public class Links extends EstatioDomainService<Link> {
         return findAllForClassHierarchy(domainObject.getClass());
     }
 
+    /**
+     * The links for the class and all its superclasses (those of the superclasses first).
+     * 
+     * <p>
+     * The links are held, per concrete class, in the application-scoped
+     * {@link org.estatio.services.refdata.ReferenceDataCache} (by bookmark, since the links themselves belong
+     * to a session), until a link is created, changed or removed (see {@link #linksChanged()}). Within a
+     * session the result is also held by the {@link QueryResultsCache}, since each object page asks more than
+     * once.
+     */
     @Programmatic
     public List<Link> findAllForClassHierarchy(final Class<?> cls) {
         return queryResultsCache.execute(
                 new Callable<List<Link>>(){
                     @Override
                     public List<Link> call() throws Exception {
-
-                        // do we already know that there are no links for this class?
-                        Integer numLinks = linksByClass.get(cls);
-                        if(numLinks != null && numLinks == 0) {
-                            return Collections.emptyList();
-                        }
-                        
-                        // combine the links for this class and those of its superclass
-                        // (calling recursively)
-                        final List<Link> links = Lists.newArrayList();
-
-                        // ... find the superclass' links
-                        // (taking into account might be at top of the class hierarchy)
-                        List<Link> linksForSuperClass = 
-                                cls != Object.class 
-                                    ? findAllForClassHierarchy(cls.getSuperclass()) 
-                                    : Collections.<Link>emptyList();
-                        links.addAll(linksForSuperClass);
-
-                        // ... and now the class itself
-                        List<Link> linksForClass = findByClassName(cls.getName());
-                        links.addAll(linksForClass);
-
-                        // cache for next time
-                        linksByClass.put(cls, links.size());
-
-                        return links;
+                        return allMatchesCached(cls.getName(), new Callable<List<Link>>() {
+                            @Override
+                            public List<Link> call() {
+                                final List<Link> links = Lists.newArrayList();
+                                for (final String className : classHierarchyOf(cls)) {
+                                    links.addAll(findByClassName(className));
+                                }
+                                return links;
+                            }
+                        });
                     }
                 }, Links.class, "findAllForClassHierarchy", cls);
     }
-    
+
+    private List<String> classHierarchyOf(final Class<?> cls) {
+        final List<String> cached = classHierarchies.get(cls);
+        if (cached != null) {
+            return cached;
+        }
+        final List<String> classNames = Lists.newArrayList();
+        for (Class<?> each = cls; each != null; each = each.getSuperclass()) {
+            classNames.add(0, each.getName());
+        }
+        final List<String> classHierarchy = Collections.unmodifiableList(classNames);
+        classHierarchies.putIfAbsent(cls, classHierarchy);
+        return classHierarchy;
+    }
+
     public List<Link> findByClassName(final String className) {
         return allMatches(
                 new QueryDefault<Link>(Link.class, 
@@ -120,6 +119,15 @@ public class Links extends EstatioDomainService<Link> {
         return link;
     }
 
+    /**
+     * Called by {@link Link} whenever one is created, changed or removed, so that the links of all classes are
+     * looked up afresh.
+     */
+    @Programmatic
+    public void linksChanged() {
+        invalidateCached();
+    }
+
     
     // //////////////////////////////////////
 
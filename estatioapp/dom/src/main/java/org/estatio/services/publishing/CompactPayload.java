@@ -0,0 +1,33 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.publishing;
+
+/**
+ * Implemented by {@link org.apache.isis.applib.services.publish.EventPayload}s that can be written in the
+ * compact format defined by {@link CompactPayloadSchema}.
+ */
+public interface CompactPayload {
+
+    /**
+     * Writes the records describing this payload (the {@link CompactPayloadSchema#EVENT event} record having
+     * already been written).
+     */
+    void writeTo(CompactPayloadWriter writer);
+
+}
@@ -0,0 +1,96 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.publishing;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.base.Joiner;
+
+/**
+ * The schema of the compact payload format: each record type, with the code that starts each of its records
+ * and the names of its fields, in order.
+ * 
+ * <p>
+ * A payload is a header line (<tt>estatio-compact/</tt>{@value #VERSION}) followed by one line per record,
+ * being the record's code and then its field values, all separated by <tt>|</tt>. Field names are not
+ * repeated in the payload; consumers use this schema (see {@link #describe()}) instead. Fields may only be
+ * added at the end of a record, otherwise the {@link #VERSION} must be incremented.
+ */
+public enum CompactPayloadSchema {
+
+    EVENT("E",
+            "transactionId", "sequence", "eventType", "user", "timestamp", "title",
+            "targetClass", "targetAction", "target", "actionIdentifier"),
+    ARGUMENT("A",
+            "value"),
+    INVOICE("I",
+            "invoiceNumber", "collectionNumber", "status", "invoiceDate", "dueDate", "currency",
+            "paymentMethod", "seller", "buyer", "lease", "fixedAsset", "paidBy",
+            "netAmount", "vatAmount", "grossAmount", "runId"),
+    INVOICE_ITEM("II",
+            "sequence", "charge", "description", "quantity", "netAmount", "vatAmount", "grossAmount",
+            "tax", "dueDate", "startDate", "endDate"),
+    BANK_ACCOUNT("B",
+            "reference", "name", "iban", "owner", "bank", "country", "nationalCheckCode",
+            "nationalBankCode", "branchCode", "accountNumber", "externalReference"),
+    BANK_MANDATE("BM",
+            "reference", "name", "sepaMandateIdentifier", "startDate", "endDate",
+            "primaryParty", "secondaryParty");
+
+    public static final String FORMAT = "estatio-compact";
+    public static final int VERSION = 1;
+
+    static final char SEPARATOR = '|';
+
+    private final String code;
+    private final List<String> fieldNames;
+
+    private CompactPayloadSchema(final String code, final String... fieldNames) {
+        this.code = code;
+        this.fieldNames = Collections.unmodifiableList(Arrays.asList(fieldNames));
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    public static String header() {
+        return FORMAT + "/" + VERSION;
+    }
+
+    /**
+     * The schema in the same form as a payload: the header, then one line per record type, listing its field
+     * names.
+     */
+    public static String describe() {
+        final StringBuilder buf = new StringBuilder(header());
+        for (final CompactPayloadSchema recordType : values()) {
+            buf.append('\n').append(recordType.code).append(SEPARATOR)
+                    .append(Joiner.on(SEPARATOR).join(recordType.fieldNames));
+        }
+        return buf.toString();
+    }
+
+}
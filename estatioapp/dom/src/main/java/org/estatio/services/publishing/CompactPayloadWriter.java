@@ -0,0 +1,90 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.publishing;
+
+import java.math.BigDecimal;
+
+import org.estatio.dom.WithReferenceGetter;
+
+/**
+ * Writes a payload in the compact format defined by {@link CompactPayloadSchema}.
+ * 
+ * <p>
+ * Values are written as follows: objects with a {@link WithReferenceGetter reference} as that reference,
+ * {@link BigDecimal}s in plain notation, enums by name, dates (ISO-8601) and everything else by their
+ * <tt>toString()</tt>; <tt>null</tt>s as the empty string. Backslashes, separators and newlines within values
+ * are escaped with a backslash (the newline as <tt>\n</tt>).
+ */
+public class CompactPayloadWriter {
+
+    private final StringBuilder buf = new StringBuilder(CompactPayloadSchema.header());
+
+    /**
+     * Appends a record, having exactly one value for each of the {@link CompactPayloadSchema#getFieldNames()
+     * fields} of its type.
+     */
+    public CompactPayloadWriter record(final CompactPayloadSchema recordType, final Object... values) {
+        if (values.length != recordType.getFieldNames().size()) {
+            throw new IllegalArgumentException(String.format(
+                    "%s has %d fields, but %d values were provided",
+                    recordType, recordType.getFieldNames().size(), values.length));
+        }
+        buf.append('\n').append(recordType.getCode());
+        for (final Object value : values) {
+            buf.append(CompactPayloadSchema.SEPARATOR);
+            appendEscaped(format(value));
+        }
+        return this;
+    }
+
+    static String format(final Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof WithReferenceGetter) {
+            return format(((WithReferenceGetter) value).getReference());
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return value.toString();
+    }
+
+    private void appendEscaped(final String str) {
+        for (int i = 0; i < str.length(); i++) {
+            final char ch = str.charAt(i);
+            if (ch == '\\' || ch == CompactPayloadSchema.SEPARATOR) {
+                buf.append('\\').append(ch);
+            } else if (ch == '\n') {
+                buf.append("\\n");
+            } else {
+                buf.append(ch);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return buf.toString();
+    }
+
+}
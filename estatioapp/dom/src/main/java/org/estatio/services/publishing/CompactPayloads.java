@@ -0,0 +1,157 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.publishing;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.BaseEncoding;
+
+import org.apache.isis.applib.services.publish.EventMetadata;
+
+/**
+ * Writes, compresses and reads payloads in the compact format defined by {@link CompactPayloadSchema}.
+ * 
+ * <p>
+ * A compressed payload is the header with a <tt>+deflate</tt> suffix, then a newline and the base64 of the
+ * deflated (uncompressed) payload.
+ */
+public final class CompactPayloads {
+
+    static final String DEFLATE_SUFFIX = "+deflate";
+
+    private CompactPayloads() {
+    }
+
+    /**
+     * The payload with its metadata, compressed if it has at least <tt>compressFromChars</tt> characters
+     * (negative to never compress) and compressing makes it smaller.
+     */
+    public static String serialize(final EventMetadata metadata, final CompactPayload payload, final int compressFromChars) {
+        final CompactPayloadWriter writer = new CompactPayloadWriter();
+        writer.record(CompactPayloadSchema.EVENT,
+                metadata.getTransactionId(),
+                metadata.getSequence(),
+                metadata.getEventType(),
+                metadata.getUser(),
+                metadata.getJavaSqlTimestamp(),
+                metadata.getTitle(),
+                metadata.getTargetClass(),
+                metadata.getTargetAction(),
+                metadata.getTarget(),
+                metadata.getActionIdentifier());
+        payload.writeTo(writer);
+        final String serialized = writer.toString();
+        if (compressFromChars < 0 || serialized.length() < compressFromChars) {
+            return serialized;
+        }
+        final String compressed = compress(serialized);
+        return compressed.length() < serialized.length() ? compressed : serialized;
+    }
+
+    // //////////////////////////////////////
+
+    public static String compress(final String payload) {
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(payload.getBytes(Charsets.UTF_8));
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return CompactPayloadSchema.header() + DEFLATE_SUFFIX + "\n" + BaseEncoding.base64().encode(out.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * The uncompressed form of the payload; returned as is if not compressed.
+     */
+    public static String decompress(final String payload) {
+        final String compressedHeader = CompactPayloadSchema.header() + DEFLATE_SUFFIX + "\n";
+        if (!payload.startsWith(compressedHeader)) {
+            return payload;
+        }
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(BaseEncoding.base64().decode(payload.substring(compressedHeader.length())));
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                final int inflated = inflater.inflate(chunk);
+                if (inflated == 0 && inflater.needsInput()) {
+                    throw new IllegalArgumentException("Truncated compressed payload");
+                }
+                out.write(chunk, 0, inflated);
+            }
+            return new String(out.toByteArray(), Charsets.UTF_8);
+        } catch (final DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The records of a (possibly compressed) payload, each as its code followed by its (unescaped) values.
+     */
+    public static List<List<String>> read(final String payload) {
+        final String decompressed = decompress(payload);
+        if (!decompressed.startsWith(CompactPayloadSchema.header())) {
+            throw new IllegalArgumentException("Not a " + CompactPayloadSchema.header() + " payload");
+        }
+        final List<List<String>> records = Lists.newArrayList();
+        List<String> record = null;
+        final StringBuilder value = new StringBuilder();
+        for (int i = CompactPayloadSchema.header().length(); i < decompressed.length(); i++) {
+            final char ch = decompressed.charAt(i);
+            if (ch == '\n') {
+                if (record != null) {
+                    record.add(value.toString());
+                }
+                record = Lists.newArrayList();
+                records.add(record);
+                value.setLength(0);
+            } else if (ch == CompactPayloadSchema.SEPARATOR) {
+                record.add(value.toString());
+                value.setLength(0);
+            } else if (ch == '\\' && i + 1 < decompressed.length()) {
+                final char escaped = decompressed.charAt(++i);
+                value.append(escaped == 'n' ? '\n' : escaped);
+            } else {
+                value.append(ch);
+            }
+        }
+        if (record != null) {
+            record.add(value.toString());
+        }
+        return records;
+    }
+
+}
@@ -92,6 +92,22 @@ public abstract class AbstractIsisJob implements Job {
         return context.getMergedJobDataMap().getString(key);
     }
 
+    /**
+     * Helper method for benefit of subclasses, to commit the work done so far and start a new transaction,
+     * eg after each page of {@link org.estatio.dom.EstatioDomainService#allInstancesInPages(Runnable) a paged
+     * iteration}.
+     */
+    protected Runnable nextTransaction() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                final IsisTransactionManager transactionManager = IsisContext.getPersistenceSession().getTransactionManager();
+                transactionManager.endTransaction();
+                transactionManager.startTransaction();
+            }
+        };
+    }
+
     /**
      * Helper method for benefit of subclasses
      */
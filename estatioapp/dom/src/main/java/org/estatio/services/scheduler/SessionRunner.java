@@ -0,0 +1,128 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.scheduler;
+
+import java.io.Closeable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.isis.core.commons.authentication.AuthenticationSession;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.runtime.system.transaction.IsisTransaction;
+import org.apache.isis.core.runtime.system.transaction.IsisTransactionManager;
+
+/**
+ * Runs units of work each in an Isis session of its own (and so with a persistence manager and a transaction of
+ * its own), on a worker thread, committing the transaction if the work completes and aborting it otherwise.
+ * 
+ * <p>
+ * This is the transaction boundary for work that must be committed independently of the caller, eg each page of
+ * a batch run from an action, without ending (or otherwise touching) the transaction of the current request.
+ * Because every unit of work gets a new persistence manager, nothing is carried over from one to the next; in
+ * particular, work that failed (eg because of an optimistic locking conflict) can simply be retried.
+ * 
+ * <p>
+ * The caller blocks until each unit of work has completed.  {@link #close() Close} the runner once done.
+ */
+public class SessionRunner implements Closeable {
+
+    private final AuthenticationSession authSession;
+    private final ExecutorService executor;
+
+    public SessionRunner(final AuthenticationSession authSession) {
+        this.authSession = authSession;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "estatio-session-runner");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * For the user of the current session.
+     */
+    public static SessionRunner forCurrentUser() {
+        return new SessionRunner(IsisContext.getAuthenticationSession());
+    }
+
+    public <T> T call(final Callable<T> work) {
+        final Future<T> future = executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return inNewSession(authSession, work);
+            }
+        });
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Runs the work in a new session on the current thread (which must not already have one).
+     */
+    public static <T> T inNewSession(final AuthenticationSession authSession, final Callable<T> work)
+            throws Exception {
+        IsisContext.openSession(authSession);
+        try {
+            final IsisTransactionManager transactionManager = IsisContext.getPersistenceSession().getTransactionManager();
+            transactionManager.startTransaction();
+            try {
+                final T result = work.call();
+                transactionManager.endTransaction();
+                return result;
+            } catch (final Exception e) {
+                final IsisTransaction transaction = transactionManager.getTransaction();
+                if (transaction != null && transaction.getState().canAbort()) {
+                    transactionManager.abortTransaction();
+                }
+                throw e;
+            }
+        } finally {
+            IsisContext.closeSession();
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.schema;
+
+import java.util.List;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The packages holding Estatio's (and Isis's own) entities, as a precomputed alternative to having Isis scan the
+ * whole of <tt>org.estatio</tt> for <tt>@PersistenceCapable</tt> classes at startup.
+ * 
+ * <p>
+ * The <tt>isis.persistor.datanucleus.RegisterEntities.packagePrefix</tt> of the fast startup profile in
+ * <tt>persistor_datanucleus.properties</tt> must be kept in sync with this list; <tt>EntityPackagesTest</tt> fails
+ * when an entity is added to a package not listed here.
+ */
+public final class EntityPackages {
+
+    private static final List<String> PACKAGES = ImmutableList.of(
+            "org.estatio.dom.agreement",
+            "org.estatio.dom.asset",
+            "org.estatio.dom.bankmandate",
+            "org.estatio.dom.charge",
+            "org.estatio.dom.communicationchannel",
+            "org.estatio.dom.currency",
+            "org.estatio.dom.event",
+            "org.estatio.dom.financial",
+            "org.estatio.dom.geography",
+            "org.estatio.dom.guarantee",
+            "org.estatio.dom.index",
+            "org.estatio.dom.invoice",
+            "org.estatio.dom.lease",
+            "org.estatio.dom.numerator",
+            "org.estatio.dom.outbox",
+            "org.estatio.dom.party",
+            "org.estatio.dom.tag",
+            "org.estatio.dom.tax",
+            "org.estatio.services.links",
+            "org.estatio.services.settings",
+            "org.apache.isis.objectstore.jdo.applib");
+
+    private EntityPackages() {
+    }
+
+    public static List<String> getPackages() {
+        return PACKAGES;
+    }
+
+    /**
+     * The packages as a value for <tt>isis.persistor.datanucleus.RegisterEntities.packagePrefix</tt>.
+     */
+    public static String asPackagePrefix() {
+        return Joiner.on(',').join(PACKAGES);
+    }
+
+    /**
+     * Whether the class is in one of the (sub)packages listed.
+     */
+    public static boolean covers(final Class<?> cls) {
+        final String className = cls.getName();
+        for (final String packageName : PACKAGES) {
+            if (className.startsWith(packageName + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
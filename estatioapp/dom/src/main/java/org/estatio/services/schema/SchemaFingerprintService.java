@@ -0,0 +1,317 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.schema;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import javax.jdo.PersistenceManager;
+import javax.jdo.PersistenceManagerFactory;
+import javax.jdo.datastore.JDOConnection;
+import javax.jdo.metadata.Metadata;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.BaseEncoding;
+
+import org.apache.isis.applib.ApplicationException;
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.Hidden;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.jdosupport.IsisJdoSupport;
+
+import org.estatio.dom.EstatioService;
+
+/**
+ * Guards the fast startup profile (see <tt>persistor_datanucleus.properties</tt>), in which DataNucleus neither
+ * creates nor validates the schema.
+ * 
+ * <p>
+ * The fingerprint is a digest of the persistent fields and the JDO metadata (columns, indices, inheritance and so
+ * on) of every entity, and of the columns in the application's schema of the database. After
+ * a standard startup, in which DataNucleus has validated (and if need be created) the schema, the fingerprint is
+ * recorded in <tt>estatio.schema.fingerprintFile</tt>. A fast startup only compares the fingerprint with the one
+ * recorded, and fails if they differ (eg a new version of the application, or a changed database); in that case
+ * start once using the standard profile to validate the schema afresh.
+ * 
+ * <p>
+ * The application's schema is the one set by <tt>isis.persistor.datanucleus.impl.datanucleus.mapping.Schema</tt>,
+ * if any, else the schema of the connection (which requires a JDBC 4.1 driver).
+ * 
+ * <p>
+ * Does nothing unless <tt>estatio.schema.fingerprintFile</tt> is set.
+ */
+@DomainService
+@Hidden
+public class SchemaFingerprintService extends EstatioService<SchemaFingerprintService> {
+
+    static final String KEY_FINGERPRINT_FILE = "estatio.schema.fingerprintFile";
+
+    static final String KEY_VALIDATE_SCHEMA = "isis.persistor.datanucleus.impl.datanucleus.validateSchema";
+
+    static final String KEY_MAPPING_SCHEMA = "isis.persistor.datanucleus.impl.datanucleus.mapping.Schema";
+
+    private String schema;
+
+    public SchemaFingerprintService() {
+        super(SchemaFingerprintService.class);
+    }
+
+    @Override
+    @Programmatic
+    public void init(final Map<String, String> properties) {
+        super.init(properties);
+        final String fingerprintFile = properties.get(KEY_FINGERPRINT_FILE);
+        if (fingerprintFile == null) {
+            return;
+        }
+        schema = properties.get(KEY_MAPPING_SCHEMA);
+        final Path file = Paths.get(fingerprintFile.trim());
+        final String fingerprint = fingerprint();
+        if (Boolean.parseBoolean(properties.get(KEY_VALIDATE_SCHEMA))) {
+            record(file, fingerprint);
+        } else {
+            verify(file, fingerprint);
+        }
+    }
+
+    private static void record(final Path file, final String fingerprint) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.write(file, fingerprint.getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            throw new ApplicationException("Unable to record the schema fingerprint in " + file, e);
+        }
+    }
+
+    private static void verify(final Path file, final String fingerprint) {
+        final String recorded;
+        try {
+            recorded = Files.isRegularFile(file)
+                    ? new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim()
+                    : null;
+        } catch (final IOException e) {
+            throw new ApplicationException("Unable to read the schema fingerprint in " + file, e);
+        }
+        if (!fingerprint.equals(recorded)) {
+            throw new ApplicationException(String.format(
+                    "The schema does not match the one last validated (fingerprint %s, recorded in %s: %s); "
+                            + "start once with %s=true to validate it",
+                    fingerprint, file, recorded, KEY_VALIDATE_SCHEMA));
+        }
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * A digest of the persistent fields and JDO metadata of every entity and of the columns in the application's
+     * schema.
+     */
+    @Programmatic
+    @SuppressWarnings("rawtypes")
+    public String fingerprint() {
+        final PersistenceManager pm = isisJdoSupport.getJdoPersistenceManager();
+        final PersistenceManagerFactory pmf = pm.getPersistenceManagerFactory();
+        final List<String> lines = Lists.newArrayList();
+        lines.addAll(entityLines(pmf.getManagedClasses()));
+        for (final Class entityClass : pmf.getManagedClasses()) {
+            lines.addAll(metadataLines(entityClass.getName(), pmf.getMetadata(entityClass.getName())));
+        }
+        final JDOConnection jdoConnection = pm.getDataStoreConnection();
+        try {
+            final Connection connection = (Connection) jdoConnection.getNativeConnection();
+            lines.addAll(columnLines(connection, schema != null ? schema : schemaOf(connection)));
+        } catch (final SQLException e) {
+            throw new ApplicationException("Unable to read the database metadata", e);
+        } finally {
+            jdoConnection.close();
+        }
+        return digest(lines);
+    }
+
+    @SuppressWarnings("rawtypes")
+    static List<String> entityLines(final Collection<Class> entityClasses) {
+        final List<String> lines = Lists.newArrayList();
+        for (final Class<?> entityClass : entityClasses) {
+            for (final Field field : entityClass.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                        || field.getName().startsWith("jdo")) {
+                    // not persistent, or added by the enhancer
+                    continue;
+                }
+                lines.add(entityClass.getName() + "#" + field.getName() + ":" + field.getGenericType());
+            }
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    /**
+     * The JDO metadata of an entity, as set by its annotations (or XML) and defaulted by DataNucleus: one line for
+     * each property of the metadata, eg <tt>Lease.members[3].columns[0].length=254</tt>.
+     */
+    static List<String> metadataLines(final String className, final Metadata metadata) {
+        final List<String> lines = Lists.newArrayList();
+        if (metadata != null) {
+            addMetadataLines(className, metadata, lines);
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    private static void addMetadataLines(final String path, final Metadata metadata, final List<String> lines) {
+        for (final Map.Entry<String, Method> property : propertiesOf(metadata).entrySet()) {
+            final String propertyPath = path + "." + property.getKey();
+            final Object value = valueOf(property.getValue(), metadata);
+            if (value instanceof Metadata) {
+                addMetadataLines(propertyPath, (Metadata) value, lines);
+            } else if (value instanceof Metadata[]) {
+                final Metadata[] elements = (Metadata[]) value;
+                for (int i = 0; i < elements.length; i++) {
+                    addMetadataLines(propertyPath + "[" + i + "]", elements[i], lines);
+                }
+            } else if (value instanceof Object[]) {
+                lines.add(propertyPath + "=" + Arrays.toString((Object[]) value));
+            } else if (value != null) {
+                lines.add(propertyPath + "=" + value);
+            }
+        }
+    }
+
+    /**
+     * The getters of the <tt>javax.jdo.metadata</tt> interfaces implemented, by property name; other than the
+     * parent and the counts, which are implied.
+     */
+    private static SortedMap<String, Method> propertiesOf(final Metadata metadata) {
+        final SortedMap<String, Method> properties = Maps.newTreeMap();
+        for (final Class<?> type : metadataInterfacesOf(metadata.getClass())) {
+            for (final Method method : type.getMethods()) {
+                final String name = method.getName();
+                if (method.getParameterTypes().length > 0 || name.equals("getParent") || name.startsWith("getNumberOf")) {
+                    continue;
+                }
+                if (name.startsWith("get") && name.length() > 3) {
+                    properties.put(Character.toLowerCase(name.charAt(3)) + name.substring(4), method);
+                } else if (name.startsWith("is") && name.length() > 2) {
+                    properties.put(Character.toLowerCase(name.charAt(2)) + name.substring(3), method);
+                }
+            }
+        }
+        return properties;
+    }
+
+    private static List<Class<?>> metadataInterfacesOf(final Class<?> type) {
+        final List<Class<?>> interfaces = Lists.newArrayList();
+        for (Class<?> cls = type; cls != null; cls = cls.getSuperclass()) {
+            for (final Class<?> each : cls.getInterfaces()) {
+                if (Metadata.class.isAssignableFrom(each)) {
+                    interfaces.add(each);
+                }
+            }
+        }
+        return interfaces;
+    }
+
+    private static Object valueOf(final Method getter, final Metadata metadata) {
+        try {
+            return getter.invoke(metadata);
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof UnsupportedOperationException) {
+                return null;
+            }
+            throw new IllegalStateException("Unable to read " + getter + " of " + metadata, e.getCause());
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The schema of the connection; requires a JDBC 4.1 driver, else set {@value #KEY_MAPPING_SCHEMA}.
+     */
+    private static String schemaOf(final Connection connection) throws SQLException {
+        try {
+            return connection.getSchema();
+        } catch (final AbstractMethodError e) {
+            throw new ApplicationException(String.format(
+                    "Unable to determine the schema of the database, set %s", KEY_MAPPING_SCHEMA));
+        }
+    }
+
+    static List<String> columnLines(final Connection connection, final String schema) throws SQLException {
+        final List<String> lines = Lists.newArrayList();
+        final DatabaseMetaData metaData = connection.getMetaData();
+        final ResultSet columns = metaData.getColumns(connection.getCatalog(), schema, "%", "%");
+        try {
+            while (columns.next()) {
+                lines.add(String.format("%s.%s.%s:%s(%d)%s",
+                        columns.getString("TABLE_SCHEM"),
+                        columns.getString("TABLE_NAME"),
+                        columns.getString("COLUMN_NAME"),
+                        columns.getString("TYPE_NAME"),
+                        columns.getInt("COLUMN_SIZE"),
+                        columns.getInt("NULLABLE") == DatabaseMetaData.columnNoNulls ? "" : " null"));
+            }
+        } finally {
+            columns.close();
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    static String digest(final List<String> lines) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (final String line : lines) {
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return BaseEncoding.base16().lowerCase().encode(digest.digest());
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    private IsisJdoSupport isisJdoSupport;
+
+}
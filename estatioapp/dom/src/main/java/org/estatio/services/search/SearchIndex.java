@@ -0,0 +1,257 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.search;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.estatio.dom.utils.StringUtils;
+
+/**
+ * An in-memory trigram index of the search terms (typically reference and name) of a set of keys.
+ * 
+ * <p>
+ * {@link #search(String) Searching} accepts the same wildcard patterns ('*' and '?') as the
+ * <tt>matches(...)</tt> JDOQL queries it replaces, and returns the same matches, but ranked.  The
+ * literal fragments of the pattern are used to narrow down the candidates using the trigram postings;
+ * each candidate is then verified against the equivalent
+ * {@link StringUtils#wildcardToCaseInsensitiveRegex(String) case-insensitive regex}.  Patterns with
+ * fragments too short to provide a trigram (or containing regex metacharacters) fall back to checking
+ * every entry, still in memory.
+ * 
+ * <p>
+ * Thread-safe.
+ */
+public class SearchIndex<K> {
+
+    private static final Pattern REGEX_METACHARACTERS = Pattern.compile("[\\\\.\\[\\](){}+^$|]");
+    private static final Splitter WILDCARDS = Splitter.on(Pattern.compile("[*?]")).omitEmptyStrings();
+
+    private final Map<K, String[]> termsByKey = Maps.newHashMap();
+    private final Map<String, Set<K>> keysByTrigram = Maps.newHashMap();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // //////////////////////////////////////
+
+    /**
+     * Indexes (or re-indexes) the key with the provided terms; <tt>null</tt> terms are ignored.
+     */
+    public void put(final K key, final String... terms) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(key);
+            final String[] termsCopy = terms.clone();
+            termsByKey.put(key, termsCopy);
+            for (final String term : termsCopy) {
+                for (final String trigram : trigramsOf(normalize(term))) {
+                    Set<K> keys = keysByTrigram.get(trigram);
+                    if (keys == null) {
+                        keys = Sets.newHashSet();
+                        keysByTrigram.put(trigram, keys);
+                    }
+                    keys.add(key);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(final K key) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeInternal(final K key) {
+        final String[] terms = termsByKey.remove(key);
+        if (terms == null) {
+            return;
+        }
+        for (final String term : terms) {
+            for (final String trigram : trigramsOf(normalize(term))) {
+                final Set<K> keys = keysByTrigram.get(trigram);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        keysByTrigram.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            termsByKey.clear();
+            keysByTrigram.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return termsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The keys of all entries having at least one term matching the wildcard pattern, best match first.
+     * 
+     * <p>
+     * Matches are ranked by the position of the pattern's first literal fragment within the matching term
+     * (so prefix matches come first), then by the length of the term (so exact matches come first), then
+     * alphabetically.
+     */
+    public List<K> search(final String wildcardPattern) {
+        if (wildcardPattern == null) {
+            return Collections.emptyList();
+        }
+        final Pattern regex;
+        try {
+            regex = Pattern.compile(StringUtils.wildcardToCaseInsensitiveRegex(wildcardPattern));
+        } catch (PatternSyntaxException e) {
+            return Collections.emptyList();
+        }
+        final List<String> fragments = Lists.newArrayList(WILDCARDS.split(normalize(wildcardPattern)));
+        final String firstFragment = fragments.isEmpty() ? "" : fragments.get(0);
+
+        final List<Match<K>> matches = Lists.newArrayList();
+        lock.readLock().lock();
+        try {
+            for (final K key : candidatesFor(wildcardPattern, fragments)) {
+                final Match<K> match = bestMatch(key, termsByKey.get(key), regex, firstFragment);
+                if (match != null) {
+                    matches.add(match);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Collections.sort(matches, Match.RANKING);
+        final List<K> keys = Lists.newArrayListWithCapacity(matches.size());
+        for (final Match<K> match : matches) {
+            keys.add(match.key);
+        }
+        return keys;
+    }
+
+    private Iterable<K> candidatesFor(final String wildcardPattern, final List<String> fragments) {
+        if (REGEX_METACHARACTERS.matcher(wildcardPattern).find()) {
+            return termsByKey.keySet();
+        }
+        Set<K> candidates = null;
+        for (final String fragment : fragments) {
+            for (final String trigram : trigramsOf(fragment)) {
+                final Set<K> keys = keysByTrigram.get(trigram);
+                if (keys == null) {
+                    return Collections.emptySet();
+                }
+                if (candidates == null) {
+                    candidates = Sets.newHashSet(keys);
+                } else {
+                    candidates.retainAll(keys);
+                }
+                if (candidates.isEmpty()) {
+                    return candidates;
+                }
+            }
+        }
+        return candidates != null ? candidates : termsByKey.keySet();
+    }
+
+    private static <K> Match<K> bestMatch(final K key, final String[] terms, final Pattern regex, final String firstFragment) {
+        Match<K> best = null;
+        for (final String term : terms) {
+            if (term == null || !regex.matcher(term).matches()) {
+                continue;
+            }
+            final Match<K> match = new Match<K>(key, term, Math.max(normalize(term).indexOf(firstFragment), 0));
+            if (best == null || Match.RANKING.compare(match, best) < 0) {
+                best = match;
+            }
+        }
+        return best;
+    }
+
+    // //////////////////////////////////////
+
+    static String normalize(final String term) {
+        return term != null ? term.toLowerCase(Locale.ENGLISH) : "";
+    }
+
+    static Set<String> trigramsOf(final String normalized) {
+        final Set<String> trigrams = Sets.newHashSet();
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            trigrams.add(normalized.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private static class Match<K> {
+
+        private final K key;
+        private final String term;
+        private final int position;
+
+        Match(final K key, final String term, final int position) {
+            this.key = key;
+            this.term = term;
+            this.position = position;
+        }
+
+        static final Comparator<Match<?>> RANKING = new Comparator<Match<?>>() {
+            @Override
+            public int compare(final Match<?> m1, final Match<?> m2) {
+                if (m1.position != m2.position) {
+                    return m1.position < m2.position ? -1 : 1;
+                }
+                if (m1.term.length() != m2.term.length()) {
+                    return m1.term.length() < m2.term.length() ? -1 : 1;
+                }
+                return m1.term.compareToIgnoreCase(m2.term);
+            }
+        };
+    }
+
+}
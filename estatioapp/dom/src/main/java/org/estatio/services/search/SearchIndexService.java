@@ -0,0 +1,371 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.search;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.jdo.JDOHelper;
+import javax.jdo.JDOObjectNotFoundException;
+import javax.jdo.PersistenceManager;
+import javax.jdo.Query;
+import javax.jdo.Transaction;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.Hidden;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.jdosupport.IsisJdoSupport;
+
+import org.estatio.dom.EstatioService;
+
+/**
+ * Maintains a {@link SearchIndex trigram index} per searchable entity type, used by the
+ * <tt>find...</tt> and <tt>autoComplete</tt> actions of the repositories in place of <tt>matches(...)</tt>
+ * queries, which cannot use any database index.
+ * 
+ * <p>
+ * Each index is keyed by JDO object id, and populated lazily (on first search) by a single projection query
+ * of just the searchable fields.  It is then maintained by the entities' own <tt>persisted()</tt>,
+ * <tt>updated()</tt> and <tt>removing()</tt> callbacks, which call {@link #reindex(Object, String...)} and
+ * {@link #unindex(Object)}; these changes are queued, and only applied once the current transaction has
+ * committed (so a rollback leaves the indexes as they were), including to an index still being populated.
+ * The indexes therefore do not reflect changes made earlier in the current transaction; correctness checks
+ * must query the database instead.  Because other webapp nodes may also be writing to the same database, the
+ * indexes are also discarded (and so rebuilt on next use) every
+ * {@value #DEFAULT_REFRESH_INTERVAL_MINUTES} minutes; this can be configured using the
+ * <tt>{@value #REFRESH_INTERVAL_MINUTES_KEY}</tt> property.
+ */
+@DomainService
+@Hidden
+public class SearchIndexService extends EstatioService<SearchIndexService> {
+
+    static final String REFRESH_INTERVAL_MINUTES_KEY = "estatio.searchIndex.refreshIntervalMinutes";
+    static final int DEFAULT_REFRESH_INTERVAL_MINUTES = 60;
+
+    private final Map<Class<?>, Entry> entriesByType = Maps.newConcurrentMap();
+
+    /**
+     * The changes committed while the index of a type is being populated, applied to it once populated; guarded
+     * by {@link #changesLock}, as is the switch to a newly populated index.
+     */
+    private final Map<Class<?>, List<Change>> changesWhilePopulating = Maps.newHashMap();
+    private final Object changesLock = new Object();
+
+    private long refreshIntervalMillis = DEFAULT_REFRESH_INTERVAL_MINUTES * 60 * 1000L;
+
+    public SearchIndexService() {
+        super(SearchIndexService.class);
+    }
+
+    @Override
+    @Programmatic
+    public void init(final Map<String, String> properties) {
+        super.init(properties);
+        refreshIntervalMillis = refreshIntervalMinutes(properties.get(REFRESH_INTERVAL_MINUTES_KEY)) * 60 * 1000L;
+    }
+
+    /**
+     * The configured interval, or the default if not set or not a positive number.
+     */
+    static int refreshIntervalMinutes(final String value) {
+        if (value != null) {
+            try {
+                final int minutes = Integer.parseInt(value.trim());
+                if (minutes > 0) {
+                    return minutes;
+                }
+            } catch (final NumberFormatException e) {
+                // ignore, keep default
+            }
+        }
+        return DEFAULT_REFRESH_INTERVAL_MINUTES;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * All instances of the type having any of the specified fields matching the wildcard pattern,
+     * best match first.
+     * 
+     * @param termFields - the (<tt>String</tt>) fields to match against, eg <tt>"reference", "name"</tt>.
+     */
+    @Programmatic
+    public <T> List<T> search(final Class<T> type, final String wildcardPattern, final String... termFields) {
+        final Entry entry = entryFor(type, termFields);
+        final PersistenceManager pm = isisJdoSupport.getJdoPersistenceManager();
+        final List<T> results = Lists.newArrayList();
+        for (final Object objectId : entry.index.search(wildcardPattern)) {
+            try {
+                results.add(type.cast(pm.getObjectById(objectId)));
+            } catch (JDOObjectNotFoundException e) {
+                // removed by another node since the index was built
+                entry.index.remove(objectId);
+            }
+        }
+        return results;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Updates the terms of the object in every (already built) index of a type it is an instance of, once the
+     * current transaction has committed.
+     */
+    @Programmatic
+    public void reindex(final Object object, final String... terms) {
+        final Object objectId = JDOHelper.getObjectId(object);
+        if (objectId == null) {
+            return;
+        }
+        afterCommit(new Change(object.getClass(), objectId, terms));
+    }
+
+    /**
+     * Removes the object from every (already built) index of a type it is an instance of, once the current
+     * transaction has committed.
+     */
+    @Programmatic
+    public void unindex(final Object object) {
+        final Object objectId = JDOHelper.getObjectId(object);
+        if (objectId == null) {
+            return;
+        }
+        afterCommit(new Change(object.getClass(), objectId, null));
+    }
+
+    private void afterCommit(final Change change) {
+        final Transaction transaction = currentTransaction();
+        if (transaction == null || !transaction.isActive()) {
+            apply(change);
+            return;
+        }
+        final Synchronization synchronization = transaction.getSynchronization();
+        if (synchronization instanceof PendingChanges && ((PendingChanges) synchronization).isFor(this)) {
+            ((PendingChanges) synchronization).add(change);
+        } else {
+            final PendingChanges pendingChanges = new PendingChanges(this, synchronization);
+            pendingChanges.add(change);
+            transaction.setSynchronization(pendingChanges);
+        }
+    }
+
+    private Transaction currentTransaction() {
+        if (isisJdoSupport == null) {
+            return null;
+        }
+        final PersistenceManager pm = isisJdoSupport.getJdoPersistenceManager();
+        return pm != null ? pm.currentTransaction() : null;
+    }
+
+    void apply(final Change change) {
+        synchronized (changesLock) {
+            for (final Map.Entry<Class<?>, List<Change>> mapEntry : changesWhilePopulating.entrySet()) {
+                if (mapEntry.getKey().isAssignableFrom(change.type)) {
+                    mapEntry.getValue().add(change);
+                }
+            }
+            for (final Entry entry : entriesFor(change.type)) {
+                change.applyTo(entry.index);
+            }
+        }
+    }
+
+    /**
+     * Discards all indexes; each will be rebuilt when next searched.
+     */
+    @Programmatic
+    public void invalidateAll() {
+        entriesByType.clear();
+    }
+
+    // //////////////////////////////////////
+
+    private List<Entry> entriesFor(final Class<?> type) {
+        final List<Entry> entries = Lists.newArrayList();
+        for (final Map.Entry<Class<?>, Entry> mapEntry : entriesByType.entrySet()) {
+            if (mapEntry.getKey().isAssignableFrom(type)) {
+                entries.add(mapEntry.getValue());
+            }
+        }
+        return entries;
+    }
+
+    private Entry entryFor(final Class<?> type, final String... termFields) {
+        Entry entry = entriesByType.get(type);
+        if (entry == null || entry.isOlderThan(refreshIntervalMillis)) {
+            synchronized (this) {
+                entry = entriesByType.get(type);
+                if (entry == null || entry.isOlderThan(refreshIntervalMillis)) {
+                    entry = populateEntry(type, termFields);
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Populates a new index for the type, then applies to it the changes committed meanwhile (which the query
+     * populating it may or may not have seen).
+     */
+    private Entry populateEntry(final Class<?> type, final String... termFields) {
+        synchronized (changesLock) {
+            changesWhilePopulating.put(type, Lists.<Change> newArrayList());
+        }
+        SearchIndex<Object> index = null;
+        try {
+            index = populate(type, termFields);
+        } finally {
+            synchronized (changesLock) {
+                final List<Change> changes = changesWhilePopulating.remove(type);
+                if (index != null) {
+                    for (final Change change : changes) {
+                        change.applyTo(index);
+                    }
+                    entriesByType.put(type, new Entry(index));
+                }
+            }
+        }
+        return entriesByType.get(type);
+    }
+
+    SearchIndex<Object> indexFor(final Class<?> type, final String... termFields) {
+        return entryFor(type, termFields).index;
+    }
+
+    void setIndex(final Class<?> type, final SearchIndex<Object> index) {
+        entriesByType.put(type, new Entry(index));
+    }
+
+    SearchIndex<Object> populate(final Class<?> type, final String... termFields) {
+        final SearchIndex<Object> index = new SearchIndex<Object>();
+        final Query query = isisJdoSupport.getJdoPersistenceManager().newQuery(
+                "SELECT JDOHelper.getObjectId(this), " + Joiner.on(", ").join(termFields)
+                        + " FROM " + type.getName());
+        try {
+            final Collection<?> rows = (Collection<?>) query.execute();
+            for (final Object row : rows) {
+                final Object[] columns = (Object[]) row;
+                final String[] terms = new String[columns.length - 1];
+                for (int i = 1; i < columns.length; i++) {
+                    terms[i - 1] = (String) columns[i];
+                }
+                index.put(columns[0], terms);
+            }
+        } finally {
+            query.closeAll();
+        }
+        return index;
+    }
+
+    private static class Entry {
+        private final SearchIndex<Object> index;
+        private final long createdAt = System.currentTimeMillis();
+
+        Entry(final SearchIndex<Object> index) {
+            this.index = index;
+        }
+
+        boolean isOlderThan(final long millis) {
+            return System.currentTimeMillis() - createdAt > millis;
+        }
+    }
+
+    /**
+     * A change to the index entries of an object; <tt>terms</tt> is <tt>null</tt> if the object is to be removed.
+     */
+    static class Change {
+        private final Class<?> type;
+        private final Object objectId;
+        private final String[] terms;
+
+        Change(final Class<?> type, final Object objectId, final String[] terms) {
+            this.type = type;
+            this.objectId = objectId;
+            this.terms = terms;
+        }
+
+        void applyTo(final SearchIndex<Object> index) {
+            if (terms != null) {
+                index.put(objectId, terms);
+            } else {
+                index.remove(objectId);
+            }
+        }
+    }
+
+    /**
+     * The changes made within a transaction, applied once (and only if) it commits; chains to any
+     * {@link Synchronization} already registered with the transaction.
+     */
+    static class PendingChanges implements Synchronization {
+        private final SearchIndexService service;
+        private final Synchronization previous;
+        private final List<Change> changes = Lists.newArrayList();
+
+        PendingChanges(final SearchIndexService service, final Synchronization previous) {
+            this.service = service;
+            this.previous = previous;
+        }
+
+        boolean isFor(final SearchIndexService service) {
+            return this.service == service;
+        }
+
+        void add(final Change change) {
+            changes.add(change);
+        }
+
+        @Override
+        public void beforeCompletion() {
+            if (previous != null) {
+                previous.beforeCompletion();
+            }
+        }
+
+        @Override
+        public void afterCompletion(final int status) {
+            try {
+                if (status == Status.STATUS_COMMITTED) {
+                    for (final Change change : changes) {
+                        service.apply(change);
+                    }
+                }
+            } finally {
+                // the (JDO) transaction, and so this synchronization, is reused for the next transaction
+                changes.clear();
+                if (previous != null) {
+                    previous.afterCompletion(status);
+                }
+            }
+        }
+    }
+
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    private IsisJdoSupport isisJdoSupport;
+
+}
@@ -37,7 +37,12 @@ public enum ApplicationSettingKey implements ApplicationSettingCreator {
      * require invoices from the predecessor system.
      */
     epochDate(LocalDate.class, "Epoch date", new LocalDate(2013,4,1)),
-    reportServerBaseUrl(String.class, "Report server base URL", "http://ams-s-sql08");
+    reportServerBaseUrl(String.class, "Report server base URL", "http://ams-s-sql08"),
+    /**
+     * Changed whenever any setting is created, changed or deleted, so that the {@link SettingsCache} of each
+     * webapp node sharing the database can tell whether what it holds is still current.
+     */
+    settingsVersion(String.class, "Settings version (changes whenever a setting is changed)", "0");
     
     private final Object defaultValue;
     private final String description;
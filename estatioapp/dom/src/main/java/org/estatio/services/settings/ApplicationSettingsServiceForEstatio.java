@@ -20,6 +20,7 @@ package org.estatio.services.settings;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.PostConstruct;
+import javax.jdo.Query;
 import org.isisaddons.module.settings.dom.ApplicationSetting;
 import org.isisaddons.module.settings.dom.ApplicationSettingsServiceRW;
 import org.isisaddons.module.settings.dom.SettingAbstract;
@@ -51,6 +52,27 @@ public class ApplicationSettingsServiceForEstatio extends EstatioDomainService<A
                         "key", key));
     }
 
+    /**
+     * The raw value of the setting with the given key (or <tt>null</tt> if there is none), read straight from the
+     * database rather than from the JDO caches; used by the {@link SettingsCache} to check whether the
+     * {@link ApplicationSettingKey#settingsVersion settings version} has been changed by another webapp node.
+     */
+    @Programmatic
+    public String fetchValueRaw(final String key) {
+        if (isisJdoSupport == null) {
+            final ApplicationSetting setting = find(key);
+            return setting != null ? setting.getValueRaw() : null;
+        }
+        final Query query = isisJdoSupport.getJdoPersistenceManager().newQuery(
+                "SELECT valueRaw FROM " + ApplicationSettingForEstatio.class.getName() + " WHERE key == :key");
+        query.setUnique(true);
+        try {
+            return (String) query.execute(key);
+        } finally {
+            query.closeAll();
+        }
+    }
+
     // //////////////////////////////////////
 
     @Programmatic
@@ -113,6 +135,9 @@ public class ApplicationSettingsServiceForEstatio extends EstatioDomainService<A
         setting.setValueRaw(valueRaw);
         setting.setType(settingType);
         persist(setting);
+        if (settingsCache != null) {
+            settingsCache.settingsChanged();
+        }
         return setting;
     }
 
@@ -144,5 +169,9 @@ public class ApplicationSettingsServiceForEstatio extends EstatioDomainService<A
         }
     }
 
-}
+    // //////////////////////////////////////
 
+    @javax.inject.Inject
+    private SettingsCache settingsCache;
+
+}
@@ -19,7 +19,9 @@
 package org.estatio.services.settings;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 import org.isisaddons.module.settings.dom.ApplicationSetting;
+import org.isisaddons.module.settings.dom.SettingAbstract;
 import org.joda.time.LocalDate;
 import org.apache.isis.applib.annotation.DomainService;
 import org.apache.isis.applib.annotation.Hidden;
@@ -65,21 +67,14 @@ public class EstatioSettingsService extends EstatioService<EstatioSettingsServic
 
     // //////////////////////////////////////
 
-    private LocalDate cachedEpochDate;
-    
     /**
      * @see ApplicationSettingKey#epochDate
      */
     @Hidden
     public LocalDate fetchEpochDate() {
-        if (cachedEpochDate == null) {
-            // getApplicationSettings().installDefaultsIfRequired();
-            final ApplicationSetting epochDate = applicationSettingsService.find(EPOCH_DATE_KEY);
-            if (epochDate != null) {
-                cachedEpochDate = epochDate.valueAsLocalDate();
-            }
-        }
-        return cachedEpochDate;
+        // getApplicationSettings().installDefaultsIfRequired();
+        final SettingsCache.Value epochDate = findValue(EPOCH_DATE_KEY);
+        return epochDate != null ? epochDate.valueAsLocalDate() : null;
     }
 
     /**
@@ -101,27 +96,19 @@ public class EstatioSettingsService extends EstatioService<EstatioSettingsServic
                 getApplicationSettings().newLocalDate(EPOCH_DATE_KEY, "Cutover date to Estatio", newEpochDate);
             } // else no-op
         }
-        cachedEpochDate = null;
     }
 
     // //////////////////////////////////////
 
-    private String cachedReportServerBaseUrl;
-    
     /**
      * @see ApplicationSettingKey#reportServerBaseUrl
      */
     @Hidden
     public String fetchReportServerBaseUrl() {
-        if (cachedReportServerBaseUrl == null) {
-            final ApplicationSetting reportServerBaseUrl = applicationSettingsService.find(REPORT_SERVER_BASE_URL_KEY);
-            if (reportServerBaseUrl != null) {
-                cachedReportServerBaseUrl = reportServerBaseUrl.valueAsString();
-            } else {
-                return (String) ApplicationSettingKey.reportServerBaseUrl.getDefaultValue();
-            }
-        }
-        return cachedReportServerBaseUrl;
+        final SettingsCache.Value reportServerBaseUrl = findValue(REPORT_SERVER_BASE_URL_KEY);
+        return reportServerBaseUrl != null
+                ? reportServerBaseUrl.valueAsString()
+                : (String) ApplicationSettingKey.reportServerBaseUrl.getDefaultValue();
     }
 
 
@@ -136,6 +123,23 @@ public class EstatioSettingsService extends EstatioService<EstatioSettingsServic
         return (ApplicationSettingForEstatio) getApplicationSettings().find(key);
     }
 
+    /**
+     * Served by the {@link SettingsCache} (if available), which is invalidated whenever a setting is changed
+     * (on this or another webapp node).
+     */
+    private SettingsCache.Value findValue(final String key) {
+        if (settingsCache == null) {
+            final SettingAbstract setting = (SettingAbstract) applicationSettingsService.find(key);
+            return setting != null ? new SettingsCache.Value(setting.getType(), setting.getValueRaw(), null) : null;
+        }
+        return settingsCache.find(null, key, new Callable<SettingAbstract>() {
+            @Override
+            public SettingAbstract call() {
+                return (SettingAbstract) applicationSettingsService.find(key);
+            }
+        });
+    }
+
     // //////////////////////////////////////
 
     protected ApplicationSettingsServiceForEstatio applicationSettingsService;
@@ -154,4 +158,10 @@ public class EstatioSettingsService extends EstatioService<EstatioSettingsServic
         this.currencies = currencies;
     }
 
+    private SettingsCache settingsCache;
+
+    public final void injectSettingsCache(final SettingsCache settingsCache) {
+        this.settingsCache = settingsCache;
+    }
+
 }
@@ -88,6 +88,7 @@ public abstract class SettingAbstractForEstatio
     public SettingAbstractForEstatio updateAsString(
             final @Named("Value") String value) {
         setValueRaw(value);
+        settingsChanged();
         return this;
     }
     public String default0UpdateAsString() {
@@ -102,6 +103,7 @@ public abstract class SettingAbstractForEstatio
     public SettingAbstractForEstatio updateAsInt(
             final @Named("Value") Integer value) {
         setValueRaw(value.toString());
+        settingsChanged();
         return this;
     }
     public Integer default0UpdateAsInt() {
@@ -116,6 +118,7 @@ public abstract class SettingAbstractForEstatio
     public SettingAbstractForEstatio updateAsLong(
             final @Named("Value") Long value) {
         setValueRaw(value.toString());
+        settingsChanged();
         return this;
     }
     public Long default0UpdateAsLong() {
@@ -130,6 +133,7 @@ public abstract class SettingAbstractForEstatio
     public SettingAbstractForEstatio updateAsLocalDate(
             final @Named("Value") LocalDate value) {
         setValueRaw(value.toString(DATE_FORMATTER));
+        settingsChanged();
         return this;
     }
     public LocalDate default0UpdateAsLocalDate() {
@@ -144,6 +148,7 @@ public abstract class SettingAbstractForEstatio
     public SettingAbstractForEstatio updateAsBoolean(
             final @Named("Value") Boolean value) {
         setValueRaw(value.toString());
+        settingsChanged();
         return this;
     }
     public Boolean default0UpdateAsBoolean() {
@@ -162,12 +167,21 @@ public abstract class SettingAbstractForEstatio
             container.informUser("Setting NOT deleted");
             return this;
         }
+        settingsChanged();
         container.remove(this);
         container.informUser("Setting deleted");
         return null;
     }
     
  
+    // //////////////////////////////////////
+    
+    private void settingsChanged() {
+        if (settingsCache != null) {
+            settingsCache.settingsChanged();
+        }
+    }
+
     // //////////////////////////////////////
     
     private DomainObjectContainer container;
@@ -176,5 +190,11 @@ public abstract class SettingAbstractForEstatio
         this.container = container;
     }
 
+    private SettingsCache settingsCache;
+
+    public void injectSettingsCache(final SettingsCache settingsCache) {
+        this.settingsCache = settingsCache;
+    }
+
 
 }
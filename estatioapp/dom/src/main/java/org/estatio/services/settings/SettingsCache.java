@@ -0,0 +1,327 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.settings;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
+
+import org.isisaddons.module.settings.dom.SettingAbstract;
+import org.isisaddons.module.settings.dom.SettingType;
+import org.joda.time.LocalDate;
+
+import org.apache.isis.applib.RepositoryException;
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.Hidden;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.bookmark.Bookmark;
+
+import org.estatio.dom.EstatioService;
+
+/**
+ * Application-scoped cache of application and user settings, keyed by user (<tt>null</tt> for application
+ * settings) and key.
+ * 
+ * <p>
+ * What is cached is a {@link Value snapshot} of each setting (its type and raw value, and a {@link Bookmark} to
+ * the setting itself), or the fact that there is no such setting; reading a setting, eg the
+ * {@link EstatioSettingsService#fetchEpochDate() epoch date} for every lease term that is calculated, is
+ * therefore just a map lookup.
+ * 
+ * <p>
+ * Whenever a setting is created, changed or deleted the cache is {@link #settingsChanged() invalidated}, which
+ * also changes the {@link ApplicationSettingKey#settingsVersion settings version} held in the database. Every
+ * <tt>estatio.settings.cache.checkIntervalSeconds</tt> (default {@value #DEFAULT_CHECK_INTERVAL_SECONDS}) the
+ * settings version is read afresh, and the cache is invalidated if it differs from the one last seen; in this
+ * way changes made by other webapp nodes sharing the same database are picked up. As a backstop (eg for changes
+ * made directly in the database) the cache also expires after <tt>estatio.settings.cache.ttlMinutes</tt>
+ * (default {@value #DEFAULT_TTL_MINUTES}).
+ */
+@DomainService
+@Hidden
+public class SettingsCache extends EstatioService<SettingsCache> {
+
+    static final String KEY_CHECK_INTERVAL_SECONDS = "estatio.settings.cache.checkIntervalSeconds";
+    static final long DEFAULT_CHECK_INTERVAL_SECONDS = 30;
+
+    static final String KEY_TTL_MINUTES = "estatio.settings.cache.ttlMinutes";
+    static final long DEFAULT_TTL_MINUTES = 10;
+
+    /**
+     * The key of the {@link ApplicationSettingKey#settingsVersion settings version}, as installed by
+     * {@link ApplicationSettingsServiceForEstatio}.
+     */
+    static final String VERSION_KEY =
+            ApplicationSettingKey.class.getPackage().getName() + "." + ApplicationSettingKey.settingsVersion.name();
+
+    private static final Value ABSENT = new Value(null, null, null);
+
+    private final ConcurrentMap<String, Value> values = Maps.newConcurrentMap();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong versionChanges = new AtomicLong();
+
+    private long checkIntervalNanos = TimeUnit.SECONDS.toNanos(DEFAULT_CHECK_INTERVAL_SECONDS);
+    private long ttlNanos = TimeUnit.MINUTES.toNanos(DEFAULT_TTL_MINUTES);
+
+    private volatile long loadedAt = System.nanoTime();
+    private volatile long checkedAt = System.nanoTime();
+    private volatile String settingsVersion;
+
+    public SettingsCache() {
+        super(SettingsCache.class);
+    }
+
+    @Override
+    @Programmatic
+    public void init(final Map<String, String> properties) {
+        super.init(properties);
+        final String checkIntervalSeconds = properties.get(KEY_CHECK_INTERVAL_SECONDS);
+        if (checkIntervalSeconds != null) {
+            try {
+                checkIntervalNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(checkIntervalSeconds.trim()));
+            } catch (final NumberFormatException e) {
+                // ignore, keep default
+            }
+        }
+        final String ttlMinutes = properties.get(KEY_TTL_MINUTES);
+        if (ttlMinutes != null) {
+            try {
+                ttlNanos = TimeUnit.MINUTES.toNanos(Long.parseLong(ttlMinutes.trim()));
+            } catch (final NumberFormatException e) {
+                // ignore, keep default
+            }
+        }
+    }
+
+    void setCheckInterval(final long duration, final TimeUnit unit) {
+        checkIntervalNanos = unit.toNanos(duration);
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * An immutable snapshot of a setting.
+     */
+    public static final class Value {
+
+        private final SettingType type;
+        private final String valueRaw;
+        private final Bookmark bookmark;
+        private volatile LocalDate valueAsLocalDate;
+
+        Value(final SettingType type, final String valueRaw, final Bookmark bookmark) {
+            this.type = type;
+            this.valueRaw = valueRaw;
+            this.bookmark = bookmark;
+        }
+
+        public SettingType getType() {
+            return type;
+        }
+
+        public String getValueRaw() {
+            return valueRaw;
+        }
+
+        public String valueAsString() {
+            return valueRaw;
+        }
+
+        /**
+         * Parsed once, on first use.
+         */
+        public LocalDate valueAsLocalDate() {
+            if (valueAsLocalDate == null && valueRaw != null) {
+                valueAsLocalDate = SettingAbstract.DATE_FORMATTER.parseLocalDate(valueRaw);
+            }
+            return valueAsLocalDate;
+        }
+
+        Bookmark getBookmark() {
+            return bookmark;
+        }
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * A snapshot of the setting of the user (<tt>null</tt> for an application setting) with the given key, as
+     * obtained from the finder on a cache miss, or <tt>null</tt> if there is no such setting.
+     */
+    @Programmatic
+    public Value find(final String user, final String key, final Callable<? extends SettingAbstract> finder) {
+        checkIfStale();
+        final String cacheKey = cacheKeyFor(user, key);
+        final Value cached = values.get(cacheKey);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached != ABSENT ? cached : null;
+        }
+        misses.incrementAndGet();
+        final long expectedVersion = version.get();
+        final SettingAbstract setting = call(finder);
+        final Value value = setting != null ? snapshotOf(setting) : ABSENT;
+        synchronized (this) {
+            if (version.get() == expectedVersion) {
+                values.put(cacheKey, value);
+            }
+        }
+        return value != ABSENT ? value : null;
+    }
+
+    /**
+     * The setting itself, as for {@link #find(String, String, Callable)}; the setting is
+     * {@link org.apache.isis.applib.services.bookmark.BookmarkService#lookup(Bookmark) looked up} by its id,
+     * falling back to the finder if need be.
+     */
+    @Programmatic
+    public <T extends SettingAbstract> T find(
+            final Class<T> type, final String user, final String key, final Callable<T> finder) {
+        final Value value = find(user, key, finder);
+        if (value == null) {
+            return null;
+        }
+        if (value.getBookmark() != null) {
+            try {
+                final Object setting = getBookmarkService().lookup(value.getBookmark());
+                if (type.isInstance(setting)) {
+                    return type.cast(setting);
+                }
+            } catch (final RuntimeException e) {
+                // eg deleted meanwhile (perhaps by another node)
+            }
+        }
+        return call(finder);
+    }
+
+    private Value snapshotOf(final SettingAbstract setting) {
+        final Bookmark bookmark = getContainer() != null && getContainer().isPersistent(setting)
+                ? getBookmarkService().bookmarkFor(setting)
+                : null;
+        return new Value(setting.getType(), setting.getValueRaw(), bookmark);
+    }
+
+    private static String cacheKeyFor(final String user, final String key) {
+        return user != null ? user + "\u0000" + key : key;
+    }
+
+    private static <R> R call(final Callable<R> callable) {
+        try {
+            return callable.call();
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RepositoryException(e);
+        }
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Discards everything cached and changes the {@link ApplicationSettingKey#settingsVersion settings version},
+     * so that other webapp nodes do likewise; to be called (in the same transaction) whenever a setting is
+     * created, changed or deleted.
+     */
+    @Programmatic
+    public void settingsChanged() {
+        invalidate();
+        if (applicationSettings == null) {
+            return;
+        }
+        final SettingAbstractForEstatio setting = (SettingAbstractForEstatio) applicationSettings.find(VERSION_KEY);
+        if (setting != null) {
+            // the version last seen is deliberately left as is, so that the cache is invalidated once more (after
+            // this transaction has committed) when next checked
+            setting.setValueRaw(UUID.randomUUID().toString());
+        }
+    }
+
+    @Programmatic
+    public void invalidate() {
+        synchronized (this) {
+            version.incrementAndGet();
+            values.clear();
+            loadedAt = System.nanoTime();
+        }
+    }
+
+    private void checkIfStale() {
+        final long now = System.nanoTime();
+        if (now - loadedAt > ttlNanos) {
+            invalidate();
+        }
+        if (now - checkedAt < checkIntervalNanos || applicationSettings == null) {
+            return;
+        }
+        checkedAt = now;
+        final String currentVersion = applicationSettings.fetchValueRaw(VERSION_KEY);
+        if (!Objects.equal(currentVersion, settingsVersion)) {
+            if (settingsVersion != null) {
+                versionChanges.incrementAndGet();
+            }
+            settingsVersion = currentVersion;
+            invalidate();
+        }
+    }
+
+    // //////////////////////////////////////
+
+    @Programmatic
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Programmatic
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Hits, misses, invalidations (version) and entries, and the settings version last seen in the database.
+     */
+    @Programmatic
+    public String getStatisticsAsCsv() {
+        return new StringBuilder("hits,misses,version,versionChanges,entries,settingsVersion\n")
+                .append(hits.get())
+                .append(',').append(misses.get())
+                .append(',').append(version.get())
+                .append(',').append(versionChanges.get())
+                .append(',').append(values.size())
+                .append(',').append(settingsVersion)
+                .append('\n')
+                .toString();
+    }
+
+    // //////////////////////////////////////
+
+    private ApplicationSettingsServiceForEstatio applicationSettings;
+
+    public final void injectApplicationSettings(final ApplicationSettingsServiceForEstatio applicationSettings) {
+        this.applicationSettings = applicationSettings;
+    }
+
+}
@@ -19,6 +19,7 @@
 package org.estatio.services.settings;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 import org.isisaddons.module.settings.dom.SettingAbstract;
 import org.isisaddons.module.settings.dom.SettingType;
 import org.isisaddons.module.settings.dom.UserSetting;
@@ -31,6 +32,10 @@ import org.apache.isis.applib.query.QueryDefault;
 /**
  * An implementation of {@link org.isisaddons.module.settings.dom.UserSettingsService} that
  * persists settings as entities into a JDO-backed database.
+ * 
+ * <p>
+ * Settings are {@link #find(String, String) found} through the {@link SettingsCache} (if available), so that
+ * repeatedly asking for the same (possibly non-existent) setting does not query each time.
  */
 public class UserSettingsServiceForEstatio extends AbstractService implements UserSettingsServiceRW {
 
@@ -39,6 +44,20 @@ public class UserSettingsServiceForEstatio extends AbstractService implements Us
     public UserSetting find(
             final String user, 
             final String key) {
+        if (settingsCache == null) {
+            return findUncached(user, key);
+        }
+        return settingsCache.find(UserSettingForEstatio.class, user, key, new Callable<UserSettingForEstatio>() {
+            @Override
+            public UserSettingForEstatio call() {
+                return findUncached(user, key);
+            }
+        });
+    }
+
+    private UserSettingForEstatio findUncached(
+            final String user, 
+            final String key) {
         return firstMatch(
                 new QueryDefault<UserSettingForEstatio>(UserSettingForEstatio.class, 
                         "findByUserAndKey", 
@@ -134,7 +153,18 @@ public class UserSettingsServiceForEstatio extends AbstractService implements Us
         setting.setDescription(description);
         setting.setValueRaw(valueRaw);
         persist(setting);
+        if (settingsCache != null) {
+            settingsCache.settingsChanged();
+        }
         return setting;
     }
 
+    // //////////////////////////////////////
+
+    private SettingsCache settingsCache;
+
+    public final void injectSettingsCache(final SettingsCache settingsCache) {
+        this.settingsCache = settingsCache;
+    }
+
 }
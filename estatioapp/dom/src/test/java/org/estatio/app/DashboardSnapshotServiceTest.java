@@ -0,0 +1,177 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.app;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.jdo.PersistenceManager;
+import javax.jdo.Transaction;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import com.google.common.collect.Lists;
+
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.auto.Mock;
+import org.jmock.lib.action.CustomAction;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.jdosupport.IsisJdoSupport;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+import org.estatio.dom.event.Event;
+import org.estatio.dom.event.Events;
+import org.estatio.dom.invoice.viewmodel.InvoiceSummariesForInvoiceRun;
+import org.estatio.dom.invoice.viewmodel.InvoiceSummaryForInvoiceRun;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DashboardSnapshotServiceTest {
+
+    private static final LocalDate TODAY = new LocalDate(2014, 6, 1);
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private InvoiceSummariesForInvoiceRun mockInvoiceSummaries;
+
+    @Mock
+    private Events mockEvents;
+
+    DashboardSnapshotService service;
+
+    @Before
+    public void setUp() throws Exception {
+        service = new DashboardSnapshotService() {
+            @Override
+            LocalDate today() {
+                return TODAY;
+            }
+        };
+        service.invoiceSummaries = mockInvoiceSummaries;
+        service.events = mockEvents;
+    }
+
+    static List<InvoiceSummaryForInvoiceRun> runs(final int... totals) {
+        final List<InvoiceSummaryForInvoiceRun> runs = Lists.newArrayList();
+        for (final int total : totals) {
+            final InvoiceSummaryForInvoiceRun run = new InvoiceSummaryForInvoiceRun();
+            run.setTotal(total);
+            runs.add(run);
+        }
+        return runs;
+    }
+
+    public static class GetInvoiceRunCounters extends DashboardSnapshotServiceTest {
+
+        @Test
+        public void computedOnceUntilInvoicesChanged() throws Exception {
+            context.checking(new Expectations() {
+                {
+                    exactly(2).of(mockInvoiceSummaries).allInvoiceRuns();
+                    will(onConsecutiveCalls(returnValue(runs(2, 3)), returnValue(runs(2))));
+                }
+            });
+
+            assertThat(service.getInvoiceRunCounters().getInvoices(), is(5));
+            assertThat(service.getInvoiceRunCounters().getInvoices(), is(5));
+
+            service.invoicesChanged();
+
+            assertThat(service.getInvoiceRunCounters().getRuns(), is(1));
+            assertThat(service.getInvoiceRunCounters().getInvoices(), is(2));
+        }
+    }
+
+    public static class InvoicesChangedWithinTransaction extends DashboardSnapshotServiceTest {
+
+        @Mock
+        private IsisJdoSupport mockIsisJdoSupport;
+
+        @Mock
+        private PersistenceManager mockPersistenceManager;
+
+        @Mock
+        private Transaction mockTransaction;
+
+        private Synchronization synchronization;
+
+        @Test
+        public void computedAgainOnceCompleted() throws Exception {
+            service.isisJdoSupport = mockIsisJdoSupport;
+            context.checking(new Expectations() {
+                {
+                    allowing(mockIsisJdoSupport).getJdoPersistenceManager();
+                    will(returnValue(mockPersistenceManager));
+                    allowing(mockPersistenceManager).currentTransaction();
+                    will(returnValue(mockTransaction));
+                    allowing(mockTransaction).isActive();
+                    will(returnValue(true));
+                    allowing(mockTransaction).getSynchronization();
+                    will(returnValue(null));
+                    oneOf(mockTransaction).setSynchronization(with(any(Synchronization.class)));
+                    will(new CustomAction("remember synchronization") {
+                        @Override
+                        public Object invoke(final Invocation invocation) {
+                            synchronization = (Synchronization) invocation.getParameter(0);
+                            return null;
+                        }
+                    });
+
+                    exactly(2).of(mockInvoiceSummaries).allInvoiceRuns();
+                    will(onConsecutiveCalls(returnValue(runs(2, 3)), returnValue(runs(2))));
+                }
+            });
+
+            service.invoicesChanged();
+            // computed (by another request) from the rows as they were before the change was committed
+            assertThat(service.getInvoiceRunCounters().getRuns(), is(2));
+
+            synchronization.afterCompletion(Status.STATUS_COMMITTED);
+
+            assertThat(service.getInvoiceRunCounters().getRuns(), is(1));
+        }
+    }
+
+    public static class GetUpcomingEvents extends DashboardSnapshotServiceTest {
+
+        @Test
+        public void servedByTheEventCacheEachTime() throws Exception {
+            final List<Event> events = Arrays.asList(new Event());
+            context.checking(new Expectations() {
+                {
+                    exactly(2).of(mockEvents).findUpcomingEvents(TODAY, TODAY.plusMonths(DashboardSnapshotService.MONTHS));
+                    will(returnValue(events));
+                }
+            });
+
+            assertThat(service.getUpcomingEvents(), is(events));
+            assertThat(service.getUpcomingEvents(), is(events));
+        }
+    }
+
+}
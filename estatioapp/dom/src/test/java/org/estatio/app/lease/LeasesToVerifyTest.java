@@ -0,0 +1,83 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.app.lease;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.estatio.dom.lease.Lease;
+import org.estatio.dom.lease.LeaseItem;
+import org.estatio.dom.lease.LeaseTerm;
+import org.estatio.dom.lease.LeaseTermForTurnoverRent;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LeasesToVerifyTest {
+
+    LeasesToVerify leasesToVerify;
+
+    @Before
+    public void setUp() throws Exception {
+        leasesToVerify = new LeasesToVerify();
+    }
+
+    public static class Changed extends LeasesToVerifyTest {
+
+        @Test
+        public void groupsByLease() throws Exception {
+            final Lease lease1 = new Lease();
+            final Lease lease2 = new Lease();
+
+            leasesToVerify.changed(newTerm(lease1));
+            leasesToVerify.changed(newTerm(lease2));
+            leasesToVerify.changed(newTerm(lease1));
+
+            assertThat(leasesToVerify.getTermsChanged(), is(3));
+            assertThat(leasesToVerify.getLeaseCount(), is(2));
+        }
+
+        private static LeaseTerm newTerm(final Lease lease) {
+            final LeaseItem leaseItem = new LeaseItem();
+            leaseItem.setLease(lease);
+            final LeaseTerm leaseTerm = new LeaseTermForTurnoverRent();
+            leaseTerm.setLeaseItem(leaseItem);
+            return leaseTerm;
+        }
+    }
+
+    public static class IsChange extends LeasesToVerifyTest {
+
+        @Test
+        public void disregardsScale() throws Exception {
+            assertThat(LeasesToVerify.isChange(new BigDecimal("1.5"), new BigDecimal("1.50")), is(false));
+            assertThat(LeasesToVerify.isChange(new BigDecimal("1.5"), new BigDecimal("1.51")), is(true));
+        }
+
+        @Test
+        public void whenNull() throws Exception {
+            assertThat(LeasesToVerify.isChange(null, null), is(false));
+            assertThat(LeasesToVerify.isChange(null, BigDecimal.ONE), is(true));
+            assertThat(LeasesToVerify.isChange(BigDecimal.ONE, null), is(true));
+        }
+    }
+
+}
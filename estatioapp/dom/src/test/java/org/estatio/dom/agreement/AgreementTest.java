@@ -287,6 +287,94 @@ public class AgreementTest {
     }
 
 
+    public static class RolesOfType extends AgreementTest {
+
+        private Agreement agreement;
+
+        private AgreementRoleType landlordArt;
+        private AgreementRoleType tenantArt;
+
+        private AgreementRole arLandlord;
+        private AgreementRole arTenant1;
+        private AgreementRole arTenant2;
+
+        @Before
+        public void setUp() throws Exception {
+            landlordArt = new AgreementRoleType();
+            landlordArt.setTitle("Landlord");
+            tenantArt = new AgreementRoleType();
+            tenantArt.setTitle("Tenant");
+
+            arLandlord = new AgreementRole();
+            arLandlord.setType(landlordArt);
+            arLandlord.setParty(new PartyForTesting());
+
+            arTenant1 = new AgreementRole();
+            arTenant1.setType(tenantArt);
+            arTenant1.setParty(new PartyForTesting());
+            arTenant1.setStartDate(new LocalDate(2013, 1, 1));
+
+            arTenant2 = new AgreementRole();
+            arTenant2.setType(tenantArt);
+            arTenant2.setParty(new PartyForTesting());
+            arTenant2.setStartDate(new LocalDate(2014, 1, 1));
+
+            agreement = new AgreementForTesting();
+        }
+
+        @Test
+        public void whenNone() {
+            assertThat(agreement.rolesOfType(landlordArt).isEmpty(), is(true));
+        }
+
+        @Test
+        public void groupedByType() {
+            agreement.getRoles().add(arLandlord);
+            agreement.getRoles().add(arTenant1);
+            agreement.getRoles().add(arTenant2);
+
+            assertThat(agreement.rolesOfType(landlordArt).size(), is(1));
+            assertThat(agreement.rolesOfType(landlordArt).contains(arLandlord), is(true));
+            assertThat(agreement.rolesOfType(tenantArt).size(), is(2));
+        }
+
+        @Test
+        public void rebuiltWhenRolesAdded() {
+            agreement.getRoles().add(arTenant1);
+            assertThat(agreement.rolesOfType(tenantArt).size(), is(1));
+
+            agreement.getRoles().add(arTenant2);
+            assertThat(agreement.rolesOfType(tenantArt).size(), is(2));
+        }
+
+        @Test
+        public void rebuiltWhenRoleTypeChanged() {
+            arTenant1.setAgreement(agreement);
+            agreement.getRoles().add(arTenant1);
+            assertThat(agreement.rolesOfType(tenantArt).size(), is(1));
+
+            arTenant1.setType(landlordArt);
+            assertThat(agreement.rolesOfType(tenantArt).isEmpty(), is(true));
+            assertThat(agreement.rolesOfType(landlordArt).contains(arTenant1), is(true));
+        }
+
+        @Test
+        public void rebuiltWhenRoleReplaced() {
+            arTenant1.setAgreement(agreement);
+            agreement.getRoles().add(arTenant1);
+            assertThat(agreement.rolesOfType(tenantArt).contains(arTenant1), is(true));
+
+            arTenant1.removing();
+            agreement.getRoles().remove(arTenant1);
+            arLandlord.setAgreement(agreement);
+            agreement.getRoles().add(arLandlord);
+
+            assertThat(agreement.rolesOfType(tenantArt).isEmpty(), is(true));
+            assertThat(agreement.rolesOfType(landlordArt).contains(arLandlord), is(true));
+        }
+    }
+
+
     public static class FindRole extends AgreementTest {
 
         @Mock
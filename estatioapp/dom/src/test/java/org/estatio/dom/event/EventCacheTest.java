@@ -0,0 +1,235 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom.event;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.transaction.Status;
+
+import com.google.common.collect.Lists;
+
+import org.jmock.Expectations;
+import org.jmock.auto.Mock;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.applib.DomainObjectContainer;
+import org.apache.isis.applib.services.bookmark.Bookmark;
+import org.apache.isis.applib.services.bookmark.BookmarkService;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class EventCacheTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private DomainObjectContainer mockContainer;
+
+    @Mock
+    private BookmarkService mockBookmarkService;
+
+    @Mock
+    private EventSubject mockSubject;
+
+    private EventCache cache;
+    private Event event1;
+    private Event event2;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new EventCache();
+        cache.setContainer(mockContainer);
+        cache.injectBookmarkService(mockBookmarkService);
+
+        event1 = newEvent(new LocalDate(2014, 1, 10));
+        event2 = newEvent(new LocalDate(2014, 3, 10));
+
+        context.checking(new Expectations() {
+            {
+                allowing(mockContainer).isPersistent(with(any(Object.class)));
+                will(returnValue(true));
+                allowing(mockBookmarkService).bookmarkFor(mockSubject);
+                will(returnValue(new Bookmark("SUBJECT", "1")));
+                allowing(mockBookmarkService).bookmarkFor(event1);
+                will(returnValue(new Bookmark("EVENT", "1")));
+                allowing(mockBookmarkService).bookmarkFor(event2);
+                will(returnValue(new Bookmark("EVENT", "2")));
+                allowing(mockBookmarkService).lookup(new Bookmark("EVENT", "1"));
+                will(returnValue(event1));
+                allowing(mockBookmarkService).lookup(new Bookmark("EVENT", "2"));
+                will(returnValue(event2));
+            }
+        });
+    }
+
+    private Event newEvent(final LocalDate date) {
+        final Event event = new Event();
+        event.setDate(date);
+        event.setSubject(mockSubject);
+        return event;
+    }
+
+    static class CountingFinder implements Callable<List<Event>>, EventCache.RangeFinder {
+        final List<Event> events = Lists.newArrayList();
+        final List<String> calls = Lists.newArrayList();
+
+        @Override
+        public List<Event> call() {
+            calls.add("subject");
+            return events;
+        }
+
+        @Override
+        public List<Event> findEventsInDateRange(final LocalDate rangeStartDate, final LocalDate rangeEndDate) {
+            calls.add(rangeStartDate + ".." + rangeEndDate);
+            final List<Event> inRange = Lists.newArrayList();
+            for (final Event event : events) {
+                if (!event.getDate().isBefore(rangeStartDate) && !event.getDate().isAfter(rangeEndDate)) {
+                    inRange.add(event);
+                }
+            }
+            return inRange;
+        }
+    }
+
+    public static class EventsOf extends EventCacheTest {
+
+        @Test
+        public void missThenHit() throws Exception {
+            final CountingFinder finder = new CountingFinder();
+            finder.events.add(event1);
+
+            assertThat(cache.eventsOf(mockSubject, finder), is(Arrays.asList(event1)));
+            assertThat(cache.eventsOf(mockSubject, finder), is(Arrays.asList(event1)));
+
+            assertThat(finder.calls.size(), is(1));
+        }
+
+        @Test
+        public void invalidatedWhenEventAdded() throws Exception {
+            final CountingFinder finder = new CountingFinder();
+            finder.events.add(event1);
+            cache.eventsOf(mockSubject, finder);
+
+            finder.events.add(event2);
+            cache.added(event2);
+
+            assertThat(cache.eventsOf(mockSubject, finder), is(Arrays.asList(event1, event2)));
+            assertThat(finder.calls.size(), is(2));
+        }
+    }
+
+    public static class Upcoming extends EventCacheTest {
+
+        @Test
+        public void onlyQueriesDaysNewlyInRange() throws Exception {
+            final CountingFinder finder = new CountingFinder();
+            finder.events.addAll(Arrays.asList(event1, event2));
+
+            assertThat(cache.upcoming(new LocalDate(2014, 1, 1), new LocalDate(2014, 3, 1), finder),
+                    is(Arrays.asList(event1)));
+            assertThat(cache.upcoming(new LocalDate(2014, 1, 2), new LocalDate(2014, 3, 31), finder),
+                    is(Arrays.asList(event1, event2)));
+            assertThat(cache.upcoming(new LocalDate(2014, 2, 1), new LocalDate(2014, 3, 31), finder),
+                    is(Arrays.asList(event2)));
+
+            assertThat(finder.calls, is((List<String>) Arrays.asList("2014-01-01..2014-03-01", "2014-03-02..2014-03-31")));
+        }
+
+        @Test
+        public void whenEventsOfSubjectRemoved() throws Exception {
+            final CountingFinder finder = new CountingFinder();
+            finder.events.addAll(Arrays.asList(event1, event2));
+            cache.upcoming(new LocalDate(2014, 1, 1), new LocalDate(2014, 3, 31), finder);
+
+            finder.events.clear();
+            cache.removedAllOf(mockSubject);
+
+            assertThat(cache.upcoming(new LocalDate(2014, 1, 1), new LocalDate(2014, 3, 31), finder),
+                    is(Collections.<Event> emptyList()));
+            assertThat(finder.calls.size(), is(1));
+        }
+
+        @Test
+        public void whenEventAddedRequeriesItsDate() throws Exception {
+            final CountingFinder finder = new CountingFinder();
+            finder.events.add(event1);
+            cache.upcoming(new LocalDate(2014, 1, 1), new LocalDate(2014, 3, 31), finder);
+
+            finder.events.add(event2);
+            cache.added(event2);
+
+            assertThat(cache.upcoming(new LocalDate(2014, 1, 1), new LocalDate(2014, 3, 31), finder),
+                    is(Arrays.asList(event1, event2)));
+            assertThat(finder.calls.get(1), is("2014-03-10..2014-03-10"));
+        }
+    }
+
+    public static class AfterCompletion extends EventCacheTest {
+
+        private CountingFinder finder;
+        private EventCache.PendingInvalidations pendingInvalidations;
+
+        @Before
+        public void setUpTransaction() throws Exception {
+            finder = new CountingFinder();
+            finder.events.add(event1);
+
+            // event2 added within a transaction
+            pendingInvalidations = new EventCache.PendingInvalidations(cache, null);
+            pendingInvalidations.add(cache.new Invalidation(new Bookmark("SUBJECT", "1").toString(), false, null, event2.getDate()));
+        }
+
+        @Test
+        public void discardsEventsCachedBeforeCommit() throws Exception {
+            // looked up by another request before the transaction commits
+            cache.eventsOf(mockSubject, finder);
+            finder.events.add(event2);
+
+            pendingInvalidations.afterCompletion(Status.STATUS_COMMITTED);
+
+            assertThat(cache.eventsOf(mockSubject, finder), is(Arrays.asList(event1, event2)));
+            assertThat(finder.calls.size(), is(2));
+        }
+
+        @Test
+        public void discardsEventsCachedBeforeRollback() throws Exception {
+            // looked up by the transaction itself
+            finder.events.add(event2);
+            cache.eventsOf(mockSubject, finder);
+            finder.events.remove(event2);
+
+            pendingInvalidations.afterCompletion(Status.STATUS_ROLLEDBACK);
+
+            assertThat(cache.eventsOf(mockSubject, finder), is(Arrays.asList(event1)));
+            assertThat(finder.calls.size(), is(2));
+        }
+    }
+
+}
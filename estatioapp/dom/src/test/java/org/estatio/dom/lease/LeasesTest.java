@@ -18,7 +18,11 @@
  */
 package org.estatio.dom.lease;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
 import org.joda.time.LocalDate;
 import org.junit.Before;
 import org.junit.Test;
@@ -29,6 +33,7 @@ import org.estatio.dom.FinderInteraction.FinderMethod;
 import org.estatio.dom.asset.FixedAsset;
 import org.estatio.dom.asset.FixedAssetForTesting;
 import org.estatio.dom.asset.Property;
+import org.estatio.services.scheduler.SessionRunner;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -124,6 +129,36 @@ public class LeasesTest {
         }
     }
 
+    public static class FindLeasesByPropertyWithItemsAndTerms extends LeasesTest {
+
+        @Test
+        public void happyCase() {
+
+            leases.findLeasesByPropertyWithItemsAndTerms(property);
+
+            assertThat(finderInteraction.getFinderMethod(), is(FinderMethod.ALL_MATCHES));
+            assertThat(finderInteraction.getResultType(), IsisMatchers.classEqualTo(Lease.class));
+            assertThat(finderInteraction.getQueryName(), is("findByProperty"));
+            assertThat(finderInteraction.getArgumentsByParameterName().get("property"), is((Object) property));
+            assertThat(finderInteraction.getArgumentsByParameterName().size(), is(1));
+        }
+    }
+
+    public static class FindLeasesByPropertyWithRoles extends LeasesTest {
+
+        @Test
+        public void happyCase() {
+
+            leases.findLeasesByPropertyWithRoles(property);
+
+            assertThat(finderInteraction.getFinderMethod(), is(FinderMethod.ALL_MATCHES));
+            assertThat(finderInteraction.getResultType(), IsisMatchers.classEqualTo(Lease.class));
+            assertThat(finderInteraction.getQueryName(), is("findByProperty"));
+            assertThat(finderInteraction.getArgumentsByParameterName().get("property"), is((Object) property));
+            assertThat(finderInteraction.getArgumentsByParameterName().size(), is(1));
+        }
+    }
+
     public static class FindLeasesActiveOnDate extends LeasesTest {
 
         @Test
@@ -151,4 +186,68 @@ public class LeasesTest {
         }
 
     }
-}
\ No newline at end of file
+
+    public static class ForEachLeaseInPages extends LeasesTest {
+
+        /**
+         * Runs the work on the calling thread, recording whether it is within a unit of work.
+         */
+        static class RecordingSessionRunner extends SessionRunner {
+            int unitsOfWork;
+            boolean inUnitOfWork;
+
+            RecordingSessionRunner() {
+                super(null);
+            }
+
+            @Override
+            public <T> T call(final Callable<T> work) {
+                unitsOfWork++;
+                inUnitOfWork = true;
+                try {
+                    return work.call();
+                } catch (final Exception e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    inUnitOfWork = false;
+                }
+            }
+        }
+
+        @Test
+        public void eachPageInAUnitOfWorkOfItsOwn() {
+            final List<Lease> all = Lists.newArrayList(new Lease(), new Lease(), new Lease(), new Lease(), new Lease());
+            final RecordingSessionRunner sessionRunner = new RecordingSessionRunner();
+            final List<Integer> pageSizes = Lists.newArrayList();
+            leases = new Leases() {
+                private int fetched;
+
+                @Override
+                protected List<Lease> allInstancesAfter(final Object lastId, final int pageSize) {
+                    assertThat(sessionRunner.inUnitOfWork, is(true));
+                    final List<Lease> page = all.subList(fetched, Math.min(fetched + pageSize, all.size()));
+                    fetched += page.size();
+                    pageSizes.add(page.size());
+                    return page;
+                }
+            };
+            final List<Lease> processed = Lists.newArrayList();
+
+            final int count = leases.forEachLeaseInPages(new Function<Lease, Void>() {
+                @Override
+                public Void apply(final Lease lease) {
+                    assertThat(sessionRunner.inUnitOfWork, is(true));
+                    processed.add(lease);
+                    return null;
+                }
+            }, sessionRunner, 2);
+            sessionRunner.close();
+
+            assertThat(count, is(5));
+            assertThat(processed, is(all));
+            assertThat(pageSizes, is(Arrays.asList(2, 2, 1)));
+            assertThat(sessionRunner.unitsOfWork, is(3));
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom.lease;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class TurnoverRentRuleTest {
+
+    public static class Of extends TurnoverRentRuleTest {
+
+        @Test
+        public void isInterned() throws Exception {
+            assertThat(TurnoverRentRule.of("500000;5;750000;6;7"), is(sameInstance(TurnoverRentRule.of("500000;5;750000;6;7"))));
+        }
+
+        @Test
+        public void whenInvalid() throws Exception {
+            assertThat(TurnoverRentRule.of("500000;x;7").isValid(), is(false));
+            assertThat(TurnoverRentRule.of("   ").isValid(), is(false));
+        }
+    }
+
+    public static class CalculateRent extends TurnoverRentRuleTest {
+
+        @Test
+        public void whenOnCap() throws Exception {
+            test("500000;5;750000;6;7", "750000", "40000.00");
+        }
+
+        @Test
+        public void whenAboveAllCaps() throws Exception {
+            test("500000;5;750000;6;7", "1000000.01", "57500.00");
+        }
+
+        @Test
+        public void whenNegativeTurnover() throws Exception {
+            test("500000;5;750000;6;7", "-1000", "0.00");
+        }
+
+        @Test
+        public void whenCapsNotAscending() throws Exception {
+            // evaluated tier by tier, as ever: 5% of 750,000, less 6% of 250,000, plus 7% of 500,000
+            test("750000;5;500000;6;7", "1000000", "57500.00");
+        }
+
+        private static void test(final String rule, final String turnover, final String expected) {
+            assertThat(TurnoverRentRule.of(rule).calculateRent(new BigDecimal(turnover)), is(new BigDecimal(expected)));
+        }
+    }
+
+}
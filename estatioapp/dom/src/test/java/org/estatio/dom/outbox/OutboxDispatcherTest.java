@@ -0,0 +1,200 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom.outbox;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.jmock.auto.Mock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.bookmark.Bookmark;
+import org.apache.isis.applib.services.publish.PublishingService;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class OutboxDispatcherTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    PublishingService mockPublishingService;
+
+    private OutboxDispatcherForTesting dispatcher;
+
+    private OutboxEvent good;
+    private OutboxEvent poison;
+    private OutboxEvent orphan;
+
+    @Before
+    public void setUp() throws Exception {
+        dispatcher = new OutboxDispatcherForTesting();
+        dispatcher.publishingService = mockPublishingService;
+
+        good = newEvent("GOOD");
+        poison = newEvent("POISON");
+        orphan = newEvent("ORPHAN");
+    }
+
+    private OutboxEvent newEvent(final String targetStr) {
+        final OutboxEvent event = new OutboxEvent();
+        event.setTargetStr(targetStr);
+        dispatcher.bookmarks.put(event, new Bookmark("EVT", targetStr));
+        return event;
+    }
+
+    public static class Dispatch extends OutboxDispatcherTest {
+
+        @Test
+        public void failuresRecordedAfterTheBatch() throws Exception {
+            dispatcher.due = Arrays.asList(good, poison, orphan);
+
+            final OutboxDispatcher.Result result = dispatcher.dispatch(1, null);
+
+            assertThat(result.getPublished(), is(1));
+            assertThat(result.getFailures().size(), is(2));
+            assertThat(dispatcher.removed, is((List<OutboxEvent>) Arrays.asList(good)));
+            assertThat(dispatcher.recorded.size(), is(2));
+            assertThat(dispatcher.recorded.get(0).event.getIdentifier(), is("POISON"));
+            assertThat(dispatcher.recorded.get(0).maxAttempts, is(OutboxDispatcher.DEFAULT_MAX_ATTEMPTS));
+            // nothing to render, so given up on straight away
+            assertThat(dispatcher.recorded.get(1).event.getIdentifier(), is("ORPHAN"));
+            assertThat(dispatcher.recorded.get(1).maxAttempts, is(0));
+        }
+
+        @Test
+        public void nothingRecordedIfAllPublished() throws Exception {
+            dispatcher.due = Arrays.asList(good);
+
+            dispatcher.dispatch(1, null);
+
+            assertThat(dispatcher.recordFailuresCalls, is(0));
+        }
+
+        @Test
+        public void failedCommitRecordedAsFailedAttemptOfEachPublishedEvent() throws Exception {
+            dispatcher.due = Arrays.asList(good, poison);
+
+            try {
+                dispatcher.dispatch(1, new Runnable() {
+                    @Override
+                    public void run() {
+                        throw new IllegalStateException("constraint violated");
+                    }
+                });
+                fail();
+            } catch (final IllegalStateException expected) {
+            }
+
+            assertThat(dispatcher.recorded.size(), is(2));
+            assertThat(dispatcher.recorded.get(0).event.getIdentifier(), is("POISON"));
+            assertThat(dispatcher.recorded.get(1).event.getIdentifier(), is("GOOD"));
+            assertThat(dispatcher.recorded.get(1).error.startsWith("Commit failed: "), is(true));
+            assertThat(dispatcher.recorded.get(1).maxAttempts, is(OutboxDispatcher.DEFAULT_MAX_ATTEMPTS));
+        }
+
+        @Test
+        public void poisonEventGivenUpOnAfterMaxAttempts() throws Exception {
+            dispatcher.applyRecorded = true;
+
+            for (int attempt = 0; attempt < OutboxDispatcher.DEFAULT_MAX_ATTEMPTS; attempt++) {
+                dispatcher.due = Arrays.asList(good);
+                try {
+                    dispatcher.dispatch(1, new Runnable() {
+                        @Override
+                        public void run() {
+                            throw new IllegalStateException("constraint violated");
+                        }
+                    });
+                    fail();
+                } catch (final IllegalStateException expected) {
+                }
+            }
+
+            assertThat(good.getAttempts(), is(OutboxDispatcher.DEFAULT_MAX_ATTEMPTS));
+            assertThat(good.getStatus(), is(OutboxEventStatus.FAILED));
+        }
+    }
+
+    static class OutboxDispatcherForTesting extends OutboxDispatcher {
+
+        final Map<OutboxEvent, Bookmark> bookmarks = Maps.newIdentityHashMap();
+        List<OutboxEvent> due = Lists.newArrayList();
+        final List<OutboxEvent> removed = Lists.newArrayList();
+        final List<Failure> recorded = Lists.newArrayList();
+        int recordFailuresCalls;
+        boolean applyRecorded;
+
+        @Override
+        Bookmark bookmarkFor(final OutboxEvent event) {
+            return bookmarks.get(event);
+        }
+
+        @Override
+        List<OutboxEvent> findDue(final Timestamp now) {
+            return due;
+        }
+
+        @Override
+        boolean publish(final OutboxEvent event) {
+            if (event.getTargetStr().equals("POISON")) {
+                throw new IllegalArgumentException("cannot render");
+            }
+            return !event.getTargetStr().equals("ORPHAN");
+        }
+
+        @Override
+        void published(final OutboxEvent event) {
+            removed.add(event);
+        }
+
+        @Override
+        void recordFailures(final List<Failure> failures) {
+            recordFailuresCalls++;
+            recorded.addAll(failures);
+            if (applyRecorded) {
+                for (final Failure failure : failures) {
+                    for (final Map.Entry<OutboxEvent, Bookmark> entry : bookmarks.entrySet()) {
+                        if (entry.getValue().equals(failure.event)) {
+                            entry.getKey().failed(failure.now, failure.error, failure.maxAttempts);
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        Timestamp now() {
+            return new Timestamp(1400000000000L);
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom.outbox;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class OutboxEventTest {
+
+    private static final long MINUTE = 60000L;
+
+    private OutboxEvent event;
+    private Timestamp now;
+
+    @Before
+    public void setUp() throws Exception {
+        now = new Timestamp(1400000000000L);
+        event = new OutboxEvent();
+        event.setStatus(OutboxEventStatus.PENDING);
+        event.setNextAttemptAt(now);
+    }
+
+    public static class Failed extends OutboxEventTest {
+
+        @Test
+        public void retriedWithIncreasingDelay() throws Exception {
+            event.failed(now, "boom", 10);
+            assertThat(event.getStatus(), is(OutboxEventStatus.PENDING));
+            assertThat(event.getAttempts(), is(1));
+            assertThat(event.getLastError(), is("boom"));
+            assertThat(event.getNextAttemptAt().getTime() - now.getTime(), is(1 * MINUTE));
+
+            event.failed(now, "boom", 10);
+            assertThat(event.getNextAttemptAt().getTime() - now.getTime(), is(2 * MINUTE));
+
+            event.failed(now, "boom", 10);
+            assertThat(event.getNextAttemptAt().getTime() - now.getTime(), is(4 * MINUTE));
+        }
+
+        @Test
+        public void givenUpAfterMaxAttempts() throws Exception {
+            event.failed(now, "boom", 2);
+            event.failed(now, "boom again", 2);
+
+            assertThat(event.getStatus(), is(OutboxEventStatus.FAILED));
+            assertThat(event.getLastError(), is("boom again"));
+        }
+
+        @Test
+        public void retry() throws Exception {
+            event.failed(now, "boom", 1);
+            assertThat(event.getStatus(), is(OutboxEventStatus.FAILED));
+
+            final Timestamp later = new Timestamp(now.getTime() + MINUTE);
+            event.retry(later);
+
+            assertThat(event.getStatus(), is(OutboxEventStatus.PENDING));
+            assertThat(event.getAttempts(), is(0));
+            assertThat(event.getNextAttemptAt(), is(later));
+        }
+    }
+
+    public static class BackoffMinutes extends OutboxEventTest {
+
+        @Test
+        public void doubledUpToMaximum() throws Exception {
+            assertThat(OutboxEvent.backoffMinutes(1), is(1L));
+            assertThat(OutboxEvent.backoffMinutes(2), is(2L));
+            assertThat(OutboxEvent.backoffMinutes(6), is(32L));
+            assertThat(OutboxEvent.backoffMinutes(7), is(60L));
+            assertThat(OutboxEvent.backoffMinutes(100), is(60L));
+        }
+    }
+
+    public static class Arguments extends OutboxEventTest {
+
+        @Test
+        public void roundTrip() throws Exception {
+            final List<String> tokens = Arrays.asList(
+                    OutboxArguments.token(OutboxArguments.VALUE, "NL91 ABNA 0417 1643 00"),
+                    OutboxArguments.token(OutboxArguments.VALUE, "multi\nline \\ name"),
+                    OutboxArguments.token(OutboxArguments.NULL, null),
+                    OutboxArguments.token(OutboxArguments.BOOKMARK, "PARTY:123"));
+
+            final String encoded = OutboxArguments.encode(tokens);
+
+            assertThat(encoded.split("\n").length, is(4));
+            assertThat(OutboxArguments.decode(encoded), is(tokens));
+        }
+
+        @Test
+        public void kindAndValue() throws Exception {
+            final String token = OutboxArguments.token(OutboxArguments.BOOKMARK, "PARTY:123");
+
+            assertThat(OutboxArguments.kindOf(token), is(OutboxArguments.BOOKMARK));
+            assertThat(OutboxArguments.valueOf(token), is("PARTY:123"));
+        }
+
+        @Test
+        public void none() throws Exception {
+            assertThat(OutboxArguments.encode(Collections.<String> emptyList()), is(nullValue()));
+            assertThat(OutboxArguments.decode(null).isEmpty(), is(true));
+        }
+    }
+
+}
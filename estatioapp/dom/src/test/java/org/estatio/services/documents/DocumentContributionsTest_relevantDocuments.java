@@ -4,7 +4,6 @@ import java.util.List;
 import java.util.Map;
 import com.google.common.collect.Maps;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
-import org.apache.chemistry.opencmis.client.api.ItemIterable;
 import org.apache.chemistry.opencmis.client.api.QueryResult;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.PropertyData;
@@ -28,7 +27,8 @@ public class DocumentContributionsTest_relevantDocuments {
 
         documentViewModelFactory = new DocumentViewModelFactory();
         documentContributions = new DocumentContributions();
-        documentContributions.cmisRepository = cmisRepository;
+        documentViewModelFactory.documentRepository = cmisRepository;
+        documentContributions.documentViewModelFactory = documentViewModelFactory;
 
         try {
             cmisRepository.init(properties);
@@ -45,7 +45,7 @@ public class DocumentContributionsTest_relevantDocuments {
 //        Property property = new Property();
 //        property.setCity("Oxford");
         String queryFor = "SELECT * FROM cmis:document WHERE CONTAINS('Oxford')"; 
-        ItemIterable<QueryResult> results = cmisRepository.query(queryFor);
+        List<QueryResult> results = cmisRepository.query(queryFor);
         for (QueryResult qr : results) {
             System.out.println("--------------");
             System.out.println(qr.toString());
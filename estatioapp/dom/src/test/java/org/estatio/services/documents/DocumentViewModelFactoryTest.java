@@ -0,0 +1,189 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.documents;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import org.jmock.Expectations;
+import org.jmock.auto.Mock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.applib.DomainObjectContainer;
+import org.apache.isis.applib.value.Blob;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class DocumentViewModelFactoryTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private DomainObjectContainer mockContainer;
+
+    static class CountingDocumentRepository implements DocumentRepository {
+        int searches;
+        int finds;
+        int contents;
+
+        final DocumentMetadata document = new DocumentMetadata("1", "lease.pdf", "1.0", "application/pdf", 4, null);
+
+        @Override
+        public List<DocumentMetadata> findDocuments(final String text, final int max) {
+            searches++;
+            return Collections.singletonList(document);
+        }
+
+        @Override
+        public DocumentMetadata findDocument(final String id) {
+            finds++;
+            return id.equals(document.getId()) ? document : null;
+        }
+
+        @Override
+        public Blob contentOf(final String id) {
+            contents++;
+            return new Blob("lease.pdf", "application/pdf", new byte[] { 1, 2, 3, 4 });
+        }
+
+        @Override
+        public String viewUrlFor(final String id) {
+            return "http://localhost/" + id;
+        }
+    }
+
+    private DocumentViewModelFactory factory;
+    private CountingDocumentRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new CountingDocumentRepository();
+        factory = new DocumentViewModelFactory();
+        factory.documentRepository = repository;
+        factory.container = mockContainer;
+
+        context.checking(new Expectations() {
+            {
+                allowing(mockContainer).newViewModelInstance(DocumentViewModel.class, "1");
+                will(returnValue(new DocumentViewModel()));
+            }
+        });
+    }
+
+    public static class NewViewModelsFor extends DocumentViewModelFactoryTest {
+
+        @Test
+        public void searchIsCached() throws Exception {
+            final List<DocumentViewModel> viewModels = factory.newViewModelsFor("Oxford");
+            factory.newViewModelsFor("Oxford");
+
+            assertThat(viewModels.size(), is(1));
+            assertThat(viewModels.get(0).getName(), is("lease.pdf"));
+            assertThat(viewModels.get(0).getVersionLabel(), is("1.0"));
+            assertThat(repository.searches, is(1));
+        }
+
+        @Test
+        public void metadataOfDocumentsFoundIsCached() throws Exception {
+            factory.newViewModelsFor("Oxford");
+
+            assertThat(factory.metadataFor("1"), is(sameInstance(repository.document)));
+            assertThat(repository.finds, is(0));
+        }
+
+        @Test
+        public void truncatedWithWarning() throws Exception {
+            final List<DocumentMetadata> many = Lists.newArrayList();
+            for (int i = 0; i < DocumentViewModelFactory.MAX_DOCUMENTS + 5; i++) {
+                many.add(new DocumentMetadata("doc" + i, "doc" + i + ".pdf", "1.0", "application/pdf", 4, null));
+            }
+            factory.documentRepository = new CountingDocumentRepository() {
+                @Override
+                public List<DocumentMetadata> findDocuments(final String text, final int max) {
+                    searches++;
+                    return many.subList(0, Math.min(max, many.size()));
+                }
+            };
+            context.checking(new Expectations() {
+                {
+                    allowing(mockContainer).newViewModelInstance(with(DocumentViewModel.class), with(any(String.class)));
+                    will(returnValue(new DocumentViewModel()));
+                    exactly(2).of(mockContainer).warnUser(with(any(String.class)));
+                }
+            });
+
+            assertThat(factory.newViewModelsFor("lease").size(), is(DocumentViewModelFactory.MAX_DOCUMENTS));
+            // also when served from the cache
+            assertThat(factory.newViewModelsFor("lease").size(), is(DocumentViewModelFactory.MAX_DOCUMENTS));
+        }
+
+        @Test
+        public void notTruncated() throws Exception {
+            context.checking(new Expectations() {
+                {
+                    never(mockContainer).warnUser(with(any(String.class)));
+                }
+            });
+
+            assertThat(factory.newViewModelsFor("Oxford").size(), is(1));
+        }
+
+        @Test
+        public void invalidated() throws Exception {
+            factory.newViewModelsFor("Oxford");
+            factory.invalidate();
+            factory.newViewModelsFor("Oxford");
+
+            assertThat(repository.searches, is(2));
+        }
+    }
+
+    public static class MetadataFor extends DocumentViewModelFactoryTest {
+
+        @Test
+        public void notFoundIsCachedToo() throws Exception {
+            assertThat(factory.metadataFor("2"), is(nullValue()));
+            assertThat(factory.metadataFor("2"), is(nullValue()));
+
+            assertThat(repository.finds, is(1));
+        }
+    }
+
+    public static class ContentFor extends DocumentViewModelFactoryTest {
+
+        @Test
+        public void isCached() throws Exception {
+            final Blob content = factory.contentFor("1");
+
+            assertThat(factory.contentFor("1"), is(sameInstance(content)));
+            assertThat(repository.contents, is(1));
+        }
+    }
+
+}
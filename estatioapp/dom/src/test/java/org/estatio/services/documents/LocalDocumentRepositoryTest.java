@@ -0,0 +1,123 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.documents;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.apache.isis.applib.value.Blob;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class LocalDocumentRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LocalDocumentRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        write("oxford/lease-OXF-TOPMODEL-001.pdf", "%PDF");
+        write("oxford/notes.txt", "Topmodel renewal");
+        write("kal/lease-KAL-POISON-001.pdf", "%PDF");
+
+        repository = new LocalDocumentRepository();
+        repository.setRoot(new File(folder.getRoot(), "documents").toPath());
+    }
+
+    private void write(final String path, final String content) throws Exception {
+        final File file = new File(new File(folder.getRoot(), "documents"), path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static class FindDocuments extends LocalDocumentRepositoryTest {
+
+        @Test
+        public void byPath() throws Exception {
+            final List<DocumentMetadata> documents = repository.findDocuments("Oxford", 10);
+
+            assertThat(documents.size(), is(2));
+            assertThat(documents.get(0).getId(), is("oxford/lease-OXF-TOPMODEL-001.pdf"));
+            assertThat(documents.get(0).getName(), is("lease-OXF-TOPMODEL-001.pdf"));
+            assertThat(documents.get(0).getLength(), is(4L));
+            assertThat(documents.get(1).getId(), is("oxford/notes.txt"));
+        }
+
+        @Test
+        public void byContent() throws Exception {
+            final List<DocumentMetadata> documents = repository.findDocuments("renewal", 10);
+
+            assertThat(documents.size(), is(1));
+            assertThat(documents.get(0).getId(), is("oxford/notes.txt"));
+        }
+
+        @Test
+        public void atMostMax() throws Exception {
+            assertThat(repository.findDocuments("lease", 1).size(), is(1));
+        }
+    }
+
+    public static class FindDocument extends LocalDocumentRepositoryTest {
+
+        @Test
+        public void happyCase() throws Exception {
+            final DocumentMetadata document = repository.findDocument("kal/lease-KAL-POISON-001.pdf");
+
+            assertThat(document.getName(), is("lease-KAL-POISON-001.pdf"));
+            assertThat(document.getLastModified(), is(notNullValue()));
+        }
+
+        @Test
+        public void whenNone() throws Exception {
+            assertThat(repository.findDocument("kal/missing.pdf"), is(nullValue()));
+        }
+
+        @Test
+        public void outsideOfRoot() throws Exception {
+            write("../secret.txt", "secret");
+
+            assertThat(repository.findDocument("../secret.txt"), is(nullValue()));
+            assertThat(repository.contentOf("../secret.txt"), is(nullValue()));
+        }
+    }
+
+    public static class ContentOf extends LocalDocumentRepositoryTest {
+
+        @Test
+        public void happyCase() throws Exception {
+            final Blob content = repository.contentOf("oxford/notes.txt");
+
+            assertThat(content.getName(), is("notes.txt"));
+            assertThat(new String(content.getBytes(), StandardCharsets.UTF_8), is("Topmodel renewal"));
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.excel;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.value.Blob;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class StreamingExcelWorkbookTest {
+
+    static class SomeEntity {
+    }
+
+    StreamingExcelWorkbook workbook;
+
+    @Before
+    public void setUp() throws Exception {
+        final StreamingExcelService excelService = new StreamingExcelService() {
+            @Override
+            String titleOf(final Object domainObject) {
+                return "Some entity";
+            }
+
+            @Override
+            String bookmarkOf(final Object domainObject) {
+                return "SOME:1";
+            }
+        };
+        // a window smaller than the number of rows, so that some are flushed to disk
+        workbook = new StreamingExcelWorkbook(excelService, "SomeViewModel", new String[] { "thing", "amount" }, 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        workbook.close();
+    }
+
+    public static class ToBlob extends StreamingExcelWorkbookTest {
+
+        @Test
+        public void writesHeaderAndRows() throws Exception {
+            for (int i = 0; i < 10; i++) {
+                workbook.addRow(new SomeEntity(), i == 5 ? null : new BigDecimal(i + ".50"));
+            }
+            assertThat(workbook.getRowCount(), is(10));
+
+            final Blob blob = workbook.toBlob("some.xlsx");
+            assertThat(blob.getMimeType().toString(), is(StreamingExcelWorkbook.XLSX_MIME_TYPE));
+
+            final Sheet sheet = new XSSFWorkbook(new ByteArrayInputStream(blob.getBytes())).getSheetAt(0);
+            assertThat(sheet.getSheetName(), is("SomeViewModel"));
+            assertThat(sheet.getLastRowNum(), is(10));
+            assertThat(sheet.getRow(0).getCell(0).getStringCellValue(), is("thing"));
+            assertThat(sheet.getRow(0).getCell(1).getStringCellValue(), is("amount"));
+
+            final Cell reference = sheet.getRow(1).getCell(0);
+            assertThat(reference.getStringCellValue(), is("Some entity"));
+            assertThat(reference.getCellComment().getString().getString(), is("SOME:1"));
+            assertThat(sheet.getRow(10).getCell(1).getNumericCellValue(), is(9.5));
+            assertThat(sheet.getRow(6).getCell(1), is(nullValue()));
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void whenWrongNumberOfValues() throws Exception {
+            workbook.addRow("only one");
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.links;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.google.common.collect.Lists;
+
+import org.jmock.Expectations;
+import org.jmock.auto.Mock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.applib.DomainObjectContainer;
+import org.apache.isis.applib.services.bookmark.Bookmark;
+import org.apache.isis.applib.services.bookmark.BookmarkService;
+import org.apache.isis.applib.services.queryresultscache.QueryResultsCache;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+import org.estatio.services.refdata.ReferenceDataCache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class LinksTest_findAllCached {
+
+    static class Animal {}
+
+    static class Lion extends Animal {}
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private DomainObjectContainer mockContainer;
+
+    @Mock
+    private BookmarkService mockBookmarkService;
+
+    private final List<String> queried = Lists.newArrayList();
+    private Link animalLink;
+    private Link lionLink;
+    private Links links;
+
+    @Before
+    public void setUp() throws Exception {
+        animalLink = new Link();
+        lionLink = new Link();
+        final Bookmark animalBookmark = new Bookmark("LINK", "1");
+        final Bookmark lionBookmark = new Bookmark("LINK", "2");
+
+        context.checking(new Expectations() {
+            {
+                allowing(mockContainer).isPersistent(with(any(Object.class)));
+                will(returnValue(true));
+                allowing(mockBookmarkService).bookmarkFor(animalLink);
+                will(returnValue(animalBookmark));
+                allowing(mockBookmarkService).bookmarkFor(lionLink);
+                will(returnValue(lionBookmark));
+                allowing(mockBookmarkService).lookup(animalBookmark);
+                will(returnValue(animalLink));
+                allowing(mockBookmarkService).lookup(lionBookmark);
+                will(returnValue(lionLink));
+            }
+        });
+
+        final ReferenceDataCache referenceDataCache = new ReferenceDataCache();
+        referenceDataCache.setContainer(mockContainer);
+        referenceDataCache.injectBookmarkService(mockBookmarkService);
+
+        links = new Links() {
+            @Override
+            public List<Link> findByClassName(String className) {
+                queried.add(className);
+                if(Lion.class.getName().equals(className)) {
+                    return Lists.newArrayList(lionLink);
+                }
+                if(Animal.class.getName().equals(className)) {
+                    return Lists.newArrayList(animalLink);
+                }
+                return Lists.newArrayList();
+            }
+        };
+        links.injectReferenceDataCache(referenceDataCache);
+        // no caching within the session, so that it is the application-scoped cache that is exercised
+        links.queryResultsCache = new QueryResultsCache() {
+            @Override
+            public <T> T execute(Callable<T> callable, Key cacheKey)  {
+                try {
+                    return callable.call();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    @Test
+    public void superclassLinksFirst() throws Exception {
+        final List<Link> found = links.findAllForClassHierarchy(Lion.class);
+
+        assertThat(found.size(), is(2));
+        assertThat(found.get(0), is(sameInstance(animalLink)));
+        assertThat(found.get(1), is(sameInstance(lionLink)));
+        assertThat(queried, is((List<String>) Lists.newArrayList(
+                Object.class.getName(), Animal.class.getName(), Lion.class.getName())));
+    }
+
+    @Test
+    public void queriedOncePerClass() throws Exception {
+        links.findAllForClassHierarchy(Lion.class);
+        queried.clear();
+
+        assertThat(links.findAllForClassHierarchy(Lion.class).size(), is(2));
+        assertThat(queried.isEmpty(), is(true));
+    }
+
+    @Test
+    public void queriedAfreshOnceChanged() throws Exception {
+        links.findAllForClassHierarchy(Lion.class);
+        queried.clear();
+
+        links.linksChanged();
+
+        assertThat(links.findAllForClassHierarchy(Lion.class).size(), is(2));
+        assertThat(queried.size(), is(3));
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.publishing;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.estatio.dom.WithReferenceGetter;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CompactPayloadsTest {
+
+    static class SomeReferenced implements WithReferenceGetter {
+        @Override
+        public String getReference() {
+            return "ACME";
+        }
+    }
+
+    private CompactPayloadWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        writer = new CompactPayloadWriter();
+    }
+
+    public static class Write extends CompactPayloadsTest {
+
+        @Test
+        public void valuesFormattedAndEscaped() throws Exception {
+            writer.record(CompactPayloadSchema.ARGUMENT, "a|b\\c\nd");
+            writer.record(CompactPayloadSchema.BANK_MANDATE,
+                    "M1", null, "SEPA1", new LocalDate(2014, 1, 1), null, new SomeReferenced(), null);
+
+            assertThat(writer.toString(), is(
+                    "estatio-compact/1\n"
+                    + "A|a\\|b\\\\c\\nd\n"
+                    + "BM|M1||SEPA1|2014-01-01||ACME|"));
+        }
+
+        @Test
+        public void bigDecimalsInPlainNotation() throws Exception {
+            assertThat(CompactPayloadWriter.format(new BigDecimal("1E+3")), is("1000"));
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void wrongNumberOfValues() throws Exception {
+            writer.record(CompactPayloadSchema.ARGUMENT, "a", "b");
+        }
+    }
+
+    public static class Read extends CompactPayloadsTest {
+
+        @Test
+        public void roundTrip() throws Exception {
+            writer.record(CompactPayloadSchema.ARGUMENT, "a|b\\c\nd");
+            writer.record(CompactPayloadSchema.ARGUMENT, (Object) null);
+
+            final List<List<String>> records = CompactPayloads.read(writer.toString());
+
+            assertThat(records.size(), is(2));
+            assertThat(records.get(0), is(Arrays.asList("A", "a|b\\c\nd")));
+            assertThat(records.get(1), is(Arrays.asList("A", "")));
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void notCompact() throws Exception {
+            CompactPayloads.read("{\"some\":\"json\"}");
+        }
+    }
+
+    public static class Compress extends CompactPayloadsTest {
+
+        @Test
+        public void roundTrip() throws Exception {
+            for (int i = 0; i < 100; i++) {
+                writer.record(CompactPayloadSchema.INVOICE_ITEM,
+                        i, new SomeReferenced(), "Rent", BigDecimal.ONE,
+                        new BigDecimal("1000.00"), new BigDecimal("210.00"), new BigDecimal("1210.00"),
+                        new SomeReferenced(), new LocalDate(2014, 1, 1), new LocalDate(2014, 1, 1), new LocalDate(2014, 3, 31));
+            }
+            final String payload = writer.toString();
+
+            final String compressed = CompactPayloads.compress(payload);
+
+            assertTrue(compressed.startsWith("estatio-compact/1+deflate\n"));
+            assertTrue(compressed.length() * 5 < payload.length());
+            assertThat(CompactPayloads.decompress(compressed), is(payload));
+            assertThat(CompactPayloads.read(compressed).size(), is(100));
+        }
+
+        @Test
+        public void uncompressedReturnedAsIs() throws Exception {
+            assertThat(CompactPayloads.decompress(writer.toString()), is(writer.toString()));
+        }
+    }
+
+    public static class Describe extends CompactPayloadsTest {
+
+        @Test
+        public void oneLinePerRecordType() throws Exception {
+            final String[] lines = CompactPayloadSchema.describe().split("\n");
+
+            assertThat(lines.length, is(CompactPayloadSchema.values().length + 1));
+            assertThat(lines[0], is("estatio-compact/1"));
+            assertThat(lines[2], is("A|value"));
+        }
+    }
+
+}
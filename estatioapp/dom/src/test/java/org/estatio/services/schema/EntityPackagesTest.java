@@ -0,0 +1,59 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.schema;
+
+import java.util.Set;
+
+import javax.jdo.annotations.PersistenceCapable;
+
+import org.junit.Test;
+import org.reflections.Reflections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class EntityPackagesTest {
+
+    @Test
+    public void coversAllEntities() throws Exception {
+        final Reflections reflections = new Reflections("org.estatio");
+        final Set<Class<?>> entityClasses = reflections.getTypesAnnotatedWith(PersistenceCapable.class);
+        for (final Class<?> entityClass : entityClasses) {
+            if (entityClass.isMemberClass() || entityClass.getName().endsWith("ForTesting")) {
+                // skip (probably a testing class)
+                continue;
+            }
+            assertThat("Entity " + entityClass.getName() + " is not in any of the EntityPackages",
+                    EntityPackages.covers(entityClass), is(true));
+        }
+    }
+
+    @Test
+    public void asPackagePrefix() throws Exception {
+        assertThat(EntityPackages.asPackagePrefix().startsWith("org.estatio.dom.agreement,org.estatio.dom.asset,"), is(true));
+        assertThat(EntityPackages.asPackagePrefix().endsWith(",org.apache.isis.objectstore.jdo.applib"), is(true));
+    }
+
+    @Test
+    public void covers() throws Exception {
+        assertThat(EntityPackages.covers(org.estatio.dom.lease.Lease.class), is(true));
+        assertThat(EntityPackages.covers(EntityPackages.class), is(false));
+    }
+
+}
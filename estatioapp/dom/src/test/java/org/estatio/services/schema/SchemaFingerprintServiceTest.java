@@ -0,0 +1,152 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.schema;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.jdo.metadata.ColumnMetadata;
+import javax.jdo.metadata.MemberMetadata;
+import javax.jdo.metadata.Metadata;
+import javax.jdo.metadata.TypeMetadata;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.jmock.Expectations;
+import org.jmock.auto.Mock;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class SchemaFingerprintServiceTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(JUnitRuleMockery2.Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private Connection mockConnection;
+
+    @Mock
+    private DatabaseMetaData mockMetaData;
+
+    @Mock
+    private ResultSet mockColumns;
+
+    static class SomeEntity {
+        static final String NOT_PERSISTENT = "";
+        transient String notPersistentEither;
+        String reference;
+        List<String> names;
+    }
+
+    @Test
+    public void entityLines() throws Exception {
+        @SuppressWarnings("rawtypes")
+        final List<Class> entityClasses = Arrays.<Class> asList(SomeEntity.class);
+        assertThat(SchemaFingerprintService.entityLines(entityClasses), is(Arrays.asList(
+                SomeEntity.class.getName() + "#names:java.util.List<java.lang.String>",
+                SomeEntity.class.getName() + "#reference:class java.lang.String")));
+    }
+
+    @Test
+    public void metadataLines() throws Exception {
+        final List<String> lines = SchemaFingerprintService.metadataLines("SomeEntity", typeMetadata(254));
+        assertThat(lines.contains("SomeEntity.table=SomeTable"), is(true));
+        assertThat(lines.contains("SomeEntity.members[0].name=reference"), is(true));
+        assertThat(lines.contains("SomeEntity.members[0].columns[0].length=254"), is(true));
+        assertThat(lines.contains("SomeEntity.members[0].columns[0].allowsNull=false"), is(true));
+
+        assertThat(SchemaFingerprintService.metadataLines("SomeEntity", typeMetadata(254)), is(lines));
+        assertThat(SchemaFingerprintService.metadataLines("SomeEntity", typeMetadata(30)), is(not(lines)));
+        assertThat(SchemaFingerprintService.metadataLines("SomeEntity", null), is(Collections.<String> emptyList()));
+    }
+
+    private static TypeMetadata typeMetadata(final int referenceLength) {
+        final ColumnMetadata column = metadata(ColumnMetadata.class, ImmutableMap.<String, Object> of(
+                "getName", "reference",
+                "getLength", referenceLength,
+                "getAllowsNull", false));
+        final MemberMetadata member = metadata(MemberMetadata.class, ImmutableMap.<String, Object> of(
+                "getName", "reference",
+                "getColumns", new ColumnMetadata[] { column }));
+        return metadata(TypeMetadata.class, ImmutableMap.<String, Object> of(
+                "getTable", "SomeTable",
+                "getMembers", new MemberMetadata[] { member }));
+    }
+
+    /**
+     * Metadata returning the supplied values, by getter, else <tt>null</tt> (or zero).
+     */
+    private static <T extends Metadata> T metadata(final Class<T> type, final Map<String, Object> values) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (values.containsKey(method.getName())) {
+                    return values.get(method.getName());
+                }
+                if (method.getReturnType() == int.class) {
+                    return 0;
+                }
+                return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+            }
+        }));
+    }
+
+    @Test
+    public void columnLinesOfTheApplicationsSchemaOnly() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(mockConnection).getMetaData();
+                will(returnValue(mockMetaData));
+                allowing(mockConnection).getCatalog();
+                will(returnValue("ESTATIO"));
+
+                oneOf(mockMetaData).getColumns("ESTATIO", "dbo", "%", "%");
+                will(returnValue(mockColumns));
+
+                oneOf(mockColumns).next();
+                will(returnValue(false));
+                oneOf(mockColumns).close();
+            }
+        });
+        assertThat(SchemaFingerprintService.columnLines(mockConnection, "dbo").isEmpty(), is(true));
+    }
+
+    @Test
+    public void digest() throws Exception {
+        final String digest = SchemaFingerprintService.digest(Arrays.asList("a", "b"));
+        assertThat(digest.length(), is(40));
+        assertThat(SchemaFingerprintService.digest(Arrays.asList("a", "b")), is(digest));
+        assertThat(SchemaFingerprintService.digest(Arrays.asList("ab")), is(not(digest)));
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.search;
+
+import java.util.Arrays;
+
+import javax.transaction.Status;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SearchIndexServiceTest {
+
+    static class SomeEntity {
+    }
+
+    SearchIndexService service;
+    SearchIndex<Object> index;
+    SearchIndexService.PendingChanges pendingChanges;
+
+    @Before
+    public void setUp() throws Exception {
+        service = new SearchIndexService();
+        index = new SearchIndex<Object>();
+        index.put("1", "OXF", "Oxford Super Mall");
+        service.setIndex(SomeEntity.class, index);
+
+        pendingChanges = new SearchIndexService.PendingChanges(service, null);
+        pendingChanges.add(new SearchIndexService.Change(SomeEntity.class, "2", new String[] { "KAL", "Kalvertoren" }));
+        pendingChanges.add(new SearchIndexService.Change(SomeEntity.class, "1", null));
+    }
+
+    @Test
+    public void appliedOnCommit() throws Exception {
+        assertThat(index.search("KAL").isEmpty(), is(true));
+
+        pendingChanges.afterCompletion(Status.STATUS_COMMITTED);
+
+        assertThat(index.search("KAL"), is(Arrays.<Object> asList("2")));
+        assertThat(index.search("OXF").isEmpty(), is(true));
+    }
+
+    @Test
+    public void discardedOnRollback() throws Exception {
+        pendingChanges.afterCompletion(Status.STATUS_ROLLEDBACK);
+
+        assertThat(index.search("KAL").isEmpty(), is(true));
+        assertThat(index.search("OXF"), is(Arrays.<Object> asList("1")));
+    }
+
+    @Test
+    public void notAppliedAgainByNextTransaction() throws Exception {
+        pendingChanges.afterCompletion(Status.STATUS_COMMITTED);
+        index.put("1", "OXF", "Oxford Super Mall");
+
+        pendingChanges.afterCompletion(Status.STATUS_COMMITTED);
+
+        assertThat(index.search("OXF"), is(Arrays.<Object> asList("1")));
+    }
+
+    @Test
+    public void changeCommittedWhilePopulatingIsApplied() throws Exception {
+        final SearchIndexService populatingService = new SearchIndexService() {
+            @Override
+            SearchIndex<Object> populate(final Class<?> type, final String... termFields) {
+                final SearchIndex<Object> populated = new SearchIndex<Object>();
+                populated.put("1", "OXF", "Oxford Super Mall");
+                // committed by another request after the query has read its rows
+                apply(new SearchIndexService.Change(SomeEntity.class, "2", new String[] { "KAL", "Kalvertoren" }));
+                return populated;
+            }
+        };
+
+        final SearchIndex<Object> populated = populatingService.indexFor(SomeEntity.class, "reference", "name");
+
+        assertThat(populated.search("KAL"), is(Arrays.<Object> asList("2")));
+        assertThat(populated.search("OXF"), is(Arrays.<Object> asList("1")));
+    }
+
+    @Test
+    public void refreshIntervalMinutes() throws Exception {
+        assertThat(SearchIndexService.refreshIntervalMinutes("15"), is(15));
+        assertThat(SearchIndexService.refreshIntervalMinutes(null), is(SearchIndexService.DEFAULT_REFRESH_INTERVAL_MINUTES));
+        assertThat(SearchIndexService.refreshIntervalMinutes("an hour"), is(SearchIndexService.DEFAULT_REFRESH_INTERVAL_MINUTES));
+        assertThat(SearchIndexService.refreshIntervalMinutes("0"), is(SearchIndexService.DEFAULT_REFRESH_INTERVAL_MINUTES));
+    }
+
+}
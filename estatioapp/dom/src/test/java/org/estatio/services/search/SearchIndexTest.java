@@ -0,0 +1,104 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.search;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SearchIndexTest {
+
+    SearchIndex<String> index;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new SearchIndex<String>();
+        index.put("OXF", "OXF", "Oxford Super Mall");
+        index.put("KAL", "KAL", "Kalvertoren");
+        index.put("OXF-TOPMODEL-001", "OXF-TOPMODEL-001", "Topmodel Lease");
+        index.put("OXF-POISON-003", "OXF-POISON-003", null);
+    }
+
+    public static class Search extends SearchIndexTest {
+
+        @Test
+        public void whenContains() throws Exception {
+            assertThat(index.search("*topmodel*"), is(Arrays.asList("OXF-TOPMODEL-001")));
+        }
+
+        @Test
+        public void whenMatchesName() throws Exception {
+            assertThat(index.search("*super*"), is(Arrays.asList("OXF")));
+        }
+
+        @Test
+        public void whenNoMatch() throws Exception {
+            assertThat(index.search("*mcdonald*").isEmpty(), is(true));
+        }
+
+        @Test
+        public void whenNoWildcardsMustMatchWholeTerm() throws Exception {
+            assertThat(index.search("OXF"), is(Arrays.asList("OXF")));
+            assertThat(index.search("TOPMODEL").isEmpty(), is(true));
+        }
+
+        @Test
+        public void whenSingleCharacterWildcard() throws Exception {
+            assertThat(index.search("OXF-POISON-00?"), is(Arrays.asList("OXF-POISON-003")));
+        }
+
+        @Test
+        public void whenFragmentTooShortForTrigram() throws Exception {
+            assertThat(index.search("*al*"), is(Arrays.asList("KAL", "OXF")));
+        }
+
+        @Test
+        public void rankedPrefixThenShortestFirst() throws Exception {
+            assertThat(index.search("*oxf*"), is(Arrays.asList("OXF", "OXF-POISON-003", "OXF-TOPMODEL-001")));
+        }
+
+        @Test
+        public void whenNull() throws Exception {
+            assertThat(index.search(null).isEmpty(), is(true));
+        }
+    }
+
+    public static class PutAndRemove extends SearchIndexTest {
+
+        @Test
+        public void reindexReplacesTerms() throws Exception {
+            index.put("KAL", "KAL", "Kalverstraat");
+            assertThat(index.search("*kalvertoren*").isEmpty(), is(true));
+            assertThat(index.search("*kalverstraat*"), is(Arrays.asList("KAL")));
+            assertThat(index.size(), is(4));
+        }
+
+        @Test
+        public void remove() throws Exception {
+            index.remove("KAL");
+            assertThat(index.search("*kal*").isEmpty(), is(true));
+            assertThat(index.size(), is(3));
+        }
+    }
+
+}
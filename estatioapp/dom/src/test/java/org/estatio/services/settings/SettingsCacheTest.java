@@ -0,0 +1,215 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.settings;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.isisaddons.module.settings.dom.SettingAbstract;
+import org.isisaddons.module.settings.dom.SettingType;
+import org.jmock.Expectations;
+import org.jmock.Sequence;
+import org.jmock.auto.Mock;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.applib.DomainObjectContainer;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+import org.estatio.services.settings.EstatioSettingsServiceTest.ApplicationSettingForTesting;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SettingsCacheTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private DomainObjectContainer mockContainer;
+
+    @Mock
+    private ApplicationSettingsServiceForEstatio mockApplicationSettings;
+
+    static class CountingFinder implements Callable<SettingAbstract> {
+        int calls;
+        SettingAbstract result;
+
+        @Override
+        public SettingAbstract call() {
+            calls++;
+            return result;
+        }
+    }
+
+    private SettingsCache cache;
+    private CountingFinder finder;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new SettingsCache();
+        cache.setContainer(mockContainer);
+        cache.injectApplicationSettings(mockApplicationSettings);
+
+        finder = new CountingFinder();
+        finder.result = new ApplicationSettingForTesting("2013-04-01", SettingType.LOCAL_DATE);
+
+        context.checking(new Expectations() {
+            {
+                allowing(mockContainer).isPersistent(with(any(Object.class)));
+                will(returnValue(false));
+            }
+        });
+    }
+
+    public static class Find extends SettingsCacheTest {
+
+        @Test
+        public void missThenHit() throws Exception {
+            assertThat(cache.find(null, "epochDate", finder).valueAsLocalDate(), is(new LocalDate(2013, 4, 1)));
+            assertThat(cache.find(null, "epochDate", finder).valueAsLocalDate(), is(new LocalDate(2013, 4, 1)));
+
+            assertThat(finder.calls, is(1));
+            assertThat(cache.getMisses(), is(1L));
+            assertThat(cache.getHits(), is(1L));
+        }
+
+        @Test
+        public void absentIsCached() throws Exception {
+            finder.result = null;
+            assertThat(cache.find("joe", "theme", finder), is(nullValue()));
+            assertThat(cache.find("joe", "theme", finder), is(nullValue()));
+
+            assertThat(finder.calls, is(1));
+        }
+
+        @Test
+        public void userAndApplicationSettingsAreDistinct() throws Exception {
+            cache.find(null, "theme", finder);
+            cache.find("joe", "theme", finder);
+
+            assertThat(finder.calls, is(2));
+        }
+    }
+
+    public static class SettingsChanged extends SettingsCacheTest {
+
+        @Test
+        public void invalidatesAndChangesVersion() throws Exception {
+            final ApplicationSettingForEstatio version = new ApplicationSettingForEstatio();
+            version.setValueRaw("0");
+            context.checking(new Expectations() {
+                {
+                    oneOf(mockApplicationSettings).find(SettingsCache.VERSION_KEY);
+                    will(returnValue(version));
+                }
+            });
+
+            cache.find(null, "epochDate", finder);
+            cache.settingsChanged();
+            cache.find(null, "epochDate", finder);
+
+            assertThat(finder.calls, is(2));
+            assertThat(version.getValueRaw(), is(not("0")));
+        }
+
+        @Test
+        public void whenNoVersion() throws Exception {
+            context.checking(new Expectations() {
+                {
+                    oneOf(mockApplicationSettings).find(SettingsCache.VERSION_KEY);
+                    will(returnValue(null));
+                }
+            });
+
+            cache.find(null, "epochDate", finder);
+            cache.settingsChanged();
+            cache.find(null, "epochDate", finder);
+
+            assertThat(finder.calls, is(2));
+        }
+
+        @Test
+        public void invalidatedWhileLoading() throws Exception {
+            final Callable<SettingAbstract> invalidatingFinder = new Callable<SettingAbstract>() {
+                @Override
+                public SettingAbstract call() {
+                    // eg another thread changes the setting meanwhile
+                    cache.invalidate();
+                    return finder.result;
+                }
+            };
+            cache.find(null, "epochDate", invalidatingFinder);
+            cache.find(null, "epochDate", finder);
+
+            assertThat(finder.calls, is(1));
+        }
+    }
+
+    public static class ChangedElsewhere extends SettingsCacheTest {
+
+        @Test
+        public void versionIsCheckedEveryInterval() throws Exception {
+            cache.setCheckInterval(0, TimeUnit.SECONDS);
+            final Sequence sequence = context.sequence("versions");
+            context.checking(new Expectations() {
+                {
+                    oneOf(mockApplicationSettings).fetchValueRaw(SettingsCache.VERSION_KEY);
+                    inSequence(sequence);
+                    will(returnValue("v1"));
+                    oneOf(mockApplicationSettings).fetchValueRaw(SettingsCache.VERSION_KEY);
+                    inSequence(sequence);
+                    will(returnValue("v1"));
+                    oneOf(mockApplicationSettings).fetchValueRaw(SettingsCache.VERSION_KEY);
+                    inSequence(sequence);
+                    will(returnValue("v2"));
+                }
+            });
+
+            cache.find(null, "epochDate", finder);
+            cache.find(null, "epochDate", finder);
+            assertThat(finder.calls, is(1));
+
+            // eg changed by another webapp node
+            cache.find(null, "epochDate", finder);
+            assertThat(finder.calls, is(2));
+        }
+
+        @Test
+        public void notCheckedWithinInterval() throws Exception {
+            context.checking(new Expectations() {
+                {
+                    never(mockApplicationSettings).fetchValueRaw(with(any(String.class)));
+                }
+            });
+
+            cache.find(null, "epochDate", finder);
+            cache.find(null, "epochDate", finder);
+
+            assertThat(finder.calls, is(1));
+        }
+    }
+
+}
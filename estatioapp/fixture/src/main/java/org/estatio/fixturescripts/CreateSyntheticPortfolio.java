@@ -0,0 +1,570 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.fixturescripts;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javax.inject.Inject;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.estatio.dom.asset.FixedAssetRoleType;
+import org.estatio.dom.asset.Properties;
+import org.estatio.dom.asset.Property;
+import org.estatio.dom.asset.PropertyType;
+import org.estatio.dom.asset.Unit;
+import org.estatio.dom.asset.UnitType;
+import org.estatio.dom.charge.Charge;
+import org.estatio.dom.charge.Charges;
+import org.estatio.dom.currency.Currencies;
+import org.estatio.dom.currency.Currency;
+import org.estatio.dom.geography.Countries;
+import org.estatio.dom.geography.Country;
+import org.estatio.dom.index.Index;
+import org.estatio.dom.index.IndexBase;
+import org.estatio.dom.index.IndexBases;
+import org.estatio.dom.index.IndexValues;
+import org.estatio.dom.index.Indices;
+import org.estatio.dom.invoice.Invoice;
+import org.estatio.dom.invoice.InvoiceStatus;
+import org.estatio.dom.invoice.PaymentMethod;
+import org.estatio.dom.lease.InvoicingFrequency;
+import org.estatio.dom.lease.Lease;
+import org.estatio.dom.lease.LeaseItem;
+import org.estatio.dom.lease.LeaseItemStatus;
+import org.estatio.dom.lease.LeaseItemType;
+import org.estatio.dom.lease.LeaseTerm;
+import org.estatio.dom.lease.LeaseTermForIndexable;
+import org.estatio.dom.lease.LeaseTermForServiceCharge;
+import org.estatio.dom.lease.LeaseTermForTax;
+import org.estatio.dom.lease.LeaseTermForTurnoverRent;
+import org.estatio.dom.lease.LeaseTermFrequency;
+import org.estatio.dom.lease.Leases;
+import org.estatio.dom.lease.Occupancies;
+import org.estatio.dom.lease.Occupancy;
+import org.estatio.dom.lease.breaks.BreakExerciseType;
+import org.estatio.dom.lease.breaks.BreakType;
+import org.estatio.dom.lease.invoicing.InvoiceItemForLease;
+import org.estatio.dom.party.Organisations;
+import org.estatio.dom.party.Party;
+import org.estatio.fixture.EstatioBaseLineFixture;
+import org.estatio.fixture.EstatioFixtureScript;
+import org.estatio.fixture.charge.refdata.ChargeAndChargeGroupRefData;
+import org.estatio.fixture.currency.refdata.CurrenciesRefData;
+import org.estatio.fixture.geography.refdata.CountriesAndStatesRefData;
+import org.joda.time.LocalDate;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.runtime.system.transaction.IsisTransactionManager;
+
+/**
+ * Generates a synthetic portfolio of a configurable size, intended for load
+ * and performance testing rather than for demos.
+ *
+ * <p>
+ * Creates <i>properties</i> properties, each with <i>units</i> units, each of
+ * which has been let to <i>leases</i> successive tenants. Every lease gets an
+ * indexable rent, a service charge, a turnover rent and a tax item, a couple
+ * of break options and <i>invoiceYears</i> years of quarterly invoices.
+ * Indexable rents refer to a synthetic index series (one per country).
+ * </p>
+ *
+ * <p>
+ * All values are drawn from a {@link Random} seeded with <i>seed</i>, and all
+ * dates are relative to <i>date</i> (default {@link #DEFAULT_DATE}) rather than
+ * to the clock, so the same parameters always produce the same portfolio. The
+ * defaults can be overridden using the fixture script parameters, eg
+ * <tt>properties=50,units=100,leases=2,seed=1,date=2015-01-01,invoiceYears=2,batchSize=250</tt>
+ * creates 10,000 leases.
+ * </p>
+ *
+ * <p>
+ * Unlike the demo fixtures, objects are not flushed one at a time: the
+ * transaction is committed after every <i>batchSize</i> leases, so that
+ * DataNucleus can batch the inserts and neither the session nor the
+ * transaction's audit entries grow with the size of the portfolio. With
+ * <tt>batchSize=0</tt> the portfolio is created in the transaction the script
+ * is run in, as by any other fixture script, and only flushed.
+ * </p>
+ */
+public class CreateSyntheticPortfolio extends EstatioFixtureScript {
+
+    public static final String INDEX_REFERENCE_PREFIX = "SYN-IDX-";
+
+    private static final String[] COUNTRIES = {
+            CountriesAndStatesRefData.GBR,
+            CountriesAndStatesRefData.NLD,
+            CountriesAndStatesRefData.ITA,
+            CountriesAndStatesRefData.FRA,
+            CountriesAndStatesRefData.SWE };
+
+    private static final String[] CITIES = {
+            "Oxford", "Amsterdam", "Milano", "Lyon", "Stockholm" };
+
+    /**
+     * The date the portfolio is generated as of, unless overridden.
+     */
+    public static final LocalDate DEFAULT_DATE = new LocalDate(2015, 1, 1);
+
+    private static final int MAX_PROPERTIES = 26 * 26;
+    private static final int INDEX_HISTORY_YEARS = 20;
+    private static final BigDecimal QUARTERS_PER_YEAR = BigDecimal.valueOf(4);
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private int numberOfProperties;
+    private int unitsPerProperty;
+    private int leasesPerUnit;
+    private long seed;
+    private LocalDate date = DEFAULT_DATE;
+    private int invoiceYears = 2;
+    private int batchSize = 250;
+
+    public CreateSyntheticPortfolio() {
+        this(10, 20, 2, 1L);
+    }
+
+    public CreateSyntheticPortfolio(
+            final int numberOfProperties,
+            final int unitsPerProperty,
+            final int leasesPerUnit,
+            final long seed) {
+        super(null, "synthetic-portfolio", Discoverability.DISCOVERABLE);
+        this.numberOfProperties = numberOfProperties;
+        this.unitsPerProperty = unitsPerProperty;
+        this.leasesPerUnit = leasesPerUnit;
+        this.seed = seed;
+    }
+
+    public CreateSyntheticPortfolio withDate(final LocalDate date) {
+        this.date = date;
+        return this;
+    }
+
+    public CreateSyntheticPortfolio withInvoiceYears(final int invoiceYears) {
+        this.invoiceYears = invoiceYears;
+        return this;
+    }
+
+    public CreateSyntheticPortfolio withBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    // //////////////////////////////////////
+
+    private Random random;
+    private Currency currency;
+    private final Map<String, Charge> chargesByReference = Maps.newHashMap();
+    private final Map<String, Index> indicesByCountry = Maps.newHashMap();
+    private final Map<String, BigDecimal> taxPercentages = Maps.newHashMap();
+    private int leasesInBatch;
+
+    @Override
+    protected void execute(final ExecutionContext executionContext) {
+        applyParameters(executionContext.getParameters());
+        if (numberOfProperties < 1 || numberOfProperties > MAX_PROPERTIES) {
+            throw new IllegalArgumentException("Number of properties must be between 1 and " + MAX_PROPERTIES);
+        }
+        if (unitsPerProperty < 1 || unitsPerProperty > 999 || leasesPerUnit < 1 || leasesPerUnit > 9) {
+            throw new IllegalArgumentException("Units per property must be between 1 and 999, leases per unit between 1 and 9");
+        }
+
+        if (isExecutePrereqs()) {
+            executionContext.executeChild(this, new EstatioBaseLineFixture());
+        }
+
+        random = new Random(seed);
+        currency = currencies.findCurrency(CurrenciesRefData.EUR);
+        for (String chargeReference : new String[] {
+                ChargeAndChargeGroupRefData.CHARGE_REFERENCE_RENT,
+                ChargeAndChargeGroupRefData.CHARGE_REFERENCE_SERVICE_CHARGE,
+                ChargeAndChargeGroupRefData.CHARGE_REFERENCE_TURNOVER_RENT,
+                ChargeAndChargeGroupRefData.CHARGE_REFERENCE_TAX }) {
+            chargesByReference.put(chargeReference, charges.findCharge(chargeReference));
+        }
+        for (String countryReference : COUNTRIES) {
+            indicesByCountry.put(countryReference, createIndex(countryReference, executionContext));
+        }
+        nextTransaction();
+
+        for (int i = 0; i < numberOfProperties; i++) {
+            final Property property = createProperty(i);
+            final Party owner = organisations.newOrganisation(property.getReference() + "-OWNER", "Owner of " + property.getReference());
+            property.addRoleIfDoesNotExist(owner, FixedAssetRoleType.PROPERTY_OWNER, property.getAcquireDate(), null);
+            for (int j = 1; j <= unitsPerProperty; j++) {
+                createLeases(property, createUnit(property, j), owner);
+            }
+            executionContext.addResult(this, property.getReference(), property);
+        }
+        nextTransaction();
+    }
+
+    private void applyParameters(final String parameters) {
+        if (parameters == null) {
+            return;
+        }
+        for (String parameter : Splitter.onPattern("[,;\\s]").omitEmptyStrings().trimResults().split(parameters)) {
+            final List<String> keyAndValue = Lists.newArrayList(Splitter.on('=').trimResults().split(parameter));
+            if (keyAndValue.size() != 2) {
+                throw new IllegalArgumentException("Parameters must be of the form key=value, got: " + parameter);
+            }
+            final String key = keyAndValue.get(0);
+            final String value = keyAndValue.get(1);
+            if ("properties".equals(key)) {
+                numberOfProperties = Integer.parseInt(value);
+            } else if ("units".equals(key)) {
+                unitsPerProperty = Integer.parseInt(value);
+            } else if ("leases".equals(key)) {
+                leasesPerUnit = Integer.parseInt(value);
+            } else if ("seed".equals(key)) {
+                seed = Long.parseLong(value);
+            } else if ("date".equals(key)) {
+                date = LocalDate.parse(value);
+            } else if ("invoiceYears".equals(key)) {
+                invoiceYears = Integer.parseInt(value);
+            } else if ("batchSize".equals(key)) {
+                batchSize = Integer.parseInt(value);
+            } else {
+                throw new IllegalArgumentException("Unknown parameter: " + key);
+            }
+        }
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * A monthly random walk of {@link #INDEX_HISTORY_YEARS} years, roughly 2%
+     * inflation per year.
+     */
+    private Index createIndex(final String countryReference, final ExecutionContext executionContext) {
+        final String reference = INDEX_REFERENCE_PREFIX + countryReference;
+        final Index existing = indices.findIndex(reference);
+        if (existing != null) {
+            return existing;
+        }
+        final Index index = indices.newIndex(reference, "Synthetic index " + countryReference);
+        final LocalDate startDate = date.minusYears(INDEX_HISTORY_YEARS).withDayOfYear(1);
+        final IndexBase indexBase = indexBases.newIndexBase(index, null, startDate, BigDecimal.ONE);
+        // a series of its own, so that the rest of the portfolio does not depend on whether the index already existed
+        final Random indexRandom = new Random(seed + reference.hashCode());
+        double value = 100;
+        for (LocalDate valueDate = startDate; valueDate.isBefore(date); valueDate = valueDate.plusMonths(1)) {
+            indexValues.newIndexValue(indexBase, valueDate, BigDecimal.valueOf(value).setScale(1, RoundingMode.HALF_UP));
+            value = value * (1 + (0.0017 + indexRandom.nextGaussian() * 0.002));
+        }
+        return executionContext.addResult(this, reference, index);
+    }
+
+    /**
+     * References <tt>ZAA</tt> to <tt>ZZZ</tt>, to stay clear of the demo
+     * properties.
+     */
+    private Property createProperty(final int number) {
+        final String reference = "Z" + (char) ('A' + number / 26) + (char) ('A' + number % 26);
+        final int countryNumber = number % COUNTRIES.length;
+        final Country country = countries.findCountry(COUNTRIES[countryNumber]);
+        final LocalDate acquireDate = date.minusYears(10 + random.nextInt(20)).withDayOfYear(1);
+
+        // the city is set afterwards to avoid a location lookup for each property
+        final Property property = properties.newProperty(
+                reference, "Synthetic property " + reference, PropertyType.SHOPPING_CENTER, null, country, acquireDate);
+        property.setCity(CITIES[countryNumber]);
+        property.setOpeningDate(acquireDate);
+        return property;
+    }
+
+    private Unit createUnit(final Property property, final int number) {
+        final Unit unit = property.newUnit(
+                String.format("%s-%03d", property.getReference(), number),
+                "Unit " + number,
+                UnitType.values()[random.nextInt(UnitType.values().length)]);
+        unit.setArea(BigDecimal.valueOf(50 + random.nextInt(950)));
+        return unit;
+    }
+
+    /**
+     * Successive leases, the last one of which is current.
+     */
+    private void createLeases(final Property property, final Unit unit, final Party landlord) {
+        final int[] durations = new int[leasesPerUnit];
+        int totalDuration = 0;
+        for (int k = 0; k < leasesPerUnit; k++) {
+            durations[k] = 5 + random.nextInt(5);
+            totalDuration += durations[k];
+        }
+        LocalDate startDate = date
+                .minusYears(totalDuration - 1 - random.nextInt(3))
+                .minusMonths(random.nextInt(12))
+                .withDayOfMonth(1);
+        for (int k = 0; k < leasesPerUnit; k++) {
+            final LocalDate endDate = startDate.plusYears(durations[k]).minusDays(1);
+            createLease(property, unit, k + 1, startDate, endDate, landlord);
+            startDate = endDate.plusDays(1);
+        }
+    }
+
+    private void createLease(
+            final Property property,
+            final Unit unit,
+            final int number,
+            final LocalDate startDate,
+            final LocalDate endDate,
+            final Party landlord) {
+        final String reference = unit.getReference() + "-" + number;
+        final Party tenant = organisations.newOrganisation(reference, "Tenant of " + reference);
+        final Lease lease = leases.newLease(reference, "Synthetic lease " + reference, null, startDate, null, endDate, landlord, tenant);
+        final Occupancy occupancy = occupancies.newOccupancy(lease, unit, startDate);
+        occupancy.setEndDate(endDate);
+
+        final LocalDate breakDate = startDate.plusYears(3);
+        lease.newBreakOption(breakDate, "6m", BreakExerciseType.TENANT, BreakType.FIXED, null);
+        if (random.nextBoolean()) {
+            lease.newBreakOption(breakDate.plusYears(3), "6m", BreakExerciseType.MUTUAL, BreakType.ROLLING, null);
+        }
+
+        final Index index = indicesByCountry.get(property.getCountry().getReference());
+        final BigDecimal rent = amount(unit.getArea().multiply(BigDecimal.valueOf(150 + random.nextInt(350))));
+        final BigDecimal serviceCharge = amount(unit.getArea().multiply(BigDecimal.valueOf(20 + random.nextInt(60))));
+        final LocalDate lastTermStartDate = endDate.isBefore(date) ? endDate : date;
+
+        final LeaseItem rentItem = newItem(lease, LeaseItemType.RENT, ChargeAndChargeGroupRefData.CHARGE_REFERENCE_RENT, InvoicingFrequency.QUARTERLY_IN_ADVANCE);
+        final LeaseItem serviceChargeItem = newItem(lease, LeaseItemType.SERVICE_CHARGE, ChargeAndChargeGroupRefData.CHARGE_REFERENCE_SERVICE_CHARGE, InvoicingFrequency.QUARTERLY_IN_ADVANCE);
+        LeaseTerm previousRentTerm = null;
+        LeaseTerm previousServiceChargeTerm = null;
+        for (LocalDate termStartDate = startDate; !termStartDate.isAfter(lastTermStartDate); termStartDate = termStartDate.plusYears(1)) {
+            final LocalDate termEndDate = termStartDate.plusYears(1).minusDays(1);
+
+            final LeaseTermForIndexable rentTerm = (LeaseTermForIndexable) newTerm(rentItem, previousRentTerm, termStartDate, termEndDate);
+            rentTerm.setBaseValue(rent);
+            rentTerm.setIndex(index);
+            rentTerm.setBaseIndexStartDate(startDate.minusMonths(3));
+            rentTerm.setNextIndexStartDate(termStartDate.minusMonths(3));
+            rentTerm.setEffectiveDate(termStartDate);
+            previousRentTerm = rentTerm;
+
+            final LeaseTermForServiceCharge serviceChargeTerm = (LeaseTermForServiceCharge) newTerm(serviceChargeItem, previousServiceChargeTerm, termStartDate, termEndDate);
+            serviceChargeTerm.setBudgetedValue(serviceCharge);
+            previousServiceChargeTerm = serviceChargeTerm;
+
+            createInvoices(lease, unit, landlord, tenant, rentTerm, rent, serviceChargeTerm, serviceCharge);
+        }
+
+        final LeaseItem turnoverRentItem = newItem(lease, LeaseItemType.TURNOVER_RENT, ChargeAndChargeGroupRefData.CHARGE_REFERENCE_TURNOVER_RENT, InvoicingFrequency.YEARLY_IN_ARREARS);
+        final LeaseTermForTurnoverRent turnoverRentTerm = (LeaseTermForTurnoverRent) newTerm(turnoverRentItem, null, startDate, endDate);
+        turnoverRentTerm.setTurnoverRentRule(String.valueOf(5 + random.nextInt(6)));
+
+        final LeaseItem taxItem = newItem(lease, LeaseItemType.TAX, ChargeAndChargeGroupRefData.CHARGE_REFERENCE_TAX, InvoicingFrequency.FIXED_IN_ADVANCE);
+        final LeaseTermForTax taxTerm = (LeaseTermForTax) newTerm(taxItem, null, startDate, endDate);
+        taxTerm.setTaxPercentage(BigDecimal.ONE);
+        taxTerm.setRecoverablePercentage(BigDecimal.valueOf(50));
+        taxTerm.setInvoicingDisabled(random.nextBoolean());
+
+        if (batchSize > 0 && ++leasesInBatch >= batchSize) {
+            nextTransaction();
+        }
+    }
+
+    /**
+     * Commits the batch and starts a new transaction, as
+     * {@link org.estatio.services.scheduler.AbstractIsisJob#nextTransaction()} does, unless batches are
+     * disabled.
+     */
+    private void nextTransaction() {
+        leasesInBatch = 0;
+        if (batchSize <= 0) {
+            getContainer().flush();
+            return;
+        }
+        final IsisTransactionManager transactionManager = IsisContext.getPersistenceSession().getTransactionManager();
+        transactionManager.endTransaction();
+        transactionManager.startTransaction();
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Unlike {@link Lease#newItem(LeaseItemType, Charge, InvoicingFrequency, PaymentMethod, LocalDate)}
+     * does not query for the next sequence, as the lease is new.
+     */
+    private LeaseItem newItem(
+            final Lease lease,
+            final LeaseItemType type,
+            final String chargeReference,
+            final InvoicingFrequency invoicingFrequency) {
+        final LeaseItem leaseItem = getContainer().newTransientInstance(LeaseItem.class);
+        leaseItem.setLease(lease);
+        leaseItem.setType(type);
+        leaseItem.setCharge(chargesByReference.get(chargeReference));
+        leaseItem.setInvoicingFrequency(invoicingFrequency);
+        leaseItem.setPaymentMethod(PaymentMethod.DIRECT_DEBIT);
+        leaseItem.setStartDate(lease.getStartDate());
+        leaseItem.setEndDate(lease.getEndDate());
+        leaseItem.setStatus(LeaseItemStatus.ACTIVE);
+        leaseItem.setSequence(BigInteger.ONE);
+        getContainer().persistIfNotAlready(leaseItem);
+        return leaseItem;
+    }
+
+    /**
+     * Unlike {@link org.estatio.dom.lease.LeaseTerms#newLeaseTerm(LeaseItem, LeaseTerm, LocalDate, LocalDate)}
+     * does not flush and refresh the item for every term.
+     */
+    private LeaseTerm newTerm(
+            final LeaseItem leaseItem,
+            final LeaseTerm previous,
+            final LocalDate startDate,
+            final LocalDate endDate) {
+        final LeaseTerm leaseTerm = leaseItem.getType().create(getContainer());
+        leaseTerm.setLeaseItem(leaseItem);
+        leaseTerm.setStartDate(startDate);
+        leaseTerm.setEndDate(endDate);
+        leaseTerm.setFrequency(LeaseTermFrequency.YEARLY);
+        getContainer().persistIfNotAlready(leaseTerm);
+        if (previous != null) {
+            previous.setNext(leaseTerm);
+            leaseTerm.setPrevious(previous);
+        }
+        return leaseTerm;
+    }
+
+    /**
+     * Quarterly invoices, already invoiced, for the part of the term that
+     * falls within the last {@link #invoiceYears} years.
+     */
+    private void createInvoices(
+            final Lease lease,
+            final Unit unit,
+            final Party seller,
+            final Party buyer,
+            final LeaseTerm rentTerm,
+            final BigDecimal rent,
+            final LeaseTerm serviceChargeTerm,
+            final BigDecimal serviceCharge) {
+        final LocalDate historyStartDate = date.minusYears(invoiceYears);
+        for (LocalDate dueDate = rentTerm.getStartDate(); !dueDate.isAfter(rentTerm.getEndDate()) && dueDate.isBefore(date); dueDate = dueDate.plusMonths(3)) {
+            if (dueDate.isBefore(historyStartDate)) {
+                continue;
+            }
+            final Invoice invoice = getContainer().newTransientInstance(Invoice.class);
+            invoice.setSeller(seller);
+            invoice.setBuyer(buyer);
+            invoice.setLease(lease);
+            invoice.setFixedAsset(unit.getProperty());
+            invoice.setCurrency(currency);
+            invoice.setPaymentMethod(PaymentMethod.DIRECT_DEBIT);
+            invoice.setUuid(java.util.UUID.nameUUIDFromBytes((lease.getReference() + dueDate).getBytes()).toString());
+            invoice.setDueDate(dueDate);
+            invoice.setInvoiceDate(dueDate.minusDays(15));
+            invoice.setInvoiceNumber(String.format("%s-%s", lease.getReference(), dueDate.toString("yyMM")));
+            invoice.setStatus(InvoiceStatus.INVOICED);
+            getContainer().persistIfNotAlready(invoice);
+
+            final LocalDate endDate = dueDate.plusMonths(3).minusDays(1);
+            newInvoiceItem(invoice, lease, unit, rentTerm, rent, dueDate, endDate);
+            newInvoiceItem(invoice, lease, unit, serviceChargeTerm, serviceCharge, dueDate, endDate);
+        }
+    }
+
+    private void newInvoiceItem(
+            final Invoice invoice,
+            final Lease lease,
+            final Unit unit,
+            final LeaseTerm leaseTerm,
+            final BigDecimal yearlyAmount,
+            final LocalDate startDate,
+            final LocalDate endDate) {
+        final Charge charge = leaseTerm.getLeaseItem().getCharge();
+        final BigDecimal netAmount = yearlyAmount.divide(QUARTERS_PER_YEAR, 2, RoundingMode.HALF_UP);
+        final BigDecimal vatAmount = netAmount.multiply(taxPercentage(charge, startDate)).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+
+        final InvoiceItemForLease invoiceItem = getContainer().newTransientInstance(InvoiceItemForLease.class);
+        invoiceItem.setInvoice(invoice);
+        invoiceItem.setSequence(invoice.nextItemSequence());
+        invoiceItem.setLease(lease);
+        invoiceItem.setLeaseTerm(leaseTerm);
+        invoiceItem.setFixedAsset(unit);
+        invoiceItem.setCharge(charge);
+        invoiceItem.setTax(charge.getTax());
+        invoiceItem.setDescription(charge.getDescription());
+        invoiceItem.setQuantity(BigDecimal.ONE);
+        invoiceItem.setNetAmount(netAmount);
+        invoiceItem.setVatAmount(vatAmount);
+        invoiceItem.setGrossAmount(netAmount.add(vatAmount));
+        invoiceItem.setDueDate(startDate);
+        invoiceItem.setStartDate(startDate);
+        invoiceItem.setEndDate(endDate);
+        getContainer().persistIfNotAlready(invoiceItem);
+    }
+
+    private BigDecimal taxPercentage(final Charge charge, final LocalDate date) {
+        if (charge.getTax() == null) {
+            return BigDecimal.ZERO;
+        }
+        final String key = charge.getReference() + "@" + date.getYear();
+        BigDecimal percentage = taxPercentages.get(key);
+        if (percentage == null) {
+            percentage = charge.getTax().percentageFor(date.withDayOfYear(1));
+            if (percentage == null) {
+                percentage = BigDecimal.ZERO;
+            }
+            taxPercentages.put(key, percentage);
+        }
+        return percentage;
+    }
+
+    private static BigDecimal amount(final BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // //////////////////////////////////////
+
+    @Inject
+    private Properties properties;
+
+    @Inject
+    private Organisations organisations;
+
+    @Inject
+    private Countries countries;
+
+    @Inject
+    private Currencies currencies;
+
+    @Inject
+    private Charges charges;
+
+    @Inject
+    private Indices indices;
+
+    @Inject
+    private IndexBases indexBases;
+
+    @Inject
+    private IndexValues indexValues;
+
+    @Inject
+    private Leases leases;
+
+    @Inject
+    private Occupancies occupancies;
+
+}
@@ -26,6 +26,7 @@ import org.estatio.fixture.invoice.InvoiceForLeaseItemTypeOfRentOneQuarterForKal
 import org.estatio.fixture.invoice.InvoiceForLeaseItemTypeOfRentOneQuarterForOxfPoison003;
 import org.estatio.fixture.lease.*;
 import org.estatio.fixture.party.*;
+import org.estatio.integtests.DatabaseSnapshots;
 import org.apache.isis.applib.fixturescripts.FixtureScript;
 import org.apache.isis.core.specsupport.specs.CukeGlueAbstract;
 
@@ -37,7 +38,8 @@ public class CatalogueOfFixturesGlue extends CukeGlueAbstract {
 
     @Before({"@integration", "@EstatioTransactionalObjectsFixture"})
     public void beforeScenarioEstatioTransactionalObjectsFixture() {
-        scenarioExecution().install(
+        DatabaseSnapshots.install(
+                scenarioExecution(),
                 new FixtureScript() {
                     @Override
                     protected void execute(ExecutionContext executionContext) {
@@ -85,7 +87,8 @@ public class CatalogueOfFixturesGlue extends CukeGlueAbstract {
     
     @Before({"@integration", "@LeasesOnlyFixture"})
     public void beforeScenarioLeasesOnlyFixture() {
-        scenarioExecution().install(
+        DatabaseSnapshots.install(
+                scenarioExecution(),
                 new FixtureScript() {
                     @Override
                     protected void execute(ExecutionContext executionContext) {
@@ -0,0 +1,289 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.integtests;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import javax.jdo.PersistenceManager;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.isis.applib.fixturescripts.FixtureScript;
+import org.apache.isis.core.commons.config.IsisConfiguration;
+import org.apache.isis.core.integtestsupport.IsisSystemForTest;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.runtime.system.transaction.IsisTransaction;
+import org.apache.isis.core.runtime.system.transaction.IsisTransactionManager;
+import org.apache.isis.core.specsupport.scenarios.ScenarioExecution;
+import org.apache.isis.objectstore.jdo.applib.service.support.IsisJdoSupport;
+
+import org.estatio.app.DashboardSnapshotService;
+import org.estatio.dom.event.EventCache;
+import org.estatio.services.refdata.ReferenceDataCache;
+import org.estatio.services.search.SearchIndexService;
+import org.estatio.services.settings.SettingsCache;
+
+/**
+ * Installs fixture scripts once per run and restores a snapshot of the
+ * in-memory HSQLDB database on subsequent installs, instead of running the
+ * scripts again.
+ *
+ * <p>
+ * Enabled with <tt>-Destatio.integtests.snapshots=true</tt>, and only for an
+ * in-memory HSQLDB database. Each snapshot is a copy of all tables into a
+ * schema of its own; restoring truncates the tables and copies the rows back.
+ * Identity columns and sequences are not reset, so ids handed out by
+ * DataNucleus never clash with those of restored rows.
+ * </p>
+ *
+ * <p>
+ * Snapshots are keyed by the classes of the fixture scripts installed. This
+ * assumes that the scripts start from the baseline (as
+ * {@link org.estatio.fixture.EstatioBaseLineFixture} tears down all
+ * operational data), which is the case for all of our tests.
+ * </p>
+ */
+public final class DatabaseSnapshots {
+
+    public static final String ENABLED_PROPERTY = "estatio.integtests.snapshots";
+
+    private static final Logger LOG = LoggerFactory.getLogger(DatabaseSnapshots.class);
+
+    private static final String CONFIG_PREFIX = "isis.persistor.datanucleus.impl.javax.jdo.option.";
+    private static final String SCHEMA = "PUBLIC";
+    private static final String SNAPSHOT_SCHEMA_PREFIX = "SNAPSHOT_";
+
+    private static DatabaseSnapshots instance;
+
+    private final String url;
+    private final String userName;
+    private final String password;
+    private final Map<String, String> schemaByKey = Maps.newHashMap();
+
+    private DatabaseSnapshots(final String url, final String userName, final String password) {
+        this.url = url;
+        this.userName = userName;
+        this.password = password;
+    }
+
+    /**
+     * Installs the fixture scripts, or restores the snapshot taken the last
+     * time the same scripts were installed.
+     */
+    public static void install(final ScenarioExecution scenarioExecution, final FixtureScript... fixtureScripts) {
+        final DatabaseSnapshots snapshots = get();
+        if (snapshots == null) {
+            scenarioExecution.install(fixtureScripts);
+            return;
+        }
+        final String key = keyFor(fixtureScripts);
+        if (snapshots.restore(key)) {
+            return;
+        }
+        scenarioExecution.install(fixtureScripts);
+        snapshots.take(key);
+    }
+
+    /**
+     * The snapshots for the running system, or <tt>null</tt> if not enabled
+     * or not supported by the database.
+     */
+    public static synchronized DatabaseSnapshots get() {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+            return null;
+        }
+        if (instance == null) {
+            final IsisConfiguration configuration = IsisContext.getConfiguration();
+            final String url = configuration.getString(CONFIG_PREFIX + "ConnectionURL");
+            if (url == null || !url.contains(":hsqldb:mem:")) {
+                LOG.warn("Database snapshots are only supported for an in-memory HSQLDB database, not {}", url);
+                return null;
+            }
+            instance = new DatabaseSnapshots(
+                    url,
+                    configuration.getString(CONFIG_PREFIX + "ConnectionUserName", "sa"),
+                    configuration.getString(CONFIG_PREFIX + "ConnectionPassword", ""));
+        }
+        return instance;
+    }
+
+    static String keyFor(final FixtureScript... fixtureScripts) {
+        final StringBuilder buf = new StringBuilder();
+        for (FixtureScript fixtureScript : fixtureScripts) {
+            buf.append(fixtureScript.getClass().getName()).append(';');
+        }
+        return buf.toString();
+    }
+
+    // //////////////////////////////////////
+
+    public synchronized void take(final String key) {
+        final String snapshotSchema = SNAPSHOT_SCHEMA_PREFIX + (schemaByKey.size() + 1);
+        new WithoutTransaction() {
+            @Override
+            void execute(final Statement statement) throws SQLException {
+                statement.execute("CREATE SCHEMA " + snapshotSchema);
+                for (String table : tablesIn(statement, SCHEMA)) {
+                    statement.execute(String.format(
+                            "CREATE TABLE %s.\"%s\" AS (SELECT * FROM %s.\"%s\") WITH DATA",
+                            snapshotSchema, table, SCHEMA, table));
+                }
+            }
+        }.run();
+        schemaByKey.put(key, snapshotSchema);
+        LOG.info("Took database snapshot {}", snapshotSchema);
+    }
+
+    /**
+     * Returns <tt>false</tt> if there is no snapshot for the key.
+     */
+    public synchronized boolean restore(final String key) {
+        final String snapshotSchema = schemaByKey.get(key);
+        if (snapshotSchema == null) {
+            return false;
+        }
+        new WithoutTransaction() {
+            @Override
+            void execute(final Statement statement) throws SQLException {
+                statement.execute("TRUNCATE SCHEMA " + SCHEMA + " AND COMMIT NO CHECK");
+                statement.execute("SET DATABASE REFERENTIAL INTEGRITY FALSE");
+                try {
+                    for (String table : tablesIn(statement, snapshotSchema)) {
+                        statement.execute(String.format(
+                                "INSERT INTO %s.\"%s\" SELECT * FROM %s.\"%s\"",
+                                SCHEMA, table, snapshotSchema, table));
+                    }
+                } finally {
+                    statement.execute("SET DATABASE REFERENTIAL INTEGRITY TRUE");
+                }
+            }
+
+            @Override
+            void afterCommit() {
+                evictCaches();
+            }
+        }.run();
+        LOG.info("Restored database snapshot {}", snapshotSchema);
+        return true;
+    }
+
+    private static List<String> tablesIn(final Statement statement, final String schema) throws SQLException {
+        final List<String> tables = Lists.newArrayList();
+        final ResultSet rs = statement.executeQuery(String.format(
+                "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = '%s' AND TABLE_TYPE = 'BASE TABLE'", schema));
+        try {
+            while (rs.next()) {
+                tables.add(rs.getString(1));
+            }
+        } finally {
+            rs.close();
+        }
+        return tables;
+    }
+
+    /**
+     * The restored rows replace whatever DataNucleus and our own services
+     * have cached.
+     */
+    private static void evictCaches() {
+        final IsisSystemForTest isft = IsisSystemForTest.get();
+        final PersistenceManager persistenceManager = isft.getService(IsisJdoSupport.class).getJdoPersistenceManager();
+        persistenceManager.evictAll();
+        persistenceManager.getPersistenceManagerFactory().getDataStoreCache().evictAll();
+
+        final ReferenceDataCache referenceDataCache = isft.getService(ReferenceDataCache.class);
+        if (referenceDataCache != null) {
+            referenceDataCache.invalidateAll();
+        }
+        final SettingsCache settingsCache = isft.getService(SettingsCache.class);
+        if (settingsCache != null) {
+            settingsCache.invalidate();
+        }
+        final EventCache eventCache = isft.getService(EventCache.class);
+        if (eventCache != null) {
+            eventCache.invalidateAll();
+        }
+        final SearchIndexService searchIndexService = isft.getService(SearchIndexService.class);
+        if (searchIndexService != null) {
+            searchIndexService.invalidateAll();
+        }
+        final DashboardSnapshotService dashboardSnapshotService = isft.getService(DashboardSnapshotService.class);
+        if (dashboardSnapshotService != null) {
+            dashboardSnapshotService.leasesChanged();
+            dashboardSnapshotService.invoicesChanged();
+        }
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Runs on a connection of its own, outside of (and so not blocked by) the
+     * current Isis transaction, if any; that transaction is committed first
+     * and a new one started afterwards.
+     */
+    private abstract class WithoutTransaction {
+
+        abstract void execute(Statement statement) throws SQLException;
+
+        void afterCommit() {
+        }
+
+        void run() {
+            final IsisTransactionManager transactionManager = IsisContext.getTransactionManager();
+            final IsisTransaction transaction = transactionManager.getTransaction();
+            final boolean inTransaction = transaction != null && !transaction.getState().isComplete();
+            if (inTransaction) {
+                transactionManager.endTransaction();
+            }
+            try {
+                final Connection connection = DriverManager.getConnection(url, userName, password);
+                try {
+                    connection.setAutoCommit(false);
+                    final Statement statement = connection.createStatement();
+                    try {
+                        execute(statement);
+                    } finally {
+                        statement.close();
+                    }
+                    connection.commit();
+                } finally {
+                    connection.close();
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not take or restore database snapshot", e);
+            } finally {
+                if (inTransaction) {
+                    transactionManager.startTransaction();
+                }
+            }
+            afterCommit();
+        }
+    }
+
+}
@@ -16,7 +16,10 @@
  */
 package org.estatio.integtests;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+
 import org.apache.log4j.Level;
 import org.isisaddons.module.excel.dom.ExcelService;
 import org.apache.isis.applib.annotation.DomainService;
@@ -27,15 +30,28 @@ import org.apache.isis.objectstore.jdo.applib.service.exceprecog.ExceptionRecogn
 import org.apache.isis.objectstore.jdo.datanucleus.DataNucleusPersistenceMechanismInstaller;
 import org.apache.isis.objectstore.jdo.datanucleus.IsisConfigurationForJdoIntegTests;
 
+import org.estatio.integtests.performance.StatementCountingDriver;
+
 public class EstatioIntegTestBuilder extends IsisSystemForTest.Builder {
 
+    private static final String CONNECTION_DRIVER_NAME = "isis.persistor.datanucleus.impl.javax.jdo.option.ConnectionDriverName";
+    private static final String CONNECTION_URL = "isis.persistor.datanucleus.impl.javax.jdo.option.ConnectionURL";
+
     public EstatioIntegTestBuilder() {
+        this(Collections.<String, String> emptyMap());
+    }
+
+    /**
+     * @param configurationOverrides - applied on top of the test configuration, eg to boot using the fast startup
+     *            profile (see <tt>StartupBenchmark</tt>).
+     */
+    public EstatioIntegTestBuilder(final Map<String, String> configurationOverrides) {
 
         // no need to add, because each test will set up its own test fixtures
         // anyway.
         // withFixtures(new EstatioBaseLineFixture());
         withLoggingAt(Level.INFO);
-        with(testConfiguration());
+        with(testConfiguration(configurationOverrides));
         with(new DataNucleusPersistenceMechanismInstaller());
 
         withServicesIn(
@@ -55,10 +71,20 @@ public class EstatioIntegTestBuilder extends IsisSystemForTest.Builder {
                 new ExceptionRecognizerCompositeForJdoObjectStore());
     }
 
-    private static IsisConfiguration testConfiguration() {
+    private static IsisConfiguration testConfiguration(final Map<String, String> configurationOverrides) {
         final IsisConfigurationForJdoIntegTests testConfiguration = new IsisConfigurationForJdoIntegTests();
         testConfiguration.addRegisterEntitiesPackagePrefix("org.estatio");
 
+        for (final Map.Entry<String, String> entry : configurationOverrides.entrySet()) {
+            testConfiguration.put(entry.getKey(), entry.getValue());
+        }
+
+        // if enabled, count the statements executed, see EstatioIntegrationTest#measure
+        if (StatementCountingDriver.isEnabled()) {
+            testConfiguration.put(CONNECTION_DRIVER_NAME, StatementCountingDriver.class.getName());
+            testConfiguration.put(CONNECTION_URL, StatementCountingDriver.wrap(testConfiguration.getString(CONNECTION_URL, "jdbc:hsqldb:mem:test")));
+        }
+
         // uncomment to use log4jdbc instead
         // testConfiguration.put("isis.persistor.datanucleus.impl.javax.jdo.option.ConnectionDriverName",
         // "net.sf.log4jdbc.DriverSpy");
@@ -32,6 +32,10 @@ import org.apache.isis.applib.fixturescripts.FixtureScript;
 import org.apache.isis.core.integtestsupport.IntegrationTestAbstract;
 import org.apache.isis.core.integtestsupport.scenarios.ScenarioExecutionForIntegration;
 
+import org.estatio.integtests.performance.Measurement;
+import org.estatio.integtests.performance.PerformanceResults;
+import org.estatio.integtests.performance.StatementCountingDriver;
+
 /**
  * Base class for integration tests.
  */
@@ -66,8 +70,38 @@ public abstract class EstatioIntegrationTest extends IntegrationTestAbstract {
 
     // //////////////////////////////////////
 
+    /**
+     * Installs the fixture scripts, or restores a {@link DatabaseSnapshots snapshot}
+     * of the database taken when they were last installed.
+     */
     protected static void runScript(FixtureScript... fixtureScripts) {
-        scenarioExecution().install(fixtureScripts);
+        DatabaseSnapshots.install(scenarioExecution(), fixtureScripts);
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Runs the scenario in a transaction of its own and measures the number of
+     * JDBC statements executed (including the flush on commit) and the wall
+     * time taken. Statements are only counted if the
+     * {@link StatementCountingDriver} is {@link StatementCountingDriver#isEnabled() enabled}.
+     *
+     * <p>
+     * The result is also {@link PerformanceResults#record(Measurement) recorded}.
+     * </p>
+     */
+    protected Measurement measure(final String scenario, final Runnable runnable) {
+        nextTransaction();
+        final long statementsBefore = StatementCountingDriver.getStatementCount();
+        final long start = System.nanoTime();
+        runnable.run();
+        nextTransaction();
+        final Measurement measurement = new Measurement(
+                scenario,
+                StatementCountingDriver.getStatementCount() - statementsBefore,
+                (System.nanoTime() - start) / 1000000);
+        PerformanceResults.record(measurement);
+        return measurement;
     }
 
     // //////////////////////////////////////
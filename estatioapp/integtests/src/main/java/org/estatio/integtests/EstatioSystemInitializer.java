@@ -22,6 +22,12 @@ import org.apache.isis.core.integtestsupport.IsisSystemForTest;
  * Holds an instance of an {@link IsisSystemForTest} as a {@link ThreadLocal} on
  * the current thread, initialized with Estatio's domain services and with
  * {@link org.estatio.fixture.EstatioBaseLineFixture reference data fixture}.
+ *
+ * <p>
+ * The system (and so the schema) is built once per thread; run with
+ * <tt>-Destatio.integtests.snapshots=true</tt> to also install each set of
+ * fixtures only once, see {@link DatabaseSnapshots}.
+ * </p>
  */
 public class EstatioSystemInitializer {
 
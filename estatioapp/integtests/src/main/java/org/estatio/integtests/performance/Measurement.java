@@ -0,0 +1,77 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.integtests.performance;
+
+/**
+ * The number of JDBC statements executed and the wall time taken by a
+ * scenario, as measured by
+ * {@link org.estatio.integtests.EstatioIntegrationTest#measure(String, Runnable)}.
+ */
+public class Measurement {
+
+    private final String scenario;
+    private final long statements;
+    private final long elapsedMillis;
+
+    public Measurement(final String scenario, final long statements, final long elapsedMillis) {
+        this.scenario = scenario;
+        this.statements = statements;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    // //////////////////////////////////////
+
+    public Measurement assertStatementsAtMost(final long maxStatements) {
+        if (statements > maxStatements) {
+            throw new AssertionError(String.format(
+                    "Scenario '%s' executed %d statements, expected at most %d", scenario, statements, maxStatements));
+        }
+        return this;
+    }
+
+    /**
+     * Wall time depends on the machine, so keep these bounds generous; they
+     * are intended to catch order-of-magnitude regressions only.
+     */
+    public Measurement assertElapsedMillisAtMost(final long maxElapsedMillis) {
+        if (elapsedMillis > maxElapsedMillis) {
+            throw new AssertionError(String.format(
+                    "Scenario '%s' took %dms, expected at most %dms", scenario, elapsedMillis, maxElapsedMillis));
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d statements, %dms", scenario, statements, elapsedMillis);
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.integtests.performance;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes every {@link Measurement} to a CSV file, so that the results of two
+ * commits can be compared with a plain diff.
+ *
+ * <p>
+ * The file defaults to <tt>target/performance-results.csv</tt> and can be
+ * changed using the <tt>estatio.performance.results</tt> system property. It
+ * is overwritten by the first measurement of each run.
+ * </p>
+ */
+public final class PerformanceResults {
+
+    public static final String RESULTS_FILE_PROPERTY = "estatio.performance.results";
+
+    private static final Logger LOG = LoggerFactory.getLogger(PerformanceResults.class);
+
+    private static boolean started;
+
+    private PerformanceResults() {
+    }
+
+    public static synchronized void record(final Measurement measurement) {
+        LOG.info(measurement.toString());
+        final File file = new File(System.getProperty(RESULTS_FILE_PROPERTY, "target/performance-results.csv"));
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        PrintWriter writer = null;
+        try {
+            writer = new PrintWriter(new FileWriter(file, started));
+            if (!started) {
+                writer.println("scenario,statements,elapsedMillis");
+                started = true;
+            }
+            writer.println(String.format("%s,%d,%d", measurement.getScenario(), measurement.getStatements(), measurement.getElapsedMillis()));
+        } catch (IOException e) {
+            LOG.warn("Could not write performance results to " + file, e);
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+}
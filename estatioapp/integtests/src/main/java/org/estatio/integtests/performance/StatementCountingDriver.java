@@ -0,0 +1,205 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.integtests.performance;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A JDBC {@link Driver} that wraps the connections of another driver and
+ * counts the statements executed through them.
+ *
+ * <p>
+ * Like log4jdbc, it is enabled by prefixing the connection URL, eg
+ * <tt>jdbc:counting:hsqldb:mem:test</tt> delegates to
+ * <tt>jdbc:hsqldb:mem:test</tt>. A driver (rather than a
+ * {@link javax.sql.DataSource}) is used because DataNucleus is configured
+ * through Isis' string-based configuration only.
+ * </p>
+ *
+ * <p>
+ * Each call to one of the <tt>execute</tt> methods counts as one statement,
+ * so a JDBC batch counts once.
+ * </p>
+ *
+ * <p>
+ * The integration tests only use it when run with
+ * <tt>-Destatio.integtests.countStatements=true</tt>, see
+ * {@link org.estatio.integtests.EstatioIntegTestBuilder}; the surefire
+ * configuration of this module sets it, unless overridden with
+ * <tt>-Destatio.integtests.countStatements=false</tt>.
+ * </p>
+ */
+public class StatementCountingDriver implements Driver {
+
+    public static final String ENABLED_PROPERTY = "estatio.integtests.countStatements";
+
+    public static final String URL_PREFIX = "jdbc:counting:";
+
+    private static final AtomicLong STATEMENTS = new AtomicLong();
+
+    static {
+        try {
+            DriverManager.registerDriver(new StatementCountingDriver());
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * The number of statements executed since the class was loaded.
+     */
+    public static long getStatementCount() {
+        return STATEMENTS.get();
+    }
+
+    /**
+     * Returns the counting equivalent of the supplied URL.
+     */
+    public static String wrap(final String url) {
+        if (url.startsWith(URL_PREFIX)) {
+            return url;
+        }
+        return URL_PREFIX + url.substring("jdbc:".length());
+    }
+
+    private static String unwrap(final String url) {
+        return "jdbc:" + url.substring(URL_PREFIX.length());
+    }
+
+    // //////////////////////////////////////
+
+    @Override
+    public boolean acceptsURL(final String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    @Override
+    public Connection connect(final String url, final Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        final Connection connection = DriverManager.getConnection(unwrap(url), info);
+        return (Connection) newProxy(Connection.class, new Delegate(connection) {
+            @Override
+            protected Object afterInvoke(final Method method, final Object result) {
+                if (result instanceof Statement) {
+                    return newProxy(method.getReturnType(), new CountingStatement(result));
+                }
+                return result;
+            }
+        });
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(final String url, final Properties info) throws SQLException {
+        return DriverManager.getDriver(unwrap(url)).getPropertyInfo(unwrap(url), info);
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    // //////////////////////////////////////
+
+    private static Object newProxy(final Class<?> type, final InvocationHandler handler) {
+        return Proxy.newProxyInstance(StatementCountingDriver.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static class Delegate implements InvocationHandler {
+
+        private final Object delegate;
+
+        Delegate(final Object delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                // a proxy is only ever equal to itself, not to the object it wraps (nor to other proxies of it)
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+            }
+            beforeInvoke(method);
+            try {
+                return afterInvoke(method, method.invoke(delegate, args));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        protected void beforeInvoke(final Method method) {
+        }
+
+        protected Object afterInvoke(final Method method, final Object result) {
+            return result;
+        }
+    }
+
+    private static class CountingStatement extends Delegate {
+
+        CountingStatement(final Object delegate) {
+            super(delegate);
+        }
+
+        @Override
+        protected void beforeInvoke(final Method method) {
+            if (method.getName().startsWith("execute")) {
+                STATEMENTS.incrementAndGet();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.integtests.app;
+
+import java.math.BigDecimal;
+import java.util.List;
+import javax.inject.Inject;
+import com.google.common.collect.Lists;
+import org.isisaddons.module.excel.dom.ExcelService;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.apache.isis.applib.DomainObjectContainer;
+import org.apache.isis.applib.fixturescripts.FixtureScript;
+import org.apache.isis.applib.value.Blob;
+import org.estatio.app.lease.budgetaudit.LeaseTermForServiceChargeBudgetAuditLineItem;
+import org.estatio.app.lease.budgetaudit.LeaseTermForServiceChargeBudgetAuditManager;
+import org.estatio.dom.asset.Properties;
+import org.estatio.dom.asset.Property;
+import org.estatio.dom.lease.LeaseItemType;
+import org.estatio.dom.lease.LeaseTerm;
+import org.estatio.dom.lease.LeaseTermForServiceCharge;
+import org.estatio.dom.lease.LeaseTerms;
+import org.estatio.fixture.EstatioBaseLineFixture;
+import org.estatio.fixture.asset.PropertyForOxf;
+import org.estatio.fixture.lease.LeaseItemAndTermsForOxfMediax002;
+import org.estatio.fixture.lease.LeaseItemAndTermsForOxfTopModel001;
+import org.estatio.integtests.EstatioIntegrationTest;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class LeaseTermForServiceChargeBudgetAuditManagerTest extends EstatioIntegrationTest {
+
+    @Before
+    public void setupData() {
+        runScript(new FixtureScript() {
+            @Override
+            protected void execute(ExecutionContext executionContext) {
+                executionContext.executeChild(this, new EstatioBaseLineFixture());
+
+                executionContext.executeChild(this, new LeaseItemAndTermsForOxfTopModel001());
+                executionContext.executeChild(this, new LeaseItemAndTermsForOxfMediax002());
+            }
+        });
+        property = properties.findPropertyByReference(PropertyForOxf.PROPERTY_REFERENCE);
+        startDates = leaseTerms.findServiceChargeDatesByProperty(property);
+        assertThat(startDates.isEmpty(), is(false));
+    }
+
+    @Inject
+    private Properties properties;
+    @Inject
+    private LeaseTerms leaseTerms;
+    @Inject
+    private ExcelService excelService;
+    @Inject
+    private DomainObjectContainer container;
+
+    private Property property;
+    private List<LocalDate> startDates;
+
+    public static class FindByPropertyAndTypeAndStartDateInPages extends LeaseTermForServiceChargeBudgetAuditManagerTest {
+
+        @Test
+        public void sameTermsAsUnpaged() throws Exception {
+            for (final LocalDate startDate : startDates) {
+                final List<LeaseTerm> expected = leaseTerms.findByPropertyAndTypeAndStartDate(property, LeaseItemType.SERVICE_CHARGE, startDate);
+
+                // a page at a time
+                final List<LeaseTerm> paged = Lists.newArrayList(
+                        leaseTerms.findByPropertyAndTypeAndStartDateInPages(property, LeaseItemType.SERVICE_CHARGE, startDate, 1));
+
+                assertThat(paged.size(), is(expected.size()));
+                assertThat(paged.containsAll(expected), is(true));
+            }
+        }
+    }
+
+    public static class Download extends LeaseTermForServiceChargeBudgetAuditManagerTest {
+
+        @Test
+        public void readsBackIn() throws Exception {
+            for (final LocalDate startDate : startDates) {
+                // given
+                final LeaseTermForServiceChargeBudgetAuditManager manager = container.injectServicesInto(new LeaseTermForServiceChargeBudgetAuditManager());
+                manager.setProperty(property);
+                manager.setStartDate(startDate);
+                final List<LeaseTermForServiceCharge> terms = leaseTerms.findServiceChargeByPropertyAndStartDate(property, startDate);
+
+                // when
+                final Blob spreadsheet = manager.download();
+                final List<LeaseTermForServiceChargeBudgetAuditLineItem> lineItems =
+                        excelService.fromExcel(spreadsheet, LeaseTermForServiceChargeBudgetAuditLineItem.class);
+
+                // then
+                assertThat(lineItems.size(), is(terms.size()));
+                for (final LeaseTermForServiceChargeBudgetAuditLineItem lineItem : lineItems) {
+                    final LeaseTermForServiceCharge leaseTerm = lineItem.getLeaseTerm();
+                    assertThat(terms.contains(leaseTerm), is(true));
+                    assertSameValue(lineItem.getBudgetedValue(), leaseTerm.getBudgetedValue());
+                    assertSameValue(lineItem.getAuditedValue(), leaseTerm.getAuditedValue());
+                }
+            }
+        }
+
+        // the scale is not preserved by the spreadsheet
+        private static void assertSameValue(final BigDecimal actual, final BigDecimal expected) {
+            if (expected == null) {
+                assertThat(actual, is(nullValue()));
+            } else {
+                assertThat(actual.compareTo(expected), is(0));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.integtests.fixturescripts;
+
+import java.util.List;
+import java.util.Set;
+import javax.inject.Inject;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Assume;
+import org.junit.Test;
+import org.estatio.dom.asset.Properties;
+import org.estatio.dom.invoice.Invoice;
+import org.estatio.dom.invoice.InvoiceItem;
+import org.estatio.dom.invoice.Invoices;
+import org.estatio.dom.lease.Lease;
+import org.estatio.dom.lease.LeaseItem;
+import org.estatio.dom.lease.LeaseTerm;
+import org.estatio.dom.lease.LeaseTermForIndexable;
+import org.estatio.dom.lease.LeaseTermForServiceCharge;
+import org.estatio.dom.lease.Leases;
+import org.estatio.dom.lease.Occupancy;
+import org.estatio.dom.lease.breaks.BreakOption;
+import org.estatio.fixturescripts.CreateSyntheticPortfolio;
+import org.estatio.integtests.EstatioIntegrationTest;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class CreateSyntheticPortfolioTest extends EstatioIntegrationTest {
+
+    @Inject
+    Properties properties;
+
+    @Inject
+    Leases leases;
+
+    @Inject
+    Invoices invoices;
+
+    private static CreateSyntheticPortfolio tinyPortfolio(final long seed) {
+        return new CreateSyntheticPortfolio(2, 2, 2, seed).withInvoiceYears(1).withBatchSize(3);
+    }
+
+    /**
+     * Installed directly rather than using {@link #runScript(org.apache.isis.applib.fixturescripts.FixtureScript...)},
+     * which may restore a snapshot instead.
+     */
+    List<String> install(final CreateSyntheticPortfolio portfolio) {
+        scenarioExecution().install(portfolio);
+        nextTransaction();
+        return describe("ZAA", "ZAB");
+    }
+
+    /**
+     * Everything that is generated, other than the ids assigned by the database.
+     */
+    List<String> describe(final String... propertyReferences) {
+        final List<String> lines = Lists.newArrayList();
+        for (final String propertyReference : propertyReferences) {
+            for (final Lease lease : leases.findLeasesByProperty(properties.findPropertyByReference(propertyReference))) {
+                lines.add(lease.getReference() + " " + lease.getStartDate() + " " + lease.getEndDate());
+                for (final Occupancy occupancy : lease.getOccupancies()) {
+                    lines.add("  " + occupancy.getUnit().getReference() + " " + occupancy.getUnit().getArea() + " " + occupancy.getEndDate());
+                }
+                for (final BreakOption breakOption : lease.getBreakOptions()) {
+                    lines.add("  " + breakOption.getBreakDate() + " " + breakOption.getExerciseDate());
+                }
+                for (final LeaseItem leaseItem : lease.getItems()) {
+                    lines.add("  " + leaseItem.getType());
+                    for (final LeaseTerm leaseTerm : leaseItem.getTerms()) {
+                        lines.add("    " + leaseTerm.getStartDate() + " " + leaseTerm.getEndDate() + " " + valueOf(leaseTerm));
+                    }
+                }
+                for (final Invoice invoice : invoices.findInvoices(lease)) {
+                    lines.add("  " + invoice.getInvoiceNumber() + " " + invoice.getDueDate());
+                    for (final InvoiceItem invoiceItem : invoice.getItems()) {
+                        lines.add("    " + invoiceItem.getNetAmount() + " " + invoiceItem.getVatAmount());
+                    }
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * The number of leases of the first <i>numberOfProperties</i> synthetic properties.
+     */
+    int countLeases(final int numberOfProperties) {
+        final Set<String> references = Sets.newHashSet();
+        for (int i = 0; i < numberOfProperties; i++) {
+            final String propertyReference = "Z" + (char) ('A' + i / 26) + (char) ('A' + i % 26);
+            for (final Lease lease : leases.findLeasesByProperty(properties.findPropertyByReference(propertyReference))) {
+                references.add(lease.getReference());
+            }
+        }
+        return references.size();
+    }
+
+    private static Object valueOf(final LeaseTerm leaseTerm) {
+        if (leaseTerm instanceof LeaseTermForIndexable) {
+            final LeaseTermForIndexable indexable = (LeaseTermForIndexable) leaseTerm;
+            return indexable.getBaseValue() + " " + indexable.getIndex().getReference();
+        }
+        if (leaseTerm instanceof LeaseTermForServiceCharge) {
+            return ((LeaseTermForServiceCharge) leaseTerm).getBudgetedValue();
+        }
+        return "";
+    }
+
+    public static class Execute extends CreateSyntheticPortfolioTest {
+
+        @Test
+        public void samePortfolioEachTime() throws Exception {
+            final List<String> first = install(tinyPortfolio(1L));
+            final List<String> second = install(tinyPortfolio(1L));
+
+            assertThat(first.isEmpty(), is(false));
+            assertThat(second, is(first));
+        }
+
+        @Test
+        public void otherPortfolioForOtherSeed() throws Exception {
+            final List<String> first = install(tinyPortfolio(1L));
+            final List<String> second = install(tinyPortfolio(2L));
+
+            assertThat(second, is(not(first)));
+        }
+    }
+
+    public static class Scale extends CreateSyntheticPortfolioTest {
+
+        /**
+         * Eg <tt>-Destatio.integtests.syntheticPortfolio=50x100x2</tt> for the 10,000 leases of 50 properties
+         * of 100 units let twice.
+         */
+        public static final String SYNTHETIC_PORTFOLIO_PROPERTY = "estatio.integtests.syntheticPortfolio";
+
+        @Test
+        public void leasesForEachUnitOfEachPropertyAcrossBatches() throws Exception {
+            // 3 x 4 x 2 = 24 leases, committed in batches of 5
+            scenarioExecution().install(new CreateSyntheticPortfolio(3, 4, 2, 1L).withInvoiceYears(1).withBatchSize(5));
+            nextTransaction();
+
+            assertThat(countLeases(3), is(24));
+        }
+
+        @Test
+        public void leasesForEachUnitOfEachPropertyAsConfigured() throws Exception {
+            final String size = System.getProperty(SYNTHETIC_PORTFOLIO_PROPERTY);
+            Assume.assumeNotNull(size);
+            final List<String> factors = Lists.newArrayList(Splitter.on('x').trimResults().split(size));
+            final int numberOfProperties = Integer.parseInt(factors.get(0));
+            final int unitsPerProperty = Integer.parseInt(factors.get(1));
+            final int leasesPerUnit = Integer.parseInt(factors.get(2));
+
+            scenarioExecution().install(new CreateSyntheticPortfolio(numberOfProperties, unitsPerProperty, leasesPerUnit, 1L));
+            nextTransaction();
+
+            assertThat(countLeases(numberOfProperties), is(numberOfProperties * unitsPerProperty * leasesPerUnit));
+        }
+    }
+}
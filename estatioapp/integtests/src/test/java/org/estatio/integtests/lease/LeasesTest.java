@@ -20,6 +20,8 @@ package org.estatio.integtests.lease;
 
 import java.util.List;
 import javax.inject.Inject;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.joda.time.LocalDate;
 import org.junit.Assert;
 import org.junit.Before;
@@ -128,6 +130,64 @@ public class LeasesTest extends EstatioIntegrationTest {
     }
 
 
+    public static class AllLeasesInPages extends LeasesTest {
+
+        @Before
+        public void setupData() {
+            runScript(new FixtureScript() {
+                @Override
+                protected void execute(ExecutionContext executionContext) {
+                    executionContext.executeChild(this, new EstatioBaseLineFixture());
+
+                    executionContext.executeChild(this, new LeaseForOxfTopModel001());
+                    executionContext.executeChild(this, new LeaseForOxfMediaX002());
+                    executionContext.executeChild(this, new LeaseForOxfPoison003());
+                    executionContext.executeChild(this, new LeaseForKalPoison001());
+                    executionContext.executeChild(this, new LeaseForOxfPret004());
+                    executionContext.executeChild(this, new LeaseForOxfMiracl005());
+                }
+            });
+        }
+
+        @Test
+        public void walksAllPages() {
+            // given
+            final List<Lease> allLeases = leases.allLeases();
+            assertThat(allLeases.size(), is(6));
+            final int[] pages = new int[1];
+
+            // when
+            final List<String> references = Lists.newArrayList();
+            for (final Lease lease : leases.allLeasesInPages(4, new Runnable() {
+                @Override
+                public void run() {
+                    pages[0]++;
+                }
+            })) {
+                references.add(lease.getReference());
+            }
+
+            // then each lease once, in two pages (of 4 and of 2)
+            assertThat(references.size(), is(6));
+            assertThat(Sets.newHashSet(references).size(), is(6));
+            for (final Lease lease : allLeases) {
+                assertThat(references.contains(lease.getReference()), is(true));
+            }
+            assertThat(pages[0], is(2));
+        }
+
+        @Test
+        public void whenPageSizeDividesCount() {
+            final List<String> references = Lists.newArrayList();
+            for (final Lease lease : leases.allLeasesInPages(3, null)) {
+                references.add(lease.getReference());
+            }
+            assertThat(references.size(), is(6));
+            assertThat(Sets.newHashSet(references).size(), is(6));
+        }
+
+    }
+
     public static class FindLeasesByProperty extends LeasesTest {
 
         @Before
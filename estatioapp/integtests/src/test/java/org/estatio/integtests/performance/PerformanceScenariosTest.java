@@ -0,0 +1,216 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.integtests.performance;
+
+import java.math.BigInteger;
+
+import javax.inject.Inject;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import org.apache.isis.applib.DomainObjectContainer;
+import org.apache.isis.applib.fixturescripts.FixtureScript;
+
+import org.estatio.app.DashboardSnapshotService;
+import org.estatio.app.EstatioAppDashboard;
+import org.estatio.dom.asset.Properties;
+import org.estatio.dom.asset.Property;
+import org.estatio.dom.invoice.CollectionNumerators;
+import org.estatio.dom.invoice.Invoice;
+import org.estatio.dom.invoice.InvoiceStatus;
+import org.estatio.dom.invoice.Invoices;
+import org.estatio.dom.lease.Lease;
+import org.estatio.dom.lease.Leases;
+import org.estatio.dom.lease.invoicing.InvoiceCalculationSelection;
+import org.estatio.dom.lease.invoicing.InvoiceRunType;
+import org.estatio.dom.lease.invoicing.InvoiceService;
+import org.estatio.fixture.EstatioBaseLineFixture;
+import org.estatio.fixture.asset.PropertyForOxf;
+import org.estatio.fixture.lease.LeaseBreakOptionsForOxfMediax002;
+import org.estatio.fixture.lease.LeaseBreakOptionsForOxfPoison003;
+import org.estatio.fixture.lease.LeaseBreakOptionsForOxfTopModel001;
+import org.estatio.fixture.lease.LeaseForOxfMiracl005;
+import org.estatio.fixture.lease.LeaseItemAndTermsForOxfMiracl005;
+import org.estatio.integtests.EstatioIntegrationTest;
+import org.estatio.integtests.VT;
+
+/**
+ * Guards the number of statements (and, loosely, the time) taken by the key
+ * scenarios, see {@link EstatioIntegrationTest#measure(String, Runnable)}.
+ *
+ * <p>
+ * The bounds leave some headroom over the current figures; tighten them
+ * (using <tt>target/performance-results.csv</tt>) when a scenario is
+ * optimized.
+ * </p>
+ *
+ * <p>
+ * Statements are counted when run by Maven, as the surefire configuration
+ * sets <tt>-Destatio.integtests.countStatements=true</tt>; skipped when run
+ * without it, eg from the IDE.
+ * </p>
+ */
+public class PerformanceScenariosTest extends EstatioIntegrationTest {
+
+    private static final long MAX_ELAPSED_MILLIS = 30000;
+
+    @FixMethodOrder(MethodSorters.NAME_ASCENDING)
+    public static class Scenarios extends PerformanceScenariosTest {
+
+        @BeforeClass
+        public static void setupTransactionalData() {
+            Assume.assumeTrue(StatementCountingDriver.isEnabled());
+            runScript(new FixtureScript() {
+                @Override
+                protected void execute(ExecutionContext executionContext) {
+                    executionContext.executeChild(this, new EstatioBaseLineFixture());
+                    executionContext.executeChild(this, new PropertyForOxf());
+                    executionContext.executeChild(this, new LeaseBreakOptionsForOxfTopModel001());
+                    executionContext.executeChild(this, new LeaseBreakOptionsForOxfMediax002());
+                    executionContext.executeChild(this, new LeaseBreakOptionsForOxfPoison003());
+                    executionContext.executeChild(this, new LeaseItemAndTermsForOxfMiracl005());
+                }
+            });
+        }
+
+        @Inject
+        private Properties properties;
+        @Inject
+        private Leases leases;
+        @Inject
+        private Invoices invoices;
+        @Inject
+        private InvoiceService invoiceService;
+        @Inject
+        private CollectionNumerators collectionNumerators;
+        @Inject
+        private DashboardSnapshotService dashboardSnapshotService;
+        @Inject
+        private DomainObjectContainer container;
+
+        private Property property;
+        private Lease lease;
+
+        @Before
+        public void setup() throws Exception {
+            property = properties.findPropertyByReference(PropertyForOxf.PROPERTY_REFERENCE);
+            lease = leases.findLeaseByReference(LeaseForOxfMiracl005.LEASE_REFERENCE);
+        }
+
+        @Test
+        public void step1_leaseVerify() throws Exception {
+            measure("lease-verify", new Runnable() {
+                @Override
+                public void run() {
+                    lease.verifyUntil(VT.ld(2015, 1, 1));
+                }
+            }).assertStatementsAtMost(300).assertElapsedMillisAtMost(MAX_ELAPSED_MILLIS);
+        }
+
+        @Test
+        public void step2_propertyInvoiceRun() throws Exception {
+            measure("property-invoice-run", new Runnable() {
+                @Override
+                public void run() {
+                    invoiceService.calculateInvoicesForProperty(
+                            property,
+                            InvoiceRunType.NORMAL_RUN,
+                            InvoiceCalculationSelection.RENT_AND_SERVICE_CHARGE,
+                            VT.ld(2013, 11, 7),
+                            VT.ld(2013, 10, 1),
+                            VT.ld(2015, 4, 1));
+                }
+            }).assertStatementsAtMost(2000).assertElapsedMillisAtMost(MAX_ELAPSED_MILLIS);
+        }
+
+        @Test
+        public void step3_invoiceApproval() throws Exception {
+            collectionNumerators.createInvoiceNumberNumerator(property, "OXF-%06d", BigInteger.ZERO);
+            measure("invoice-approval", new Runnable() {
+                @Override
+                public void run() {
+                    for (Invoice invoice : invoices.findInvoices(property, InvoiceStatus.NEW)) {
+                        invoice.approve();
+                        invoice.doInvoice(VT.ld(2013, 11, 7));
+                    }
+                }
+            }).assertStatementsAtMost(500).assertElapsedMillisAtMost(MAX_ELAPSED_MILLIS);
+        }
+
+        @Test
+        public void step4_leaseRenew() throws Exception {
+            measure("lease-renew", new Runnable() {
+                @Override
+                public void run() {
+                    lease.renew(
+                            "OXF-MIRACL-099",
+                            "Miracle lease renewed",
+                            lease.getEndDate().plusDays(1),
+                            lease.getEndDate().plusYears(5),
+                            true);
+                }
+            }).assertStatementsAtMost(500).assertElapsedMillisAtMost(MAX_ELAPSED_MILLIS);
+        }
+
+        @Test
+        public void step5_dashboardRender() throws Exception {
+            measure("dashboard-render", new Runnable() {
+                @Override
+                public void run() {
+                    dashboardSnapshotService.refresh();
+                    final EstatioAppDashboard dashboard = container.injectServicesInto(new EstatioAppDashboard());
+                    dashboard.title();
+                    dashboard.getPendingInvoiceRuns();
+                    dashboard.getInvoicesInPendingRuns();
+                    dashboard.getLeasesAboutToExpire();
+                    dashboard.getUpcomingEvents();
+                }
+            }).assertStatementsAtMost(100).assertElapsedMillisAtMost(MAX_ELAPSED_MILLIS);
+        }
+
+        @Test
+        public void step6_leasePartiesByProperty() throws Exception {
+            final Measurement lazily = measure("lease-parties-by-property", new Runnable() {
+                @Override
+                public void run() {
+                    for (Lease lease : leases.findLeasesByProperty(property)) {
+                        lease.getPrimaryParty();
+                        lease.getSecondaryParty();
+                    }
+                }
+            });
+            measure("lease-parties-by-property-with-roles", new Runnable() {
+                @Override
+                public void run() {
+                    for (Lease lease : leases.findLeasesByPropertyWithRoles(property)) {
+                        lease.getPrimaryParty();
+                        lease.getSecondaryParty();
+                    }
+                }
+            }).assertStatementsAtMost(Math.min(lazily.getStatements(), 10)).assertElapsedMillisAtMost(MAX_ELAPSED_MILLIS);
+        }
+
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.integtests.performance;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.isis.core.integtestsupport.IsisSystemForTest;
+
+import org.estatio.integtests.EstatioIntegTestBuilder;
+import org.estatio.services.schema.EntityPackages;
+
+/**
+ * Compares the time (and number of statements) taken to boot the system using the standard and the fast startup
+ * profile (see <tt>persistor_datanucleus.properties</tt>), against a file database in
+ * <tt>target/startup-benchmark</tt>.
+ *
+ * <p>
+ * Each startup runs in a JVM of its own (with the same classpath), so that every one of them starts cold: first
+ * a standard startup that creates the schema, then a standard and a fast startup against that schema. The
+ * results are written using {@link PerformanceResults}.
+ * </p>
+ */
+public class StartupBenchmark {
+
+    private static final String DIRECTORY = "target/startup-benchmark";
+
+    private static final String RESULT_PREFIX = "startup-benchmark:";
+
+    private static final String DATANUCLEUS = "isis.persistor.datanucleus.impl.datanucleus.";
+
+    /**
+     * The {@link #FAST} profile is the fast startup block of <tt>persistor_datanucleus.properties</tt>; keep the two
+     * in sync.
+     */
+    enum Profile {
+        CREATE(true),
+        STANDARD(true),
+        FAST(false);
+
+        private final boolean standard;
+
+        private Profile(final boolean standard) {
+            this.standard = standard;
+        }
+
+        Map<String, String> configuration() {
+            final Map<String, String> configuration = Maps.newHashMap();
+            configuration.put("isis.persistor.datanucleus.impl.javax.jdo.option.ConnectionURL",
+                    "jdbc:hsqldb:file:" + DIRECTORY + "/db");
+            configuration.put("estatio.schema.fingerprintFile", DIRECTORY + "/schema.fingerprint");
+            if (standard) {
+                configuration.put(DATANUCLEUS + "autoCreateSchema", "true");
+                configuration.put(DATANUCLEUS + "validateSchema", "true");
+            } else {
+                configuration.put("isis.persistor.datanucleus.RegisterEntities.packagePrefix",
+                        EntityPackages.asPackagePrefix());
+                configuration.put(DATANUCLEUS + "autoCreateSchema", "false");
+                configuration.put(DATANUCLEUS + "validateSchema", "false");
+                configuration.put(DATANUCLEUS + "validateTables", "false");
+                configuration.put(DATANUCLEUS + "validateConstraints", "false");
+                configuration.put(DATANUCLEUS + "rdbms.CheckExistTablesOrViews", "false");
+                configuration.put(DATANUCLEUS + "rdbms.initializeColumnInfo", "None");
+            }
+            return configuration;
+        }
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length == 1) {
+            boot(Profile.valueOf(args[0]));
+            return;
+        }
+        deleteRecursively(new File(DIRECTORY));
+        for (final Profile profile : Profile.values()) {
+            PerformanceResults.record(fork(profile));
+        }
+    }
+
+    /**
+     * Runs in the forked JVM.
+     */
+    private static void boot(final Profile profile) {
+        final long statementsBefore = StatementCountingDriver.getStatementCount();
+        final long start = System.currentTimeMillis();
+        final IsisSystemForTest isft = new EstatioIntegTestBuilder(profile.configuration()).build().setUpSystem();
+        final long elapsedMillis = System.currentTimeMillis() - start;
+        final long statements = StatementCountingDriver.getStatementCount() - statementsBefore;
+        isft.tearDownSystem();
+        System.out.println(RESULT_PREFIX + statements + "," + elapsedMillis);
+    }
+
+    private static Measurement fork(final Profile profile) throws IOException, InterruptedException {
+        final List<String> command = Lists.newArrayList(
+                new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-cp", System.getProperty("java.class.path"),
+                "-D" + StatementCountingDriver.ENABLED_PROPERTY + "=true",
+                StartupBenchmark.class.getName(),
+                profile.name());
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String result = null;
+        final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    result = line.substring(RESULT_PREFIX.length());
+                } else {
+                    System.out.println(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        final int exitValue = process.waitFor();
+        if (exitValue != 0 || result == null) {
+            throw new IllegalStateException("Startup using the " + profile + " profile failed (exit value " + exitValue + ")");
+        }
+        final String[] values = result.split(",");
+        return new Measurement(
+                "startup-" + profile.name().toLowerCase(),
+                Long.parseLong(values[0]),
+                Long.parseLong(values[1]));
+    }
+
+    private static void deleteRecursively(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.integtests.performance;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class StatementCountingDriverTest {
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        Class.forName(StatementCountingDriver.class.getName());
+        connection = DriverManager.getConnection(StatementCountingDriver.wrap("jdbc:hsqldb:mem:counting"), "sa", "");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    public static class Execute extends StatementCountingDriverTest {
+
+        @Test
+        public void counted() throws Exception {
+            final long before = StatementCountingDriver.getStatementCount();
+            final Statement statement = connection.createStatement();
+            statement.execute("VALUES (1)");
+            statement.executeQuery("VALUES (1)").close();
+            statement.close();
+
+            assertThat(StatementCountingDriver.getStatementCount() - before, is(2L));
+        }
+    }
+
+    public static class EqualsAndHashCode extends StatementCountingDriverTest {
+
+        @Test
+        public void byProxyIdentity() throws Exception {
+            final Connection underlying = connection.unwrap(Connection.class);
+
+            assertThat(connection.equals(connection), is(true));
+            assertThat(connection.hashCode(), is(System.identityHashCode(connection)));
+            assertThat(connection.equals(underlying), is(false));
+        }
+
+        @Test
+        public void statementsByProxyIdentity() throws Exception {
+            final Statement statement = connection.createStatement();
+            final Statement other = connection.createStatement();
+
+            assertThat(statement.equals(statement), is(true));
+            assertThat(statement.equals(other), is(false));
+            assertThat(statement.hashCode(), is(System.identityHashCode(statement)));
+            statement.close();
+            other.close();
+        }
+    }
+
+}
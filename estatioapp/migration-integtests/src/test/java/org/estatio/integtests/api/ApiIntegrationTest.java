@@ -20,6 +20,7 @@ package org.estatio.integtests.api;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.concurrent.Callable;
 import javax.inject.Inject;
 import org.hamcrest.core.Is;
 import org.joda.time.LocalDate;
@@ -259,6 +260,32 @@ public class ApiIntegrationTest extends EstatioIntegrationTestForMigration {
         Assert.assertNotNull(leaseUnits.findByLeaseAndUnitAndStartDate(l, u, START_DATE));
     }
 
+    @Test
+    public void t05a_putLeaseAndOccupancyWithTildeInReferenceInBulkImport() throws Exception {
+        // '~' in the bulk data stands for '+'
+        api.inImportSession(new Callable<Void>() {
+            @Override
+            public Void call() {
+                api.putLease("APILEASE~2", "Lease", "APITENANT", "APILANDLORD", "APILEASETYPE", "ACTIVE", START_DATE, dt(2021, 12, 31), null, null, "APIPROP");
+                api.putOccupancy("APILEASE~2", "APIUNIT", START_DATE, null, null, null, "APISIZE", "ABIBRAND", "APISECTOR", "APIACTIVITY", "YES", "YES", "YES");
+                return null;
+            }
+        });
+
+        Lease l = leases.findLeaseByReference("APILEASE+2");
+        Unit u = units.findUnitByReference("APIUNIT");
+        Assert.assertNotNull(l);
+        Assert.assertNotNull(leaseUnits.findByLeaseAndUnitAndStartDate(l, u, START_DATE));
+    }
+
+    @Test
+    public void t05a_putLeaseWithTildeInReferenceOutsideBulkImport() throws Exception {
+        api.putLease("APILEASE~3", "Lease", "APITENANT", "APILANDLORD", "APILEASETYPE", "ACTIVE", START_DATE, dt(2021, 12, 31), null, null, "APIPROP");
+
+        Assert.assertNotNull(leases.findLeaseByReferenceElseNull("APILEASE~3"));
+        Assert.assertNull(leases.findLeaseByReferenceElseNull("APILEASE+3"));
+    }
+
     @Test
     public void t05b_putLeasePostalAddress() throws Exception {
         api.putLeasePostalAddress("APITENANT", LeaseConstants.ART_TENANT, "APILEASE", "Address1", "Address2", null, "PostalCode", "City", "NH", "NLD", BigInteger.valueOf(1));
@@ -16,11 +16,17 @@
  */
 package org.estatio.api;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.inject.Inject;
 
+import com.google.common.io.CharSource;
+
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.isis.applib.AbstractFactoryAndRepository;
 import org.apache.isis.applib.ApplicationException;
@@ -29,6 +35,22 @@ import org.apache.isis.applib.annotation.ActionSemantics.Of;
 import org.apache.isis.applib.annotation.Hidden;
 import org.apache.isis.applib.annotation.Named;
 import org.apache.isis.applib.annotation.Optional;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.value.Clob;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.estatio.api.bulk.BatchTransaction;
+import org.estatio.api.bulk.BulkImportResult;
+import org.estatio.api.bulk.BulkImporter;
+import org.estatio.api.bulk.CsvRecordReader;
+import org.estatio.api.bulk.ImportSession;
+import org.estatio.api.bulk.IsisSessions;
+import org.estatio.api.bulk.LeaseReferences;
+import org.estatio.api.bulk.NdjsonRecordReader;
+import org.estatio.api.bulk.PartitionedLoader;
+import org.estatio.api.bulk.PutAction;
+import org.estatio.api.bulk.RecordAction;
+import org.estatio.api.bulk.RecordReader;
+import org.estatio.api.bulk.TypedPutActions;
 import org.estatio.dom.agreement.AgreementRole;
 import org.estatio.dom.agreement.AgreementRoleCommunicationChannelType;
 import org.estatio.dom.agreement.AgreementRoleCommunicationChannelTypes;
@@ -97,6 +119,11 @@ import org.estatio.dom.lease.Occupancy;
 import org.estatio.dom.lease.Occupancy.OccupancyReportingType;
 import org.estatio.dom.lease.breaks.BreakExerciseType;
 import org.estatio.dom.lease.breaks.BreakType;
+import org.estatio.dom.lease.tags.Activities;
+import org.estatio.dom.lease.tags.Brands;
+import org.estatio.dom.lease.tags.Sector;
+import org.estatio.dom.lease.tags.Sectors;
+import org.estatio.dom.lease.tags.UnitSizes;
 import org.estatio.dom.party.Organisation;
 import org.estatio.dom.party.Organisations;
 import org.estatio.dom.party.Parties;
@@ -113,6 +140,7 @@ import org.estatio.dom.tax.Taxes;
 import org.estatio.dom.utils.JodaPeriodUtils;
 import org.estatio.dom.utils.StringUtils;
 import org.estatio.services.clock.ClockService;
+import org.estatio.services.scheduler.SessionRunner;
 import org.joda.time.LocalDate;
 import org.joda.time.Period;
 import org.slf4j.Logger;
@@ -134,14 +162,248 @@ public class Api extends AbstractFactoryAndRepository {
 
     // //////////////////////////////////////
 
+    /**
+     * Applies a stream of records, in CSV (with a header line) or NDJSON format, to the <tt>put*</tt> action
+     * for the entity type (eg <tt>Lease</tt> for {@link #putLease putLease}),
+     * the records' fields being named as the action's parameters.
+     * 
+     * <p>
+     * The records are committed in batches, in a session of their own (and so independently of the transaction of
+     * this action); records that fail are reported but do not abort the import.
+     * 
+     * @see BulkImporter
+     */
+    @ActionSemantics(Of.NON_IDEMPOTENT)
+    public String bulkImport(
+            @Named("entityType") String entityType,
+            @Named("format") final String format,
+            @Named("records") final Clob records,
+            @Named("batchSize") @Optional Integer batchSize) {
+        final PutAction action = new PutAction(this, entityType);
+        final ImportSession session = new ImportSession();
+        final BulkImporter importer = new BulkImporter(
+                action,
+                new BatchTransaction.Isis() {
+                    @Override
+                    public void abortAndBegin() {
+                        super.abortAndBegin();
+                        // entities created in the aborted transaction no longer exist
+                        session.clear();
+                    }
+                },
+                batchSize != null ? batchSize : BulkImporter.DEFAULT_BATCH_SIZE);
+        final SessionRunner runner = SessionRunner.forCurrentUser();
+        try {
+            // in a session of its own, so that the batches' transactions are not the request's
+            return runner.call(new Callable<String>() {
+                @Override
+                public String call() {
+                    importSession.set(session);
+                    try {
+                        final Reader reader = CharSource.wrap(records.getChars()).openStream();
+                        final RecordReader recordReader = "NDJSON".equalsIgnoreCase(format)
+                                ? new NdjsonRecordReader(reader)
+                                : new CsvRecordReader(reader);
+                        try {
+                            final BulkImportResult result = importer.importRecords(recordReader);
+                            LOG.info(String.format("%s: %s; %s", action.getName(), result, session));
+                            return result.toString();
+                        } finally {
+                            recordReader.close();
+                        }
+                    } catch (final IOException e) {
+                        throw new ApplicationException(e);
+                    } finally {
+                        importSession.remove();
+                    }
+                }
+            });
+        } finally {
+            runner.close();
+        }
+    }
+
+    public String validateBulkImport(
+            final String entityType,
+            final String format,
+            final Clob records,
+            final Integer batchSize) {
+        if (!"CSV".equalsIgnoreCase(format) && !"NDJSON".equalsIgnoreCase(format)) {
+            return "Format must be CSV or NDJSON";
+        }
+        try {
+            new PutAction(this, entityType);
+        } catch (final IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return batchSize != null && batchSize < 1 ? "Batch size must be positive" : null;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Loads a stream of NDJSON records of mixed entity types, each identified by its
+     * {@value TypedPutActions#TYPE_FIELD} field: first the shared reference data, then the lease-related
+     * records of each property in parallel, using the given number of threads.
+     * 
+     * @see PartitionedLoader
+     */
+    @ActionSemantics(Of.NON_IDEMPOTENT)
+    public String bulkLoadPartitioned(
+            @Named("records") final Clob records,
+            @Named("threads") @Optional Integer threads,
+            @Named("batchSize") @Optional Integer batchSize) {
+        final BatchTransaction transaction = new BatchTransaction.Isis() {
+            @Override
+            public void abortAndBegin() {
+                super.abortAndBegin();
+                importSession.get().clear();
+            }
+        };
+        final PartitionedLoader.Sessions sessions = new IsisSessions(IsisContext.getAuthenticationSession()) {
+            @Override
+            public <T> T inNewSession(final Callable<T> work) {
+                return super.inNewSession(new Callable<T>() {
+                    @Override
+                    public T call() {
+                        return inImportSession(work);
+                    }
+                });
+            }
+        };
+        final PartitionedLoader loader = new PartitionedLoader(
+                new TypedPutActions(this),
+                new RecordAction() {
+                    @Override
+                    public void apply(final Map<String, String> record) {
+                        createReferenceDataOf(record);
+                    }
+                },
+                transaction,
+                sessions,
+                new PartitionedLoader.Leases() {
+                    @Override
+                    public String propertyOf(final String leaseReference) {
+                        final Lease lease = leases.findLeaseByReferenceElseNull(leaseReference);
+                        return lease != null && lease.getProperty() != null ? lease.getProperty().getReference() : null;
+                    }
+                },
+                threads != null ? threads : Runtime.getRuntime().availableProcessors(),
+                batchSize != null ? batchSize : BulkImporter.DEFAULT_BATCH_SIZE);
+        final SessionRunner runner = SessionRunner.forCurrentUser();
+        try {
+            // in a session of its own, so that the shared and deferred records' transactions are not the request's
+            return runner.call(new Callable<String>() {
+                @Override
+                public String call() {
+                    importSession.set(new ImportSession());
+                    try {
+                        final RecordReader recordReader = new NdjsonRecordReader(CharSource.wrap(records.getChars()).openStream());
+                        try {
+                            final PartitionedLoader.Result result = loader.load(recordReader);
+                            LOG.info(result.toString());
+                            return result.toString();
+                        } finally {
+                            recordReader.close();
+                        }
+                    } catch (final IOException e) {
+                        throw new ApplicationException(e);
+                    } finally {
+                        importSession.remove();
+                    }
+                }
+            });
+        } finally {
+            runner.close();
+        }
+    }
+
+    /**
+     * Creates, if need be, the lease type, index, unit size, brand, sector and activity that a lease-related
+     * record refers to, as the <tt>put*</tt> action for the record would.
+     */
+    private void createReferenceDataOf(final Map<String, String> record) {
+        final String type = TypedPutActions.typeOf(record);
+        if ("Lease".equals(type)) {
+            final String leaseType = record.get("type");
+            if (leaseType != null) {
+                leaseTypes.findOrCreate(leaseType, null);
+            }
+        } else if ("Occupancy".equals(type)) {
+            persistIfCreated(unitSizes.findOrCreate(record.get("size")));
+            persistIfCreated(brands.findOrCreate(brandName(record.get("brand"))));
+            final Sector sector = sectors.findOrCreate(record.get("sector"));
+            persistIfCreated(sector);
+            persistIfCreated(activities.findOrCreate(sector, record.get("activity")));
+        } else if ("LeaseTermForIndexableRent".equals(type)) {
+            final String indexReference = record.get("indexReference");
+            if (indexReference != null) {
+                indices.findOrCreateIndex(indexReference, indexReference);
+            }
+        }
+    }
+
+    private void persistIfCreated(final Object object) {
+        if (object != null) {
+            persistIfNotAlready(object);
+        }
+    }
+
+    public String validateBulkLoadPartitioned(
+            final Clob records,
+            final Integer threads,
+            final Integer batchSize) {
+        if (threads != null && threads < 1) {
+            return "Threads must be positive";
+        }
+        return batchSize != null && batchSize < 1 ? "Batch size must be positive" : null;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The {@link ImportSession} of the {@link #bulkImport(String, String, Clob, Integer) bulk import} in
+     * progress on this thread, if any.
+     */
+    private final ThreadLocal<ImportSession> importSession = new ThreadLocal<ImportSession>();
+
+    /**
+     * Performs the work as part of a bulk import, that is, with lookups memoized in an {@link ImportSession} of
+     * its own and lease references {@link LeaseReferences#normalised(String) normalised} as in the bulk data.
+     */
+    @Programmatic
+    public <T> T inImportSession(final Callable<T> work) {
+        importSession.set(new ImportSession());
+        try {
+            return ImportSession.call(work);
+        } finally {
+            importSession.remove();
+        }
+    }
+
+    private <T> T memoized(final Class<T> type, final String reference, final Callable<T> finder) {
+        final ImportSession session = importSession.get();
+        return session != null ? session.find(type, reference, finder) : ImportSession.call(finder);
+    }
+
+    private void created(final Class<?> type, final String reference, final Object entity) {
+        final ImportSession session = importSession.get();
+        if (session != null) {
+            session.created(type, reference, entity);
+        }
+    }
+
+    // //////////////////////////////////////
+
     @ActionSemantics(Of.IDEMPOTENT)
     public void putCountry(
             @Named("code") String code,
             @Named("alpha2Code") String alpha2Code,
             @Named("name") String name) {
-        Country country = countries.findCountry(code);
+        Country country = fetchCountry(code, false);
         if (country == null) {
             country = countries.createCountry(code, alpha2Code, name);
+            created(Country.class, code, country);
         }
     }
 
@@ -149,8 +411,13 @@ public class Api extends AbstractFactoryAndRepository {
         return fetchCountry(countryCode, true);
     }
 
-    private Country fetchCountry(String countryCode, boolean exception) {
-        Country country = countries.findCountry(countryCode);
+    private Country fetchCountry(final String countryCode, boolean exception) {
+        Country country = memoized(Country.class, countryCode, new Callable<Country>() {
+            @Override
+            public Country call() {
+                return countries.findCountry(countryCode);
+            }
+        });
         if (country == null && exception) {
             throw new ApplicationException(String.format("Country with code %1$s not found", countryCode));
         }
@@ -173,8 +440,13 @@ public class Api extends AbstractFactoryAndRepository {
         state.setCountry(country);
     }
 
-    private State fetchState(String stateCode, boolean exception) {
-        State country = states.findState(stateCode);
+    private State fetchState(final String stateCode, boolean exception) {
+        State country = memoized(State.class, stateCode, new Callable<State>() {
+            @Override
+            public State call() {
+                return states.findState(stateCode);
+            }
+        });
         if (country == null && exception) {
             throw new ApplicationException(String.format("State with code %1$s not found", stateCode));
         }
@@ -205,25 +477,37 @@ public class Api extends AbstractFactoryAndRepository {
             @Named("chargeGroupReference") String chargeGroupReference,
             @Named("chargeGroupName") String chargeGroupName,
             @Named("externalReference") @Optional String externalReference) {
-        Tax tax = taxes.findOrCreate(taxReference, taxReference);
+        Tax tax = fetchOrCreateTax(taxReference, taxReference);
         ChargeGroup chargeGroup = fetchOrCreateChargeGroup(chargeGroupReference, chargeGroupName);
         Charge charge = charges.newCharge(reference, name, description, tax, chargeGroup);
+        created(Charge.class, reference, charge);
         charge.setExternalReference(externalReference);
         charge.setSortOrder(sortOrder);
     }
 
-    private Charge fetchCharge(String chargeReference) {
-        Charge charge = charges.findCharge(chargeReference);
+    private Charge fetchCharge(final String chargeReference) {
+        Charge charge = memoized(Charge.class, chargeReference, new Callable<Charge>() {
+            @Override
+            public Charge call() {
+                return charges.findCharge(chargeReference);
+            }
+        });
         if (charge == null) {
             throw new ApplicationException(String.format("Charge with reference %s not found.", chargeReference));
         }
         return charge;
     }
 
-    private ChargeGroup fetchOrCreateChargeGroup(String reference, String name) {
-        ChargeGroup chargeGroup = chargeGroups.findChargeGroup(reference);
+    private ChargeGroup fetchOrCreateChargeGroup(final String reference, String name) {
+        ChargeGroup chargeGroup = memoized(ChargeGroup.class, reference, new Callable<ChargeGroup>() {
+            @Override
+            public ChargeGroup call() {
+                return chargeGroups.findChargeGroup(reference);
+            }
+        });
         if (chargeGroup == null) {
             chargeGroup = chargeGroups.createChargeGroup(reference, name);
+            created(ChargeGroup.class, reference, chargeGroup);
         }
         chargeGroup.setName(name);
         return chargeGroup;
@@ -240,13 +524,22 @@ public class Api extends AbstractFactoryAndRepository {
             @Named("ratePercentage") BigDecimal percentage,
             @Named("rateStartDate") LocalDate startDate,
             @Named("rateExternalReference") @Optional String rateExternalReference) {
-        Tax tax = taxes.findOrCreate(reference, name);
+        Tax tax = fetchOrCreateTax(reference, name);
         tax.setExternalReference(externalReference);
         tax.setDescription(description);
         TaxRate rate = tax.newRate(startDate, percentage);
         rate.setExternalReference(rateExternalReference);
     }
 
+    private Tax fetchOrCreateTax(final String reference, final String name) {
+        return memoized(Tax.class, reference, new Callable<Tax>() {
+            @Override
+            public Tax call() {
+                return taxes.findOrCreate(reference, name);
+            }
+        });
+    }
+
     // //////////////////////////////////////
 
     @ActionSemantics(Of.IDEMPOTENT)
@@ -264,6 +557,7 @@ public class Api extends AbstractFactoryAndRepository {
                     firstName,
                     lastName,
                     gender == null ? PersonGenderType.UNKNOWN : PersonGenderType.valueOf(gender));
+            created(Party.class, reference, person);
         }
         person.setFirstName(firstName);
         person.setLastName(lastName);
@@ -278,14 +572,20 @@ public class Api extends AbstractFactoryAndRepository {
         Organisation org = (Organisation) parties.findPartyByReferenceOrNull(reference);
         if (org == null) {
             org = organisations.newOrganisation(reference, name);
+            created(Party.class, reference, org);
         }
         org.setName(name);
         org.setFiscalCode(fiscalCode);
         org.setVatCode(vatCode);
     }
 
-    private Party fetchParty(String partyReference) {
-        Party party = parties.findPartyByReferenceOrNull(partyReference);
+    private Party fetchParty(final String partyReference) {
+        Party party = memoized(Party.class, partyReference, new Callable<Party>() {
+            @Override
+            public Party call() {
+                return parties.findPartyByReferenceOrNull(partyReference);
+            }
+        });
         if (party == null) {
             throw new ApplicationException(String.format("Party with reference %s not found.", partyReference));
         }
@@ -323,15 +623,21 @@ public class Api extends AbstractFactoryAndRepository {
             collectionNumerators.createInvoiceNumberNumerator(property, numeratorFormat, BigInteger.ZERO);
     }
 
-    private Property fetchProperty(String reference, boolean createIfNotFond) {
+    private Property fetchProperty(final String reference, boolean createIfNotFond) {
         if (reference == null) {
             return null;
         }
-        Property property = properties.findPropertyByReferenceElseNull(reference);
+        Property property = memoized(Property.class, reference, new Callable<Property>() {
+            @Override
+            public Property call() {
+                return properties.findPropertyByReferenceElseNull(reference);
+            }
+        });
         if (property == null) {
             if (!createIfNotFond)
                 throw new ApplicationException(String.format("Property with reference %s not found.", reference));
             property = properties.newProperty(reference, null, PropertyType.MIXED, null, null, null);
+            created(Property.class, reference, property);
         }
         return property;
     }
@@ -357,9 +663,10 @@ public class Api extends AbstractFactoryAndRepository {
             @Named("stateCode") @Optional String stateCode,
             @Named("countryCode") @Optional String countryCode) {
         Property property = fetchProperty(propertyReference, false);
-        Unit unit = units.findUnitByReference(reference);
+        Unit unit = findUnit(reference);
         if (unit == null) {
             unit = property.newUnit(reference, name, UnitType.BOUTIQUE);
+            created(Unit.class, reference, unit);
         }
         // set attributes
         unit.setName(name);
@@ -372,13 +679,22 @@ public class Api extends AbstractFactoryAndRepository {
         unit.setDehorsArea(dehorsArea);
         CommunicationChannel cc = communicationChannelContributions.findCommunicationChannelForType(unit, CommunicationChannelType.POSTAL_ADDRESS);
         if (cc == null) {
-            communicationChannelContributions.newPostal(unit, CommunicationChannelType.POSTAL_ADDRESS, countries.findCountry(countryCode), states.findState(stateCode), address1, null, null, postalCode, city);
+            communicationChannelContributions.newPostal(unit, CommunicationChannelType.POSTAL_ADDRESS, fetchCountry(countryCode, false), fetchState(stateCode, false), address1, null, null, postalCode, city);
         }
     }
 
+    private Unit findUnit(final String unitReference) {
+        return memoized(Unit.class, unitReference, new Callable<Unit>() {
+            @Override
+            public Unit call() {
+                return units.findUnitByReference(unitReference);
+            }
+        });
+    }
+
     private Unit fetchUnit(String unitReference) {
         if (unitReference != null) {
-            Unit unit = units.findUnitByReference(unitReference);
+            Unit unit = findUnit(unitReference);
             if (unit == null) {
                 throw new ApplicationException(String.format("Unit with reference %s not found.", unitReference));
             }
@@ -404,7 +720,7 @@ public class Api extends AbstractFactoryAndRepository {
         }
         final CommunicationChannel comm = communicationChannelContributions.findCommunicationChannelForType(property, null);
         if (comm == null) {
-            communicationChannelContributions.newPostal(property, CommunicationChannelType.POSTAL_ADDRESS, countries.findCountry(countryCode), states.findState(stateCode), address1, address2, null, postalCode, city);
+            communicationChannelContributions.newPostal(property, CommunicationChannelType.POSTAL_ADDRESS, fetchCountry(countryCode, false), fetchState(stateCode, false), address1, address2, null, postalCode, city);
         }
     }
 
@@ -435,7 +751,7 @@ public class Api extends AbstractFactoryAndRepository {
             Country country = fetchCountry(countryCode);
             PostalAddress comm = (PostalAddress) postalAddresses.findByAddress(party, address1, postalCode, city, country);
             if (comm == null) {
-                comm = communicationChannels.newPostal(party, CommunicationChannelType.POSTAL_ADDRESS, address1, address2, null, postalCode, city, states.findState(stateCode), countries.findCountry(countryCode));
+                comm = communicationChannels.newPostal(party, CommunicationChannelType.POSTAL_ADDRESS, address1, address2, null, postalCode, city, fetchState(stateCode, false), fetchCountry(countryCode, false));
                 comm.setReference(reference);
             }
             if (legal) {
@@ -578,11 +894,11 @@ public class Api extends AbstractFactoryAndRepository {
 
     @ActionSemantics(Of.IDEMPOTENT)
     public void putLease(
-            @Named("reference") String reference,
+            @Named("reference") String leaseReference,
             @Named("name") String name,
             @Named("tenantReference") String tenantReference,
             @Named("landlordReference") String landlordReference,
-            @Named("type") String type,
+            @Named("type") final String type,
             @Named("status") String statusStr,
             @Named("startDate") @Optional LocalDate startDate,
             @Named("endDate") @Optional LocalDate endDate,
@@ -590,13 +906,26 @@ public class Api extends AbstractFactoryAndRepository {
             @Named("tenancyEndDate") @Optional LocalDate tenancyEndDate,
             @Named("propertyReference") @Optional String propertyReference
             ) {
+        // only the bulk data holds '+' as '~'; a lease put by reference otherwise keeps the reference as given
+        final String reference = importSession.get() != null ? LeaseReferences.normalised(leaseReference) : leaseReference;
         Party tenant = fetchParty(tenantReference);
         Party landlord = fetchParty(landlordReference);
-        Lease lease = leases.findLeaseByReferenceElseNull(reference);
-        LeaseType leaseType = leaseTypes.findOrCreate(type, null);
+        Lease lease = memoized(Lease.class, reference, new Callable<Lease>() {
+            @Override
+            public Lease call() {
+                return leases.findLeaseByReferenceElseNull(reference);
+            }
+        });
+        LeaseType leaseType = memoized(LeaseType.class, type, new Callable<LeaseType>() {
+            @Override
+            public LeaseType call() {
+                return leaseTypes.findOrCreate(type, null);
+            }
+        });
         LeaseStatus status = LeaseStatus.valueOf(statusStr);
         if (lease == null) {
             lease = leases.newLease(reference, name, leaseType, startDate, endDate, tenancyStartDate, tenancyEndDate, landlord, tenant);
+            created(Lease.class, reference, lease);
         }
         lease.setTenancyStartDate(tenancyStartDate);
         lease.setTenancyEndDate(tenancyEndDate);
@@ -604,14 +933,23 @@ public class Api extends AbstractFactoryAndRepository {
     }
 
     private Lease fetchLease(String leaseReference) {
-        Lease lease;
-        lease = leases.findLeaseByReference(leaseReference.trim().replaceAll("~", "+"));
+        final String reference = LeaseReferences.normalised(leaseReference);
+        Lease lease = memoized(Lease.class, reference, new Callable<Lease>() {
+            @Override
+            public Lease call() {
+                return leases.findLeaseByReference(reference);
+            }
+        });
         if (lease == null) {
             throw new ApplicationException(String.format("Lease with reference %s not found.", leaseReference));
         }
         return lease;
     }
 
+    private static String brandName(final String brand) {
+        return brand != null ? brand.replaceAll("\\p{C}", "").trim() : null;
+    }
+
     @ActionSemantics(Of.IDEMPOTENT)
     public void putLeaseLink(@Named("leaseReference") String leaseReference, @Named("previousLeaseReference") String previousLeaseReference) {
         Lease lease = fetchLease(leaseReference);
@@ -635,7 +973,7 @@ public class Api extends AbstractFactoryAndRepository {
             @Named("reportRent") @Optional String reportRent,
             @Named("reportOCR") @Optional String reportOCR) {
         Lease lease = fetchLease(leaseReference);
-        Unit unit = units.findUnitByReference(unitReference);
+        Unit unit = findUnit(unitReference);
         if (unitReference != null && unit == null) {
             throw new ApplicationException(String.format("Unit with reference %s not found.", unitReference));
         }
@@ -646,7 +984,7 @@ public class Api extends AbstractFactoryAndRepository {
 
         occupancy.setEndDate(endDate);
         occupancy.setUnitSizeName(size);
-        occupancy.setBrandName(brand != null ? brand.replaceAll("\\p{C}", "").trim() : null);
+        occupancy.setBrandName(brandName(brand));
         occupancy.setSectorName(sector);
         occupancy.setActivityName(activity);
         occupancy.setReportTurnover(reportTurnover != null ? OccupancyReportingType.valueOf(reportTurnover) : OccupancyReportingType.NO);
@@ -716,7 +1054,13 @@ public class Api extends AbstractFactoryAndRepository {
             if (address == null) {
                 address = communicationChannels.newPostal(party, CommunicationChannelType.POSTAL_ADDRESS, address1, address2, null, postalCode, city, fetchState(stateCode, false), fetchCountry(countryCode, false));
             }
-            AgreementRoleType art = agreementRoleTypes.findByTitle(StringUtils.capitalize(agreementRoleType.toLowerCase()));
+            final String title = StringUtils.capitalize(agreementRoleType.toLowerCase());
+            AgreementRoleType art = memoized(AgreementRoleType.class, title, new Callable<AgreementRoleType>() {
+                @Override
+                public AgreementRoleType call() {
+                    return agreementRoleTypes.findByTitle(title);
+                }
+            });
             if (art == null)
                 throw new ApplicationException(String.format("AgreementRoleType %s not found.", agreementRoleType));
             AgreementRole role = lease.findRole(party, art, clockService.now());
@@ -747,7 +1091,7 @@ public class Api extends AbstractFactoryAndRepository {
             @Named("settledValue") @Optional BigDecimal settledValue,
             @Named("levellingValue") @Optional BigDecimal levellingValue,
             @Named("levellingPercentage") @Optional BigDecimal levellingPercentage,
-            @Named("indexReference") @Optional String indexReference,
+            @Named("indexReference") @Optional final String indexReference,
             @Named("indexationFrequency") @Optional String indexationFrequency,
             @Named("indexationPercentage") @Optional BigDecimal indexationPercentage,
             @Named("baseIndexReference") @Optional String baseIndexReference,
@@ -768,7 +1112,12 @@ public class Api extends AbstractFactoryAndRepository {
                 endDate,
                 sequence,
                 statusStr);
-        Index index = indices.findOrCreateIndex(indexReference, indexReference);
+        Index index = memoized(Index.class, indexReference, new Callable<Index>() {
+            @Override
+            public Index call() {
+                return indices.findOrCreateIndex(indexReference, indexReference);
+            }
+        });
         LeaseTermFrequency indexationFreq = LeaseTermFrequency.valueOf(indexationFrequency);
         term.setIndex(index);
         term.setFrequency(indexationFreq);
@@ -928,7 +1277,7 @@ public class Api extends AbstractFactoryAndRepository {
         Lease lease = fetchLease(leaseReference);
         Unit unit;
         if (unitReference != null) {
-            unit = units.findUnitByReference(unitReference);
+            unit = findUnit(unitReference);
             if (unitReference != null && unit == null) {
                 throw new ApplicationException(String.format("Unit with reference %s not found.", unitReference));
             }
@@ -1179,4 +1528,16 @@ public class Api extends AbstractFactoryAndRepository {
     @Inject
     private PartyRelationships partyRelationships;
 
+    @Inject
+    private UnitSizes unitSizes;
+
+    @Inject
+    private Brands brands;
+
+    @Inject
+    private Sectors sectors;
+
+    @Inject
+    private Activities activities;
+
 }
@@ -0,0 +1,64 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.runtime.system.transaction.IsisTransaction;
+import org.apache.isis.core.runtime.system.transaction.IsisTransactionManager;
+
+/**
+ * Demarcates the transactions of a {@link BulkImporter}: the current transaction is either committed or
+ * aborted, and a new one started in its place.
+ */
+public interface BatchTransaction {
+
+    void commitAndBegin();
+
+    void abortAndBegin();
+
+    /**
+     * Uses the Isis transaction manager of the current session, which should be one opened for the import (eg by a
+     * <tt>SessionRunner</tt> or {@link IsisSessions}) rather than that of a request.
+     */
+    public static class Isis implements BatchTransaction {
+
+        @Override
+        public void commitAndBegin() {
+            final IsisTransactionManager transactionManager = transactionManager();
+            transactionManager.endTransaction();
+            transactionManager.startTransaction();
+        }
+
+        @Override
+        public void abortAndBegin() {
+            final IsisTransactionManager transactionManager = transactionManager();
+            final IsisTransaction transaction = transactionManager.getTransaction();
+            if (transaction != null && transaction.getState().canAbort()) {
+                // not if eg already aborted by a failed commit
+                transactionManager.abortTransaction();
+            }
+            transactionManager.startTransaction();
+        }
+
+        private static IsisTransactionManager transactionManager() {
+            return IsisContext.getPersistenceSession().getTransactionManager();
+        }
+    }
+
+}
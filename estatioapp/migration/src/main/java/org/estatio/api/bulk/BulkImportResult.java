@@ -0,0 +1,107 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The outcome of a {@link BulkImporter bulk import}: how many records were applied and which failed, and why.
+ */
+public class BulkImportResult {
+
+    /**
+     * The maximum number of errors retained (all are counted).
+     */
+    static final int MAX_ERRORS = 1000;
+
+    private int applied;
+    private int failed;
+    private int batches;
+    private int batchesReplayed;
+    private final List<String> errors = Lists.newArrayList();
+    private final long start = System.currentTimeMillis();
+    private long end;
+
+    void applied(final int count) {
+        applied += count;
+    }
+
+    void failed(final int lineNumber, final String message) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(String.format("line %d: %s", lineNumber, message));
+        }
+    }
+
+    void batchCommitted() {
+        batches++;
+    }
+
+    void batchReplayed() {
+        batchesReplayed++;
+    }
+
+    void finished() {
+        end = System.currentTimeMillis();
+    }
+
+    // //////////////////////////////////////
+
+    public int getApplied() {
+        return applied;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    /**
+     * The number of batches that were rolled back and replayed, either without the records that failed or (if the
+     * transaction as a whole failed) a record at a time.
+     */
+    public int getBatchesReplayed() {
+        return batchesReplayed;
+    }
+
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder(String.format(
+                "Applied %d records in %d batches (%d replayed) in %d ms; %d failed",
+                applied, batches, batchesReplayed, end - start, failed));
+        for (final String error : errors) {
+            buf.append('\n').append(error);
+        }
+        if (failed > errors.size()) {
+            buf.append("\n...");
+        }
+        return buf.toString();
+    }
+
+}
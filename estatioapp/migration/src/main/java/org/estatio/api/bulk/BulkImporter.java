@@ -0,0 +1,148 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import javax.jdo.JDOException;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Applies a stream of records to a {@link RecordAction} (typically a {@link PutAction}), committing once per batch of records rather than once
+ * per record.
+ * 
+ * <p>
+ * A record that fails (eg because it refers to a lease that does not exist) is reported, and nothing it may have
+ * written before failing is kept: the batch's transaction is rolled back and the batch replayed without that record,
+ * so that the rest of the batch is still committed.  If instead the batch's transaction as a whole fails (eg on a
+ * constraint violation detected when flushing), or a record fails with a datastore error (after which the
+ * persistence manager may be inconsistent), it is rolled back and its records are replayed one per transaction, so
+ * that only the offending records are lost.
+ * 
+ * <p>
+ * The {@link BatchTransaction} should be one dedicated to the import (eg of an Isis session opened for it), rather
+ * than that of the request that started it.
+ */
+public class BulkImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 200;
+
+    private final RecordAction action;
+    private final BatchTransaction transaction;
+    private final int batchSize;
+
+    public BulkImporter(final RecordAction action, final BatchTransaction transaction, final int batchSize) {
+        this.action = action;
+        this.transaction = transaction;
+        this.batchSize = batchSize;
+    }
+
+    public BulkImportResult importRecords(final RecordReader reader) throws IOException {
+        final BulkImportResult result = new BulkImportResult();
+        final List<Row> batch = Lists.newArrayListWithCapacity(batchSize);
+        while (true) {
+            final Map<String, String> record;
+            try {
+                record = reader.next();
+            } catch (final RecordFormatException e) {
+                result.failed(reader.getLineNumber(), e.getMessage());
+                continue;
+            }
+            if (record == null) {
+                break;
+            }
+            batch.add(new Row(reader.getLineNumber(), record));
+            if (batch.size() == batchSize) {
+                apply(batch, result);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            apply(batch, result);
+        }
+        result.finished();
+        return result;
+    }
+
+    private void apply(final List<Row> batch, final BulkImportResult result) {
+        final List<Row> rows = Lists.newArrayList(batch);
+        boolean replayed = false;
+        while (true) {
+            Row failedRow = null;
+            RuntimeException failure = null;
+            for (final Row row : rows) {
+                try {
+                    action.apply(row.record);
+                } catch (final RuntimeException e) {
+                    failedRow = row;
+                    failure = e;
+                    break;
+                }
+            }
+            if (failure == null) {
+                try {
+                    transaction.commitAndBegin();
+                    result.applied(rows.size());
+                    result.batchCommitted();
+                    return;
+                } catch (final RuntimeException e) {
+                    // fall through to replay
+                    break;
+                }
+            }
+            if (failure instanceof JDOException) {
+                // the persistence manager may be left in an inconsistent state
+                break;
+            }
+            // discard whatever the failed record (and the records before it) wrote, and go again without it
+            transaction.abortAndBegin();
+            if (!replayed) {
+                result.batchReplayed();
+                replayed = true;
+            }
+            result.failed(failedRow.lineNumber, messageOf(failure));
+            rows.remove(failedRow);
+            if (rows.isEmpty()) {
+                return;
+            }
+        }
+        transaction.abortAndBegin();
+        if (!replayed) {
+            result.batchReplayed();
+        }
+        for (final Row row : rows) {
+            try {
+                action.apply(row.record);
+                transaction.commitAndBegin();
+                result.applied(1);
+            } catch (final RuntimeException e) {
+                result.failed(row.lineNumber, messageOf(e));
+                transaction.abortAndBegin();
+            }
+        }
+    }
+
+    private static String messageOf(final RuntimeException e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Reads comma-separated records, the first line holding the field names.
+ * 
+ * <p>
+ * Values may be enclosed in double quotes, in which case they may contain separators, line breaks and (doubled)
+ * double quotes.  Values are not trimmed; empty values are read as <tt>null</tt>.
+ */
+public class CsvRecordReader implements RecordReader {
+
+    private final BufferedReader reader;
+    private final char separator;
+    private List<String> header;
+    private int lineNumber;
+    private int recordLineNumber;
+
+    public CsvRecordReader(final Reader reader) {
+        this(reader, ',');
+    }
+
+    public CsvRecordReader(final Reader reader, final char separator) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.separator = separator;
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        if (header == null) {
+            header = readValues();
+            if (header == null) {
+                return null;
+            }
+        }
+        List<String> values;
+        do {
+            values = readValues();
+            if (values == null) {
+                return null;
+            }
+        } while (values.size() == 1 && values.get(0) == null);
+        if (values.size() > header.size()) {
+            throw new RecordFormatException(String.format("%d values, but only %d fields", values.size(), header.size()));
+        }
+        final Map<String, String> record = Maps.newLinkedHashMap();
+        for (int i = 0; i < values.size(); i++) {
+            record.put(header.get(i), values.get(i));
+        }
+        return record;
+    }
+
+    /**
+     * The values of the next (logical) line, or <tt>null</tt> at the end of the stream.
+     */
+    private List<String> readValues() throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        lineNumber++;
+        recordLineNumber = lineNumber;
+        final List<String> values = Lists.newArrayList();
+        final StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // line break within a quoted value
+                line = reader.readLine();
+                if (line == null) {
+                    throw new RecordFormatException("Unterminated quoted value");
+                }
+                lineNumber++;
+                value.append('\n');
+                i = 0;
+                continue;
+            }
+            final char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        value.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == separator) {
+                values.add(valueOf(value, wasQuoted));
+                value.setLength(0);
+                wasQuoted = false;
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(valueOf(value, wasQuoted));
+        return values;
+    }
+
+    private static String valueOf(final CharSequence value, final boolean wasQuoted) {
+        return value.length() == 0 && !wasQuoted ? null : value.toString();
+    }
+
+    @Override
+    public int getLineNumber() {
+        return recordLineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
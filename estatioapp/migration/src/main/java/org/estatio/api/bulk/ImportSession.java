@@ -0,0 +1,114 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import com.google.common.collect.Maps;
+
+import org.apache.isis.applib.ApplicationException;
+
+/**
+ * Memoizes the resolution of references to entities (parties, leases, charges and so on) for the duration of
+ * a bulk load, so that each is looked up once rather than once per record that refers to it.
+ * 
+ * <p>
+ * The entities themselves are held, so an import session must be confined to a single thread and Isis
+ * session, and must be {@link #clear() cleared} whenever a transaction is rolled back (the entities it
+ * created then no longer exist).  Only entities that were found are memoized; the <tt>put*</tt> actions
+ * register the entities they {@link #created(Class, String, Object) create}.
+ */
+public class ImportSession {
+
+    private final Map<Class<?>, Map<String, Object>> entitiesByType = Maps.newHashMap();
+    private int hits;
+    private int misses;
+
+    /**
+     * The entity of the type with the reference, using the finder if not already known.
+     */
+    public <T> T find(final Class<T> type, final String reference, final Callable<T> finder) {
+        if (reference == null) {
+            return call(finder);
+        }
+        final Map<String, Object> entities = entitiesOf(type);
+        final Object entity = entities.get(reference);
+        if (entity != null) {
+            hits++;
+            return type.cast(entity);
+        }
+        misses++;
+        final T found = call(finder);
+        if (found != null) {
+            entities.put(reference, found);
+        }
+        return found;
+    }
+
+    /**
+     * Registers (or replaces) the entity, eg as just created by a <tt>put*</tt> action.
+     */
+    public void created(final Class<?> type, final String reference, final Object entity) {
+        if (reference != null && entity != null) {
+            entitiesOf(type).put(reference, entity);
+        }
+    }
+
+    public void invalidate(final Class<?> type, final String reference) {
+        entitiesOf(type).remove(reference);
+    }
+
+    public void clear() {
+        entitiesByType.clear();
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    private Map<String, Object> entitiesOf(final Class<?> type) {
+        Map<String, Object> entities = entitiesByType.get(type);
+        if (entities == null) {
+            entities = Maps.newHashMap();
+            entitiesByType.put(type, entities);
+        }
+        return entities;
+    }
+
+    public static <T> T call(final Callable<T> finder) {
+        try {
+            return finder.call();
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new ApplicationException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lookups memoized, %d queried", hits, misses);
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.util.concurrent.Callable;
+
+import org.apache.isis.core.commons.authentication.AuthenticationSession;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.runtime.system.transaction.IsisTransaction;
+import org.apache.isis.core.runtime.system.transaction.IsisTransactionManager;
+
+/**
+ * Opens a new Isis session (for the same user as the caller) on the current thread, for the duration of the
+ * work, committing its transaction if the work completes and aborting it otherwise.
+ */
+public class IsisSessions implements PartitionedLoader.Sessions {
+
+    private final AuthenticationSession authSession;
+
+    public IsisSessions(final AuthenticationSession authSession) {
+        this.authSession = authSession;
+    }
+
+    @Override
+    public <T> T inNewSession(final Callable<T> work) {
+        IsisContext.openSession(authSession);
+        try {
+            final IsisTransactionManager transactionManager = IsisContext.getPersistenceSession().getTransactionManager();
+            transactionManager.startTransaction();
+            try {
+                final T result = ImportSession.call(work);
+                transactionManager.endTransaction();
+                return result;
+            } catch (final RuntimeException e) {
+                final IsisTransaction transaction = transactionManager.getTransaction();
+                if (transaction != null && transaction.getState().canAbort()) {
+                    transactionManager.abortTransaction();
+                }
+                throw e;
+            }
+        } finally {
+            IsisContext.closeSession();
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+/**
+ * The references of leases as held in Estatio.
+ */
+public final class LeaseReferences {
+
+    private LeaseReferences() {
+    }
+
+    /**
+     * The reference of a lease as held in Estatio (and so also as memoized and partitioned by), in the source
+     * data <tt>+</tt> being written as <tt>~</tt>.
+     */
+    public static String normalised(final String leaseReference) {
+        return leaseReference != null ? leaseReference.trim().replaceAll("~", "+") : null;
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays records already read (eg into the partitions of a {@link PartitionedLoader}), keeping their original
+ * line numbers.
+ */
+class ListRecordReader implements RecordReader {
+
+    private final Iterator<Row> rows;
+    private int lineNumber;
+
+    ListRecordReader(final List<Row> rows) {
+        this.rows = rows.iterator();
+    }
+
+    @Override
+    public Map<String, String> next() {
+        if (!rows.hasNext()) {
+            return null;
+        }
+        final Row row = rows.next();
+        lineNumber = row.lineNumber;
+        return row.record;
+    }
+
+    @Override
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Reads newline-delimited JSON, each (non-blank) line being a flat JSON object whose members are strings,
+ * numbers, booleans or <tt>null</tt>; all values are returned as strings.
+ */
+public class NdjsonRecordReader implements RecordReader {
+
+    private final BufferedReader reader;
+    private int lineNumber;
+
+    private String line;
+    private int pos;
+
+    public NdjsonRecordReader(final Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.trim().isEmpty());
+        pos = 0;
+        return parseObject();
+    }
+
+    private Map<String, String> parseObject() {
+        final Map<String, String> record = Maps.newLinkedHashMap();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return record;
+        }
+        while (true) {
+            skipWhitespace();
+            final String name = parseString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            record.put(name, parseValue());
+            skipWhitespace();
+            final char c = nextChar();
+            if (c == '}') {
+                break;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+        skipWhitespace();
+        if (pos != line.length()) {
+            throw error("Unexpected trailing characters");
+        }
+        return record;
+    }
+
+    private String parseValue() {
+        final char c = peek();
+        if (c == '"') {
+            return parseString();
+        }
+        if (c == '{' || c == '[') {
+            throw error("Nested objects and arrays are not supported");
+        }
+        final int start = pos;
+        while (pos < line.length() && ",} \t".indexOf(line.charAt(pos)) < 0) {
+            pos++;
+        }
+        final String literal = line.substring(start, pos);
+        if (literal.isEmpty()) {
+            throw error("Expected a value");
+        }
+        return literal.equals("null") ? null : literal;
+    }
+
+    private String parseString() {
+        expect('"');
+        final StringBuilder buf = new StringBuilder();
+        while (true) {
+            final char c = nextChar();
+            if (c == '"') {
+                return buf.toString();
+            }
+            if (c != '\\') {
+                buf.append(c);
+                continue;
+            }
+            final char escaped = nextChar();
+            switch (escaped) {
+            case 'b':
+                buf.append('\b');
+                break;
+            case 'f':
+                buf.append('\f');
+                break;
+            case 'n':
+                buf.append('\n');
+                break;
+            case 'r':
+                buf.append('\r');
+                break;
+            case 't':
+                buf.append('\t');
+                break;
+            case 'u':
+                if (pos + 4 > line.length()) {
+                    throw error("Invalid unicode escape");
+                }
+                try {
+                    buf.append((char) Integer.parseInt(line.substring(pos, pos + 4), 16));
+                } catch (final NumberFormatException e) {
+                    throw error("Invalid unicode escape");
+                }
+                pos += 4;
+                break;
+            default:
+                // '"', '\\' and '/'
+                buf.append(escaped);
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private char peek() {
+        if (pos >= line.length()) {
+            throw error("Unexpected end of line");
+        }
+        return line.charAt(pos);
+    }
+
+    private char nextChar() {
+        final char c = peek();
+        pos++;
+        return c;
+    }
+
+    private void expect(final char expected) {
+        skipWhitespace();
+        if (nextChar() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    private RecordFormatException error(final String message) {
+        return new RecordFormatException(message + " at column " + (pos + 1));
+    }
+
+    @Override
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
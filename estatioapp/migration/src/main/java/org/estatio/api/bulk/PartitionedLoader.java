@@ -0,0 +1,335 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Loads a stream of records of mixed entity types (identified by their {@link TypedPutActions#TYPE_FIELD type
+ * field}), loading the lease-related records of different properties in parallel.
+ * 
+ * <p>
+ * The load proceeds in phases:
+ * <ol>
+ * <li>shared reference data (countries, charges, taxes, indices, parties, properties, units and so on, ie any
+ * type not listed below) is loaded as it is read, in the caller's session; then the reference data that the
+ * lease-related records would otherwise look up or create as they are loaded (lease types, indices, brands and so
+ * on) is {@link #referenceData created}, also in the caller's session, so that partitions loaded concurrently
+ * only ever find it;</li>
+ * <li>the {@link #PARTITIONED_TYPES lease-related records} are partitioned by property (that of the lease they
+ * refer to) and each partition is loaded on a worker pool, in a session of its own. Within a partition, records
+ * are loaded in dependency order (leases, then occupancies, items, terms and so on), and otherwise in the order
+ * read, so the outcome does not depend on how the input happens to be interleaved;</li>
+ * <li>records that cannot be attributed to a single property (eg lease links, which may span properties) are
+ * then loaded in the caller's session;</li>
+ * <li>finally each lease loaded is checked to exist and to belong to the property it was partitioned by.</li>
+ * </ol>
+ */
+public class PartitionedLoader {
+
+    /**
+     * The types loaded per property, with the order in which they are loaded within a partition.
+     */
+    public static final Map<String, Integer> PARTITIONED_TYPES = ImmutableMap.<String, Integer> builder()
+            .put("Lease", 0)
+            .put("Occupancy", 1)
+            .put("LeaseItem", 2)
+            .put("LeaseTermForIndexableRent", 3)
+            .put("LeaseTermForTurnoverRent", 3)
+            .put("LeaseTermForServiceCharge", 3)
+            .put("LeaseTermForTax", 3)
+            .put("LeaseTermForFixed", 3)
+            .put("LeasePostalAddress", 4)
+            .put("BreakOption", 5)
+            .put("Guarantee", 6)
+            .put("LeaseLink", 7)
+            .build();
+
+    /**
+     * Types loaded after all partitions, because their records may refer to leases of different properties.
+     */
+    static final String DEFERRED_TYPE = "LeaseLink";
+
+    /**
+     * Runs work on the current thread in a new Isis session, within a transaction.
+     */
+    public interface Sessions {
+        <T> T inNewSession(Callable<T> work);
+    }
+
+    /**
+     * Queries made by the loader of the leases already in the database.
+     */
+    public interface Leases {
+
+        /**
+         * The reference of the property of the lease, or <tt>null</tt> if the lease does not exist or has no
+         * property.
+         */
+        String propertyOf(String leaseReference);
+    }
+
+    private final RecordAction action;
+    private final RecordAction referenceData;
+    private final BatchTransaction transaction;
+    private final Sessions sessions;
+    private final Leases leases;
+    private final int threads;
+    private final int batchSize;
+
+    /**
+     * @param referenceData - applied to each lease-related record before any is loaded, to create the reference
+     *            data it refers to.
+     */
+    public PartitionedLoader(
+            final RecordAction action,
+            final RecordAction referenceData,
+            final BatchTransaction transaction,
+            final Sessions sessions,
+            final Leases leases,
+            final int threads,
+            final int batchSize) {
+        this.action = action;
+        this.referenceData = referenceData;
+        this.transaction = transaction;
+        this.sessions = sessions;
+        this.leases = leases;
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+    // //////////////////////////////////////
+
+    public static class Result {
+
+        private BulkImportResult shared;
+        private BulkImportResult referenceData;
+        private final SortedMap<String, BulkImportResult> partitions = Maps.newTreeMap();
+        private BulkImportResult deferred;
+        private final List<String> inconsistencies = Lists.newArrayList();
+
+        public BulkImportResult getShared() {
+            return shared;
+        }
+
+        public BulkImportResult getReferenceData() {
+            return referenceData;
+        }
+
+        public SortedMap<String, BulkImportResult> getPartitions() {
+            return Collections.unmodifiableSortedMap(partitions);
+        }
+
+        public BulkImportResult getDeferred() {
+            return deferred;
+        }
+
+        public List<String> getInconsistencies() {
+            return Collections.unmodifiableList(inconsistencies);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder buf = new StringBuilder();
+            buf.append("Shared: ").append(shared).append('\n');
+            buf.append("Reference data: ").append(referenceData).append('\n');
+            for (final Map.Entry<String, BulkImportResult> entry : partitions.entrySet()) {
+                buf.append("Property ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+            }
+            buf.append("Deferred: ").append(deferred).append('\n');
+            buf.append(String.format("Consistency check: %d problems", inconsistencies.size()));
+            for (final String inconsistency : inconsistencies) {
+                buf.append('\n').append(inconsistency);
+            }
+            return buf.toString();
+        }
+    }
+
+    // //////////////////////////////////////
+
+    public Result load(final RecordReader reader) throws IOException {
+        final Result result = new Result();
+
+        // phase 1: shared reference data, setting aside the lease-related records
+        final List<Row> pending = Lists.newArrayList();
+        result.shared = new BulkImporter(action, transaction, batchSize).importRecords(new RecordReader() {
+            @Override
+            public Map<String, String> next() throws IOException {
+                while (true) {
+                    final Map<String, String> record = reader.next();
+                    if (record == null || !PARTITIONED_TYPES.containsKey(record.get(TypedPutActions.TYPE_FIELD))) {
+                        return record;
+                    }
+                    pending.add(new Row(reader.getLineNumber(), record));
+                }
+            }
+
+            @Override
+            public int getLineNumber() {
+                return reader.getLineNumber();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        });
+
+        // the reference data of the lease-related records, before they are loaded concurrently
+        result.referenceData = new BulkImporter(referenceData, transaction, batchSize).importRecords(new ListRecordReader(pending));
+
+        // phase 2: partitions, by property; keyed by lease reference as held in Estatio
+        final Map<String, String> propertyByLease = Maps.newHashMap();
+        for (final Row row : pending) {
+            if ("Lease".equals(row.record.get(TypedPutActions.TYPE_FIELD)) && row.record.get("propertyReference") != null) {
+                propertyByLease.put(LeaseReferences.normalised(row.record.get("reference")), row.record.get("propertyReference"));
+            }
+        }
+        final SortedMap<String, List<Row>> partitions = Maps.newTreeMap();
+        final List<Row> deferred = Lists.newArrayList();
+        for (final Row row : pending) {
+            final String property = propertyOf(row.record, propertyByLease);
+            if (property == null) {
+                deferred.add(row);
+            } else {
+                List<Row> partition = partitions.get(property);
+                if (partition == null) {
+                    partition = Lists.newArrayList();
+                    partitions.put(property, partition);
+                }
+                partition.add(row);
+            }
+        }
+        loadPartitions(partitions, result);
+
+        // phase 3: whatever could not be partitioned
+        result.deferred = new BulkImporter(action, transaction, batchSize).importRecords(new ListRecordReader(inDependencyOrder(deferred)));
+
+        // phase 4: consistency check
+        for (final Map.Entry<String, String> entry : propertyByLease.entrySet()) {
+            final String actual = leases.propertyOf(entry.getKey());
+            if (actual == null) {
+                result.inconsistencies.add(String.format("Lease %s: not loaded, or has no property", entry.getKey()));
+            } else if (!actual.equals(entry.getValue())) {
+                result.inconsistencies.add(String.format("Lease %s: property is %s rather than %s", entry.getKey(), actual, entry.getValue()));
+            }
+        }
+        for (final Map.Entry<String, List<Row>> entry : partitions.entrySet()) {
+            final BulkImportResult partitionResult = result.partitions.get(entry.getKey());
+            if (partitionResult == null) {
+                result.inconsistencies.add(String.format("Property %s: not loaded", entry.getKey()));
+            } else if (partitionResult.getApplied() + partitionResult.getFailed() != entry.getValue().size()) {
+                result.inconsistencies.add(String.format("Property %s: %d records, but %d applied and %d failed",
+                        entry.getKey(), entry.getValue().size(), partitionResult.getApplied(), partitionResult.getFailed()));
+            }
+        }
+        return result;
+    }
+
+    private String propertyOf(final Map<String, String> record, final Map<String, String> propertyByLease) {
+        final String type = record.get(TypedPutActions.TYPE_FIELD);
+        if (DEFERRED_TYPE.equals(type)) {
+            return null;
+        }
+        if ("Lease".equals(type)) {
+            return record.get("propertyReference");
+        }
+        final String leaseReference = LeaseReferences.normalised(record.get("leaseReference"));
+        if (leaseReference == null) {
+            return null;
+        }
+        String property = propertyByLease.get(leaseReference);
+        if (property == null) {
+            // a lease loaded previously
+            property = leases.propertyOf(leaseReference);
+            if (property != null) {
+                propertyByLease.put(leaseReference, property);
+            }
+        }
+        return property;
+    }
+
+    private void loadPartitions(final SortedMap<String, List<Row>> partitions, final Result result) {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final Map<String, Future<BulkImportResult>> futures = Maps.newLinkedHashMap();
+            for (final Map.Entry<String, List<Row>> entry : partitions.entrySet()) {
+                final List<Row> rows = inDependencyOrder(entry.getValue());
+                futures.put(entry.getKey(), executor.submit(new Callable<BulkImportResult>() {
+                    @Override
+                    public BulkImportResult call() {
+                        return sessions.inNewSession(new Callable<BulkImportResult>() {
+                            @Override
+                            public BulkImportResult call() throws IOException {
+                                return new BulkImporter(action, transaction, batchSize).importRecords(new ListRecordReader(rows));
+                            }
+                        });
+                    }
+                }));
+            }
+            for (final Map.Entry<String, Future<BulkImportResult>> entry : futures.entrySet()) {
+                try {
+                    result.partitions.put(entry.getKey(), entry.getValue().get());
+                } catch (final ExecutionException e) {
+                    result.inconsistencies.add(String.format("Property %s: %s", entry.getKey(), e.getCause()));
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.inconsistencies.add("Interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sorts (stably) by the {@link #PARTITIONED_TYPES rank of the type}, so that eg leases are loaded before their
+     * items, and items before their terms, but otherwise in the order read.
+     */
+    static List<Row> inDependencyOrder(final List<Row> rows) {
+        final List<Row> sorted = Lists.newArrayList(rows);
+        Collections.sort(sorted, new Comparator<Row>() {
+            @Override
+            public int compare(final Row o1, final Row o2) {
+                return rankOf(o1) - rankOf(o2);
+            }
+        });
+        return sorted;
+    }
+
+    private static int rankOf(final Row row) {
+        final Integer rank = PARTITIONED_TYPES.get(row.record.get(TypedPutActions.TYPE_FIELD));
+        return rank != null ? rank : Integer.MAX_VALUE;
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+
+import org.joda.time.LocalDate;
+
+import org.apache.isis.applib.ApplicationException;
+import org.apache.isis.applib.annotation.Named;
+import org.apache.isis.applib.annotation.Optional;
+
+/**
+ * One of the <tt>put*</tt> actions of the {@link org.estatio.api.Api} (eg <tt>putLease</tt> for entity type
+ * <tt>Lease</tt>), invoked with the values of a record, matched by the parameters' {@link Named names} and
+ * converted to the parameters' types.
+ */
+public class PutAction implements RecordAction {
+
+    private final Object target;
+    private final Method method;
+    private final String[] parameterNames;
+    private final boolean[] optional;
+
+    public PutAction(final Object target, final String entityType) {
+        this.target = target;
+        this.method = findMethod(target.getClass(), "put" + entityType);
+        final Annotation[][] annotations = method.getParameterAnnotations();
+        parameterNames = new String[annotations.length];
+        optional = new boolean[annotations.length];
+        for (int i = 0; i < annotations.length; i++) {
+            for (final Annotation annotation : annotations[i]) {
+                if (annotation instanceof Named) {
+                    parameterNames[i] = ((Named) annotation).value();
+                } else if (annotation instanceof Optional) {
+                    optional[i] = true;
+                }
+            }
+            if (parameterNames[i] == null) {
+                throw new IllegalArgumentException(String.format("Parameter %d of %s is not @Named", i, method.getName()));
+            }
+        }
+    }
+
+    private static Method findMethod(final Class<?> cls, final String name) {
+        for (final Method method : cls.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException("No such action: " + name);
+    }
+
+    public String getName() {
+        return method.getName();
+    }
+
+    /**
+     * Invokes the action with the values of the record.
+     * 
+     * @throws ApplicationException - if a field is not recognised, a mandatory field is missing or a value
+     *             cannot be converted.
+     * @throws RuntimeException - as thrown by the action itself.
+     */
+    @Override
+    public void apply(final Map<String, String> record) {
+        final Set<String> unknown = Sets.newTreeSet(record.keySet());
+        final Object[] args = new Object[parameterNames.length];
+        final Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < parameterNames.length; i++) {
+            final String value = record.get(parameterNames[i]);
+            unknown.remove(parameterNames[i]);
+            if (value == null && !optional[i]) {
+                throw new ApplicationException(String.format("Mandatory field '%s' is missing", parameterNames[i]));
+            }
+            try {
+                args[i] = convert(value, types[i]);
+            } catch (final IllegalArgumentException e) {
+                throw new ApplicationException(String.format("Field '%s': invalid value '%s'", parameterNames[i], value));
+            }
+        }
+        if (!unknown.isEmpty()) {
+            throw new ApplicationException(String.format("Unknown fields %s", unknown));
+        }
+        try {
+            method.invoke(target, args);
+        } catch (final InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ApplicationException(cause);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Object convert(final String value, final Class<?> type) {
+        if (value == null) {
+            return null;
+        }
+        if (type == String.class) {
+            return value;
+        }
+        final String trimmed = value.trim();
+        if (type == LocalDate.class) {
+            return LocalDate.parse(trimmed);
+        }
+        if (type == BigDecimal.class) {
+            return new BigDecimal(trimmed);
+        }
+        if (type == BigInteger.class) {
+            return new BigInteger(trimmed);
+        }
+        if (type == Integer.class || type == int.class) {
+            return Integer.valueOf(trimmed);
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            if (!trimmed.equalsIgnoreCase("true") && !trimmed.equalsIgnoreCase("false")) {
+                throw new IllegalArgumentException(value);
+            }
+            return Boolean.valueOf(trimmed);
+        }
+        if (type.isEnum()) {
+            return Enum.valueOf((Class<Enum>) type, trimmed);
+        }
+        throw new IllegalArgumentException("Unsupported type " + type.getName());
+    }
+
+}
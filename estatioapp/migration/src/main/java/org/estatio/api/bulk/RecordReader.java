@@ -0,0 +1,43 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reads records, one at a time, from a stream of (eg) CSV or NDJSON text; each record is a map of field name
+ * to (string) value, with <tt>null</tt> for an empty or missing value.
+ */
+public interface RecordReader extends Closeable {
+
+    /**
+     * The next record, or <tt>null</tt> if there are no more.
+     * 
+     * @throws RecordFormatException - if the record cannot be parsed; subsequent records may still be read.
+     */
+    Map<String, String> next() throws IOException;
+
+    /**
+     * The (1-based) line number at which the most recently read record started, for error reporting.
+     */
+    int getLineNumber();
+
+}
@@ -0,0 +1,71 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+import org.apache.isis.applib.ApplicationException;
+
+/**
+ * Applies records of mixed entity types, each to the {@link PutAction} for the type named by its
+ * {@value #TYPE_FIELD} field (eg <tt>{"@type":"Lease", "reference":"OXF-TOPMODEL-001", ...}</tt>).
+ */
+public class TypedPutActions implements RecordAction {
+
+    public static final String TYPE_FIELD = "@type";
+
+    private final Object target;
+    private final Map<String, PutAction> actionsByType = Maps.newConcurrentMap();
+
+    public TypedPutActions(final Object target) {
+        this.target = target;
+    }
+
+    @Override
+    public void apply(final Map<String, String> record) {
+        final String type = typeOf(record);
+        final Map<String, String> fields = Maps.newLinkedHashMap(record);
+        fields.remove(TYPE_FIELD);
+        actionFor(type).apply(fields);
+    }
+
+    public static String typeOf(final Map<String, String> record) {
+        final String type = record.get(TYPE_FIELD);
+        if (type == null) {
+            throw new ApplicationException(String.format("Field '%s' is missing", TYPE_FIELD));
+        }
+        return type;
+    }
+
+    private PutAction actionFor(final String type) {
+        PutAction action = actionsByType.get(type);
+        if (action == null) {
+            try {
+                action = new PutAction(target, type);
+            } catch (final IllegalArgumentException e) {
+                throw new ApplicationException(e.getMessage());
+            }
+            actionsByType.put(type, action);
+        }
+        return action;
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+
+import javax.jdo.JDOException;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.ApplicationException;
+import org.apache.isis.applib.annotation.Named;
+import org.apache.isis.applib.annotation.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BulkImporterTest {
+
+    /**
+     * Writes to {@link #pending}, which the {@link RecordingTransaction} either commits (to {@link #put}) or discards.
+     */
+    public static class SomeApi {
+
+        final List<String> pending = Lists.newArrayList();
+        final List<String> put = Lists.newArrayList();
+        int applies;
+
+        public void putThing(
+                @Named("reference") String reference,
+                @Named("amount") @Optional BigDecimal amount) {
+            applies++;
+            if (reference.equals("BAD")) {
+                throw new ApplicationException("Thing BAD not found");
+            }
+            if (reference.equals("JDO")) {
+                throw new JDOException("Datastore error");
+            }
+            pending.add(reference + ":" + amount);
+            if (reference.equals("HALF")) {
+                // fails having already written something
+                throw new ApplicationException("Thing HALF only half done");
+            }
+        }
+    }
+
+    static class RecordingTransaction implements BatchTransaction {
+        private final SomeApi api;
+        int commits;
+        int aborts;
+
+        RecordingTransaction(final SomeApi api) {
+            this.api = api;
+        }
+
+        @Override
+        public void commitAndBegin() {
+            commits++;
+            api.put.addAll(api.pending);
+            api.pending.clear();
+        }
+
+        @Override
+        public void abortAndBegin() {
+            aborts++;
+            api.pending.clear();
+        }
+    }
+
+    private SomeApi api;
+    private RecordingTransaction transaction;
+    private BulkImporter importer;
+
+    @Before
+    public void setUp() throws Exception {
+        api = new SomeApi();
+        transaction = new RecordingTransaction(api);
+        importer = new BulkImporter(new PutAction(api, "Thing"), transaction, 2);
+    }
+
+    @Test
+    public void committedPerBatch() throws Exception {
+        final BulkImportResult result = importer.importRecords(new CsvRecordReader(new StringReader(
+                "reference,amount\nA,1.5\nB,\nC,3\n")));
+
+        assertThat(api.put, is((List<String>) Lists.newArrayList("A:1.5", "B:null", "C:3")));
+        assertThat(result.getApplied(), is(3));
+        assertThat(result.getBatches(), is(2));
+        assertThat(transaction.commits, is(2));
+    }
+
+    @Test
+    public void failedRecordsReportedWithoutAbortingBatch() throws Exception {
+        final BulkImportResult result = importer.importRecords(new CsvRecordReader(new StringReader(
+                "reference,amount\nA,1\nBAD,2\nC,x\n")));
+
+        assertThat(api.put, is((List<String>) Lists.newArrayList("A:1")));
+        assertThat(result.getApplied(), is(1));
+        assertThat(result.getFailed(), is(2));
+        assertThat(result.getErrors().get(0), is("line 3: Thing BAD not found"));
+        assertThat(result.getErrors().get(1), is("line 4: Field 'amount': invalid value 'x'"));
+        // the batch is rolled back and replayed without BAD, rather than a record at a time
+        assertThat(result.getBatches(), is(1));
+        assertThat(result.getBatchesReplayed(), is(1));
+        assertThat(transaction.commits, is(1));
+        assertThat(transaction.aborts, is(1));
+    }
+
+    @Test
+    public void writesOfRecordFailingPartwayThroughBatchAreDiscarded() throws Exception {
+        importer = new BulkImporter(new PutAction(api, "Thing"), transaction, 4);
+
+        final BulkImportResult result = importer.importRecords(new CsvRecordReader(new StringReader(
+                "reference,amount\nA,1\nHALF,2\nC,3\nD,4\n")));
+
+        assertThat(api.put, is((List<String>) Lists.newArrayList("A:1", "C:3", "D:4")));
+        assertThat(api.pending.isEmpty(), is(true));
+        assertThat(result.getApplied(), is(3));
+        assertThat(result.getFailed(), is(1));
+        assertThat(result.getErrors().get(0), is("line 3: Thing HALF only half done"));
+        assertThat(result.getBatches(), is(1));
+        assertThat(result.getBatchesReplayed(), is(1));
+        assertThat(transaction.commits, is(1));
+        assertThat(transaction.aborts, is(1));
+    }
+
+    @Test
+    public void severalFailedRecordsInOneBatch() throws Exception {
+        importer = new BulkImporter(new PutAction(api, "Thing"), transaction, 5);
+
+        final BulkImportResult result = importer.importRecords(new CsvRecordReader(new StringReader(
+                "reference,amount\nHALF,1\nB,2\nBAD,3\nD,4\nHALF,5\n")));
+
+        assertThat(api.put, is((List<String>) Lists.newArrayList("B:2", "D:4")));
+        assertThat(result.getApplied(), is(2));
+        assertThat(result.getFailed(), is(3));
+        assertThat(result.getErrors().get(0), is("line 2: Thing HALF only half done"));
+        assertThat(result.getErrors().get(1), is("line 4: Thing BAD not found"));
+        assertThat(result.getErrors().get(2), is("line 6: Thing HALF only half done"));
+        assertThat(result.getBatchesReplayed(), is(1));
+        assertThat(transaction.commits, is(1));
+        assertThat(transaction.aborts, is(3));
+    }
+
+    @Test
+    public void batchReplayedOnDatastoreError() throws Exception {
+        final BulkImportResult result = importer.importRecords(new NdjsonRecordReader(new StringReader(
+                "{\"reference\":\"A\"}\n{\"reference\":\"JDO\"}\n")));
+
+        // A applied twice: once in the aborted batch, once when replayed on its own
+        assertThat(api.applies, is(4));
+        assertThat(api.put, is((List<String>) Lists.newArrayList("A:null")));
+        assertThat(result.getApplied(), is(1));
+        assertThat(result.getFailed(), is(1));
+        assertThat(result.getBatchesReplayed(), is(1));
+        assertThat(transaction.commits, is(1));
+        assertThat(transaction.aborts, is(2));
+    }
+
+}
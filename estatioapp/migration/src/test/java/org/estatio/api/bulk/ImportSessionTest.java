@@ -0,0 +1,96 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.util.concurrent.Callable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ImportSessionTest {
+
+    static class SomeEntity {
+    }
+
+    static class CountingFinder implements Callable<SomeEntity> {
+        int calls;
+        SomeEntity result;
+
+        @Override
+        public SomeEntity call() {
+            calls++;
+            return result;
+        }
+    }
+
+    private ImportSession session;
+    private CountingFinder finder;
+
+    @Before
+    public void setUp() throws Exception {
+        session = new ImportSession();
+        finder = new CountingFinder();
+    }
+
+    @Test
+    public void memoizesFound() throws Exception {
+        finder.result = new SomeEntity();
+
+        assertThat(session.find(SomeEntity.class, "A", finder), is(sameInstance(finder.result)));
+        assertThat(session.find(SomeEntity.class, "A", finder), is(sameInstance(finder.result)));
+
+        assertThat(finder.calls, is(1));
+        assertThat(session.getHits(), is(1));
+        assertThat(session.getMisses(), is(1));
+    }
+
+    @Test
+    public void doesNotMemoizeNotFound() throws Exception {
+        assertThat(session.find(SomeEntity.class, "A", finder), is(nullValue()));
+        assertThat(session.find(SomeEntity.class, "A", finder), is(nullValue()));
+
+        assertThat(finder.calls, is(2));
+    }
+
+    @Test
+    public void created() throws Exception {
+        final SomeEntity entity = new SomeEntity();
+        assertThat(session.find(SomeEntity.class, "A", finder), is(nullValue()));
+        session.created(SomeEntity.class, "A", entity);
+
+        assertThat(session.find(SomeEntity.class, "A", finder), is(sameInstance(entity)));
+        assertThat(finder.calls, is(1));
+    }
+
+    @Test
+    public void cleared() throws Exception {
+        finder.result = new SomeEntity();
+        session.find(SomeEntity.class, "A", finder);
+        session.clear();
+        session.find(SomeEntity.class, "A", finder);
+
+        assertThat(finder.calls, is(2));
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PartitionedLoaderTest {
+
+    static class RecordingAction implements RecordAction {
+
+        final List<String> applied = Collections.synchronizedList(Lists.<String> newArrayList());
+        final Map<String, String> leases = Collections.synchronizedMap(Maps.<String, String> newHashMap());
+
+        @Override
+        public void apply(final Map<String, String> record) {
+            final String type = record.get(TypedPutActions.TYPE_FIELD);
+            if ("Lease".equals(type)) {
+                // as Api#putLease
+                leases.put(LeaseReferences.normalised(record.get("reference")), record.get("propertyReference"));
+            }
+            applied.add(type + ":" + record.get("reference"));
+        }
+    }
+
+    static class NoOpTransaction implements BatchTransaction {
+        @Override
+        public void commitAndBegin() {
+        }
+
+        @Override
+        public void abortAndBegin() {
+        }
+    }
+
+    private RecordingAction action;
+    private List<String> referenceData;
+    private PartitionedLoader loader;
+
+    @Before
+    public void setUp() throws Exception {
+        action = new RecordingAction();
+        referenceData = Collections.synchronizedList(Lists.<String> newArrayList());
+        loader = new PartitionedLoader(
+                action,
+                new RecordAction() {
+                    @Override
+                    public void apply(final Map<String, String> record) {
+                        referenceData.add(record.get(TypedPutActions.TYPE_FIELD) + ":" + record.get("reference"));
+                        action.applied.add("(reference data)");
+                    }
+                },
+                new NoOpTransaction(),
+                new PartitionedLoader.Sessions() {
+                    @Override
+                    public <T> T inNewSession(final Callable<T> work) {
+                        try {
+                            return work.call();
+                        } catch (final Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                },
+                new PartitionedLoader.Leases() {
+                    @Override
+                    public String propertyOf(final String leaseReference) {
+                        return leaseReference.equals("OLD-LEASE") ? "OLD" : action.leases.get(leaseReference);
+                    }
+                },
+                2,
+                10);
+    }
+
+    public static class InDependencyOrder extends PartitionedLoaderTest {
+
+        @Test
+        public void leasesFirstOtherwiseInOrderRead() throws Exception {
+            final List<Row> sorted = PartitionedLoader.inDependencyOrder(Lists.newArrayList(
+                    row(1, "LeaseTermForTax", "T1"),
+                    row(2, "LeaseItem", "I1"),
+                    row(3, "Lease", "L1"),
+                    row(4, "LeaseItem", "I2"),
+                    row(5, "Lease", "L2")));
+            final List<Integer> lines = Lists.newArrayList();
+            for (final Row row : sorted) {
+                lines.add(row.lineNumber);
+            }
+            assertThat(lines, is((List<Integer>) Lists.newArrayList(3, 5, 2, 4, 1)));
+        }
+    }
+
+    public static class Load extends PartitionedLoaderTest {
+
+        @Test
+        public void partitionsByPropertyOfLease() throws Exception {
+            final PartitionedLoader.Result result = loader.load(new NdjsonRecordReader(new StringReader(
+                    "{\"@type\": \"Property\", \"reference\": \"P1\"}\n"
+                            + "{\"@type\": \"LeaseItem\", \"reference\": \"I1\", \"leaseReference\": \"L1\"}\n"
+                            + "{\"@type\": \"Lease\", \"reference\": \"L1\", \"propertyReference\": \"P1\"}\n"
+                            + "{\"@type\": \"Lease\", \"reference\": \"L2\", \"propertyReference\": \"P2\"}\n"
+                            + "{\"@type\": \"LeaseItem\", \"reference\": \"I2\", \"leaseReference\": \"OLD-LEASE\"}\n"
+                            + "{\"@type\": \"LeaseLink\", \"reference\": \"K1\", \"leaseReference\": \"L1\"}\n"
+                            + "{\"@type\": \"LeaseItem\", \"reference\": \"I3\", \"leaseReference\": \"UNKNOWN\"}\n")));
+
+            assertThat(result.getShared().getApplied(), is(1));
+            assertThat(result.getPartitions().keySet().toString(), is("[OLD, P1, P2]"));
+            assertThat(result.getPartitions().get("P1").getApplied(), is(2));
+            assertThat(result.getPartitions().get("P2").getApplied(), is(1));
+            assertThat(result.getPartitions().get("OLD").getApplied(), is(1));
+            assertThat(result.getDeferred().getApplied(), is(2));
+            assertThat(result.getInconsistencies().isEmpty(), is(true));
+
+            assertThat(action.applied.get(0), is("Property:P1"));
+            assertThat(action.applied.indexOf("Lease:L1") < action.applied.indexOf("LeaseItem:I1"), is(true));
+        }
+    }
+
+    public static class LoadReferenceData extends PartitionedLoaderTest {
+
+        @Test
+        public void createdForEachLeaseRelatedRecordBeforeAnyPartitionIsLoaded() throws Exception {
+            final PartitionedLoader.Result result = loader.load(new NdjsonRecordReader(new StringReader(
+                    "{\"@type\": \"Property\", \"reference\": \"P1\"}\n"
+                            + "{\"@type\": \"Lease\", \"reference\": \"L1\", \"propertyReference\": \"P1\"}\n"
+                            + "{\"@type\": \"Occupancy\", \"reference\": \"O1\", \"leaseReference\": \"L1\"}\n"
+                            + "{\"@type\": \"Lease\", \"reference\": \"L2\", \"propertyReference\": \"P2\"}\n")));
+
+            assertThat(result.getReferenceData().getApplied(), is(3));
+            assertThat(referenceData.toString(), is("[Lease:L1, Occupancy:O1, Lease:L2]"));
+            assertThat(action.applied.subList(0, 4).toString(),
+                    is("[Property:P1, (reference data), (reference data), (reference data)]"));
+        }
+    }
+
+    public static class LoadWithTildeInReference extends PartitionedLoaderTest {
+
+        @Test
+        public void partitionedAndCheckedByReferenceAsHeld() throws Exception {
+            final PartitionedLoader.Result result = loader.load(new NdjsonRecordReader(new StringReader(
+                    "{\"@type\": \"Lease\", \"reference\": \"L~1\", \"propertyReference\": \"P1\"}\n"
+                            + "{\"@type\": \"LeaseItem\", \"reference\": \"I1\", \"leaseReference\": \"L+1\"}\n"
+                            + "{\"@type\": \"LeaseItem\", \"reference\": \"I2\", \"leaseReference\": \"L~1\"}\n")));
+
+            assertThat(result.getPartitions().keySet().toString(), is("[P1]"));
+            assertThat(result.getPartitions().get("P1").getApplied(), is(3));
+            assertThat(result.getDeferred().getApplied(), is(0));
+            assertThat(result.getInconsistencies().isEmpty(), is(true));
+        }
+    }
+
+    private static Row row(final int lineNumber, final String type, final String reference) {
+        return new Row(lineNumber, ImmutableMap.of(TypedPutActions.TYPE_FIELD, type, "reference", reference));
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.api.bulk;
+
+import java.io.StringReader;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RecordReadersTest {
+
+    public static class Csv extends RecordReadersTest {
+
+        @Test
+        public void quotedAndEmptyValues() throws Exception {
+            final RecordReader reader = new CsvRecordReader(new StringReader(
+                    "reference,name,startDate\n" +
+                            "A,\"x, \"\"y\"\"\",2014-01-01\n" +
+                            "\n" +
+                            "B,\"multi\nline\",\n"));
+
+            Map<String, String> record = reader.next();
+            assertThat(reader.getLineNumber(), is(2));
+            assertThat(record.get("reference"), is("A"));
+            assertThat(record.get("name"), is("x, \"y\""));
+            assertThat(record.get("startDate"), is("2014-01-01"));
+
+            record = reader.next();
+            assertThat(reader.getLineNumber(), is(4));
+            assertThat(record.get("name"), is("multi\nline"));
+            assertThat(record.get("startDate"), is(nullValue()));
+
+            assertThat(reader.next(), is(nullValue()));
+        }
+
+        @Test
+        public void tooManyValues() throws Exception {
+            final RecordReader reader = new CsvRecordReader(new StringReader("reference\nA,B\nC\n"));
+            try {
+                reader.next();
+                fail();
+            } catch (final RecordFormatException e) {
+                // expected
+            }
+            assertThat(reader.next().get("reference"), is("C"));
+        }
+    }
+
+    public static class Ndjson extends RecordReadersTest {
+
+        @Test
+        public void valuesAsStrings() throws Exception {
+            final RecordReader reader = new NdjsonRecordReader(new StringReader(
+                    "{\"reference\":\"A\", \"amount\": 12.5, \"endDate\": null, \"flag\": true, \"name\": \"a\\\"b\\u0041\"}\n" +
+                            "\n" +
+                            "{}\n"));
+
+            Map<String, String> record = reader.next();
+            assertThat(record.get("reference"), is("A"));
+            assertThat(record.get("amount"), is("12.5"));
+            assertThat(record.containsKey("endDate"), is(true));
+            assertThat(record.get("endDate"), is(nullValue()));
+            assertThat(record.get("flag"), is("true"));
+            assertThat(record.get("name"), is("a\"bA"));
+
+            record = reader.next();
+            assertThat(reader.getLineNumber(), is(3));
+            assertThat(record.isEmpty(), is(true));
+
+            assertThat(reader.next(), is(nullValue()));
+        }
+
+        @Test
+        public void malformedLineSkipped() throws Exception {
+            final RecordReader reader = new NdjsonRecordReader(new StringReader("{bad\n{\"reference\":\"B\"}\n"));
+            try {
+                reader.next();
+                fail();
+            } catch (final RecordFormatException e) {
+                assertThat(reader.getLineNumber(), is(1));
+            }
+            assertThat(reader.next().get("reference"), is("B"));
+        }
+    }
+
+}
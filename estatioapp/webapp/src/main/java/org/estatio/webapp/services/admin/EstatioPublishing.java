@@ -30,6 +30,11 @@ import org.apache.isis.applib.annotation.Optional;
 import org.apache.isis.applib.annotation.Prototype;
 import org.apache.isis.applib.services.clock.ClockService;
 import org.estatio.dom.EstatioService;
+import org.estatio.dom.outbox.OutboxDispatcher;
+import org.estatio.dom.outbox.OutboxEvent;
+import org.estatio.dom.outbox.OutboxEventStatus;
+import org.estatio.dom.outbox.OutboxEvents;
+import org.estatio.services.publishing.CompactPayloadSchema;
 
 @DomainService
 @DomainServiceLayout(
@@ -98,11 +103,70 @@ public class EstatioPublishing extends EstatioService<EstatioPublishing> {
 
     // //////////////////////////////////////
 
+    @ActionSemantics(Of.SAFE)
+    @MemberOrder(sequence="5")
+    public List<OutboxEvent> pendingOutboxEvents() {
+        return outboxEvents.findByStatus(OutboxEventStatus.PENDING);
+    }
+    public boolean hidePendingOutboxEvents() {
+        return outboxEvents == null;
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.SAFE)
+    @MemberOrder(sequence="6")
+    public List<OutboxEvent> failedOutboxEvents() {
+        return outboxEvents.findByStatus(OutboxEventStatus.FAILED);
+    }
+    public boolean hideFailedOutboxEvents() {
+        return outboxEvents == null;
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.IDEMPOTENT)
+    @MemberOrder(sequence="7")
+    public String retryFailedOutboxEvents() {
+        return outboxDispatcher.retryFailed() + " outbox event(s) will be retried";
+    }
+    public boolean hideRetryFailedOutboxEvents() {
+        return outboxDispatcher == null;
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.NON_IDEMPOTENT)
+    @Prototype
+    @MemberOrder(sequence="8")
+    public String dispatchOutboxEvents() {
+        return "Outbox dispatched, " + outboxDispatcher.dispatch(1, null);
+    }
+    public boolean hideDispatchOutboxEvents() {
+        return outboxDispatcher == null;
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.SAFE)
+    @MemberOrder(sequence="9")
+    public String compactPayloadSchema() {
+        return CompactPayloadSchema.describe();
+    }
+
+    // //////////////////////////////////////
+
     @javax.inject.Inject
     private PublishingServiceRepository publishingServiceRepository;
     
     @javax.inject.Inject
     private ClockService clockService;
 
+    @javax.inject.Inject
+    private OutboxEvents outboxEvents;
+
+    @javax.inject.Inject
+    private OutboxDispatcher outboxDispatcher;
+
 }
 
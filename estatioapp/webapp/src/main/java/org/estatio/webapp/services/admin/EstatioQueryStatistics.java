@@ -0,0 +1,192 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.estatio.webapp.services.admin;
+
+import com.google.common.cache.CacheStats;
+
+import org.apache.isis.applib.annotation.ActionSemantics;
+import org.apache.isis.applib.annotation.ActionSemantics.Of;
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.DomainServiceLayout;
+import org.apache.isis.applib.annotation.MemberOrder;
+import org.apache.isis.applib.annotation.Named;
+import org.apache.isis.applib.annotation.Optional;
+import org.estatio.dom.EstatioService;
+import org.estatio.services.documents.DocumentViewModelFactory;
+import org.estatio.services.querystats.QueryStatisticsService;
+import org.estatio.services.refdata.ReferenceDataCache;
+import org.estatio.services.settings.SettingsCache;
+import org.estatio.webapp.shiro.EstatioLdapRealm;
+
+/**
+ * Exposes the statistics collected by the {@link QueryStatisticsService}, the {@link ReferenceDataCache}, the
+ * {@link SettingsCache}, the document caches of the {@link DocumentViewModelFactory} and the role cache of the
+ * {@link EstatioLdapRealm} (if configured); being plain actions, these are also available as REST resources
+ * through the Restful Objects viewer, eg
+ * <tt>/restful/services/estatioQueryStatistics/actions/queryStatistics/invoke</tt>.
+ */
+@DomainService
+@DomainServiceLayout(
+        named = "Administration",
+        menuBar = DomainServiceLayout.MenuBar.TERTIARY,
+        menuOrder = "10.2"
+)
+public class EstatioQueryStatistics extends EstatioService<EstatioQueryStatistics> {
+
+    public EstatioQueryStatistics() {
+        super(EstatioQueryStatistics.class);
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.SAFE)
+    @MemberOrder(sequence = "1")
+    @Named("Query Statistics (CSV)")
+    public String queryStatistics() {
+        return queryStatisticsService.getStatisticsAsCsv();
+    }
+    public boolean hideQueryStatistics() {
+        return queryStatisticsService == null;
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.SAFE)
+    @MemberOrder(sequence = "2")
+    @Named("Slow Queries (CSV)")
+    public String slowQueries() {
+        return queryStatisticsService.getSlowQueriesAsCsv();
+    }
+    public boolean hideSlowQueries() {
+        return queryStatisticsService == null;
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.IDEMPOTENT)
+    @MemberOrder(sequence = "3")
+    public String resetQueryStatistics() {
+        queryStatisticsService.reset();
+        return "Query statistics reset";
+    }
+    public boolean hideResetQueryStatistics() {
+        return queryStatisticsService == null;
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.SAFE)
+    @MemberOrder(sequence = "4")
+    @Named("Reference Data Cache Statistics (CSV)")
+    public String referenceDataCacheStatistics() {
+        return referenceDataCache.getStatisticsAsCsv();
+    }
+    public boolean hideReferenceDataCacheStatistics() {
+        return referenceDataCache == null;
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.IDEMPOTENT)
+    @MemberOrder(sequence = "5")
+    public String invalidateReferenceDataCache() {
+        referenceDataCache.invalidateAll();
+        return "Reference data cache invalidated";
+    }
+    public boolean hideInvalidateReferenceDataCache() {
+        return referenceDataCache == null;
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.SAFE)
+    @MemberOrder(sequence = "6")
+    @Named("LDAP Role Cache Statistics (CSV)")
+    public String ldapRoleCacheStatistics() {
+        final StringBuilder buf = new StringBuilder("realm,hits,misses,loads,loadFailures,evictions,entries\n");
+        for (final EstatioLdapRealm realm : EstatioLdapRealm.getRealms()) {
+            final CacheStats stats = realm.getRoleCacheStats();
+            buf.append(realm.getName())
+                    .append(',').append(stats.hitCount())
+                    .append(',').append(stats.missCount())
+                    .append(',').append(stats.loadSuccessCount())
+                    .append(',').append(stats.loadExceptionCount())
+                    .append(',').append(stats.evictionCount())
+                    .append(',').append(realm.getRoleCacheSize())
+                    .append('\n');
+        }
+        return buf.toString();
+    }
+    public boolean hideLdapRoleCacheStatistics() {
+        return EstatioLdapRealm.getRealms().isEmpty();
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.IDEMPOTENT)
+    @MemberOrder(sequence = "7")
+    @Named("Invalidate LDAP Role Cache")
+    public String invalidateLdapRoleCache(
+            final @Optional @Named("Username") String username) {
+        EstatioLdapRealm.invalidateRoleCaches(username);
+        return username != null
+                ? "LDAP roles of " + username + " invalidated"
+                : "LDAP role cache invalidated";
+    }
+    public boolean hideInvalidateLdapRoleCache() {
+        return EstatioLdapRealm.getRealms().isEmpty();
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.SAFE)
+    @MemberOrder(sequence = "8")
+    @Named("Settings Cache Statistics (CSV)")
+    public String settingsCacheStatistics() {
+        return settingsCache.getStatisticsAsCsv();
+    }
+    public boolean hideSettingsCacheStatistics() {
+        return settingsCache == null;
+    }
+
+    // //////////////////////////////////////
+
+    @ActionSemantics(Of.SAFE)
+    @MemberOrder(sequence = "9")
+    @Named("Document Cache Statistics (CSV)")
+    public String documentCacheStatistics() {
+        return documentViewModelFactory.getStatisticsAsCsv();
+    }
+    public boolean hideDocumentCacheStatistics() {
+        return documentViewModelFactory == null;
+    }
+
+    // //////////////////////////////////////
+
+    @javax.inject.Inject
+    private ReferenceDataCache referenceDataCache;
+
+    @javax.inject.Inject
+    private SettingsCache settingsCache;
+
+    @javax.inject.Inject
+    private DocumentViewModelFactory documentViewModelFactory;
+
+    @javax.inject.Inject
+    private QueryStatisticsService queryStatisticsService;
+
+}
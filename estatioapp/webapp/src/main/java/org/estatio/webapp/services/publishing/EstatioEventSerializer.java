@@ -0,0 +1,84 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+package org.estatio.webapp.services.publishing;
+
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.isisaddons.module.publishing.dom.eventserializer.RestfulObjectsSpecEventSerializer;
+
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.publish.EventMetadata;
+import org.apache.isis.applib.services.publish.EventPayload;
+
+import org.estatio.services.publishing.CompactPayload;
+import org.estatio.services.publishing.CompactPayloadSchema;
+import org.estatio.services.publishing.CompactPayloads;
+
+/**
+ * Serializes the payloads that support it (those of invoice and bank account events) in the
+ * {@link CompactPayloadSchema compact format}, rather than as a Restful Objects representation of the entire
+ * object graph; all other payloads are serialized as before.
+ * 
+ * <p>
+ * Configured in <tt>isis.properties</tt>:
+ * <ul>
+ * <li><tt>estatio.publishing.compactPayloads</tt> (default <tt>true</tt>) - whether to use the compact format
+ * at all;</li>
+ * <li><tt>estatio.publishing.compressFromChars</tt> (default {@value #DEFAULT_COMPRESS_FROM_CHARS}) - compact
+ * payloads of at least this length are also {@link CompactPayloads#compress(String) compressed}; a negative
+ * value disables compression.</li>
+ * </ul>
+ */
+public class EstatioEventSerializer extends RestfulObjectsSpecEventSerializer {
+
+    static final String KEY_COMPACT_PAYLOADS = "estatio.publishing.compactPayloads";
+    static final String KEY_COMPRESS_FROM_CHARS = "estatio.publishing.compressFromChars";
+    static final int DEFAULT_COMPRESS_FROM_CHARS = 1024;
+
+    private boolean compactPayloads = true;
+    private int compressFromChars = DEFAULT_COMPRESS_FROM_CHARS;
+
+    @Override
+    @PostConstruct
+    public void init(final Map<String, String> props) {
+        super.init(props);
+        final String compactPayloadsStr = props.get(KEY_COMPACT_PAYLOADS);
+        if (compactPayloadsStr != null) {
+            compactPayloads = Boolean.parseBoolean(compactPayloadsStr.trim());
+        }
+        final String compressFromCharsStr = props.get(KEY_COMPRESS_FROM_CHARS);
+        if (compressFromCharsStr != null) {
+            try {
+                compressFromChars = Integer.parseInt(compressFromCharsStr.trim());
+            } catch (final NumberFormatException e) {
+                // ignore, keep default
+            }
+        }
+    }
+
+    @Override
+    @Programmatic
+    public Object serialize(final EventMetadata metadata, final EventPayload payload) {
+        if (compactPayloads && payload instanceof CompactPayload) {
+            return CompactPayloads.serialize(metadata, (CompactPayload) payload, compressFromChars);
+        }
+        return super.serialize(metadata, payload);
+    }
+
+}
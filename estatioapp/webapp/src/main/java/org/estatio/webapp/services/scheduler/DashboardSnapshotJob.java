@@ -0,0 +1,40 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.webapp.services.scheduler;
+
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.estatio.app.DashboardSnapshotService;
+import org.estatio.services.scheduler.AbstractIsisJob;
+
+/**
+ * Refreshes the snapshot rendered by the dashboard, so that users need not wait for it to be recomputed.
+ */
+public class DashboardSnapshotJob extends AbstractIsisJob {
+
+    final static Logger LOG = LoggerFactory.getLogger(DashboardSnapshotJob.class);
+
+    protected void doExecute(JobExecutionContext context) {
+        final long start = System.currentTimeMillis();
+        getService(DashboardSnapshotService.class).refresh();
+        LOG.info(String.format("Dashboard snapshot refreshed in %d ms", System.currentTimeMillis() - start));
+    }
+}
@@ -37,7 +37,7 @@ public class LeaseStatusJob extends AbstractIsisJob {
         Leases leases = getService(Leases.class);
         int updatedCount = 0;
         LOG.info("Start Job");
-        for (Lease lease : leases.allLeases()) {
+        for (Lease lease : leases.allLeasesInPages(nextTransaction())) {
             LeaseStatus oldStatus = lease.getStatus();
             service.refreshStatus(lease);
             if (lease.getStatus() != oldStatus) {
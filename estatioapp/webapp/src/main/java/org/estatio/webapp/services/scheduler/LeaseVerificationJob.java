@@ -0,0 +1,61 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.webapp.services.scheduler;
+
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.isis.core.runtime.system.context.IsisContext;
+
+import org.estatio.services.clock.ClockService;
+import org.estatio.services.scheduler.AbstractIsisJob;
+
+/**
+ * Verifies all leases up to the current date, in parallel using a {@link ParallelLeaseVerifier}.
+ * 
+ * <p>
+ * The number of worker threads and the number of attempts per lease (on optimistic locking conflicts) can be
+ * set in the job data map using the {@link #THREADS_KEY} and {@link #MAX_ATTEMPTS_KEY} keys.
+ */
+public class LeaseVerificationJob extends AbstractIsisJob {
+
+    final static Logger LOG = LoggerFactory.getLogger(LeaseVerificationJob.class);
+
+    public static final String THREADS_KEY = "org.estatio.webapp.services.scheduler.leaseVerification.threads";
+    public static final String MAX_ATTEMPTS_KEY = "org.estatio.webapp.services.scheduler.leaseVerification.maxAttempts";
+
+    protected void doExecute(JobExecutionContext context) {
+        final int threads = intKey(context, THREADS_KEY, Runtime.getRuntime().availableProcessors());
+        final int maxAttempts = intKey(context, MAX_ATTEMPTS_KEY, 3);
+        LOG.info(String.format("Start Job, %d threads", threads));
+        final ParallelLeaseVerifier verifier =
+                new ParallelLeaseVerifier(IsisContext.getAuthenticationSession(), threads, maxAttempts);
+        final ParallelLeaseVerifier.Result result = verifier.verifyAll(getService(ClockService.class).now());
+        for (String failure : result.getFailures()) {
+            LOG.warn("Failed: " + failure);
+        }
+        LOG.info("End Job, " + result);
+    }
+
+    private int intKey(final JobExecutionContext context, final String key, final int defaultValue) {
+        final String value = getKey(context, key);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+}
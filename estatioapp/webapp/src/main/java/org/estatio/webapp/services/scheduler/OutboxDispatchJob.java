@@ -0,0 +1,49 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+package org.estatio.webapp.services.scheduler;
+
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.estatio.dom.outbox.OutboxDispatcher;
+import org.estatio.services.scheduler.AbstractIsisJob;
+
+/**
+ * Publishes the events waiting in the outbox, a batch per transaction, using the {@link OutboxDispatcher}.
+ * 
+ * <p>
+ * The maximum number of batches per run can be set in the job data map using the {@link #MAX_BATCHES_KEY} key.
+ */
+public class OutboxDispatchJob extends AbstractIsisJob {
+
+    final static Logger LOG = LoggerFactory.getLogger(OutboxDispatchJob.class);
+
+    public static final String MAX_BATCHES_KEY = "org.estatio.webapp.services.scheduler.outboxDispatch.maxBatches";
+
+    protected void doExecute(JobExecutionContext context) {
+        final String maxBatchesStr = getKey(context, MAX_BATCHES_KEY);
+        final int maxBatches = maxBatchesStr != null ? Integer.parseInt(maxBatchesStr.trim()) : 20;
+        final OutboxDispatcher.Result result = getService(OutboxDispatcher.class).dispatch(maxBatches, nextTransaction());
+        for (String failure : result.getFailures()) {
+            LOG.warn("Failed: " + failure);
+        }
+        if (result.getPublished() > 0 || !result.getFailures().isEmpty()) {
+            LOG.info("Outbox dispatched, " + result);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.webapp.services.scheduler;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jdo.JDOOptimisticVerificationException;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.joda.time.Period;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.isis.applib.services.bookmark.Bookmark;
+import org.apache.isis.applib.services.bookmark.BookmarkService;
+import org.apache.isis.core.commons.authentication.AuthenticationSession;
+import org.apache.isis.core.runtime.system.context.IsisContext;
+import org.apache.isis.core.runtime.system.transaction.IsisTransactionManager;
+import org.apache.isis.core.runtime.system.transaction.TransactionalClosure;
+
+import org.estatio.dom.asset.Properties;
+import org.estatio.dom.asset.Property;
+import org.estatio.dom.lease.Lease;
+import org.estatio.dom.lease.Leases;
+import org.estatio.dom.utils.JodaPeriodUtils;
+
+/**
+ * Verifies all leases in parallel, partitioned by property.
+ * 
+ * <p>
+ * Each property is verified on a worker thread in its own {@link IsisContext#openSession(AuthenticationSession)
+ * Isis session}; within that session each lease is verified and committed in its own transaction, so that
+ * locks are held only for the duration of a single lease rather than until the whole run completes.  A lease
+ * whose commit fails because of an optimistic locking conflict (eg with a user editing it meanwhile) is retried,
+ * up to <tt>maxAttempts</tt> times, in a new session (because the persistence manager of the failed attempt
+ * still holds the stale state); any other failure is recorded against the lease and the run continues.
+ * 
+ * <p>
+ * Each lease is verified in one partition only, that of its {@link Lease#getProperty() property}, even if it
+ * occupies units of several properties.  The leases not associated with any property are verified as one
+ * further partition.
+ */
+public class ParallelLeaseVerifier {
+
+    final static Logger LOG = LoggerFactory.getLogger(ParallelLeaseVerifier.class);
+
+    private final AuthenticationSession authSession;
+    private final int threads;
+    private final int maxAttempts;
+
+    public ParallelLeaseVerifier(
+            final AuthenticationSession authSession,
+            final int threads,
+            final int maxAttempts) {
+        this.authSession = authSession;
+        this.threads = threads;
+        this.maxAttempts = maxAttempts;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The outcome of a run.
+     */
+    public static class Result {
+
+        private final AtomicInteger verified = new AtomicInteger();
+        private final AtomicInteger retries = new AtomicInteger();
+        private final List<String> failures = Collections.synchronizedList(Lists.<String> newArrayList());
+        private final DateTime start = DateTime.now();
+        private DateTime end;
+
+        public int getVerified() {
+            return verified.get();
+        }
+
+        public int getRetries() {
+            return retries.get();
+        }
+
+        /**
+         * The leases (or properties) that could not be verified, with the reason why.
+         */
+        public List<String> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+
+        public double getLeasesPerSecond() {
+            final long millis = (end != null ? end : DateTime.now()).getMillis() - start.getMillis();
+            return millis == 0 ? 0 : getVerified() * 1000.0 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Verified %d leases in %s (%.1f leases/s), %d retries, %d failures",
+                    getVerified(),
+                    JodaPeriodUtils.asString(new Period(start, end != null ? end : DateTime.now())),
+                    getLeasesPerSecond(),
+                    getRetries(),
+                    failures.size());
+        }
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Must be called within a session and transaction (eg those of the {@link LeaseVerificationJob}), which are
+     * used to find the properties only; the leases are verified in sessions of their own, on worker threads.
+     */
+    public Result verifyAll(final LocalDate untilDate) {
+        final Result result = new Result();
+        final List<String> partitions = findPropertyReferences();
+        // the leases without a property
+        partitions.add(null);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = Lists.newArrayList();
+            for (final String propertyReference : partitions) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        verifyPartition(propertyReference, untilDate, result);
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (final ExecutionException e) {
+                    result.failures.add(labelOf(partitions.get(i)) + ": " + e.getCause());
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.failures.add("interrupted");
+        } finally {
+            executor.shutdownNow();
+            result.end = DateTime.now();
+        }
+        return result;
+    }
+
+    /**
+     * @param propertyReference - the property whose leases to verify, or <tt>null</tt> for the leases without
+     *            a property.
+     */
+    private void verifyPartition(final String propertyReference, final LocalDate untilDate, final Result result) {
+        openSession();
+        try {
+            final List<Bookmark> leaseBookmarks = inTransaction(new Callable<List<Bookmark>>() {
+                @Override
+                public List<Bookmark> call() {
+                    return findLeases(propertyReference);
+                }
+            });
+            if (propertyReference == null && !leaseBookmarks.isEmpty()) {
+                LOG.info(String.format("Verifying %d leases without a property", leaseBookmarks.size()));
+            }
+            for (final Bookmark leaseBookmark : leaseBookmarks) {
+                verifyLease(leaseBookmark, untilDate, result);
+            }
+        } finally {
+            closeSession();
+        }
+    }
+
+    private void verifyLease(final Bookmark leaseBookmark, final LocalDate untilDate, final Result result) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                inTransaction(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        verify(leaseBookmark, untilDate);
+                        return null;
+                    }
+                });
+                result.verified.incrementAndGet();
+                return;
+            } catch (final RuntimeException e) {
+                if (isOptimisticLockFailure(e) && attempt < maxAttempts) {
+                    result.retries.incrementAndGet();
+                    // the persistence manager still holds the stale state, so retry in a new one
+                    closeSession();
+                    openSession();
+                    continue;
+                }
+                LOG.warn("Failed to verify lease " + leaseBookmark, e);
+                result.failures.add(leaseBookmark + ": " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private static String labelOf(final String propertyReference) {
+        return propertyReference != null ? propertyReference : "(leases without property)";
+    }
+
+    static boolean isOptimisticLockFailure(final Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof JDOOptimisticVerificationException
+                    || t.getClass().getSimpleName().equals("ConcurrencyException")) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Hook, called within the caller's session and transaction; the list returned must be modifiable.
+     */
+    List<String> findPropertyReferences() {
+        final List<String> references = Lists.newArrayList();
+        for (final Property property : service(Properties.class).allProperties()) {
+            references.add(property.getReference());
+        }
+        return references;
+    }
+
+    /**
+     * Hook, called within a session and transaction.
+     * 
+     * @param propertyReference - or <tt>null</tt> for the leases without a property.
+     */
+    List<Bookmark> findLeases(final String propertyReference) {
+        final Leases leases = service(Leases.class);
+        final Property property = propertyReference != null
+                ? service(Properties.class).findPropertyByReference(propertyReference)
+                : null;
+        final List<Lease> leasesToVerify = property != null
+                ? leases.findLeasesByProperty(property)
+                : leases.findLeasesWithoutProperty();
+        // the leases of a property are returned once per occupancy, and also for each other property that
+        // the units they occupy belong to
+        final Set<Bookmark> bookmarks = Sets.newLinkedHashSet();
+        for (final Lease lease : leasesToVerify) {
+            if (property == null || property.equals(lease.getProperty())) {
+                bookmarks.add(service(BookmarkService.class).bookmarkFor(lease));
+            }
+        }
+        return Lists.newArrayList(bookmarks);
+    }
+
+    /**
+     * Hook, called within a session and transaction.
+     */
+    void verify(final Bookmark leaseBookmark, final LocalDate untilDate) {
+        final Lease lease = (Lease) service(BookmarkService.class).lookup(leaseBookmark);
+        lease.verifyUntil(untilDate);
+    }
+
+    void openSession() {
+        IsisContext.openSession(authSession);
+    }
+
+    void closeSession() {
+        IsisContext.closeSession();
+    }
+
+    <T> T inTransaction(final Callable<T> callable) {
+        final IsisTransactionManager transactionManager = IsisContext.getPersistenceSession().getTransactionManager();
+        final List<T> holder = Lists.newArrayListWithCapacity(1);
+        transactionManager.executeWithinTransaction(new TransactionalClosure() {
+
+            @Override
+            public void preExecute() {
+            }
+
+            @Override
+            public void execute() {
+                try {
+                    holder.add(callable.call());
+                } catch (final RuntimeException e) {
+                    throw e;
+                } catch (final Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+            }
+
+            @Override
+            public void onFailure() {
+            }
+        });
+        return holder.get(0);
+    }
+
+    private static <T> T service(final Class<T> cls) {
+        for (final Object service : IsisContext.getServices()) {
+            if (cls.isAssignableFrom(service.getClass())) {
+                return cls.cast(service);
+            }
+        }
+        throw new IllegalArgumentException("No service of type '" + cls.getName() + "' was found");
+    }
+
+}
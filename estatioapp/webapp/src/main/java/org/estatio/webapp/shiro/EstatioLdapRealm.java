@@ -23,6 +23,13 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,6 +43,12 @@ import javax.naming.ldap.LdapContext;
 
 import com.google.common.base.Function;
 import com.google.common.base.Splitter;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -48,6 +61,7 @@ import org.apache.shiro.realm.ldap.JndiLdapRealm;
 import org.apache.shiro.realm.ldap.LdapContextFactory;
 import org.apache.shiro.realm.ldap.LdapUtils;
 import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.util.Destroyable;
 
 import org.apache.isis.security.shiro.permrolemapper.PermissionToRoleMapper;
 import org.apache.isis.security.shiro.permrolemapper.PermissionToRoleMapperFromIni;
@@ -83,9 +97,21 @@ import org.apache.isis.security.shiro.permrolemapper.PermissionToRoleMapperFromS
  * # the user_role and admin_role are mapped to their permissions through the ini file, eg: 
  * ldapRealm.resourcePath=\
  *     classpath:org/estatio/webapp/webinf/local_users_and_shared_role_perms.ini
+ *
+ * # optional; the roles resolved for each user are cached (defaults shown)
+ * ldapRealm.roleCacheMaxSize = 1000
+ * ldapRealm.roleCacheTtlSeconds = 3600
+ * ldapRealm.roleCacheRefreshSeconds = 300
  * </pre>
  * 
  * <p>
+ * The roles of a user are looked up in LDAP once and then held for
+ * <tt>roleCacheTtlSeconds</tt>; once an entry is older than <tt>roleCacheRefreshSeconds</tt> it is re-read
+ * in the background, the previous roles being served meanwhile. Setting <tt>roleCacheMaxSize</tt> to
+ * <tt>0</tt> disables the cache. The cache can be invalidated through {@link #invalidateRoleCaches(String)}
+ * (exposed in the Administration menu).
+ * 
+ * <p>
  * Can also configured an ini-based realm, sharing the same role/perms:
  * <pre>
  * # the .ini file lives in src/main/resources
@@ -109,7 +135,7 @@ import org.apache.isis.security.shiro.permrolemapper.PermissionToRoleMapperFromS
  * This 'ini' file can then be referenced by other realms (if multiple realm are configured
  * with the Shiro security manager). 
  */
-public class EstatioLdapRealm extends JndiLdapRealm {
+public class EstatioLdapRealm extends JndiLdapRealm implements Destroyable {
 
     private final static SearchControls SUBTREE_SCOPE = new SearchControls();
     static {
@@ -117,38 +143,193 @@ public class EstatioLdapRealm extends JndiLdapRealm {
     }
     private static final Pattern MEMBER_OF_PATTERN = Pattern.compile("CN=([^,]+),.*");
 
+    /**
+     * All realms instantiated (normally just the one), so that their role caches can be administered.
+     */
+    private static final List<EstatioLdapRealm> REALMS = new CopyOnWriteArrayList<EstatioLdapRealm>();
+
     private String searchBase;
     
     private Map<String,List<String>> roleListByGroup = Maps.newLinkedHashMap();
     private PermissionToRoleMapper permissionToRoleMapper;
-    
+
+    private long roleCacheMaxSize = 1000;
+    private long roleCacheTtlSeconds = 3600;
+    private long roleCacheRefreshSeconds = 300;
+    private Ticker roleCacheTicker = Ticker.systemTicker();
+    private Executor roleCacheRefreshExecutor;
+    private ExecutorService ownRoleCacheRefreshExecutor;
+    private LoadingCache<String, Set<String>> roleCache;
+
     public EstatioLdapRealm() {
+        REALMS.add(this);
     }
     
     @Override
     protected AuthorizationInfo queryForAuthorizationInfo(final PrincipalCollection principals, final LdapContextFactory ldapContextFactory) throws NamingException {
-        final Set<String> roleNames = getRoles(principals, ldapContextFactory);
+        final String username = (String) getAvailablePrincipal(principals);
+        final Set<String> roleNames = getRoles(username, ldapContextFactory);
         SimpleAuthorizationInfo simpleAuthorizationInfo = new SimpleAuthorizationInfo(roleNames);
         Set<String> stringPermissions = permsFor(roleNames);
         simpleAuthorizationInfo.setStringPermissions(stringPermissions);
         return simpleAuthorizationInfo;
     }
 
-    private Set<String> getRoles(final PrincipalCollection principals, final LdapContextFactory ldapContextFactory) throws NamingException {
-        final String username = (String) getAvailablePrincipal(principals);
+    Set<String> getRoles(final String username, final LdapContextFactory ldapContextFactory) throws NamingException {
+        if(roleCacheMaxSize <= 0) {
+            return lookupRoles(username, ldapContextFactory);
+        }
+        try {
+            return getRoleCache().get(username);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if(cause instanceof AuthenticationException) {
+                // principal was not authenticated on LDAP; not cached, so will be retried
+                return Collections.emptySet();
+            }
+            if(cause instanceof NamingException) {
+                throw (NamingException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
 
-        LdapContext systemLdapCtx = null;
+    private Set<String> lookupRoles(final String username, final LdapContextFactory ldapContextFactory) throws NamingException {
         try {
-            systemLdapCtx = ldapContextFactory.getSystemLdapContext();
-            return rolesFor(username, systemLdapCtx);
+            return lookupRolesElseThrow(username, ldapContextFactory);
         } catch (AuthenticationException ex) {
             // principal was not authenticated on LDAP
             return Collections.emptySet();
+        }
+    }
+
+    private Set<String> lookupRolesElseThrow(final String username, final LdapContextFactory ldapContextFactory) throws NamingException {
+        LdapContext systemLdapCtx = null;
+        try {
+            systemLdapCtx = ldapContextFactory.getSystemLdapContext();
+            return ImmutableSet.copyOf(rolesFor(username, systemLdapCtx));
         } finally {
             LdapUtils.closeContext(systemLdapCtx);
         }
     }
 
+    private synchronized LoadingCache<String, Set<String>> getRoleCache() {
+        if(roleCache == null) {
+            // built lazily, once all the properties have been set from shiro.ini
+            final CacheLoader<String, Set<String>> loader = new CacheLoader<String, Set<String>>() {
+                @Override
+                public Set<String> load(final String username) throws NamingException {
+                    return lookupRolesElseThrow(username, getContextFactory());
+                }
+            };
+            final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                    .maximumSize(roleCacheMaxSize)
+                    .expireAfterWrite(roleCacheTtlSeconds, TimeUnit.SECONDS)
+                    .ticker(roleCacheTicker)
+                    .recordStats();
+            if(roleCacheRefreshSeconds > 0 && roleCacheRefreshSeconds < roleCacheTtlSeconds) {
+                builder.refreshAfterWrite(roleCacheRefreshSeconds, TimeUnit.SECONDS);
+            }
+            if(roleCacheRefreshExecutor == null) {
+                roleCacheRefreshExecutor = ownRoleCacheRefreshExecutor = newRoleCacheRefreshExecutor();
+            }
+            roleCache = builder.build(CacheLoader.asyncReload(loader, roleCacheRefreshExecutor));
+        }
+        return roleCache;
+    }
+
+    /**
+     * Refreshing the roles of a user is a single LDAP search, so one thread suffices; it is the realm's own (rather
+     * than shared by all realms), so that it is {@link #destroy() stopped} along with the realm, eg on redeploy.
+     */
+    private static ExecutorService newRoleCacheRefreshExecutor() {
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "EstatioLdapRealm-roleCacheRefresh");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Discards the cached roles of the specified user, or of all users if <tt>null</tt>, so that they are
+     * re-read from LDAP on next access.
+     */
+    public void invalidateRoleCache(final String username) {
+        final LoadingCache<String, Set<String>> cache;
+        synchronized (this) {
+            cache = roleCache;
+        }
+        if(cache == null) {
+            return;
+        }
+        if(username != null) {
+            cache.invalidate(username);
+        } else {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Number of users whose roles are currently cached.
+     */
+    public long getRoleCacheSize() {
+        final LoadingCache<String, Set<String>> cache;
+        synchronized (this) {
+            cache = roleCache;
+        }
+        return cache != null ? cache.size() : 0;
+    }
+
+    public CacheStats getRoleCacheStats() {
+        final LoadingCache<String, Set<String>> cache;
+        synchronized (this) {
+            cache = roleCache;
+        }
+        return cache != null ? cache.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * All {@link EstatioLdapRealm}s that have been configured (typically none or one).
+     */
+    public static List<EstatioLdapRealm> getRealms() {
+        return Collections.unmodifiableList(REALMS);
+    }
+
+    /**
+     * @see #invalidateRoleCache(String)
+     */
+    public static void invalidateRoleCaches(final String username) {
+        for (final EstatioLdapRealm realm : REALMS) {
+            realm.invalidateRoleCache(username);
+        }
+    }
+
+    /**
+     * Called by Shiro when the security manager is destroyed (eg when the webapp is undeployed): unregisters the
+     * realm, and stops the thread that refreshes its role cache.
+     */
+    @Override
+    public void destroy() {
+        REALMS.remove(this);
+        synchronized (this) {
+            roleCache = null;
+            if(ownRoleCacheRefreshExecutor != null) {
+                ownRoleCacheRefreshExecutor.shutdownNow();
+                if(roleCacheRefreshExecutor == ownRoleCacheRefreshExecutor) {
+                    roleCacheRefreshExecutor = null;
+                }
+                ownRoleCacheRefreshExecutor = null;
+            }
+        }
+    }
+
+    // //////////////////////////////////////
+
     private Set<String> rolesFor(final String userName, final LdapContext ldapCtx) throws NamingException {
         final Set<String> roleNames = Sets.newLinkedHashSet();
         final int atSymbolIndex = userName.indexOf("@");
@@ -209,6 +390,40 @@ public class EstatioLdapRealm extends JndiLdapRealm {
         this.searchBase = searchBase;
     }
 
+    /**
+     * Maximum number of users whose roles are cached; <tt>0</tt> disables the cache.
+     */
+    public void setRoleCacheMaxSize(final long roleCacheMaxSize) {
+        this.roleCacheMaxSize = roleCacheMaxSize;
+    }
+
+    /**
+     * How long the roles of a user are cached before they must be re-read from LDAP.
+     */
+    public void setRoleCacheTtlSeconds(final long roleCacheTtlSeconds) {
+        this.roleCacheTtlSeconds = roleCacheTtlSeconds;
+    }
+
+    /**
+     * How old cached roles may be before they are re-read in the background; <tt>0</tt> (or not less than
+     * the {@link #setRoleCacheTtlSeconds(long) ttl}) disables background refresh.
+     */
+    public void setRoleCacheRefreshSeconds(final long roleCacheRefreshSeconds) {
+        this.roleCacheRefreshSeconds = roleCacheRefreshSeconds;
+    }
+
+    void setRoleCacheTicker(final Ticker roleCacheTicker) {
+        this.roleCacheTicker = roleCacheTicker;
+    }
+
+    void setRoleCacheRefreshExecutor(final Executor roleCacheRefreshExecutor) {
+        this.roleCacheRefreshExecutor = roleCacheRefreshExecutor;
+    }
+
+    synchronized ExecutorService getOwnRoleCacheRefreshExecutor() {
+        return ownRoleCacheRefreshExecutor;
+    }
+
     private final static Function<String,String> TRIM = new Function<String,String>(){
         public String apply(String str) {
             return str.trim();
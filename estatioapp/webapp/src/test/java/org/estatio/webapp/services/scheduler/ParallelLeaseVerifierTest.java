@@ -0,0 +1,201 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.webapp.services.scheduler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jdo.JDOOptimisticVerificationException;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.bookmark.Bookmark;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class ParallelLeaseVerifierTest {
+
+    private static final LocalDate UNTIL_DATE = new LocalDate(2015, 1, 1);
+
+    /**
+     * Simulates the sessions (numbering each) and the leases of two properties, plus one without a property.
+     */
+    static class ParallelLeaseVerifierForTesting extends ParallelLeaseVerifier {
+
+        final AtomicInteger sessionsOpened = new AtomicInteger();
+        final ThreadLocal<Integer> currentSession = new ThreadLocal<Integer>();
+        final Map<String, List<Integer>> sessionsOfAttempts = Collections.synchronizedMap(Maps.<String, List<Integer>> newHashMap());
+        final Map<String, Integer> optimisticFailures = Maps.newHashMap();
+        final List<String> otherFailures = Lists.newArrayList();
+
+        ParallelLeaseVerifierForTesting(final int maxAttempts) {
+            super(null, 2, maxAttempts);
+        }
+
+        @Override
+        List<String> findPropertyReferences() {
+            assertThat(currentSession.get() != null, is(true));
+            return Lists.newArrayList("OXF", "KAL");
+        }
+
+        @Override
+        List<Bookmark> findLeases(final String propertyReference) {
+            if (propertyReference == null) {
+                return Arrays.asList(new Bookmark("LEASE", "NONE-001"));
+            }
+            return Arrays.asList(
+                    new Bookmark("LEASE", propertyReference + "-001"),
+                    new Bookmark("LEASE", propertyReference + "-002"));
+        }
+
+        @Override
+        void verify(final Bookmark leaseBookmark, final LocalDate untilDate) {
+            assertThat(untilDate, is(UNTIL_DATE));
+            final String reference = leaseBookmark.getIdentifier();
+            List<Integer> sessions = sessionsOfAttempts.get(reference);
+            if (sessions == null) {
+                sessions = Collections.synchronizedList(Lists.<Integer> newArrayList());
+                sessionsOfAttempts.put(reference, sessions);
+            }
+            sessions.add(currentSession.get());
+            synchronized (optimisticFailures) {
+                final Integer remaining = optimisticFailures.get(reference);
+                if (remaining != null && remaining > 0) {
+                    optimisticFailures.put(reference, remaining - 1);
+                    throw new RuntimeException(new JDOOptimisticVerificationException("stale " + reference));
+                }
+            }
+            if (otherFailures.contains(reference)) {
+                throw new IllegalStateException("broken " + reference);
+            }
+        }
+
+        @Override
+        void openSession() {
+            assertThat(currentSession.get() == null, is(true));
+            currentSession.set(sessionsOpened.incrementAndGet());
+        }
+
+        @Override
+        void closeSession() {
+            currentSession.remove();
+        }
+
+        @Override
+        <T> T inTransaction(final Callable<T> callable) {
+            assertThat(currentSession.get() != null, is(true));
+            try {
+                return callable.call();
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    ParallelLeaseVerifierForTesting verifier;
+    Integer callersSession;
+
+    @Before
+    public void setUp() throws Exception {
+        verifier = new ParallelLeaseVerifierForTesting(3);
+        // as the LeaseVerificationJob, which runs within a session of its own
+        verifier.openSession();
+        callersSession = verifier.currentSession.get();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        verifier.closeSession();
+    }
+
+    @Test
+    public void runsWithinTheCallersSession() throws Exception {
+        final ParallelLeaseVerifier.Result result = verifier.verifyAll(UNTIL_DATE);
+
+        assertThat(result.getVerified(), is(5));
+        // neither replaced nor closed
+        assertThat(verifier.currentSession.get(), is(callersSession));
+        for (final List<Integer> sessions : verifier.sessionsOfAttempts.values()) {
+            assertThat(sessions.contains(callersSession), is(false));
+        }
+    }
+
+    @Test
+    public void verifiesAllLeasesIncludingThoseWithoutProperty() throws Exception {
+        final ParallelLeaseVerifier.Result result = verifier.verifyAll(UNTIL_DATE);
+
+        assertThat(result.getVerified(), is(5));
+        assertThat(result.getRetries(), is(0));
+        assertThat(result.getFailures().isEmpty(), is(true));
+        assertThat(verifier.sessionsOfAttempts.containsKey("NONE-001"), is(true));
+    }
+
+    @Test
+    public void retriesOptimisticLockFailureInNewSession() throws Exception {
+        verifier.optimisticFailures.put("OXF-001", 1);
+
+        final ParallelLeaseVerifier.Result result = verifier.verifyAll(UNTIL_DATE);
+
+        assertThat(result.getVerified(), is(5));
+        assertThat(result.getRetries(), is(1));
+        assertThat(result.getFailures().isEmpty(), is(true));
+        final List<Integer> sessions = verifier.sessionsOfAttempts.get("OXF-001");
+        assertThat(sessions.size(), is(2));
+        assertThat(sessions.get(1), is(not(sessions.get(0))));
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() throws Exception {
+        verifier.optimisticFailures.put("KAL-002", 3);
+
+        final ParallelLeaseVerifier.Result result = verifier.verifyAll(UNTIL_DATE);
+
+        assertThat(result.getVerified(), is(4));
+        assertThat(result.getRetries(), is(2));
+        assertThat(result.getFailures().size(), is(1));
+        assertThat(verifier.sessionsOfAttempts.get("KAL-002").size(), is(3));
+    }
+
+    @Test
+    public void otherFailuresAreRecordedAndTheRunContinues() throws Exception {
+        verifier.otherFailures.add("OXF-002");
+
+        final ParallelLeaseVerifier.Result result = verifier.verifyAll(UNTIL_DATE);
+
+        assertThat(result.getVerified(), is(4));
+        assertThat(result.getRetries(), is(0));
+        assertThat(result.getFailures().size(), is(1));
+        assertThat(verifier.sessionsOfAttempts.get("OXF-002").size(), is(1));
+    }
+
+}
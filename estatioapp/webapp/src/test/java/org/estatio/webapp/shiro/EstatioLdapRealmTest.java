@@ -0,0 +1,228 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.webapp.shiro;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.NamingException;
+import javax.naming.ldap.LdapContext;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.ModificationType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Runs the realm against an in-process LDAP server holding an Active Directory-like user entry.
+ */
+public class EstatioLdapRealmTest {
+
+    private static final String BASE_DN = "DC=ECP,DC=LOC";
+    private static final String USER_DN = "CN=jvanderwal," + BASE_DN;
+    private static final String USERNAME = "jvanderwal@ecp.loc";
+
+    private static final String USERS_GROUP = "CN=ECP-Estatio-IT-Users,OU=Groups," + BASE_DN;
+    private static final String ADMINISTRATORS_GROUP = "CN=ECP-Estatio-Administrators,OU=Groups," + BASE_DN;
+
+    static class CountingContextFactory extends EstatioLdapContextFactory {
+        int lookups;
+
+        @Override
+        public LdapContext getSystemLdapContext() throws NamingException {
+            lookups++;
+            return super.getSystemLdapContext();
+        }
+    }
+
+    static class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(final long seconds) {
+            nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+        }
+    }
+
+    private static final Executor SAME_THREAD = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    private InMemoryDirectoryServer server;
+    private CountingContextFactory contextFactory;
+    private FakeTicker ticker;
+    private EstatioLdapRealm realm;
+
+    @Before
+    public void setUp() throws Exception {
+        final InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(BASE_DN);
+        config.addAdditionalBindCredentials("CN=estatio-system", "secret");
+        config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("default", 0));
+        // objectCategory, sAMAccountName and memberOf are not part of the standard schema
+        config.setSchema(null);
+        server = new InMemoryDirectoryServer(config);
+        server.startListening();
+
+        server.add("dn: " + BASE_DN, "objectClass: domain", "dc: ECP");
+        server.add("dn: " + USER_DN,
+                "objectClass: person",
+                "objectCategory: Person",
+                "cn: jvanderwal",
+                "sn: van der Wal",
+                "sAMAccountName: jvanderwal",
+                "memberOf: " + USERS_GROUP);
+
+        contextFactory = new CountingContextFactory();
+        contextFactory.setUrl("ldap://localhost:" + server.getListenPort());
+        contextFactory.setAuthenticationMechanism("simple");
+        contextFactory.setSystemUsername("CN=estatio-system");
+        contextFactory.setSystemPassword("secret");
+
+        ticker = new FakeTicker();
+
+        realm = new EstatioLdapRealm();
+        realm.setContextFactory(contextFactory);
+        realm.setSearchBase(BASE_DN);
+        final Map<String, String> roleListByGroup = ImmutableMap.of(
+                "ECP-Estatio-IT-Users", "user_role",
+                "ECP-Estatio-Administrators", "user_role|admin_role");
+        realm.setRoleListByGroup(roleListByGroup);
+        realm.setRoleCacheTtlSeconds(3600);
+        realm.setRoleCacheRefreshSeconds(300);
+        realm.setRoleCacheTicker(ticker);
+        realm.setRoleCacheRefreshExecutor(SAME_THREAD);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        realm.destroy();
+        server.shutDown(true);
+    }
+
+    private Set<String> roles() throws NamingException {
+        return realm.getRoles(USERNAME, contextFactory);
+    }
+
+    private void makeAdministrator() throws Exception {
+        server.modify(USER_DN, new Modification(ModificationType.REPLACE, "memberOf", ADMINISTRATORS_GROUP));
+    }
+
+    public static class GetRoles extends EstatioLdapRealmTest {
+
+        @Test
+        public void readFromLdapOnce() throws Exception {
+            assertThat(roles(), is((Set<String>) ImmutableSet.of("user_role")));
+            assertThat(roles(), is((Set<String>) ImmutableSet.of("user_role")));
+
+            assertThat(contextFactory.lookups, is(1));
+            assertThat(realm.getRoleCacheSize(), is(1L));
+        }
+
+        @Test
+        public void unknownUser() throws Exception {
+            assertThat(realm.getRoles("nobody@ecp.loc", contextFactory).isEmpty(), is(true));
+        }
+
+        @Test
+        public void refreshedOnceStale() throws Exception {
+            roles();
+            makeAdministrator();
+
+            ticker.advance(299);
+            assertThat(roles(), is((Set<String>) ImmutableSet.of("user_role")));
+
+            ticker.advance(2);
+            assertThat(roles(), is((Set<String>) ImmutableSet.of("user_role", "admin_role")));
+            assertThat(contextFactory.lookups, is(2));
+        }
+
+        @Test
+        public void expiredAfterTtl() throws Exception {
+            realm.setRoleCacheRefreshSeconds(0);
+            roles();
+            makeAdministrator();
+
+            ticker.advance(3599);
+            assertThat(roles(), is((Set<String>) ImmutableSet.of("user_role")));
+
+            ticker.advance(2);
+            assertThat(roles(), is((Set<String>) ImmutableSet.of("user_role", "admin_role")));
+            assertThat(contextFactory.lookups, is(2));
+        }
+
+        @Test
+        public void invalidated() throws Exception {
+            roles();
+            makeAdministrator();
+
+            EstatioLdapRealm.invalidateRoleCaches(USERNAME);
+
+            assertThat(roles(), is((Set<String>) ImmutableSet.of("user_role", "admin_role")));
+            assertThat(contextFactory.lookups, is(2));
+        }
+
+        @Test
+        public void cacheDisabled() throws Exception {
+            realm.setRoleCacheMaxSize(0);
+            roles();
+            roles();
+
+            assertThat(contextFactory.lookups, is(2));
+        }
+    }
+
+    public static class Destroy extends EstatioLdapRealmTest {
+
+        @Test
+        public void unregistersAndStopsRefreshThread() throws Exception {
+            realm.setRoleCacheRefreshExecutor(null);
+            roles();
+            final ExecutorService executor = realm.getOwnRoleCacheRefreshExecutor();
+            assertThat(executor.isShutdown(), is(false));
+
+            realm.destroy();
+
+            assertThat(EstatioLdapRealm.getRealms().contains(realm), is(false));
+            assertThat(executor.isShutdown(), is(true));
+        }
+    }
+
+}
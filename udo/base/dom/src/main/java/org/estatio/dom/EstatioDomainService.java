@@ -18,14 +18,23 @@
  */
 package org.estatio.dom;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
+import javax.jdo.FetchPlan;
 import javax.jdo.Query;
 
+import com.google.common.collect.Maps;
+
 import org.apache.isis.applib.RepositoryException;
 import org.apache.isis.applib.query.QueryDefault;
 import org.apache.isis.applib.services.jdosupport.IsisJdoSupport;
 
+import org.estatio.services.querystats.QueryStatisticsService;
+import org.estatio.services.refdata.ReferenceDataCache;
+
 public abstract class EstatioDomainService<T> extends EstatioService<T> {
 
     private final Class<T> entityType;
@@ -60,21 +69,275 @@ public abstract class EstatioDomainService<T> extends EstatioService<T> {
     }
     
     protected T firstMatch(final String queryName, final Object... paramArgs) {
-        return firstMatch(newQueryDefault(queryName, paramArgs));
+        final long start = System.nanoTime();
+        final T obj = firstMatch(newQueryDefault(queryName, paramArgs));
+        recordQuery(queryName, paramArgs, start, obj != null ? 1 : 0);
+        return obj;
     }
     
     protected T uniqueMatch(final String queryName, final Object... paramArgs) {
-        return uniqueMatch(newQueryDefault(queryName, paramArgs));
+        final long start = System.nanoTime();
+        final T obj = uniqueMatch(newQueryDefault(queryName, paramArgs));
+        recordQuery(queryName, paramArgs, start, obj != null ? 1 : 0);
+        return obj;
     }
     
     protected List<T> allMatches(final String queryName, final Object... paramArgs) {
-        return allMatches(newQueryDefault(queryName, paramArgs));
+        final long start = System.nanoTime();
+        final List<T> list = allMatches(newQueryDefault(queryName, paramArgs));
+        recordQuery(queryName, paramArgs, start, list != null ? list.size() : 0);
+        return list;
     }
 
     protected List<T> allInstances() {
-        return allInstances(getEntityType());
+        final long start = System.nanoTime();
+        final List<T> list = allInstances(getEntityType());
+        recordQuery(QUERY_NAME_ALL_INSTANCES, null, start, list != null ? list.size() : 0);
+        return list;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The number of objects fetched at a time by {@link #allInstancesInPages(Runnable)}.
+     */
+    protected static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * All instances, fetched lazily a page at a time (keyset-paginated by identity) and evicted from the
+     * persistence manager once processed; intended for batch jobs that would otherwise hold the entire table
+     * in memory, eg:
+     * 
+     * <pre>
+     * for (final Lease lease : allInstancesInPages(null)) {
+     *     lease.verifyUntil(...);
+     * }
+     * </pre>
+     * 
+     * @param afterEachPage - (optional) called once each page has been processed, before its objects are
+     *            evicted, eg to commit the transaction so far.
+     */
+    protected Iterable<T> allInstancesInPages(final Runnable afterEachPage) {
+        return allInstancesInPages(DEFAULT_PAGE_SIZE, afterEachPage);
+    }
+
+    /**
+     * As {@link #allInstancesInPages(Runnable)}, with an explicit page size.
+     */
+    protected Iterable<T> allInstancesInPages(final int pageSize, final Runnable afterEachPage) {
+        if (isisJdoSupport == null) {
+            return allInstances();
+        }
+        return new KeysetPagedIterable<T>(
+                isisJdoSupport.getJdoPersistenceManager(), getEntityType(), pageSize, afterEachPage);
     }
 
+    /**
+     * A single page of the instances, those whose identity is greater than <tt>lastId</tt> (that of the last
+     * instance of the previous page, or <tt>null</tt> for the first page), ordered by identity; for batch jobs
+     * that process (and commit) each page in a transaction of its own, rather than iterating over
+     * {@link #allInstancesInPages(int, Runnable) all instances} within a single one.
+     * 
+     * <p>
+     * The page is complete (there are no more instances) if it holds fewer than <tt>pageSize</tt> instances.
+     */
+    protected List<T> allInstancesAfter(final Object lastId, final int pageSize) {
+        if (isisJdoSupport == null) {
+            return lastId == null ? allInstances() : Collections.<T> emptyList();
+        }
+        return new KeysetPagedIterable<T>(
+                isisJdoSupport.getJdoPersistenceManager(), getEntityType(), pageSize, null).fetchPage(lastId);
+    }
+
+    /**
+     * As {@link #allMatches(String, Object...)}, but fetched lazily a page at a time, each page being evicted
+     * once processed, as per {@link #allInstancesInPages(int, Runnable)}.
+     * 
+     * <p>
+     * The pages are the named query restricted to the results following the last of the previous page, in
+     * identity order (so any ordering of the named query is not kept), see {@link NamedQueryPagedIterable}.
+     * 
+     * @param paramArgs - parameter names and values, alternately (as for {@link #allMatches(String, Object...)})
+     */
+    protected Iterable<T> allMatchesInPages(
+            final String queryName,
+            final int pageSize,
+            final Runnable afterEachPage,
+            final Object... paramArgs) {
+        if (isisJdoSupport == null) {
+            return allMatches(queryName, paramArgs);
+        }
+        final Map<String, Object> parameters = Maps.newHashMap();
+        for (int i = 0; i < paramArgs.length; i += 2) {
+            parameters.put((String) paramArgs[i], paramArgs[i + 1]);
+        }
+        return new NamedQueryPagedIterable<T>(
+                isisJdoSupport.getJdoPersistenceManager(), getEntityType(), queryName, parameters, pageSize, afterEachPage);
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The pseudo query name under which {@link #allInstances()} is recorded by the {@link QueryStatisticsService}.
+     */
+    protected static final String QUERY_NAME_ALL_INSTANCES = "allInstances";
+
+    private void recordQuery(final String queryName, final Object[] paramArgs, final long start, final int rows) {
+        if (queryStatisticsService == null) {
+            return;
+        }
+        queryStatisticsService.record(getEntityType(), queryName, paramArgs, System.nanoTime() - start, rows);
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The maximum depth of relationships followed when a {@link #withFetchGroup(String, Callable) fetch group}
+     * is active, eg <tt>Lease.items -&gt; LeaseItem.terms -&gt; LeaseTerm.invoiceItems</tt>.
+     */
+    protected static final int FETCH_GROUP_MAX_FETCH_DEPTH = 4;
+
+    /**
+     * As {@link #allMatches(String, Object...)}, but with the named JDO fetch group added to the fetch plan,
+     * so that the related objects it names are loaded up-front, in a few set-based queries, rather than lazily
+     * one row at a time.
+     * 
+     * <p>
+     * The fetch group is declared on the entities using {@link javax.jdo.annotations.FetchGroup}; using the
+     * same name across related entities (eg Lease, LeaseItem and LeaseTerm) loads the whole graph.
+     */
+    protected List<T> allMatchesWithFetchGroup(final String fetchGroup, final String queryName, final Object... paramArgs) {
+        return withFetchGroup(fetchGroup, new Callable<List<T>>() {
+            @Override
+            public List<T> call() {
+                return allMatches(queryName, paramArgs);
+            }
+        });
+    }
+
+    /**
+     * As {@link #firstMatch(String, Object...)}, but with the named JDO fetch group added to the fetch plan.
+     * 
+     * @see #allMatchesWithFetchGroup(String, String, Object...)
+     */
+    protected T firstMatchWithFetchGroup(final String fetchGroup, final String queryName, final Object... paramArgs) {
+        return withFetchGroup(fetchGroup, new Callable<T>() {
+            @Override
+            public T call() {
+                return firstMatch(queryName, paramArgs);
+            }
+        });
+    }
+
+    /**
+     * Performs the callable with the named fetch group added to the persistence manager's fetch plan (which
+     * any query created meanwhile inherits), restoring the fetch plan afterwards.
+     */
+    protected <R> R withFetchGroup(final String fetchGroup, final Callable<R> callable) {
+        if (isisJdoSupport == null) {
+            return call(callable);
+        }
+        final FetchPlan fetchPlan = isisJdoSupport.getJdoPersistenceManager().getFetchPlan();
+        final boolean addGroup = !fetchPlan.getGroups().contains(fetchGroup);
+        final int maxFetchDepth = fetchPlan.getMaxFetchDepth();
+        if (addGroup) {
+            fetchPlan.addGroup(fetchGroup);
+        }
+        fetchPlan.setMaxFetchDepth(Math.max(maxFetchDepth, FETCH_GROUP_MAX_FETCH_DEPTH));
+        try {
+            return call(callable);
+        } finally {
+            if (addGroup) {
+                fetchPlan.removeGroup(fetchGroup);
+            }
+            fetchPlan.setMaxFetchDepth(maxFetchDepth);
+        }
+    }
+
+    private static <R> R call(final Callable<R> callable) {
+        try {
+            return callable.call();
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RepositoryException(e);
+        }
+    }
+
+
+    // //////////////////////////////////////
+
+    /**
+     * As {@link #firstMatch(String, Object...)}, but for reference data: the result is held (by bookmark) in
+     * the application-scoped {@link ReferenceDataCache}, under the key (typically the reference), until
+     * {@link #invalidateCached() invalidated}.
+     */
+    protected T firstMatchCached(final String key, final String queryName, final Object... paramArgs) {
+        if (referenceDataCache == null) {
+            return firstMatch(queryName, paramArgs);
+        }
+        return referenceDataCache.find(getEntityType(), key, new Callable<T>() {
+            @Override
+            public T call() {
+                return firstMatch(queryName, paramArgs);
+            }
+        });
+    }
+
+    /**
+     * As {@link #uniqueMatch(String, Object...)}, but cached.
+     * 
+     * @see #firstMatchCached(String, String, Object...)
+     */
+    protected T uniqueMatchCached(final String key, final String queryName, final Object... paramArgs) {
+        if (referenceDataCache == null) {
+            return uniqueMatch(queryName, paramArgs);
+        }
+        return referenceDataCache.find(getEntityType(), key, new Callable<T>() {
+            @Override
+            public T call() {
+                return uniqueMatch(queryName, paramArgs);
+            }
+        });
+    }
+
+    /**
+     * As {@link #allInstances()}, but cached.
+     * 
+     * @see #firstMatchCached(String, String, Object...)
+     */
+    protected List<T> allInstancesCached() {
+        if (referenceDataCache == null) {
+            return allInstances();
+        }
+        return referenceDataCache.all(getEntityType(), new Callable<List<T>>() {
+            @Override
+            public List<T> call() {
+                return allInstances();
+            }
+        });
+    }
+
+    /**
+     * A list of instances (eg the result of several queries) obtained from the finder on a cache miss, and
+     * held in the same way as {@link #firstMatchCached(String, String, Object...)}.
+     */
+    protected List<T> allMatchesCached(final String key, final Callable<List<T>> finder) {
+        if (referenceDataCache == null) {
+            return call(finder);
+        }
+        return referenceDataCache.list(getEntityType(), key, finder);
+    }
+
+    /**
+     * To be called whenever an instance is created or changed, so that subsequent
+     * {@link #firstMatchCached(String, String, Object...) cached lookups} query afresh.
+     */
+    protected void invalidateCached() {
+        if (referenceDataCache != null) {
+            referenceDataCache.invalidate(getEntityType());
+        }
+    }
 
     // //////////////////////////////////////
 
@@ -99,4 +362,14 @@ public abstract class EstatioDomainService<T> extends EstatioService<T> {
         this.isisJdoSupport = isisJdoSupport;
     }
 
+    private QueryStatisticsService queryStatisticsService;
+    public final void injectQueryStatisticsService(final QueryStatisticsService queryStatisticsService) {
+        this.queryStatisticsService = queryStatisticsService;
+    }
+
+    private ReferenceDataCache referenceDataCache;
+    public final void injectReferenceDataCache(final ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
+    }
+
 }
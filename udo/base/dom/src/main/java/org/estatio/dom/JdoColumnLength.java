@@ -46,6 +46,8 @@ public final class JdoColumnLength {
     public final static int FQCN = 254;
     public static final int OBJECT_IDENTIFIER = 20;
     public static final int USER_NAME = 50;
+    public static final int BOOKMARK = 2000;
+    public static final int TRANSACTION_ID = 36;
 
     public static final int DURATION = 20;
 
@@ -0,0 +1,74 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.jdo.PersistenceManager;
+import javax.jdo.Query;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Iterates over all instances of an entity type a page at a time, ordered by (datastore) identity, each page
+ * being queried as those with an identity greater than the last of the previous page (keyset pagination) so
+ * that, unlike an offset, the cost of fetching a page does not grow with the position in the table.
+ * 
+ * <p>
+ * Created by {@link EstatioDomainService#allInstancesInPages(int, Runnable)}.
+ */
+class KeysetPagedIterable<T> extends PagedIterable<T> {
+
+    KeysetPagedIterable(
+            final PersistenceManager persistenceManager,
+            final Class<T> entityType,
+            final int pageSize,
+            final Runnable afterEachPage) {
+        super(persistenceManager, entityType, pageSize, afterEachPage);
+    }
+
+    @Override
+    List<T> fetchPage(final Object lastId, final int offset) {
+        return fetchPage(lastId);
+    }
+
+    List<T> fetchPage(final Object lastId) {
+        final Query query = persistenceManager.newQuery(entityType);
+        query.setOrdering(IDENTITY + " ascending");
+        query.setRange(0, pageSize);
+        try {
+            final Collection<?> results;
+            if (lastId == null) {
+                results = (Collection<?>) query.execute();
+            } else {
+                query.setFilter(IDENTITY + " > :lastId");
+                results = (Collection<?>) query.execute(lastId);
+            }
+            final List<T> page = Lists.newArrayListWithCapacity(results.size());
+            for (final Object result : results) {
+                page.add(entityType.cast(result));
+            }
+            return page;
+        } finally {
+            query.closeAll();
+        }
+    }
+
+}
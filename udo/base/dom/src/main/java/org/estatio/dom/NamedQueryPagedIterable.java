@@ -0,0 +1,159 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.jdo.PersistenceManager;
+import javax.jdo.Query;
+import javax.jdo.metadata.QueryMetadata;
+import javax.jdo.metadata.TypeMetadata;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Iterates over the results of a named (single-string JDOQL) query a page at a time, ordered by (datastore)
+ * identity, each page being the named query further restricted to the results with an identity greater than
+ * the last of the previous page (keyset pagination, as for {@link KeysetPagedIterable}), so that the cost of
+ * fetching a page does not grow with its position.
+ * 
+ * <p>
+ * The pages being in identity order, any <tt>ORDER BY</tt> (or <tt>RANGE</tt>) of the named query is not used;
+ * nor can the query declare its parameters explicitly (using <tt>PARAMETERS</tt>). As in all Estatio queries,
+ * the clauses are expected in upper case.
+ * 
+ * <p>
+ * Created by {@link EstatioDomainService#allMatchesInPages(String, int, Runnable, Object...)}.
+ */
+class NamedQueryPagedIterable<T> extends PagedIterable<T> {
+
+    private static final Pattern CLAUSE = Pattern.compile(
+            "\\b(WHERE|VARIABLES|PARAMETERS|import|GROUP BY|ORDER BY|RANGE)\\b");
+
+    private static final String LAST_ID = "lastId";
+
+    private final String firstPageQuery;
+    private final String nextPageQuery;
+    private final Map<String, Object> parameters;
+
+    NamedQueryPagedIterable(
+            final PersistenceManager persistenceManager,
+            final Class<T> entityType,
+            final String queryName,
+            final Map<String, Object> parameters,
+            final int pageSize,
+            final Runnable afterEachPage) {
+        super(persistenceManager, entityType, pageSize, afterEachPage);
+        final String jdoql = jdoqlOf(persistenceManager, entityType, queryName);
+        this.firstPageQuery = keysetQuery(jdoql, false);
+        this.nextPageQuery = keysetQuery(jdoql, true);
+        this.parameters = parameters;
+    }
+
+    @Override
+    List<T> fetchPage(final Object lastId, final int offset) {
+        final Query query;
+        final Map<String, Object> pageParameters = Maps.newHashMap(parameters);
+        if (lastId == null) {
+            query = persistenceManager.newQuery(firstPageQuery);
+        } else {
+            query = persistenceManager.newQuery(nextPageQuery);
+            pageParameters.put(LAST_ID, lastId);
+        }
+        query.setRange(0, pageSize);
+        try {
+            final Collection<?> results = (Collection<?>) query.executeWithMap(pageParameters);
+            final List<T> page = Lists.newArrayListWithCapacity(results.size());
+            for (final Object result : results) {
+                page.add(entityType.cast(result));
+            }
+            return page;
+        } finally {
+            query.closeAll();
+        }
+    }
+
+    /**
+     * The single-string JDOQL of the named query, declared on the entity type or one of its superclasses.
+     */
+    private static String jdoqlOf(final PersistenceManager persistenceManager, final Class<?> entityType, final String queryName) {
+        for (Class<?> type = entityType; type != null; type = type.getSuperclass()) {
+            final TypeMetadata metadata = persistenceManager.getPersistenceManagerFactory().getMetadata(type.getName());
+            if (metadata == null || metadata.getQueries() == null) {
+                continue;
+            }
+            for (final QueryMetadata query : metadata.getQueries()) {
+                if (queryName.equals(query.getName())) {
+                    return query.getQuery();
+                }
+            }
+        }
+        throw new IllegalArgumentException(String.format("No query named %s for %s", queryName, entityType.getName()));
+    }
+
+    /**
+     * The query, restricted (if <tt>afterLastId</tt>) to the results whose identity is greater than the
+     * <tt>:lastId</tt> parameter, and ordered by identity.
+     */
+    static String keysetQuery(final String jdoql, final boolean afterLastId) {
+        int whereStart = -1;
+        int filterEnd = jdoql.length();
+        int orderingStart = jdoql.length();
+        final Matcher clause = CLAUSE.matcher(jdoql);
+        while (clause.find()) {
+            final String keyword = clause.group(1);
+            if (keyword.equals("WHERE")) {
+                whereStart = clause.start();
+                continue;
+            }
+            if (keyword.equals("PARAMETERS")) {
+                throw new IllegalArgumentException("Explicit parameters are not supported: " + jdoql);
+            }
+            filterEnd = Math.min(filterEnd, clause.start());
+            if (keyword.equals("ORDER BY") || keyword.equals("RANGE")) {
+                orderingStart = Math.min(orderingStart, clause.start());
+            }
+        }
+        final List<String> conditions = Lists.newArrayList();
+        if (whereStart >= 0) {
+            conditions.add("(" + jdoql.substring(whereStart + "WHERE".length(), filterEnd).trim() + ")");
+        }
+        if (afterLastId) {
+            conditions.add(IDENTITY + " > :" + LAST_ID);
+        }
+        final StringBuilder buf = new StringBuilder(jdoql.substring(0, whereStart >= 0 ? whereStart : filterEnd).trim());
+        if (!conditions.isEmpty()) {
+            buf.append(" WHERE ");
+            for (int i = 0; i < conditions.size(); i++) {
+                buf.append(i > 0 ? " && " : "").append(conditions.get(i));
+            }
+        }
+        final String declarations = jdoql.substring(filterEnd, orderingStart).trim();
+        if (!declarations.isEmpty()) {
+            buf.append(' ').append(declarations);
+        }
+        return buf.append(" ORDER BY ").append(IDENTITY).append(" ascending").toString();
+    }
+
+}
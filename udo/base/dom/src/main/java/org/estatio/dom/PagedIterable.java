@@ -0,0 +1,125 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.jdo.JDOHelper;
+import javax.jdo.PersistenceManager;
+
+/**
+ * Iterates over the results of a query a page at a time, ordered by (datastore) identity.
+ * 
+ * <p>
+ * Once a page has been consumed, the (optional) callback is invoked, eg to commit the transaction, and the
+ * page's objects are then evicted from the persistence manager, so that its first level cache does not grow
+ * with the number of results.  Note that JDO does not evict dirty objects, so callers that modify the objects
+ * should commit in the callback for the memory to actually be released.
+ * 
+ * @see KeysetPagedIterable
+ * @see NamedQueryPagedIterable
+ */
+abstract class PagedIterable<T> implements Iterable<T> {
+
+    static final String IDENTITY = "JDOHelper.getObjectId(this)";
+
+    final PersistenceManager persistenceManager;
+    final Class<T> entityType;
+    final int pageSize;
+    private final Runnable afterEachPage;
+
+    PagedIterable(
+            final PersistenceManager persistenceManager,
+            final Class<T> entityType,
+            final int pageSize,
+            final Runnable afterEachPage) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.persistenceManager = persistenceManager;
+        this.entityType = entityType;
+        this.pageSize = pageSize;
+        this.afterEachPage = afterEachPage;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new PageIterator();
+    }
+
+    /**
+     * The page following that whose last object has the given identity (<tt>null</tt> for the first page), and
+     * which starts at the given (zero-based) position in the results.
+     */
+    abstract List<T> fetchPage(Object lastId, int offset);
+
+    private class PageIterator implements Iterator<T> {
+
+        private List<T> page = Collections.emptyList();
+        private Iterator<T> pageIterator = page.iterator();
+        private Object lastId;
+        private int offset;
+        private boolean exhausted;
+
+        @Override
+        public boolean hasNext() {
+            if (pageIterator.hasNext()) {
+                return true;
+            }
+            if (!page.isEmpty()) {
+                // the caller has finished with the current page
+                lastId = JDOHelper.getObjectId(page.get(page.size() - 1));
+                offset += page.size();
+                completePage();
+                page = Collections.emptyList();
+            }
+            if (exhausted) {
+                return false;
+            }
+            page = fetchPage(lastId, offset);
+            pageIterator = page.iterator();
+            exhausted = page.size() < pageSize;
+            return pageIterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return pageIterator.next();
+        }
+
+        private void completePage() {
+            if (afterEachPage != null) {
+                afterEachPage.run();
+            }
+            persistenceManager.evictAll(page);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
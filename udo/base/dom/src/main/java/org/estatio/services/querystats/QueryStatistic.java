@@ -0,0 +1,114 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.querystats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Running totals for a single named query (or <tt>allInstances</tt>) of a single entity type.
+ * 
+ * <p>
+ * Thread-safe; updated by {@link QueryStatisticsService#record(Class, String, Object[], long, int)}.
+ */
+public class QueryStatistic {
+
+    /**
+     * Upper bounds (inclusive, in milliseconds) of the latency histogram buckets; the last bucket is unbounded.
+     */
+    public static final long[] HISTOGRAM_BUCKET_MILLIS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+
+    private final String entityType;
+    private final String queryName;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKET_MILLIS.length + 1);
+
+    public QueryStatistic(final String entityType, final String queryName) {
+        this.entityType = entityType;
+        this.queryName = queryName;
+    }
+
+    void record(final long nanos, final int rowCount) {
+        calls.incrementAndGet();
+        rows.addAndGet(rowCount);
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+        histogram.incrementAndGet(bucketFor(TimeUnit.NANOSECONDS.toMillis(nanos)));
+    }
+
+    static int bucketFor(final long millis) {
+        for (int i = 0; i < HISTOGRAM_BUCKET_MILLIS.length; i++) {
+            if (millis <= HISTOGRAM_BUCKET_MILLIS[i]) {
+                return i;
+            }
+        }
+        return HISTOGRAM_BUCKET_MILLIS.length;
+    }
+
+    // //////////////////////////////////////
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public String getQueryName() {
+        return queryName;
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos.get());
+    }
+
+    public long getMaxMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+    }
+
+    public double getMeanMillis() {
+        final long calls = getCalls();
+        return calls == 0 ? 0 : (double) totalNanos.get() / calls / 1000000;
+    }
+
+    /**
+     * The number of calls falling into each of the {@link #HISTOGRAM_BUCKET_MILLIS histogram buckets}.
+     */
+    public long[] getHistogram() {
+        final long[] counts = new long[histogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+}
@@ -0,0 +1,285 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.querystats;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.Hidden;
+import org.apache.isis.applib.annotation.Programmatic;
+
+import org.estatio.dom.EstatioService;
+
+/**
+ * Collects, per entity type and query name, the number of calls, the number of rows returned and a latency
+ * histogram of the queries issued through {@link org.estatio.dom.EstatioDomainService}; executions slower
+ * than the configured threshold are also kept, along with their parameters, in a bounded slow query log.
+ * 
+ * <p>
+ * Configured using:
+ * <ul>
+ * <li><tt>estatio.queryStatistics.slowQueryThresholdMillis</tt> (default {@value #DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS})</li>
+ * <li><tt>estatio.queryStatistics.slowQueryLogSize</tt> (default {@value #DEFAULT_SLOW_QUERY_LOG_SIZE})</li>
+ * </ul>
+ * 
+ * <p>
+ * The statistics are also available over JMX, as {@value #OBJECT_NAME}.
+ */
+@DomainService
+@Hidden
+public class QueryStatisticsService extends EstatioService<QueryStatisticsService> implements QueryStatisticsMXBean {
+
+    public static final String OBJECT_NAME = "org.estatio:type=QueryStatistics";
+
+    static final String KEY_SLOW_QUERY_THRESHOLD_MILLIS = "estatio.queryStatistics.slowQueryThresholdMillis";
+    static final String KEY_SLOW_QUERY_LOG_SIZE = "estatio.queryStatistics.slowQueryLogSize";
+
+    static final long DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS = 500;
+    static final int DEFAULT_SLOW_QUERY_LOG_SIZE = 100;
+
+    private final ConcurrentMap<String, QueryStatistic> statistics = Maps.newConcurrentMap();
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<SlowQuery>();
+
+    private volatile long slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS);
+    private int slowQueryLogSize = DEFAULT_SLOW_QUERY_LOG_SIZE;
+
+    private ObjectName objectName;
+
+    public QueryStatisticsService() {
+        super(QueryStatisticsService.class);
+    }
+
+    // //////////////////////////////////////
+
+    @Override
+    @Programmatic
+    public void init(final Map<String, String> properties) {
+        super.init(properties);
+        setSlowQueryThresholdMillis(parseLong(properties.get(KEY_SLOW_QUERY_THRESHOLD_MILLIS), DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS));
+        slowQueryLogSize = (int) parseLong(properties.get(KEY_SLOW_QUERY_LOG_SIZE), DEFAULT_SLOW_QUERY_LOG_SIZE);
+        registerMBean();
+    }
+
+    @Override
+    @Programmatic
+    public void shutdown() {
+        unregisterMBean();
+        super.shutdown();
+    }
+
+    private static long parseLong(final String value, final long defaultValue) {
+        try {
+            return value != null ? Long.parseLong(value.trim()) : defaultValue;
+        } catch (final NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                // eg a previous webapp deployment in the same JVM
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (final JMException e) {
+            // not fatal; the statistics remain available through the admin menu
+            objectName = null;
+        }
+    }
+
+    private void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (final JMException e) {
+            // ignore
+        } finally {
+            objectName = null;
+        }
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Records a single execution of the query.
+     * 
+     * @param queryName - the named query, or eg <tt>allInstances</tt>
+     * @param paramArgs - the query's parameter names and values; only retained if the query was slow
+     * @param nanos - the elapsed time
+     * @param rows - the number of objects returned
+     */
+    @Programmatic
+    public void record(
+            final Class<?> entityType,
+            final String queryName,
+            final Object[] paramArgs,
+            final long nanos,
+            final int rows) {
+        statisticFor(entityType.getSimpleName(), queryName).record(nanos, rows);
+        if (nanos >= slowQueryThresholdNanos) {
+            final SlowQuery slowQuery = new SlowQuery(
+                    System.currentTimeMillis(),
+                    entityType.getSimpleName(),
+                    queryName,
+                    paramArgs,
+                    TimeUnit.NANOSECONDS.toMillis(nanos),
+                    rows);
+            synchronized (slowQueries) {
+                slowQueries.addFirst(slowQuery);
+                while (slowQueries.size() > slowQueryLogSize) {
+                    slowQueries.removeLast();
+                }
+            }
+        }
+    }
+
+    private QueryStatistic statisticFor(final String entityType, final String queryName) {
+        final String key = entityType + "#" + queryName;
+        final QueryStatistic statistic = statistics.get(key);
+        if (statistic != null) {
+            return statistic;
+        }
+        final QueryStatistic newStatistic = new QueryStatistic(entityType, queryName);
+        final QueryStatistic existing = statistics.putIfAbsent(key, newStatistic);
+        return existing != null ? existing : newStatistic;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The statistics collected so far, most expensive (by total elapsed time) first.
+     */
+    @Programmatic
+    public List<QueryStatistic> getStatistics() {
+        final List<QueryStatistic> list = Lists.newArrayList(statistics.values());
+        Collections.sort(list, new Comparator<QueryStatistic>() {
+            @Override
+            public int compare(final QueryStatistic o1, final QueryStatistic o2) {
+                final long diff = o2.getTotalMillis() - o1.getTotalMillis();
+                return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+            }
+        });
+        return list;
+    }
+
+    /**
+     * The most recent slow queries, most recent first.
+     */
+    @Programmatic
+    public List<SlowQuery> getSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<SlowQuery>(slowQueries);
+        }
+    }
+
+    @Programmatic
+    @Override
+    public long getTotalCalls() {
+        long total = 0;
+        for (final QueryStatistic statistic : statistics.values()) {
+            total += statistic.getCalls();
+        }
+        return total;
+    }
+
+    @Programmatic
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos);
+    }
+
+    @Programmatic
+    @Override
+    public void setSlowQueryThresholdMillis(final long slowQueryThresholdMillis) {
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+    }
+
+    @Programmatic
+    @Override
+    public void reset() {
+        statistics.clear();
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    // //////////////////////////////////////
+
+    @Programmatic
+    @Override
+    public String getStatisticsAsCsv() {
+        final StringBuilder buf = new StringBuilder("entityType,queryName,calls,rows,totalMillis,meanMillis,maxMillis");
+        for (final long bucket : QueryStatistic.HISTOGRAM_BUCKET_MILLIS) {
+            buf.append(",le").append(bucket).append("ms");
+        }
+        buf.append(",gt").append(QueryStatistic.HISTOGRAM_BUCKET_MILLIS[QueryStatistic.HISTOGRAM_BUCKET_MILLIS.length - 1]).append("ms\n");
+        for (final QueryStatistic statistic : getStatistics()) {
+            buf.append(statistic.getEntityType())
+                    .append(',').append(statistic.getQueryName())
+                    .append(',').append(statistic.getCalls())
+                    .append(',').append(statistic.getRows())
+                    .append(',').append(statistic.getTotalMillis())
+                    .append(',').append(String.format("%.2f", statistic.getMeanMillis()))
+                    .append(',').append(statistic.getMaxMillis());
+            for (final long count : statistic.getHistogram()) {
+                buf.append(',').append(count);
+            }
+            buf.append('\n');
+        }
+        return buf.toString();
+    }
+
+    @Programmatic
+    @Override
+    public String getSlowQueriesAsCsv() {
+        final StringBuilder buf = new StringBuilder("timestamp,entityType,queryName,millis,rows,parameters\n");
+        for (final SlowQuery slowQuery : getSlowQueries()) {
+            buf.append(new java.sql.Timestamp(slowQuery.getTimestamp()))
+                    .append(',').append(slowQuery.getEntityType())
+                    .append(',').append(slowQuery.getQueryName())
+                    .append(',').append(slowQuery.getMillis())
+                    .append(',').append(slowQuery.getRows())
+                    .append(",\"").append(slowQuery.getParameters().replace("\"", "\"\"")).append("\"\n");
+        }
+        return buf.toString();
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.querystats;
+
+import javax.jdo.JDOHelper;
+import javax.jdo.spi.PersistenceCapable;
+
+/**
+ * A single execution of a query that took longer than the
+ * {@link QueryStatisticsService slow query threshold}.
+ */
+public class SlowQuery {
+
+    private final long timestamp;
+    private final String entityType;
+    private final String queryName;
+    private final String parameters;
+    private final long millis;
+    private final int rows;
+
+    public SlowQuery(
+            final long timestamp,
+            final String entityType,
+            final String queryName,
+            final Object[] paramArgs,
+            final long millis,
+            final int rows) {
+        this.timestamp = timestamp;
+        this.entityType = entityType;
+        this.queryName = queryName;
+        this.parameters = parametersOf(paramArgs);
+        this.millis = millis;
+        this.rows = rows;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public String getQueryName() {
+        return queryName;
+    }
+
+    /**
+     * The query's parameter names and values, as passed to the repository; entities are shown by their object
+     * id.
+     */
+    public String getParameters() {
+        return parameters;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Renders the parameter names and values, entities by their object id rather than their
+     * <tt>toString()</tt>, which may well navigate to other (lazily loaded) objects and so issue queries of
+     * its own.
+     */
+    static String parametersOf(final Object[] paramArgs) {
+        if (paramArgs == null) {
+            return "";
+        }
+        final StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < paramArgs.length; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(render(paramArgs[i]));
+        }
+        return buf.append(']').toString();
+    }
+
+    private static String render(final Object value) {
+        if (!(value instanceof PersistenceCapable)) {
+            return String.valueOf(value);
+        }
+        final Object objectId = JDOHelper.getObjectId(value);
+        return objectId != null ? objectId.toString() : "transient " + value.getClass().getSimpleName();
+    }
+
+}
@@ -0,0 +1,289 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.refdata;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.isis.applib.RepositoryException;
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.Hidden;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.bookmark.Bookmark;
+
+import org.estatio.dom.EstatioService;
+
+/**
+ * Application-scoped cache of small, rarely changing reference data (charges, taxes, currencies, countries,
+ * states, lease types and so on), keyed by type and by (typically) reference.
+ * 
+ * <p>
+ * It is the {@link Bookmark}s that are cached rather than the entities themselves (which belong to a single
+ * session); resolving a bookmark is a lookup by id, served by the JDO caches rather than by a query.
+ * Repositories normally use this indirectly, through
+ * {@link org.estatio.dom.EstatioDomainService#firstMatchCached(String, String, Object...)} and friends.
+ * 
+ * <p>
+ * Each type's region has a version, incremented by {@link #invalidate(Class)}, which repositories call whenever
+ * they create or change an instance; a lookup that was in progress while the region was invalidated does not
+ * populate the cache. Regions also expire after <tt>estatio.referenceDataCache.ttlMinutes</tt> (default
+ * {@value #DEFAULT_TTL_MINUTES}), to pick up changes made by other webapp nodes sharing the same database.
+ */
+@DomainService
+@Hidden
+public class ReferenceDataCache extends EstatioService<ReferenceDataCache> {
+
+    static final String KEY_TTL_MINUTES = "estatio.referenceDataCache.ttlMinutes";
+    static final long DEFAULT_TTL_MINUTES = 10;
+
+    private static final String KEY_ALL = "\u0000all";
+
+    private final ConcurrentMap<Class<?>, Region> regions = Maps.newConcurrentMap();
+
+    private long ttlNanos = TimeUnit.MINUTES.toNanos(DEFAULT_TTL_MINUTES);
+
+    public ReferenceDataCache() {
+        super(ReferenceDataCache.class);
+    }
+
+    @Override
+    @Programmatic
+    public void init(final Map<String, String> properties) {
+        super.init(properties);
+        final String ttlMinutes = properties.get(KEY_TTL_MINUTES);
+        if (ttlMinutes != null) {
+            try {
+                ttlNanos = TimeUnit.MINUTES.toNanos(Long.parseLong(ttlMinutes.trim()));
+            } catch (final NumberFormatException e) {
+                // ignore, keep default
+            }
+        }
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * The instance of the type with the given key, as obtained from the finder on a cache miss.
+     * 
+     * <p>
+     * Only persistent, non-null results are cached; in particular, a key not (yet) found is looked up afresh
+     * each time.
+     */
+    @Programmatic
+    public <T> T find(final Class<T> type, final String key, final Callable<T> finder) {
+        if (key == null) {
+            return call(finder);
+        }
+        final Region region = regionFor(type);
+        final Object cached = region.get(key);
+        if (cached instanceof Bookmark) {
+            final T obj = resolve(type, (Bookmark) cached);
+            if (obj != null) {
+                region.hits.incrementAndGet();
+                return obj;
+            }
+        }
+        region.misses.incrementAndGet();
+        final long version = region.version.get();
+        final T obj = call(finder);
+        if (obj != null && getContainer().isPersistent(obj)) {
+            region.put(version, key, getBookmarkService().bookmarkFor(obj));
+        }
+        return obj;
+    }
+
+    /**
+     * All instances of the type, as obtained from the finder on a cache miss (eg to render choices).
+     */
+    @Programmatic
+    public <T> List<T> all(final Class<T> type, final Callable<List<T>> finder) {
+        return list(type, KEY_ALL, finder);
+    }
+
+    /**
+     * The instances of the type with the given key, as obtained from the finder on a cache miss; as for
+     * {@link #find(Class, String, Callable)}, but for a list (which may be empty).
+     */
+    @Programmatic
+    public <T> List<T> list(final Class<T> type, final String key, final Callable<List<T>> finder) {
+        if (key == null) {
+            return call(finder);
+        }
+        final Region region = regionFor(type);
+        final Object cached = region.get(key);
+        if (cached instanceof List) {
+            final List<T> list = resolveAll(type, (List<?>) cached);
+            if (list != null) {
+                region.hits.incrementAndGet();
+                return list;
+            }
+        }
+        region.misses.incrementAndGet();
+        final long version = region.version.get();
+        final List<T> list = call(finder);
+        final List<Bookmark> bookmarks = Lists.newArrayList();
+        for (final T obj : list) {
+            if (!getContainer().isPersistent(obj)) {
+                return list;
+            }
+            bookmarks.add(getBookmarkService().bookmarkFor(obj));
+        }
+        region.put(version, key, Collections.unmodifiableList(bookmarks));
+        return list;
+    }
+
+    private <T> T resolve(final Class<T> type, final Bookmark bookmark) {
+        try {
+            return type.cast(getBookmarkService().lookup(bookmark));
+        } catch (final RuntimeException e) {
+            // eg deleted meanwhile (perhaps by another node)
+            return null;
+        }
+    }
+
+    private <T> List<T> resolveAll(final Class<T> type, final List<?> bookmarks) {
+        final List<T> list = Lists.newArrayListWithCapacity(bookmarks.size());
+        for (final Object bookmark : bookmarks) {
+            final T obj = resolve(type, (Bookmark) bookmark);
+            if (obj == null) {
+                return null;
+            }
+            list.add(obj);
+        }
+        return list;
+    }
+
+    private static <R> R call(final Callable<R> callable) {
+        try {
+            return callable.call();
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RepositoryException(e);
+        }
+    }
+
+    // //////////////////////////////////////
+
+    /**
+     * Discards everything cached for the type, to be called whenever an instance is created, changed or deleted.
+     */
+    @Programmatic
+    public void invalidate(final Class<?> type) {
+        final Region region = regions.get(type);
+        if (region != null) {
+            region.invalidate();
+        }
+    }
+
+    @Programmatic
+    public void invalidateAll() {
+        for (final Region region : regions.values()) {
+            region.invalidate();
+        }
+    }
+
+    // //////////////////////////////////////
+
+    @Programmatic
+    public long getHits() {
+        long hits = 0;
+        for (final Region region : regions.values()) {
+            hits += region.hits.get();
+        }
+        return hits;
+    }
+
+    @Programmatic
+    public long getMisses() {
+        long misses = 0;
+        for (final Region region : regions.values()) {
+            misses += region.misses.get();
+        }
+        return misses;
+    }
+
+    /**
+     * Hits, misses and invalidations (version) per type.
+     */
+    @Programmatic
+    public String getStatisticsAsCsv() {
+        final StringBuilder buf = new StringBuilder("type,hits,misses,version,entries\n");
+        for (final Map.Entry<Class<?>, Region> entry : regions.entrySet()) {
+            final Region region = entry.getValue();
+            buf.append(entry.getKey().getSimpleName())
+                    .append(',').append(region.hits.get())
+                    .append(',').append(region.misses.get())
+                    .append(',').append(region.version.get())
+                    .append(',').append(region.entries.size())
+                    .append('\n');
+        }
+        return buf.toString();
+    }
+
+    // //////////////////////////////////////
+
+    private Region regionFor(final Class<?> type) {
+        final Region region = regions.get(type);
+        if (region != null) {
+            return region;
+        }
+        final Region newRegion = new Region();
+        final Region existing = regions.putIfAbsent(type, newRegion);
+        return existing != null ? existing : newRegion;
+    }
+
+    private class Region {
+
+        private final ConcurrentMap<String, Object> entries = Maps.newConcurrentMap();
+        private final AtomicLong version = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private volatile long loadedAt = System.nanoTime();
+
+        Object get(final String key) {
+            if (System.nanoTime() - loadedAt > ttlNanos) {
+                invalidate();
+                return null;
+            }
+            return entries.get(key);
+        }
+
+        synchronized void put(final long expectedVersion, final String key, final Object value) {
+            if (version.get() == expectedVersion) {
+                entries.put(key, value);
+            }
+        }
+
+        synchronized void invalidate() {
+            version.incrementAndGet();
+            entries.clear();
+            loadedAt = System.nanoTime();
+        }
+    }
+
+}
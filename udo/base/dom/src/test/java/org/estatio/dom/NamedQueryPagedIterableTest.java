@@ -0,0 +1,70 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.dom;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class NamedQueryPagedIterableTest {
+
+    public static class KeysetQuery extends NamedQueryPagedIterableTest {
+
+        private static final String JDOQL = "SELECT "
+                + "FROM org.estatio.dom.lease.LeaseTerm "
+                + "WHERE leaseItem.type == :leaseItemType "
+                + "   && leaseItem.lease.occupancies.contains(lu) "
+                + "VARIABLES org.estatio.dom.lease.Occupancy lu "
+                + "ORDER BY startDate DESC";
+
+        @Test
+        public void firstPage() throws Exception {
+            assertThat(NamedQueryPagedIterable.keysetQuery(JDOQL, false), is("SELECT "
+                    + "FROM org.estatio.dom.lease.LeaseTerm "
+                    + "WHERE (leaseItem.type == :leaseItemType    && leaseItem.lease.occupancies.contains(lu)) "
+                    + "VARIABLES org.estatio.dom.lease.Occupancy lu "
+                    + "ORDER BY JDOHelper.getObjectId(this) ascending"));
+        }
+
+        @Test
+        public void nextPage() throws Exception {
+            assertThat(NamedQueryPagedIterable.keysetQuery(JDOQL, true), is("SELECT "
+                    + "FROM org.estatio.dom.lease.LeaseTerm "
+                    + "WHERE (leaseItem.type == :leaseItemType    && leaseItem.lease.occupancies.contains(lu)) "
+                    + "&& JDOHelper.getObjectId(this) > :lastId "
+                    + "VARIABLES org.estatio.dom.lease.Occupancy lu "
+                    + "ORDER BY JDOHelper.getObjectId(this) ascending"));
+        }
+
+        @Test
+        public void withoutFilter() throws Exception {
+            assertThat(NamedQueryPagedIterable.keysetQuery("SELECT FROM org.estatio.dom.lease.Lease ORDER BY reference", true),
+                    is("SELECT FROM org.estatio.dom.lease.Lease "
+                            + "WHERE JDOHelper.getObjectId(this) > :lastId "
+                            + "ORDER BY JDOHelper.getObjectId(this) ascending"));
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void explicitParameters() throws Exception {
+            NamedQueryPagedIterable.keysetQuery("SELECT FROM org.estatio.dom.lease.Lease WHERE reference == ref PARAMETERS String ref", true);
+        }
+    }
+
+}
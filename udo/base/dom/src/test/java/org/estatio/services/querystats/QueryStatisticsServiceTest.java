@@ -0,0 +1,137 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.querystats;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.jdo.spi.PersistenceCapable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class QueryStatisticsServiceTest {
+
+    static class SomeEntity {
+    }
+
+    private QueryStatisticsService service;
+
+    @Before
+    public void setUp() throws Exception {
+        service = new QueryStatisticsService();
+        service.setSlowQueryThresholdMillis(100);
+    }
+
+    public static class Record extends QueryStatisticsServiceTest {
+
+        @Test
+        public void accumulatesPerQuery() throws Exception {
+            service.record(SomeEntity.class, "findByReference", new Object[] { "reference", "A" }, millis(2), 1);
+            service.record(SomeEntity.class, "findByReference", new Object[] { "reference", "B" }, millis(20), 0);
+            service.record(SomeEntity.class, "allInstances", null, millis(3), 10);
+
+            final List<QueryStatistic> statistics = service.getStatistics();
+            assertThat(statistics.size(), is(2));
+
+            final QueryStatistic first = statistics.get(0);
+            assertThat(first.getEntityType(), is("SomeEntity"));
+            assertThat(first.getQueryName(), is("findByReference"));
+            assertThat(first.getCalls(), is(2L));
+            assertThat(first.getRows(), is(1L));
+            assertThat(first.getTotalMillis(), is(22L));
+            assertThat(first.getMaxMillis(), is(20L));
+            assertThat(first.getHistogram()[1], is(1L));
+            assertThat(first.getHistogram()[3], is(1L));
+
+            assertThat(service.getTotalCalls(), is(3L));
+            assertThat(service.getSlowQueries().isEmpty(), is(true));
+        }
+
+        @Test
+        public void slowQueriesLoggedWithParameters() throws Exception {
+            service.record(SomeEntity.class, "findByReference", new Object[] { "reference", "A" }, millis(150), 1);
+
+            final List<SlowQuery> slowQueries = service.getSlowQueries();
+            assertThat(slowQueries.size(), is(1));
+            assertThat(slowQueries.get(0).getMillis(), is(150L));
+            assertThat(slowQueries.get(0).getParameters(), is("[reference, A]"));
+        }
+
+        @Test
+        public void slowQueriesLoggedWithEntityParametersByObjectId() throws Exception {
+            final Object entity = entityWithObjectId("42[OID]org.estatio.dom.SomeEntity");
+
+            service.record(SomeEntity.class, "findByOwner", new Object[] { "owner", entity }, millis(150), 1);
+
+            final List<SlowQuery> slowQueries = service.getSlowQueries();
+            assertThat(slowQueries.get(0).getParameters(), is("[owner, 42[OID]org.estatio.dom.SomeEntity]"));
+        }
+
+        @Test
+        public void reset() throws Exception {
+            service.record(SomeEntity.class, "findByReference", null, millis(150), 1);
+            service.reset();
+
+            assertThat(service.getStatistics().isEmpty(), is(true));
+            assertThat(service.getSlowQueries().isEmpty(), is(true));
+        }
+    }
+
+    public static class BucketFor extends QueryStatisticsServiceTest {
+
+        @Test
+        public void boundaries() throws Exception {
+            assertThat(QueryStatistic.bucketFor(0), is(0));
+            assertThat(QueryStatistic.bucketFor(1), is(0));
+            assertThat(QueryStatistic.bucketFor(2), is(1));
+            assertThat(QueryStatistic.bucketFor(5000), is(7));
+            assertThat(QueryStatistic.bucketFor(5001), is(8));
+        }
+    }
+
+    /**
+     * An entity (as enhanced) whose <tt>toString()</tt> must not be called.
+     */
+    private static Object entityWithObjectId(final Object objectId) {
+        return Proxy.newProxyInstance(
+                QueryStatisticsServiceTest.class.getClassLoader(),
+                new Class<?>[] { PersistenceCapable.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        if (method.getName().equals("jdoGetObjectId")) {
+                            return objectId;
+                        }
+                        throw new AssertionError("unexpected call to " + method.getName());
+                    }
+                });
+    }
+
+    private static long millis(final long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ *
+ *  Copyright 2012-2014 Eurocommercial Properties NV
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.estatio.services.refdata;
+
+import java.util.concurrent.Callable;
+
+import org.jmock.Expectations;
+import org.jmock.auto.Mock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.isis.applib.DomainObjectContainer;
+import org.apache.isis.applib.services.bookmark.Bookmark;
+import org.apache.isis.applib.services.bookmark.BookmarkService;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2;
+import org.apache.isis.core.unittestsupport.jmocking.JUnitRuleMockery2.Mode;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ReferenceDataCacheTest {
+
+    @Rule
+    public JUnitRuleMockery2 context = JUnitRuleMockery2.createFor(Mode.INTERFACES_AND_CLASSES);
+
+    @Mock
+    private DomainObjectContainer mockContainer;
+
+    @Mock
+    private BookmarkService mockBookmarkService;
+
+    static class SomeReferenceData {
+    }
+
+    static class CountingFinder implements Callable<SomeReferenceData> {
+        int calls;
+        SomeReferenceData result;
+
+        @Override
+        public SomeReferenceData call() {
+            calls++;
+            return result;
+        }
+    }
+
+    private ReferenceDataCache cache;
+    private SomeReferenceData obj;
+    private Bookmark bookmark;
+    private CountingFinder finder;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new ReferenceDataCache();
+        cache.setContainer(mockContainer);
+        cache.injectBookmarkService(mockBookmarkService);
+
+        obj = new SomeReferenceData();
+        bookmark = new Bookmark("SOME", "1");
+        finder = new CountingFinder();
+        finder.result = obj;
+
+        context.checking(new Expectations() {
+            {
+                allowing(mockContainer).isPersistent(obj);
+                will(returnValue(true));
+                allowing(mockBookmarkService).bookmarkFor(obj);
+                will(returnValue(bookmark));
+                allowing(mockBookmarkService).lookup(bookmark);
+                will(returnValue(obj));
+            }
+        });
+    }
+
+    @Test
+    public void missThenHit() throws Exception {
+        assertThat(cache.find(SomeReferenceData.class, "REF", finder), is(sameInstance(obj)));
+        assertThat(cache.find(SomeReferenceData.class, "REF", finder), is(sameInstance(obj)));
+
+        assertThat(finder.calls, is(1));
+        assertThat(cache.getMisses(), is(1L));
+        assertThat(cache.getHits(), is(1L));
+    }
+
+    @Test
+    public void invalidated() throws Exception {
+        cache.find(SomeReferenceData.class, "REF", finder);
+        cache.invalidate(SomeReferenceData.class);
+        cache.find(SomeReferenceData.class, "REF", finder);
+
+        assertThat(finder.calls, is(2));
+        assertThat(cache.getMisses(), is(2L));
+    }
+
+    @Test
+    public void notFoundIsNotCached() throws Exception {
+        finder.result = null;
+        assertThat(cache.find(SomeReferenceData.class, "REF", finder), is(nullValue()));
+        assertThat(cache.find(SomeReferenceData.class, "REF", finder), is(nullValue()));
+
+        assertThat(finder.calls, is(2));
+    }
+
+    @Test
+    public void invalidatedWhileLoading() throws Exception {
+        final Callable<SomeReferenceData> invalidatingFinder = new Callable<SomeReferenceData>() {
+            @Override
+            public SomeReferenceData call() {
+                // eg another thread creates a new instance meanwhile
+                cache.invalidate(SomeReferenceData.class);
+                return obj;
+            }
+        };
+        cache.find(SomeReferenceData.class, "REF", invalidatingFinder);
+        cache.find(SomeReferenceData.class, "REF", finder);
+
+        assertThat(finder.calls, is(1));
+    }
+
+}